@@ -0,0 +1,279 @@
+package net.libyaguide.gpay.sdk.archive;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.TransactionReader;
+import net.libyaguide.gpay.sdk.model.OperationType;
+import net.libyaguide.gpay.sdk.model.StatementTransaction;
+import net.libyaguide.gpay.sdk.model.TransactionStatus;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * StatementArchive keeps daily statements on local disk and answers queries over them from in-memory indexes.
+ * <p>
+ * <b>Storage:</b>
+ * <ul>
+ *   <li>The archive is a directory with one file per statement day, named {@code yyyy-MM-dd.gst}: a gzip-compressed
+ *       binary list of the day's transactions.</li>
+ *   <li>A day file is written to a temporary file and moved into place, so readers never see a partial day.</li>
+ *   <li>{@link #sync} fetches the days missing from the archive with {@code readStatement}; today is always
+ *       fetched again, as it is still changing.</li>
+ * </ul>
+ *
+ * <b>Indexes:</b>
+ * <ul>
+ *   <li>Transactions are held column-wise in day order, so a day range is a binary search.</li>
+ *   <li>Reference numbers and transaction IDs are hash-indexed; amounts are kept sorted; operation types and
+ *       statuses are bitmaps. See {@link TransactionQuery} for how each criterion uses them.</li>
+ *   <li>The indexes are rebuilt on the first query after the archive changes and then shared by all queries.
+ *       Large scans are split across the common fork-join pool.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   StatementArchive archive = StatementArchive.open(Paths.get("statements"));
+ *   archive.sync(client, LocalDate.now().minusYears(1), LocalDate.now());
+ *   TransactionQuery query = new TransactionQuery();
+ *   query.setReferenceNo("INV-2024-0042");
+ *   List&lt;StatementTransaction&gt; matches = archive.query(query);
+ * </pre>
+ */
+public class StatementArchive {
+    private static final String SUFFIX = ".gst";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long MAGIC = 0x4750415953544d31L; // "GPAYSTM1"
+
+    private final Path directory;
+    private final ConcurrentSkipListMap<LocalDate, List<StatementTransaction>> days = new ConcurrentSkipListMap<>();
+    private final ReentrantLock indexLock = new ReentrantLock();
+    private volatile TransactionIndex index;
+
+    private StatementArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens an archive, creating its directory if needed, and loads the stored days.
+     * @param directory The archive directory.
+     * @return The archive.
+     * @throws IOException if the directory cannot be created or a day file cannot be read.
+     */
+    public static StatementArchive open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        StatementArchive archive = new StatementArchive(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                if (!name.endsWith(SUFFIX)) {
+                    continue;
+                }
+                LocalDate day;
+                try {
+                    day = LocalDate.parse(name.substring(0, name.length() - SUFFIX.length()));
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                archive.days.put(day, read(file));
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * Fetches the statements of the days in a range that are not archived yet, plus today if it is in the range.
+     * @param client The client to fetch with.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return The number of days fetched.
+     * @throws Exception if a request, its verification or writing a day file fails; the days fetched
+     *         before the failure are kept.
+     */
+    public int sync(GPayApiClient client, LocalDate from, LocalDate to) throws Exception {
+        LocalDate today = LocalDate.now();
+        int fetched = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (days.containsKey(day) && day.isBefore(today)) {
+                continue;
+            }
+            List<StatementTransaction> transactions = new ArrayList<>();
+            try (TransactionReader<StatementTransaction> reader = client.readStatement(day.toString())) {
+                StatementTransaction tx;
+                while ((tx = reader.next()) != null) {
+                    transactions.add(tx);
+                }
+            }
+            put(day, transactions);
+            fetched++;
+        }
+        return fetched;
+    }
+
+    /**
+     * Stores the statement of a day, replacing any stored before.
+     * @param day The statement day.
+     * @param transactions The day's transactions.
+     * @throws IOException if the day file cannot be written; the archive is then unchanged.
+     */
+    public void put(LocalDate day, List<StatementTransaction> transactions) throws IOException {
+        List<StatementTransaction> copy = Collections.unmodifiableList(new ArrayList<>(transactions));
+        Path file = directory.resolve(day + SUFFIX);
+        Path temp = directory.resolve(day + SUFFIX + TEMP_SUFFIX);
+        write(temp, copy);
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        indexLock.lock();
+        try {
+            days.put(day, copy);
+            index = null;
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the archived transactions matching a query.
+     * @param query The criteria.
+     * @return The matches in day order, then in statement order within a day.
+     */
+    public List<StatementTransaction> query(TransactionQuery query) {
+        return index().query(query);
+    }
+
+    /**
+     * Counts the archived transactions matching a query, up to its limit.
+     * @param query The criteria.
+     * @return The number of matches.
+     */
+    public int count(TransactionQuery query) {
+        return index().matchingRows(query).length;
+    }
+
+    /**
+     * Gets the archived statement of a day.
+     * @param day The statement day.
+     * @return The day's transactions, or null if the day is not archived.
+     */
+    public List<StatementTransaction> get(LocalDate day) {
+        return days.get(day);
+    }
+
+    /**
+     * Gets the archived days.
+     * @return The days in ascending order.
+     */
+    public NavigableSet<LocalDate> getDays() {
+        return Collections.unmodifiableNavigableSet(days.keySet());
+    }
+
+    /**
+     * Gets the number of archived transactions.
+     * @return The number of transactions.
+     */
+    public int size() {
+        return index().size();
+    }
+
+    private TransactionIndex index() {
+        TransactionIndex current = index;
+        if (current != null) {
+            return current;
+        }
+        indexLock.lock();
+        try {
+            if (index == null) {
+                index = new TransactionIndex(days);
+            }
+            return index;
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    private static void write(Path file, List<StatementTransaction> transactions) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file), 8192), 8192))) {
+            out.writeLong(MAGIC);
+            out.writeInt(transactions.size());
+            for (StatementTransaction tx : transactions) {
+                writeString(out, tx.getTransactionId());
+                writeString(out, tx.getDatetime());
+                writeDate(out, tx.getTimestamp());
+                writeString(out, tx.getDescription());
+                writeString(out, tx.getAmount() == null ? null : tx.getAmount().toPlainString());
+                writeString(out, tx.getBalance() == null ? null : tx.getBalance().toPlainString());
+                writeString(out, tx.getReferenceNo());
+                out.writeInt(tx.getOpTypeId() == null ? -1 : tx.getOpTypeId().getValue());
+                out.writeInt(tx.getStatus() == null ? -1 : tx.getStatus().getValue());
+                writeDate(out, tx.getCreatedAt());
+            }
+        }
+    }
+
+    private static List<StatementTransaction> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 8192), 8192))) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException("Not a statement archive file: " + file);
+            }
+            int count = in.readInt();
+            List<StatementTransaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                StatementTransaction tx = new StatementTransaction();
+                tx.setTransactionId(readString(in));
+                tx.setDatetime(readString(in));
+                tx.setTimestamp(readDate(in));
+                tx.setDescription(readString(in));
+                String amount = readString(in);
+                tx.setAmount(amount == null ? null : new BigDecimal(amount));
+                String balance = readString(in);
+                tx.setBalance(balance == null ? null : new BigDecimal(balance));
+                tx.setReferenceNo(readString(in));
+                int opType = in.readInt();
+                tx.setOpTypeId(opType < 0 ? null : OperationType.fromValue(opType));
+                int status = in.readInt();
+                tx.setStatus(status < 0 ? null : TransactionStatus.fromValue(status));
+                tx.setCreatedAt(readDate(in));
+                transactions.add(tx);
+            }
+            return Collections.unmodifiableList(transactions);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+}
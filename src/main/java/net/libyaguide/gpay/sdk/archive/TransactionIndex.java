@@ -0,0 +1,323 @@
+package net.libyaguide.gpay.sdk.archive;
+
+import net.libyaguide.gpay.sdk.model.OperationType;
+import net.libyaguide.gpay.sdk.model.StatementTransaction;
+import net.libyaguide.gpay.sdk.model.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable, column-oriented snapshot of archived transactions with their secondary indexes.
+ * <p>
+ * Rows are numbered in day order, so a day range is a contiguous row range. Queries narrow the rows with
+ * the cheapest applicable index first and check the remaining criteria on the columns, splitting large
+ * scans across the common fork-join pool.
+ */
+class TransactionIndex {
+    /** Scans over fewer rows than this run on the calling thread. */
+    static final int PARALLEL_THRESHOLD = 65536;
+    /** The amount index is used when it selects at most this share of the scanned rows. */
+    private static final int AMOUNT_INDEX_RATIO = 8;
+    private static final long NO_AMOUNT = Long.MIN_VALUE;
+    private static final int[] NO_ROWS = new int[0];
+
+    private final StatementTransaction[] rows;
+    private final long[] days;
+    private final long[] amounts;
+    private final String[] descriptions;
+    private final long[] sortedAmounts;
+    private final int[] rowsByAmount;
+    private final Map<String, int[]> byReference;
+    private final Map<String, int[]> byTransactionId;
+    private final BitSet[] byOperation = new BitSet[OperationType.values().length];
+    private final BitSet[] byStatus = new BitSet[TransactionStatus.values().length];
+
+    /**
+     * Builds the index.
+     * @param archive The transactions by day, iterated in ascending day order.
+     */
+    TransactionIndex(NavigableMap<LocalDate, List<StatementTransaction>> archive) {
+        int n = 0;
+        for (List<StatementTransaction> day : archive.values()) {
+            n += day.size();
+        }
+        rows = new StatementTransaction[n];
+        days = new long[n];
+        amounts = new long[n];
+        descriptions = new String[n];
+        for (int i = 0; i < byOperation.length; i++) {
+            byOperation[i] = new BitSet(n);
+        }
+        for (int i = 0; i < byStatus.length; i++) {
+            byStatus[i] = new BitSet(n);
+        }
+        Map<String, List<Integer>> references = new HashMap<>();
+        // Like reference numbers, a transaction ID may appear on more than one row; every row is kept
+        Map<String, List<Integer>> transactionIds = new HashMap<>(n * 2);
+        int row = 0;
+        for (Map.Entry<LocalDate, List<StatementTransaction>> day : archive.entrySet()) {
+            long epochDay = day.getKey().toEpochDay();
+            for (StatementTransaction tx : day.getValue()) {
+                rows[row] = tx;
+                days[row] = epochDay;
+                amounts[row] = tx.getAmount() == null ? NO_AMOUNT : toUnits(tx.getAmount());
+                descriptions[row] = tx.getDescription() == null ? null : tx.getDescription().toLowerCase(Locale.ROOT);
+                if (tx.getReferenceNo() != null) {
+                    references.computeIfAbsent(tx.getReferenceNo(), k -> new ArrayList<>(1)).add(row);
+                }
+                if (tx.getTransactionId() != null) {
+                    transactionIds.computeIfAbsent(tx.getTransactionId(), k -> new ArrayList<>(1)).add(row);
+                }
+                if (tx.getOpTypeId() != null) {
+                    byOperation[tx.getOpTypeId().ordinal()].set(row);
+                }
+                if (tx.getStatus() != null) {
+                    byStatus[tx.getStatus().ordinal()].set(row);
+                }
+                row++;
+            }
+        }
+        byReference = toRowArrays(references);
+        byTransactionId = toRowArrays(transactionIds);
+        // Sort row numbers by amount; rows without amount sort first and are skipped by range lookups
+        rowsByAmount = IntStream.range(0, n).boxed()
+            .sorted(Comparator.comparingLong((Integer r) -> amounts[r]))
+            .mapToInt(Integer::intValue).toArray();
+        sortedAmounts = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortedAmounts[i] = amounts[rowsByAmount[i]];
+        }
+    }
+
+    private static Map<String, int[]> toRowArrays(Map<String, List<Integer>> lists) {
+        Map<String, int[]> arrays = new HashMap<>(lists.size() * 2);
+        for (Map.Entry<String, List<Integer>> list : lists.entrySet()) {
+            arrays.put(list.getKey(), list.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return arrays;
+    }
+
+    /**
+     * Converts an amount to thousandths, the smallest unit of the dinar.
+     */
+    static long toUnits(BigDecimal amount) {
+        return amount.movePointRight(3).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+    int size() {
+        return rows.length;
+    }
+
+    /**
+     * Runs a query.
+     * @return the matching transactions in day order, at most {@code query.getLimit()}
+     */
+    List<StatementTransaction> query(TransactionQuery query) {
+        int[] matches = matchingRows(query);
+        List<StatementTransaction> result = new ArrayList<>(matches.length);
+        for (int row : matches) {
+            result.add(rows[row]);
+        }
+        return result;
+    }
+
+    int[] matchingRows(TransactionQuery query) {
+        int limit = query.getLimit();
+        if (limit <= 0) {
+            return NO_ROWS;
+        }
+        // Day range: rows are in day order
+        int lo = query.getFrom() == null ? 0 : lowerBound(days, query.getFrom().toEpochDay());
+        int hi = query.getTo() == null ? rows.length : lowerBound(days, query.getTo().toEpochDay() + 1);
+        if (lo >= hi) {
+            return NO_ROWS;
+        }
+        long minAmount = query.getMinAmount() == null ? NO_AMOUNT + 1 : ceilUnits(query.getMinAmount());
+        long maxAmount = query.getMaxAmount() == null ? Long.MAX_VALUE : floorUnits(query.getMaxAmount());
+        boolean amountFilter = query.getMinAmount() != null || query.getMaxAmount() != null;
+        if (amountFilter && minAmount > maxAmount) {
+            return NO_ROWS;
+        }
+        String description = query.getDescriptionContains() == null ? null : query.getDescriptionContains().toLowerCase(Locale.ROOT);
+        Residual residual = new Residual(lo, hi, amountFilter, minAmount, maxAmount, description);
+
+        // Point lookups
+        if (query.getTransactionId() != null) {
+            int[] candidates = byTransactionId.get(query.getTransactionId());
+            return filter(candidates == null ? NO_ROWS : candidates, query, residual, limit);
+        }
+        if (query.getReferenceNo() != null) {
+            int[] candidates = byReference.get(query.getReferenceNo());
+            return filter(candidates == null ? NO_ROWS : candidates, query, residual, limit);
+        }
+
+        // Bitmaps, then the amount index if it is selective enough
+        BitSet mask = null;
+        if (query.getOperationTypes() != null) {
+            mask = new BitSet(hi);
+            for (OperationType type : query.getOperationTypes()) {
+                mask.or(byOperation[type.ordinal()]);
+            }
+        }
+        if (query.getStatuses() != null) {
+            BitSet statuses = new BitSet(hi);
+            for (TransactionStatus status : query.getStatuses()) {
+                statuses.or(byStatus[status.ordinal()]);
+            }
+            if (mask == null) {
+                mask = statuses;
+            } else {
+                mask.and(statuses);
+            }
+        }
+        if (amountFilter) {
+            int first = lowerBound(sortedAmounts, minAmount);
+            int last = maxAmount == Long.MAX_VALUE ? sortedAmounts.length : lowerBound(sortedAmounts, maxAmount + 1);
+            if ((long) (last - first) * AMOUNT_INDEX_RATIO <= hi - lo) {
+                // Few rows in the amount range: visit only those, in row order
+                int[] candidates = new int[last - first];
+                int n = 0;
+                for (int i = first; i < last; i++) {
+                    int row = rowsByAmount[i];
+                    if (row >= lo && row < hi && (mask == null || mask.get(row))) {
+                        candidates[n++] = row;
+                    }
+                }
+                candidates = Arrays.copyOf(candidates, n);
+                Arrays.sort(candidates);
+                Residual rest = new Residual(lo, hi, false, minAmount, maxAmount, description);
+                int[] out = new int[Math.min(n, limit)];
+                int matched = 0;
+                for (int i = 0; i < n && matched < out.length; i++) {
+                    if (rest.matches(candidates[i])) {
+                        out[matched++] = candidates[i];
+                    }
+                }
+                return Arrays.copyOf(out, matched);
+            }
+        }
+        return scan(lo, hi, mask, residual, limit);
+    }
+
+    private int[] filter(int[] candidates, TransactionQuery query, Residual residual, int limit) {
+        int[] out = new int[Math.min(candidates.length, limit)];
+        int n = 0;
+        for (int row : candidates) {
+            if (n == out.length) {
+                break;
+            }
+            StatementTransaction tx = rows[row];
+            if (residual.matches(row)
+                    && (query.getOperationTypes() == null || (tx.getOpTypeId() != null && query.getOperationTypes().contains(tx.getOpTypeId())))
+                    && (query.getStatuses() == null || (tx.getStatus() != null && query.getStatuses().contains(tx.getStatus())))
+                    && (query.getReferenceNo() == null || query.getReferenceNo().equals(tx.getReferenceNo()))) {
+                out[n++] = row;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Scans rows {@code [lo, hi)}, restricted to the set bits of {@code mask} if given, in parallel chunks when large.
+     */
+    private int[] scan(int lo, int hi, BitSet mask, Residual residual, int limit) {
+        if (hi - lo < PARALLEL_THRESHOLD) {
+            return scanChunk(lo, hi, mask, residual, limit);
+        }
+        int chunks = (hi - lo + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD;
+        int[][] parts = IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> scanChunk(lo + c * PARALLEL_THRESHOLD, Math.min(hi, lo + (c + 1) * PARALLEL_THRESHOLD), mask, residual, limit))
+            .toArray(int[][]::new);
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] out = new int[Math.min(total, limit)];
+        int n = 0;
+        for (int[] part : parts) {
+            int take = Math.min(part.length, out.length - n);
+            System.arraycopy(part, 0, out, n, take);
+            n += take;
+            if (n == out.length) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    private int[] scanChunk(int lo, int hi, BitSet mask, Residual residual, int limit) {
+        int[] out = new int[Math.min(hi - lo, Math.min(limit, 1024))];
+        int n = 0;
+        int row = mask == null ? lo : mask.nextSetBit(lo);
+        while (row >= 0 && row < hi && n < limit) {
+            if (residual.matches(row)) {
+                if (n == out.length) {
+                    out = Arrays.copyOf(out, (int) Math.min((long) out.length * 2, Math.min(hi - lo, limit)));
+                }
+                out[n++] = row;
+            }
+            row = mask == null ? row + 1 : mask.nextSetBit(row + 1);
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * The criteria checked row by row.
+     */
+    private final class Residual {
+        private final int lo;
+        private final int hi;
+        private final boolean amountFilter;
+        private final long minAmount;
+        private final long maxAmount;
+        private final String description;
+
+        Residual(int lo, int hi, boolean amountFilter, long minAmount, long maxAmount, String description) {
+            this.lo = lo;
+            this.hi = hi;
+            this.amountFilter = amountFilter;
+            this.minAmount = minAmount;
+            this.maxAmount = maxAmount;
+            this.description = description;
+        }
+
+        boolean matches(int row) {
+            if (row < lo || row >= hi) {
+                return false;
+            }
+            if (amountFilter && (amounts[row] == NO_AMOUNT || amounts[row] < minAmount || amounts[row] > maxAmount)) {
+                return false;
+            }
+            return description == null || (descriptions[row] != null && descriptions[row].contains(description));
+        }
+    }
+
+    private static long ceilUnits(BigDecimal amount) {
+        return amount.movePointRight(3).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+
+    private static long floorUnits(BigDecimal amount) {
+        return amount.movePointRight(3).setScale(0, RoundingMode.FLOOR).longValueExact();
+    }
+
+    /**
+     * Finds the first index whose value is at least {@code key}.
+     */
+    private static int lowerBound(long[] sorted, long key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,161 @@
+package net.libyaguide.gpay.sdk.archive;
+
+import net.libyaguide.gpay.sdk.model.OperationType;
+import net.libyaguide.gpay.sdk.model.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Criteria of a {@link StatementArchive} query. All criteria that are set must match; unset criteria match
+ * every transaction.
+ * <p>
+ * <b>Criteria:</b>
+ * <ul>
+ *   <li>Reference number or transaction ID: exact match, answered from a hash index.</li>
+ *   <li>Days: the statement days, inclusive; answered by a binary search, as transactions are kept in day order.</li>
+ *   <li>Amount range: inclusive bounds on the signed amount, answered from the sorted amount index when it
+ *       selects few transactions, otherwise checked while scanning.</li>
+ *   <li>Operation types and statuses: any of the given values, answered from bitmaps.</li>
+ *   <li>Description: a case-insensitive substring, checked while scanning.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   TransactionQuery query = new TransactionQuery();
+ *   query.setFrom(LocalDate.of(2024, 3, 1));
+ *   query.setTo(LocalDate.of(2024, 3, 31));
+ *   query.setOperationTypes(EnumSet.of(OperationType.BANK_WITHDRAW));
+ *   List&lt;StatementTransaction&gt; withdrawals = archive.query(query);
+ * </pre>
+ */
+public class TransactionQuery {
+    /** The reference number, or null. */
+    private String referenceNo;
+    /** The transaction ID, or null. */
+    private String transactionId;
+    /** The first statement day, or null. */
+    private LocalDate from;
+    /** The last statement day, or null. */
+    private LocalDate to;
+    /** The smallest amount, or null. */
+    private BigDecimal minAmount;
+    /** The largest amount, or null. */
+    private BigDecimal maxAmount;
+    /** The operation types, or null for any. */
+    private Set<OperationType> operationTypes;
+    /** The statuses, or null for any. */
+    private Set<TransactionStatus> statuses;
+    /** The description substring, or null. */
+    private String descriptionContains;
+    /** The maximum number of results. */
+    private int limit = Integer.MAX_VALUE;
+
+    // Getters and setters
+    /**
+     * Gets the reference number.
+     * @return the reference number, or null
+     */
+    public String getReferenceNo() { return referenceNo; }
+    /**
+     * Sets the reference number to match exactly.
+     * @param referenceNo the reference number, or null for any
+     */
+    public void setReferenceNo(String referenceNo) { this.referenceNo = referenceNo; }
+    /**
+     * Gets the transaction ID.
+     * @return the transaction ID, or null
+     */
+    public String getTransactionId() { return transactionId; }
+    /**
+     * Sets the transaction ID to match exactly.
+     * @param transactionId the transaction ID, or null for any
+     */
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
+    /**
+     * Gets the first statement day.
+     * @return the day, or null
+     */
+    public LocalDate getFrom() { return from; }
+    /**
+     * Sets the first statement day, inclusive.
+     * @param from the day, or null for no lower bound
+     */
+    public void setFrom(LocalDate from) { this.from = from; }
+    /**
+     * Gets the last statement day.
+     * @return the day, or null
+     */
+    public LocalDate getTo() { return to; }
+    /**
+     * Sets the last statement day, inclusive.
+     * @param to the day, or null for no upper bound
+     */
+    public void setTo(LocalDate to) { this.to = to; }
+    /**
+     * Gets the smallest amount.
+     * @return the amount, or null
+     */
+    public BigDecimal getMinAmount() { return minAmount; }
+    /**
+     * Sets the smallest amount, inclusive. Debits have negative amounts.
+     * @param minAmount the amount, or null for no lower bound
+     */
+    public void setMinAmount(BigDecimal minAmount) { this.minAmount = minAmount; }
+    /**
+     * Gets the largest amount.
+     * @return the amount, or null
+     */
+    public BigDecimal getMaxAmount() { return maxAmount; }
+    /**
+     * Sets the largest amount, inclusive.
+     * @param maxAmount the amount, or null for no upper bound
+     */
+    public void setMaxAmount(BigDecimal maxAmount) { this.maxAmount = maxAmount; }
+    /**
+     * Gets the operation types.
+     * @return the operation types, or null for any
+     */
+    public Set<OperationType> getOperationTypes() { return operationTypes; }
+    /**
+     * Sets the operation types, any of which matches; an empty set matches nothing.
+     * @param operationTypes the operation types, or null for any
+     */
+    public void setOperationTypes(Set<OperationType> operationTypes) {
+        this.operationTypes = operationTypes == null ? null : operationTypes.isEmpty() ? EnumSet.noneOf(OperationType.class) : EnumSet.copyOf(operationTypes);
+    }
+    /**
+     * Gets the statuses.
+     * @return the statuses, or null for any
+     */
+    public Set<TransactionStatus> getStatuses() { return statuses; }
+    /**
+     * Sets the statuses, any of which matches; an empty set matches nothing.
+     * @param statuses the statuses, or null for any
+     */
+    public void setStatuses(Set<TransactionStatus> statuses) {
+        this.statuses = statuses == null ? null : statuses.isEmpty() ? EnumSet.noneOf(TransactionStatus.class) : EnumSet.copyOf(statuses);
+    }
+    /**
+     * Gets the description substring.
+     * @return the substring, or null
+     */
+    public String getDescriptionContains() { return descriptionContains; }
+    /**
+     * Sets a substring the description must contain, ignoring case.
+     * @param descriptionContains the substring, or null for any
+     */
+    public void setDescriptionContains(String descriptionContains) { this.descriptionContains = descriptionContains; }
+    /**
+     * Gets the maximum number of results.
+     * @return the limit
+     */
+    public int getLimit() { return limit; }
+    /**
+     * Sets the maximum number of results, the earliest first (default: no limit).
+     * @param limit the limit
+     */
+    public void setLimit(int limit) { this.limit = limit; }
+}
@@ -0,0 +1,493 @@
+package net.libyaguide.gpay.sdk.audit;
+
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * AuditLog writes audit records to compressed segment files on a background thread.
+ * <p>
+ * <b>Calling thread:</b> {@link #record(AuditRecord)} only puts the record on a lock-free queue and wakes the
+ * writer if it sleeps; redaction, serialization, compression and I/O all happen on the writer.
+ * <p>
+ * <b>Segments:</b>
+ * <ul>
+ *   <li>Records are written as JSON lines to {@code gpay-audit-<UTC time>-<n>.jsonl.gz} in the directory.</li>
+ *   <li>The writer drains the queue in batches of up to {@code batchSize} and flushes the compressor after
+ *       each batch, so a crash loses at most the batch being written. The last segment of a crashed process
+ *       has no gzip trailer; {@code zcat} still reads its records.</li>
+ *   <li>A new segment starts when the current one reaches {@code maxSegmentBytes} compressed bytes or is
+ *       {@code maxSegmentMillis} old.</li>
+ * </ul>
+ * <b>Redaction:</b> headers in {@code redactedHeaders} (default: Authorization, Cookie, Set-Cookie,
+ * Proxy-Authorization) and JSON fields in {@code redactedFields} (default: none) are written as {@code ***}.
+ * <p>
+ * <b>Overflow:</b> when {@code capacity} records are queued,
+ * <ul>
+ *   <li>BLOCK - the caller waits up to {@code maxBlockMillis} for space, then drops the record (default). Without
+ *       a running writer nothing would make space, so the record is dropped at once.</li>
+ *   <li>DROP_NEWEST - the new record is dropped.</li>
+ *   <li>DROP_OLDEST - the oldest queued record is dropped to make room.</li>
+ * </ul>
+ * Dropped records and failed writes are counted, never thrown.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   AuditLog audit = new AuditLog(Paths.get("/var/log/gpay"));
+ *   audit.setRedactedFields(Arrays.asList("wallet_gateway_id"));
+ *   audit.start();
+ *   client.setAuditSink(audit);
+ *   ...
+ *   audit.close();   // writes the queued records and finishes the segment
+ * </pre>
+ */
+public class AuditLog implements AuditSink, Closeable {
+    /**
+     * Enum for what happens when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait for space. */
+        BLOCK,
+        /** Drop the new record. */
+        DROP_NEWEST,
+        /** Drop the oldest queued record. */
+        DROP_OLDEST
+    }
+
+    private static final String MASK = "***";
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final ConcurrentLinkedQueue<AuditRecord> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicInteger segments = new AtomicInteger();
+    private volatile Thread writer;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private volatile int capacity = 65536;
+    private volatile long maxBlockMillis = 5000;
+    private volatile int batchSize = 1024;
+    private volatile long flushIntervalMillis = 200;
+    private volatile long maxSegmentBytes = 64L * 1024 * 1024;
+    private volatile long maxSegmentMillis = TimeUnit.HOURS.toMillis(1);
+    private volatile boolean fsync;
+    private volatile Set<String> redactedHeaders = new HashSet<>(Arrays.asList("authorization", "cookie", "set-cookie", "proxy-authorization"));
+    private volatile Pattern redactedFields;
+
+    // Writer state, only touched by the writer thread
+    private FileOutputStream file;
+    private GZIPOutputStream gzip;
+    private JsonWriter json;
+    private BufferedWriter text;
+    private long segmentStart;
+
+    /**
+     * Constructs an audit log writing to the given directory, created if needed.
+     * @param directory The directory of the segment files.
+     */
+    public AuditLog(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Starts the background writer. Records offered before start are queued.
+     * @throws IOException if the directory cannot be created.
+     * @throws IllegalStateException if already started or closed.
+     */
+    public void start() throws IOException {
+        if (closed || writer != null) {
+            throw new IllegalStateException("Audit log already started or closed");
+        }
+        Files.createDirectories(directory);
+        Thread thread = GPayExecutors.threadFactory("gpay-audit-writer").newThread(this::writeLoop);
+        writer = thread;
+        thread.start();
+    }
+
+    @Override
+    public void record(AuditRecord record) {
+        long blockedSince = 0;
+        while (true) {
+            if (closed) {
+                dropped.incrementAndGet();
+                return;
+            }
+            int n = queued.get();
+            if (n < capacity) {
+                if (queued.compareAndSet(n, n + 1)) {
+                    break;
+                }
+                continue;
+            }
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    dropped.incrementAndGet();
+                    return;
+                case DROP_OLDEST:
+                    if (queue.poll() != null) {
+                        // Take over the slot of the dropped record
+                        dropped.incrementAndGet();
+                        queue.offer(record);
+                        wakeWriter();
+                        return;
+                    }
+                    break;
+                default:
+                    Thread thread = writer;
+                    if (thread == null || !thread.isAlive()) {
+                        // Not started yet or dead; waiting would never end
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    long now = System.nanoTime();
+                    if (blockedSince == 0) {
+                        blockedSince = now;
+                    } else if (now - blockedSince >= TimeUnit.MILLISECONDS.toNanos(maxBlockMillis)) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    wakeWriter();
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+        queue.offer(record);
+        wakeWriter();
+    }
+
+    private void wakeWriter() {
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        List<AuditRecord> batch = new ArrayList<>();
+        while (true) {
+            AuditRecord record;
+            while (batch.size() < batchSize && (record = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(record);
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+                continue;
+            }
+            if (closed) {
+                break;
+            }
+            rotateIfDue();
+            writerParked = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+            }
+            writerParked = false;
+        }
+        try {
+            finishSegment();
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+        }
+    }
+
+    private void writeBatch(List<AuditRecord> batch) {
+        try {
+            rotateIfDue();
+            if (json == null) {
+                openSegment();
+            }
+            for (AuditRecord record : batch) {
+                write(record);
+                text.write('\n');
+            }
+            // Also flushes the compressor, which was created with sync flush
+            text.flush();
+            if (fsync) {
+                file.getChannel().force(false);
+            }
+            written.addAndGet(batch.size());
+        } catch (IOException e) {
+            writeErrors.addAndGet(batch.size());
+            // Start over on a fresh segment; the broken one is left as it is
+            closeQuietly();
+        }
+    }
+
+    private void write(AuditRecord record) throws IOException {
+        json.beginObject();
+        json.name("ts").value(record.getTimestampMillis());
+        json.name("type").value(record.getType().name());
+        json.name("call").value(record.getCallId());
+        json.name("endpoint").value(record.getEndpoint());
+        if (record.getCode() >= 0) {
+            json.name("code").value(record.getCode());
+        }
+        if (record.getVerified() != null) {
+            json.name("verified").value(record.getVerified());
+        }
+        if (record.getError() != null) {
+            json.name("error").value(record.getError());
+        }
+        Set<String> redacted = redactedHeaders;
+        json.name("headers").beginObject();
+        for (Map.Entry<String, String> header : record.getHeaders().entrySet()) {
+            json.name(header.getKey()).value(redacted.contains(header.getKey().toLowerCase()) ? MASK : header.getValue());
+        }
+        json.endObject();
+        json.name("body").value(redactBody(record.getBody()));
+        json.endObject();
+    }
+
+    private String redactBody(String body) {
+        Pattern fields = redactedFields;
+        if (body == null || fields == null) {
+            return body;
+        }
+        Matcher m = fields.matcher(body);
+        StringBuffer sb = new StringBuffer(body.length());
+        while (m.find()) {
+            m.appendReplacement(sb, Matcher.quoteReplacement(m.group(1) + "\"" + MASK + "\""));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private void rotateIfDue() {
+        if (json == null) {
+            return;
+        }
+        try {
+            if (file.getChannel().position() >= maxSegmentBytes
+                    || System.currentTimeMillis() - segmentStart >= maxSegmentMillis) {
+                finishSegment();
+            }
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            closeQuietly();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentStart = System.currentTimeMillis();
+        String name = "gpay-audit-" + SEGMENT_TIME.format(Instant.ofEpochMilli(segmentStart))
+            + "-" + segments.incrementAndGet() + ".jsonl.gz";
+        file = new FileOutputStream(directory.resolve(name).toFile());
+        gzip = new GZIPOutputStream(file, 64 * 1024, true);
+        text = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+        json = new JsonWriter(text);
+        json.setLenient(true);
+    }
+
+    private void finishSegment() throws IOException {
+        if (json == null) {
+            return;
+        }
+        try {
+            text.flush();
+            gzip.finish();
+            if (fsync) {
+                file.getChannel().force(false);
+            }
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (file != null) {
+                file.close();
+            }
+        } catch (IOException ignored) {
+            // Nothing more to lose
+        }
+        file = null;
+        gzip = null;
+        text = null;
+        json = null;
+    }
+
+    /**
+     * Stops accepting records, writes the queued ones and finishes the current segment.
+     * Waits up to 30 seconds for the writer.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!thread.isAlive()) {
+            // Records offered while the writer was finishing
+            while (queue.poll() != null) {
+                queued.decrementAndGet();
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    // Getters and setters
+    /**
+     * Gets the number of records written.
+     * @return the number of records
+     */
+    public long getWrittenCount() { return written.get(); }
+    /**
+     * Gets the number of records dropped because the queue was full, no writer was running or the log closed.
+     * @return the number of records
+     */
+    public long getDroppedCount() { return dropped.get(); }
+    /**
+     * Gets the number of records that could not be written.
+     * @return the number of records
+     */
+    public long getWriteErrors() { return writeErrors.get(); }
+    /**
+     * Gets the number of records waiting for the writer.
+     * @return the queue depth
+     */
+    public int getQueueDepth() { return queued.get(); }
+    /**
+     * Gets the number of segment files started.
+     * @return the number of segments
+     */
+    public int getSegmentCount() { return segments.get(); }
+    /**
+     * Gets what happens when the queue is full.
+     * @return the overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    /**
+     * Sets what happens when the queue is full (default: BLOCK).
+     * @param overflowPolicy the overflow policy
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+    /**
+     * Gets the maximum number of queued records.
+     * @return the capacity
+     */
+    public int getCapacity() { return capacity; }
+    /**
+     * Sets the maximum number of queued records (default: 65536).
+     * @param capacity the capacity
+     */
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+    /**
+     * Gets how long a caller waits for queue space under the BLOCK policy.
+     * @return milliseconds
+     */
+    public long getMaxBlockMillis() { return maxBlockMillis; }
+    /**
+     * Sets how long a caller waits for queue space under the BLOCK policy before the record is dropped (default: 5000).
+     * @param maxBlockMillis milliseconds
+     */
+    public void setMaxBlockMillis(long maxBlockMillis) { this.maxBlockMillis = maxBlockMillis; }
+    /**
+     * Gets the maximum number of records written between flushes.
+     * @return the batch size
+     */
+    public int getBatchSize() { return batchSize; }
+    /**
+     * Sets the maximum number of records written between flushes (default: 1024).
+     * @param batchSize the batch size
+     */
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+    /**
+     * Gets how long an idle writer sleeps before checking for rotation.
+     * @return milliseconds
+     */
+    public long getFlushIntervalMillis() { return flushIntervalMillis; }
+    /**
+     * Sets how long an idle writer sleeps before checking for rotation (default: 200).
+     * @param flushIntervalMillis milliseconds
+     */
+    public void setFlushIntervalMillis(long flushIntervalMillis) { this.flushIntervalMillis = flushIntervalMillis; }
+    /**
+     * Gets the compressed size at which a new segment starts.
+     * @return bytes
+     */
+    public long getMaxSegmentBytes() { return maxSegmentBytes; }
+    /**
+     * Sets the compressed size at which a new segment starts (default: 64 MiB).
+     * @param maxSegmentBytes bytes
+     */
+    public void setMaxSegmentBytes(long maxSegmentBytes) { this.maxSegmentBytes = maxSegmentBytes; }
+    /**
+     * Gets the age at which a new segment starts.
+     * @return milliseconds
+     */
+    public long getMaxSegmentMillis() { return maxSegmentMillis; }
+    /**
+     * Sets the age at which a new segment starts (default: one hour).
+     * @param maxSegmentMillis milliseconds
+     */
+    public void setMaxSegmentMillis(long maxSegmentMillis) { this.maxSegmentMillis = maxSegmentMillis; }
+    /**
+     * Gets whether each batch is forced to disk.
+     * @return true if batches are forced to disk
+     */
+    public boolean isFsync() { return fsync; }
+    /**
+     * Sets whether each batch is forced to disk (default: false).
+     * @param fsync true to force batches to disk
+     */
+    public void setFsync(boolean fsync) { this.fsync = fsync; }
+    /**
+     * Sets the headers written as {@code ***} (default: Authorization, Cookie, Set-Cookie, Proxy-Authorization).
+     * @param names the header names, case-insensitive
+     */
+    public void setRedactedHeaders(Collection<String> names) {
+        Set<String> lower = new HashSet<>();
+        for (String name : names) {
+            lower.add(name.toLowerCase());
+        }
+        this.redactedHeaders = lower;
+    }
+    /**
+     * Sets the JSON fields masked in request and response bodies (default: none), e.g. {@code wallet_gateway_id}.
+     * @param names the field names
+     */
+    public void setRedactedFields(Collection<String> names) {
+        if (names.isEmpty()) {
+            this.redactedFields = null;
+            return;
+        }
+        StringJoiner alternatives = new StringJoiner("|");
+        for (String name : names) {
+            alternatives.add(Pattern.quote(name));
+        }
+        this.redactedFields = Pattern.compile("(\"(?:" + alternatives + ")\"\\s*:\\s*)(\"(?:[^\"\\\\]|\\\\.)*\"|-?\\d[\\d.eE+-]*)");
+    }
+}
@@ -0,0 +1,111 @@
+package net.libyaguide.gpay.sdk.audit;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One entry of the audit trail. Records of the same call share a call ID.
+ */
+public class AuditRecord {
+    /**
+     * Enum for the record types.
+     */
+    public enum Type {
+        /** A signed request, before it is sent. */
+        REQUEST,
+        /** A successful response, after its signature was checked; see {@link #getVerified()}. */
+        RESPONSE,
+        /** A call that failed with an I/O error or an HTTP error status. */
+        FAILURE
+    }
+
+    /** The record type. */
+    private final Type type;
+    /** The ID shared by the records of one call. */
+    private final long callId;
+    /** When the record was created, in milliseconds since the epoch. */
+    private final long timestampMillis;
+    /** The endpoint path, e.g. /payment/send-money. */
+    private final String endpoint;
+    /** The request headers of REQUEST records, or the response headers. */
+    private final Map<String, String> headers;
+    /** The request or response body, or null. */
+    private final String body;
+    /** The HTTP status code, or -1 for requests and I/O errors. */
+    private final int code;
+    /** Whether the response signature was valid; null for requests and failures. */
+    private final Boolean verified;
+    /** The error of a FAILURE record, or null. */
+    private final String error;
+
+    /**
+     * Constructs an audit record.
+     * @param type The record type.
+     * @param callId The ID shared by the records of one call.
+     * @param endpoint The endpoint path.
+     * @param headers The request or response headers.
+     * @param body The request or response body, or null.
+     * @param code The HTTP status code, or -1.
+     * @param verified Whether the response signature was valid, or null.
+     * @param error The error of a failure, or null.
+     */
+    public AuditRecord(Type type, long callId, String endpoint, Map<String, String> headers, String body, int code,
+                       Boolean verified, String error) {
+        this.type = type;
+        this.callId = callId;
+        this.timestampMillis = System.currentTimeMillis();
+        this.endpoint = endpoint;
+        this.headers = headers == null ? Collections.<String, String>emptyMap() : headers;
+        this.body = body;
+        this.code = code;
+        this.verified = verified;
+        this.error = error;
+    }
+
+    // Getters
+    /**
+     * Gets the record type.
+     * @return the type
+     */
+    public Type getType() { return type; }
+    /**
+     * Gets the ID shared by the records of one call.
+     * @return the call ID
+     */
+    public long getCallId() { return callId; }
+    /**
+     * Gets when the record was created.
+     * @return milliseconds since the epoch
+     */
+    public long getTimestampMillis() { return timestampMillis; }
+    /**
+     * Gets the endpoint path.
+     * @return the endpoint, e.g. /payment/send-money
+     */
+    public String getEndpoint() { return endpoint; }
+    /**
+     * Gets the request headers of REQUEST records, or the response headers.
+     * @return the headers, not redacted
+     */
+    public Map<String, String> getHeaders() { return headers; }
+    /**
+     * Gets the request or response body.
+     * @return the body, not redacted, or null
+     */
+    public String getBody() { return body; }
+    /**
+     * Gets the HTTP status code.
+     * @return the status code, or -1 for requests and I/O errors
+     */
+    public int getCode() { return code; }
+    /**
+     * Gets whether the response signature was valid.
+     * @return true or false for responses, null otherwise
+     */
+    public Boolean getVerified() { return verified; }
+    /**
+     * Gets the error of a FAILURE record.
+     * @return the error, or null
+     */
+    public String getError() { return error; }
+}
@@ -0,0 +1,16 @@
+package net.libyaguide.gpay.sdk.audit;
+
+/**
+ * Receives the audit records of a {@link net.libyaguide.gpay.sdk.client.GPayApiClient}: every signed request,
+ * every verified or rejected response, and every failed call.
+ * <p>
+ * {@link #record(AuditRecord)} runs on the calling thread inside the call, so implementations must hand the
+ * record off rather than write it; {@link AuditLog} queues it for a background writer.
+ */
+public interface AuditSink {
+    /**
+     * Called for each audit record. Exceptions are ignored, so auditing never fails a call.
+     * @param record The record; its headers and body are not yet redacted.
+     */
+    void record(AuditRecord record);
+}
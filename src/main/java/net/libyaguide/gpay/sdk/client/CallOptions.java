@@ -0,0 +1,128 @@
+package net.libyaguide.gpay.sdk.client;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options applied to calls made through {@link GPayApiClient#withOptions(CallOptions)}.
+ * <p>
+ * <b>Options:</b>
+ * <ul>
+ *   <li>Deadline: an absolute point in time by which the call must complete, covering the wait for a
+ *       dispatcher slot and the whole HTTP exchange. Expiry fails the call with an {@link java.io.InterruptedIOException}.</li>
+ *   <li>Cancellation token: cancels the call before it is sent or while it is in flight.</li>
+ *   <li>Language: overrides the client's {@code Accept-Language} header.</li>
+ *   <li>Tags: free-form key/value pairs attached to the HTTP request for interceptors and logging.</li>
+ *   <li>Cache bypass: skips the client's {@link PaymentStatusCache} lookup, e.g. to confirm a payment with GPay itself.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   CallOptions options = new CallOptions();
+ *   options.setDeadlineAfter(2, TimeUnit.SECONDS);
+ *   options.setLanguage("ar");
+ *   Balance balance = client.withOptions(options).getWalletBalance();
+ * </pre>
+ */
+public class CallOptions {
+    /** The deadline as a {@link System#nanoTime()} value, or Long.MAX_VALUE for none. */
+    private long deadlineNanoTime = Long.MAX_VALUE;
+    /** The cancellation token, or null. */
+    private CancellationToken cancellationToken;
+    /** The language override, or null. */
+    private String language;
+    /** The tags attached to the request. */
+    private Map<String, String> tags = new HashMap<>();
+    /** Whether calls skip the payment status cache lookup. */
+    private boolean bypassCache;
+
+    /**
+     * Constructs options with no deadline, token, language override or tags.
+     */
+    public CallOptions() {
+    }
+
+    /**
+     * Constructs a copy of the given options. The copy shares the cancellation token, so cancelling it still
+     * cancels calls made with either.
+     * @param other The options to copy.
+     */
+    public CallOptions(CallOptions other) {
+        this.deadlineNanoTime = other.deadlineNanoTime;
+        this.cancellationToken = other.cancellationToken;
+        this.language = other.language;
+        this.tags = new HashMap<>(other.tags);
+        this.bypassCache = other.bypassCache;
+    }
+
+    // Getters and setters
+    /**
+     * Gets the deadline.
+     * @return the deadline as a {@link System#nanoTime()} value, or Long.MAX_VALUE for none
+     */
+    public long getDeadlineNanoTime() { return deadlineNanoTime; }
+    /**
+     * Sets the deadline.
+     * @param deadlineNanoTime the deadline as a {@link System#nanoTime()} value, or Long.MAX_VALUE for none
+     */
+    public void setDeadlineNanoTime(long deadlineNanoTime) { this.deadlineNanoTime = deadlineNanoTime; }
+    /**
+     * Sets the deadline relative to now. Calls made after the deadline fail immediately.
+     * @param duration the time from now
+     * @param unit the unit of the duration
+     */
+    public void setDeadlineAfter(long duration, TimeUnit unit) { this.deadlineNanoTime = System.nanoTime() + unit.toNanos(duration); }
+    /**
+     * Checks whether a deadline is set.
+     * @return true if a deadline is set
+     */
+    public boolean hasDeadline() { return deadlineNanoTime != Long.MAX_VALUE; }
+    /**
+     * Gets the time left until the deadline.
+     * @return the remaining time in nanoseconds, or Long.MAX_VALUE for no deadline
+     */
+    public long remainingNanos() { return hasDeadline() ? deadlineNanoTime - System.nanoTime() : Long.MAX_VALUE; }
+    /**
+     * Gets the cancellation token.
+     * @return the cancellation token, or null
+     */
+    public CancellationToken getCancellationToken() { return cancellationToken; }
+    /**
+     * Sets the cancellation token.
+     * @param cancellationToken the cancellation token, or null
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) { this.cancellationToken = cancellationToken; }
+    /**
+     * Gets the language override.
+     * @return the language, or null to use the client's language
+     */
+    public String getLanguage() { return language; }
+    /**
+     * Sets the language override.
+     * @param language the language, or null to use the client's language
+     */
+    public void setLanguage(String language) { this.language = language; }
+    /**
+     * Gets the tags attached to the request.
+     * @return an unmodifiable view of the tags
+     */
+    public Map<String, String> getTags() { return Collections.unmodifiableMap(tags); }
+    /**
+     * Adds a tag attached to the request.
+     * @param key the tag key
+     * @param value the tag value
+     */
+    public void putTag(String key, String value) { tags.put(key, value); }
+    /**
+     * Checks whether calls skip the payment status cache lookup.
+     * @return true if the cache is bypassed
+     */
+    public boolean isBypassCache() { return bypassCache; }
+    /**
+     * Makes calls skip the payment status cache lookup; their results still update the cache.
+     * @param bypassCache true to bypass the cache
+     */
+    public void setBypassCache(boolean bypassCache) { this.bypassCache = bypassCache; }
+}
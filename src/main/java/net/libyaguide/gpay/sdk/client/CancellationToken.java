@@ -0,0 +1,47 @@
+package net.libyaguide.gpay.sdk.client;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A token used to cancel calls before they are sent or while they are in flight.
+ * <p>
+ * One token can be shared by many calls; cancelling it aborts all of them. A cancelled call fails with an
+ * {@link java.io.InterruptedIOException}. Cancelling a call that was already sent does not undo it on the server.
+ */
+public class CancellationToken {
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Cancels the token and every call registered with it. Further calls are cancelled before they start.
+     */
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+            callbacks.clear();
+        }
+    }
+
+    /**
+     * Checks whether the token was cancelled.
+     * @return true once cancel has been called
+     */
+    public boolean isCancelled() { return cancelled.get(); }
+
+    /**
+     * Registers a callback run when the token is cancelled; runs it immediately if it already is.
+     * @param callback The callback.
+     * @return A handle that unregisters the callback when closed.
+     */
+    public AutoCloseable onCancel(Runnable callback) {
+        callbacks.add(callback);
+        if (cancelled.get() && callbacks.remove(callback)) {
+            callback.run();
+        }
+        return () -> callbacks.remove(callback);
+    }
+}
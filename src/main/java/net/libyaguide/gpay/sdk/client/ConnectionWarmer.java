@@ -0,0 +1,168 @@
+package net.libyaguide.gpay.sdk.client;
+
+import net.libyaguide.gpay.sdk.transport.GPayTransport;
+import net.libyaguide.gpay.sdk.transport.TransportRequest;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ConnectionWarmer opens pooled connections to the client's base URL ahead of the first API call and keeps
+ * them from being evicted while idle.
+ * <p>
+ * <b>Warm-up:</b> {@code connections} concurrent HEAD requests are sent to the host of the base URL, paying for
+ * DNS lookup and the TLS handshake before real traffic arrives. Any HTTP answer counts; the requests are not
+ * signed and do not pass the request dispatcher. They go through the client's {@link GPayTransport}. Over
+ * HTTP/2 all calls share one connection, so a single warm connection is enough.
+ * <p>
+ * <b>Keep-alive:</b> every {@code keepAliveIntervalMillis} the same number of HEAD requests is sent again, which
+ * refreshes the idle connections before the pool or the server closes them.
+ * <p>
+ * <b>Readiness:</b> {@link #isReady()} and {@link #awaitReady(long, TimeUnit)} report when the first warm-up round
+ * has completed.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   ConnectionWarmer warmer = new ConnectionWarmer(client);
+ *   warmer.setConnections(4);
+ *   warmer.start();
+ *   warmer.awaitReady(5, TimeUnit.SECONDS);
+ * </pre>
+ */
+public class ConnectionWarmer {
+    private static final long ROUND_TIMEOUT_MILLIS = 60000;
+
+    private final GPayTransport transport;
+    private final String target;
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private volatile int connections = 2;
+    private volatile long keepAliveIntervalMillis = 30000;
+    private volatile int lastWarmed;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a warmer for the connections of the given client.
+     * @param client The client whose connection pool is warmed.
+     */
+    public ConnectionWarmer(GPayApiClient client) {
+        this.transport = client.getTransport();
+        URI base = URI.create(client.baseUrl());
+        this.target = base.getScheme() + "://" + base.getRawAuthority() + "/";
+    }
+
+    /**
+     * Starts warming on a private daemon thread: one warm-up round immediately, then keep-alive rounds.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            throw new IllegalStateException("Warmer already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(GPayExecutors.threadFactory("gpay-connection-warmer"));
+        scheduler.scheduleWithFixedDelay(this::round, 0, keepAliveIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the keep-alive rounds. Open connections stay in the pool until they expire.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Runs one round synchronously: opens or refreshes up to {@code connections} connections.
+     * @return The number of requests that got an HTTP answer.
+     */
+    public int warmUp() {
+        int n = connections;
+        CountDownLatch done = new CountDownLatch(n);
+        AtomicInteger ok = new AtomicInteger();
+        for (int i = 0; i < n; i++) {
+            TransportRequest request = new TransportRequest("HEAD", target, Collections.emptyMap(), null);
+            transport.executeAsync(request).whenComplete((response, e) -> {
+                if (e == null) {
+                    ok.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        try {
+            done.await(ROUND_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lastWarmed = ok.get();
+        return lastWarmed;
+    }
+
+    private void round() {
+        if (warmUp() > 0) {
+            ready.complete(null);
+        }
+    }
+
+    /**
+     * Checks whether a warm-up round has reached the server.
+     * @return true once at least one connection is warm
+     */
+    public boolean isReady() { return ready.isDone(); }
+
+    /**
+     * Waits until a warm-up round has reached the server.
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return true if warm, false if the timeout elapsed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            ready.get(timeout, unit);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets a future completed when the pool is warm, for non-blocking readiness checks.
+     * @return the readiness future
+     */
+    public CompletableFuture<Void> getReadiness() { return ready; }
+
+    /**
+     * Gets the number of connections held open by the client's transport.
+     * @return the number of pooled connections, or -1 if the transport does not expose it
+     */
+    public int getPooledConnections() { return transport.getConnectionCount(); }
+    /**
+     * Gets the number of requests answered in the last round.
+     * @return the number of warm connections touched in the last round
+     */
+    public int getLastWarmed() { return lastWarmed; }
+    /**
+     * Gets the number of connections to open and keep.
+     * @return the number of connections
+     */
+    public int getConnections() { return connections; }
+    /**
+     * Sets the number of connections to open and keep (default: 2). Limited by the pool's idle limit of
+     * {@link GPayApiClient#MAX_IDLE_CONNECTIONS}.
+     * @param connections the number of connections
+     */
+    public void setConnections(int connections) { this.connections = connections; }
+    /**
+     * Gets the interval between keep-alive rounds.
+     * @return the interval in milliseconds
+     */
+    public long getKeepAliveIntervalMillis() { return keepAliveIntervalMillis; }
+    /**
+     * Sets the interval between keep-alive rounds (default: 30000). Takes effect on the next start.
+     * Keep it below the server's idle timeout and the pool's keep-alive of 5 minutes.
+     * @param keepAliveIntervalMillis the interval in milliseconds
+     */
+    public void setKeepAliveIntervalMillis(long keepAliveIntervalMillis) { this.keepAliveIntervalMillis = keepAliveIntervalMillis; }
+}
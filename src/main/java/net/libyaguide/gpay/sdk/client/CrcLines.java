@@ -0,0 +1,167 @@
+package net.libyaguide.gpay.sdk.client;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * Codec for the checksummed line files the SDK keeps on disk: the payout journal, the payment request
+ * registry and the harvest checkpoint.
+ * <p>
+ * <b>Format:</b>
+ * <ul>
+ *   <li>Each record is one line: the CRC32 of the UTF-8 payload as 8 hex digits, a space, the payload and
+ *       {@code \n}.</li>
+ *   <li>Only the end of the file a writer was appending to may hold a torn record; it is cut off on open.
+ *       A bad record followed by good ones is corruption, since cutting there would drop acknowledged records.</li>
+ *   <li>A failed append is cut off again, so the next append never follows a torn record.</li>
+ * </ul>
+ * This is an internal helper shared by the SDK's packages, not part of the supported API.
+ */
+public final class CrcLines {
+    private CrcLines() { }
+
+    /**
+     * Receives the payloads of a line file in order.
+     */
+    public interface Handler {
+        /**
+         * Accepts one payload.
+         * @param payload The payload of a line whose checksum matched.
+         * @throws IOException if the payload cannot be applied; the scan stops.
+         */
+        void accept(String payload) throws IOException;
+    }
+
+    /**
+     * Encodes a payload as a complete line.
+     * @param payload The payload; must not contain a line break.
+     * @return The line bytes, including the trailing newline.
+     */
+    public static byte[] encode(String payload) {
+        byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        byte[] head = String.format("%08x ", crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+        byte[] line = new byte[head.length + data.length + 1];
+        System.arraycopy(head, 0, line, 0, head.length);
+        System.arraycopy(data, 0, line, head.length, data.length);
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+    /**
+     * Decodes a line without its newline.
+     * @param line The line.
+     * @return The payload, or null if the line is malformed or its checksum does not match.
+     */
+    public static String decode(String line) {
+        if (line.length() < 9 || line.charAt(8) != ' ') {
+            return null;
+        }
+        String payload = line.substring(9);
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        try {
+            return Long.parseLong(line.substring(0, 8), 16) == crc.getValue() ? payload : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a line file and hands every payload to the handler.
+     * @param file The file.
+     * @param tornTail true if the file may end in a torn record, i.e. it is the file appends went to.
+     * @param handler The handler receiving the payloads.
+     * @return The length of the valid prefix; with {@code tornTail} the caller truncates the file to it.
+     * @throws IOException if the file cannot be read, the handler fails, or a bad record is not a torn tail.
+     */
+    public static long scan(Path file, boolean tornTail, Handler handler) throws IOException {
+        long valid = 0;
+        long torn = -1;
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String payload = decode(new String(line.toByteArray(), StandardCharsets.UTF_8));
+                if (payload == null) {
+                    if (!tornTail) {
+                        throw new IOException("Corrupt record at offset " + valid + " of " + file);
+                    }
+                    if (torn < 0) {
+                        torn = valid;
+                    }
+                } else if (torn >= 0) {
+                    // Good records follow the bad one, so cutting there would lose them
+                    throw new IOException("Corrupt record at offset " + torn + " of " + file);
+                } else {
+                    handler.accept(payload);
+                }
+                valid += line.size() + 1;
+                line.reset();
+            }
+        }
+        if (!tornTail && line.size() > 0) {
+            throw new IOException("Unterminated record at offset " + valid + " of " + file);
+        }
+        // An unterminated or bad tail is a torn write and is not counted as valid
+        return torn >= 0 ? torn : valid;
+    }
+
+    /**
+     * Cuts a channel back to a length, moves its position there and forces it to disk.
+     * @param channel The channel.
+     * @param length The length to keep.
+     * @throws IOException if the channel cannot be truncated or forced.
+     */
+    public static void truncate(FileChannel channel, long length) throws IOException {
+        if (channel.size() > length) {
+            channel.truncate(length);
+        }
+        channel.position(length);
+        channel.force(true);
+    }
+
+    /**
+     * Writes lines at the channel's position and forces them to disk. If that fails, the channel is cut back
+     * to where the lines started; if cutting back fails as well, the channel is closed so that nothing is
+     * ever appended after a torn record.
+     * @param channel The channel, positioned at its end.
+     * @param lines The encoded lines.
+     * @throws IOException if the lines cannot be written; check {@code channel.isOpen()} to tell whether the
+     *         channel is still usable.
+     */
+    public static void append(FileChannel channel, ByteBuffer lines) throws IOException {
+        long start = channel.position();
+        try {
+            while (lines.hasRemaining()) {
+                channel.write(lines);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                truncate(channel, start);
+            } catch (IOException rollback) {
+                e.addSuppressed(rollback);
+                try {
+                    channel.close();
+                } catch (IOException close) {
+                    e.addSuppressed(close);
+                }
+            }
+            throw e;
+        }
+    }
+}
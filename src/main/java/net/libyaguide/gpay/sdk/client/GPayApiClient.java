@@ -1,15 +1,27 @@
 package net.libyaguide.gpay.sdk.client;
 
+import net.libyaguide.gpay.sdk.audit.AuditRecord;
+import net.libyaguide.gpay.sdk.audit.AuditSink;
 import net.libyaguide.gpay.sdk.crypto.HashTokenGenerator;
 import net.libyaguide.gpay.sdk.crypto.ResponseVerifier;
 import net.libyaguide.gpay.sdk.crypto.VerificationHashGenerator;
 import net.libyaguide.gpay.sdk.model.*;
+import net.libyaguide.gpay.sdk.quota.QuotaCoordinator;
+import net.libyaguide.gpay.sdk.stream.TransactionPublisher;
+import net.libyaguide.gpay.sdk.transport.GPayTransport;
+import net.libyaguide.gpay.sdk.transport.OkHttpTransport;
+import net.libyaguide.gpay.sdk.transport.TransportRequest;
+import net.libyaguide.gpay.sdk.transport.TransportResponse;
 import com.google.gson.Gson;
-import okhttp3.*;
+import org.reactivestreams.Publisher;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * GPayApiClient provides a client for interacting with the GPay Payment API.
@@ -36,6 +48,40 @@ import java.util.concurrent.TimeUnit;
  *   <li>Throws SecurityException if verification fails.</li>
  * </ul>
  *
+ * <b>Request Dispatching:</b>
+ * <ul>
+ *   <li>No dispatcher is set by default, so calls are limited only by the transport.</li>
+ *   <li>With a {@link RequestDispatcher} set, calls pass separate lanes for payments, queries and reporting.</li>
+ *   <li>Reporting bursts then cannot take the slots of payments, and waiting payments are admitted first.</li>
+ * </ul>
+ *
+ * <b>Transport:</b>
+ * <ul>
+ *   <li>The HTTP exchange is delegated to a {@link GPayTransport}; OkHttp is the default.</li>
+ *   <li>Other transports, such as the {@code java.net.http} one of the {@code gpay-transport-jdk} module,
+ *       are passed to the constructor.</li>
+ * </ul>
+ *
+ * <b>Auditing:</b>
+ * <ul>
+ *   <li>With an {@link AuditSink} set, every signed request, verified or rejected response and failed call
+ *       is handed to it, e.g. an {@link net.libyaguide.gpay.sdk.audit.AuditLog}.</li>
+ *   <li>A request is audited once it is admitted to the transport; calls cancelled, past their deadline or
+ *       refused by the quota or dispatcher before that leave no record.</li>
+ * </ul>
+ *
+ * <b>Cluster quota:</b>
+ * <ul>
+ *   <li>With a {@link QuotaCoordinator} set, every call takes a token from a quota shared by all nodes using
+ *       the same API key before it is dispatched.</li>
+ * </ul>
+ *
+ * <b>Payment status cache:</b>
+ * <ul>
+ *   <li>With a {@link PaymentStatusCache} set, checkPaymentStatus answers from it: paid statuses, which never
+ *       change, until they are dropped for room, and unpaid ones for a short time.</li>
+ * </ul>
+ *
  * <b>Usage Example:</b>
  * <pre>
  *   GPayApiClient client = new GPayApiClient(apiKey, secretKey, password, baseUrl);
@@ -50,17 +96,30 @@ import java.util.concurrent.TimeUnit;
  *   <li>sendMoney - Send money to another wallet</li>
  *   <li>getStatement - Get day statement</li>
  *   <li>checkWallet - Check wallet existence/details</li>
+ *   <li>checkWallets - Check many wallets in parallel</li>
  *   <li>getOutstandingTransactions - Get outstanding transactions</li>
+ *   <li>readStatement / readOutstandingTransactions - Parse transactions one at a time</li>
+ *   <li>streamStatement / streamOutstandingTransactions - Publish transactions with backpressure</li>
  * </ul>
  */
 public class GPayApiClient {
+    /** Maximum number of idle connections kept in the connection pool. */
+    public static final int MAX_IDLE_CONNECTIONS = 32;
+
+    private static final AtomicLong CALL_IDS = new AtomicLong();
+
     private final String apiKey;
     private final String secretKey;
     private final String password;
     private final String baseUrl;
-    private final OkHttpClient httpClient;
+    private final GPayTransport transport;
     private final Gson gson;
     private final String language;
+    private final CallOptions options;
+    private volatile RequestDispatcher dispatcher;
+    private volatile AuditSink auditSink;
+    private volatile QuotaCoordinator quota;
+    private volatile PaymentStatusCache statusCache;
 
     /**
      * Enum for GPay API base URLs.
@@ -99,16 +158,70 @@ public class GPayApiClient {
      * @param language The language for the response (default: 'en').
      */
     public GPayApiClient(String apiKey, String secretKey, String password, BaseUrl baseUrl, String language) {
+        this(apiKey, secretKey, password, baseUrl.getUrl(), language);
+    }
+
+    /**
+     * Constructs a client for a base URL given as a string, e.g. a gateway proxy or a local stub server.
+     * @param apiKey The API key for authentication.
+     * @param secretKey The secret key for signing requests.
+     * @param password The password for hash token generation.
+     * @param baseUrl The base URL, without a trailing slash.
+     * @param language The language for the response (default: 'en').
+     */
+    public GPayApiClient(String apiKey, String secretKey, String password, String baseUrl, String language) {
+        this(apiKey, secretKey, password, baseUrl, language, new OkHttpTransport());
+    }
+
+    /**
+     * Constructs a client on the given transport.
+     * @param apiKey The API key for authentication.
+     * @param secretKey The secret key for signing requests.
+     * @param password The password for hash token generation.
+     * @param baseUrl The base URL, without a trailing slash.
+     * @param language The language for the response (default: 'en').
+     * @param transport The transport executing the HTTP exchanges.
+     */
+    public GPayApiClient(String apiKey, String secretKey, String password, String baseUrl, String language, GPayTransport transport) {
         this.apiKey = apiKey;
         this.secretKey = secretKey;
         this.password = password;
-        this.baseUrl = baseUrl.getUrl();
+        this.baseUrl = baseUrl;
         this.language = (language == null || language.isEmpty()) ? "en" : language;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.transport = transport;
         this.gson = new Gson();
+        this.options = null;
+    }
+
+    /**
+     * Constructs a view of another client that applies the given call options.
+     * @param base The client whose credentials, HTTP client and dispatcher are shared.
+     * @param options The options applied to every call of the view.
+     */
+    private GPayApiClient(GPayApiClient base, CallOptions options) {
+        this.apiKey = base.apiKey;
+        this.secretKey = base.secretKey;
+        this.password = base.password;
+        this.baseUrl = base.baseUrl;
+        this.language = base.language;
+        this.transport = base.transport;
+        this.gson = base.gson;
+        this.dispatcher = base.dispatcher;
+        this.auditSink = base.auditSink;
+        this.quota = base.quota;
+        this.statusCache = base.statusCache;
+        this.options = options;
+    }
+
+    /**
+     * Returns a view of this client that applies the given options (deadline, cancellation, language, tags)
+     * to every call. The view shares credentials, connections and the dispatcher with this client.
+     * The options are copied, so changing them afterwards does not affect the view.
+     * @param options The call options.
+     * @return A client applying the options.
+     */
+    public GPayApiClient withOptions(CallOptions options) {
+        return new GPayApiClient(this, options == null ? null : new CallOptions(options));
     }
 
     /**
@@ -122,13 +235,13 @@ public class GPayApiClient {
         this(apiKey, secretKey, password, baseUrl, "en");
     }
 
-    private Headers buildHeaders(String salt, String verificationHash, String language) {
-        return new Headers.Builder()
-                .add("Authorization", "Bearer " + apiKey)
-                .add("Accept-Language", language)
-                .add("X-Signature-Salt", salt)
-                .add("X-Signature-Hash", verificationHash)
-                .build();
+    private Map<String, String> buildHeaders(String salt, String verificationHash, String language) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Authorization", "Bearer " + apiKey);
+        headers.put("Accept-Language", language);
+        headers.put("X-Signature-Salt", salt);
+        headers.put("X-Signature-Hash", verificationHash);
+        return headers;
     }
 
     private ApiResponse sendRequest(String endpoint, Map<String, String> params) throws Exception {
@@ -137,28 +250,178 @@ public class GPayApiClient {
         String verificationHash = VerificationHashGenerator.generateVerificationHash(
             hashToken, params, secretKey
         );
-        Headers headers = buildHeaders(salt, verificationHash, language);
-        String jsonBody = gson.toJson(params);
-        RequestBody body = RequestBody.create(jsonBody, MediaType.parse("application/json"));
-        Request request = new Request.Builder()
-                .url(baseUrl + endpoint)
-                .headers(headers)
-                .post(body)
-                .build();
-        try (Response response = httpClient.newCall(request).execute()) {
+        String callLanguage = options != null && options.getLanguage() != null ? options.getLanguage() : language;
+        Map<String, String> headers = buildHeaders(salt, verificationHash, callLanguage);
+        TransportRequest request = new TransportRequest("POST", baseUrl + endpoint, headers, gson.toJson(params));
+        CancellationToken token = options == null ? null : options.getCancellationToken();
+        long remaining = options == null ? Long.MAX_VALUE : options.remainingNanos();
+        if (token != null && token.isCancelled()) {
+            throw new InterruptedIOException("Call to " + endpoint + " was cancelled");
+        }
+        if (remaining <= 0) {
+            throw new InterruptedIOException("Deadline exceeded before calling " + endpoint);
+        }
+        QuotaCoordinator callQuota = quota;
+        if (callQuota != null) {
+            try {
+                callQuota.acquire(remaining, token);
+            } catch (RejectedExecutionException e) {
+                if (token != null && token.isCancelled()) {
+                    throw new InterruptedIOException("Call to " + endpoint + " was cancelled");
+                }
+                if (options != null && options.remainingNanos() <= 0) {
+                    throw new InterruptedIOException("Deadline exceeded waiting for quota to call " + endpoint);
+                }
+                throw e;
+            }
+            remaining = options == null ? Long.MAX_VALUE : options.remainingNanos();
+        }
+        RequestDispatcher dispatcher = this.dispatcher;
+        RequestDispatcher.Permit permit = null;
+        if (dispatcher != null) {
+            try {
+                permit = dispatcher.acquire(RequestDispatcher.laneOf(endpoint), remaining, token);
+            } catch (RejectedExecutionException e) {
+                if (token != null && token.isCancelled()) {
+                    throw new InterruptedIOException("Call to " + endpoint + " was cancelled");
+                }
+                if (options != null && options.remainingNanos() <= 0) {
+                    throw new InterruptedIOException("Deadline exceeded waiting to call " + endpoint);
+                }
+                throw e;
+            }
+        }
+        try {
+            if (options != null) {
+                if (options.hasDeadline()) {
+                    remaining = options.remainingNanos();
+                    if (remaining <= 0) {
+                        throw new InterruptedIOException("Deadline exceeded waiting to call " + endpoint);
+                    }
+                    request.setTimeoutNanos(remaining);
+                }
+                request.setCancellationToken(token);
+                request.setOptions(options);
+            }
+            // Audited only once admitted, so every REQUEST record is followed by a RESPONSE or FAILURE
+            AuditSink audit = auditSink;
+            long callId = audit == null ? 0 : CALL_IDS.incrementAndGet();
+            if (audit != null) {
+                audit(audit, new AuditRecord(AuditRecord.Type.REQUEST, callId, endpoint, headers, request.getBody(), -1, null, null));
+            }
+            TransportResponse response;
+            try {
+                response = transport.execute(request);
+            } catch (IOException | RuntimeException e) {
+                if (audit != null) {
+                    audit(audit, new AuditRecord(AuditRecord.Type.FAILURE, callId, endpoint, null, null, -1, null, e.toString()));
+                }
+                throw e;
+            }
             if (!response.isSuccessful()) {
-                throw new RuntimeException("HTTP error: " + response.code() + " - " + response.message());
+                if (audit != null) {
+                    audit(audit, new AuditRecord(AuditRecord.Type.FAILURE, callId, endpoint, response.getHeaders(),
+                        response.getBody(), response.getCode(), null, response.getMessage()));
+                }
+                throw new GPayHttpException(response.getCode(), response.getMessage());
             }
-            Map<String, String> headerMap = new HashMap<>();
-            response.headers().toMultimap().forEach((k, v) -> headerMap.put(k.toLowerCase(), String.join(",", v)));
             return new ApiResponse(
-                response.body().string(),
-                headerMap,
-                response.code()
+                response.getBody(),
+                response.getHeaders(),
+                response.getCode(),
+                endpoint,
+                callId
             );
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
         }
     }
 
+    /**
+     * Gets the transport executing the HTTP exchanges.
+     * @return the transport
+     */
+    public GPayTransport getTransport() { return transport; }
+
+    String baseUrl() { return baseUrl; }
+
+    private static void audit(AuditSink audit, AuditRecord record) {
+        try {
+            audit.record(record);
+        } catch (RuntimeException ignored) {
+            // Auditing never fails a call
+        }
+    }
+
+    /**
+     * Checks the signature of a response over the given fields and hands the response to the audit sink.
+     * @throws SecurityException if the signature does not match.
+     */
+    private void verify(ApiResponse apiResponse, Map<String, String> verifyFields, String operation) throws Exception {
+        boolean verified = ResponseVerifier.verifyResponse(secretKey, password, apiResponse, verifyFields);
+        AuditSink audit = auditSink;
+        if (audit != null) {
+            audit(audit, new AuditRecord(AuditRecord.Type.RESPONSE, apiResponse.callId, apiResponse.endpoint,
+                apiResponse.headers, apiResponse.response, apiResponse.code, verified, null));
+        }
+        if (!verified) {
+            throw new SecurityException("Response verification failed for " + operation);
+        }
+    }
+
+    /**
+     * Gets the sink receiving audit records.
+     * @return the audit sink, or null if auditing is off
+     */
+    public AuditSink getAuditSink() { return auditSink; }
+
+    /**
+     * Sets the sink receiving audit records, or null to stop auditing (default: null).
+     * Views created by {@link #withOptions(CallOptions)} afterwards share it.
+     * @param auditSink the audit sink
+     */
+    public void setAuditSink(AuditSink auditSink) { this.auditSink = auditSink; }
+
+    /**
+     * Gets the cluster-wide quota calls take a token from.
+     * @return the quota coordinator, or null
+     */
+    public QuotaCoordinator getQuota() { return quota; }
+
+    /**
+     * Sets a cluster-wide quota; every call then takes a token from it before it is dispatched.
+     * @param quota the quota coordinator, or null to disable
+     */
+    public void setQuota(QuotaCoordinator quota) { this.quota = quota; }
+
+    /**
+     * Gets the cache answering checkPaymentStatus.
+     * @return the payment status cache, or null
+     */
+    public PaymentStatusCache getStatusCache() { return statusCache; }
+
+    /**
+     * Sets a cache answering checkPaymentStatus, or null to always ask GPay (default: null).
+     * Views created by {@link #withOptions(CallOptions)} afterwards share it.
+     * @param statusCache the payment status cache
+     */
+    public void setStatusCache(PaymentStatusCache statusCache) { this.statusCache = statusCache; }
+
+    /**
+     * Gets the dispatcher that admits calls through per-lane bulkheads.
+     * @return the request dispatcher, or null if calls are not throttled (the default)
+     */
+    public RequestDispatcher getDispatcher() { return dispatcher; }
+
+    /**
+     * Sets the request dispatcher, e.g. to keep reporting bursts from delaying payments or to share one
+     * dispatcher between clients.
+     * @param dispatcher the request dispatcher, or null to stop throttling calls
+     */
+    public void setDispatcher(RequestDispatcher dispatcher) { this.dispatcher = dispatcher; }
+
     /**
      * Retrieves the current wallet balance.
      * @return Balance object containing the current available balance and response timestamp.
@@ -174,9 +437,7 @@ public class GPayApiClient {
         Map<String, String> verifyFields = new HashMap<>();
         verifyFields.put("balance", data.get("balance").getAsString());
         verifyFields.put("response_timestamp", data.get("response_timestamp").getAsString());
-        if (!ResponseVerifier.verifyResponse(secretKey, password, apiResponse, verifyFields)) {
-            throw new SecurityException("Response verification failed for getWalletBalance");
-        }
+        verify(apiResponse, verifyFields, "getWalletBalance");
         Balance balance = new Balance();
         balance.setBalance(new java.math.BigDecimal(data.get("balance").getAsString()));
         balance.setResponseTimestamp(new java.util.Date(Long.parseLong(data.get("response_timestamp").getAsString())));
@@ -208,9 +469,7 @@ public class GPayApiClient {
         verifyFields.put("amount", data.get("amount").getAsString());
         verifyFields.put("reference_no", data.has("reference_no") && !data.get("reference_no").isJsonNull() ? data.get("reference_no").getAsString() : "");
         verifyFields.put("response_timestamp", data.get("response_timestamp").getAsString());
-        if (!ResponseVerifier.verifyResponse(secretKey, password, apiResponse, verifyFields)) {
-            throw new SecurityException("Response verification failed for createPaymentRequest");
-        }
+        verify(apiResponse, verifyFields, "createPaymentRequest");
         PaymentRequest req = new PaymentRequest();
         req.setRequesterUsername(data.get("requester_username").getAsString());
         req.setRequestId(data.get("request_id").getAsString());
@@ -222,13 +481,24 @@ public class GPayApiClient {
     }
 
     /**
-     * Checks the status of a payment request by its request ID.
+     * Checks the status of a payment request by its request ID, answering from the status cache when one is set.
      * @param requestId The payment request ID (UUID).
      * @return PaymentStatus object with the status of the payment request.
      * @throws Exception if the request fails or response verification fails.
      */
     // Check Payment Status
     public PaymentStatus checkPaymentStatus(String requestId) throws Exception {
+        PaymentStatusCache cache = statusCache;
+        if (cache != null) {
+            if (options != null && options.isBypassCache()) {
+                cache.countBypass();
+            } else {
+                PaymentStatus cached = cache.get(requestId);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
         Map<String, String> params = new HashMap<>();
         params.put("request_id", requestId);
         params.put("request_timestamp", String.valueOf(System.currentTimeMillis()));
@@ -244,9 +514,7 @@ public class GPayApiClient {
         verifyFields.put("description", data.has("description") && !data.get("description").isJsonNull() ? data.get("description").getAsString() : "");
         verifyFields.put("is_paid", data.has("is_paid") && !data.get("is_paid").isJsonNull() ? String.valueOf(data.get("is_paid").getAsBoolean()) : "");
         verifyFields.put("response_timestamp", data.get("response_timestamp").getAsString());
-        if (!ResponseVerifier.verifyResponse(secretKey, password, apiResponse, verifyFields)) {
-            throw new SecurityException("Response verification failed for checkPaymentStatus");
-        }
+        verify(apiResponse, verifyFields, "checkPaymentStatus");
         PaymentStatus status = new PaymentStatus();
         status.setRequestId(data.get("request_id").getAsString());
         status.setTransactionId(data.has("transaction_id") && !data.get("transaction_id").isJsonNull() ? data.get("transaction_id").getAsString() : null);
@@ -256,6 +524,9 @@ public class GPayApiClient {
         status.setDescription(data.has("description") && !data.get("description").isJsonNull() ? data.get("description").getAsString() : null);
         status.setPaid(data.get("is_paid").getAsBoolean());
         status.setResponseTimestamp(new java.util.Date(Long.parseLong(data.get("response_timestamp").getAsString())));
+        if (cache != null) {
+            cache.put(requestId, status);
+        }
         return status;
     }
 
@@ -288,9 +559,7 @@ public class GPayApiClient {
         verifyFields.put("timestamp", data.get("timestamp").getAsString());
         verifyFields.put("reference_no", data.has("reference_no") && !data.get("reference_no").isJsonNull() ? data.get("reference_no").getAsString() : "");
         verifyFields.put("response_timestamp", data.get("response_timestamp").getAsString());
-        if (!ResponseVerifier.verifyResponse(secretKey, password, apiResponse, verifyFields)) {
-            throw new SecurityException("Response verification failed for sendMoney");
-        }
+        verify(apiResponse, verifyFields, "sendMoney");
         SendMoneyResult result = new SendMoneyResult();
         result.setAmount(new java.math.BigDecimal(data.get("amount").getAsString()));
         result.setSenderFee(new java.math.BigDecimal(data.get("sender_fee").getAsString()));
@@ -325,9 +594,7 @@ public class GPayApiClient {
         verifyFields.put("day_total_in", data.get("day_total_in").getAsString());
         verifyFields.put("day_total_out", data.get("day_total_out").getAsString());
         verifyFields.put("response_timestamp", data.get("response_timestamp").getAsString());
-        if (!ResponseVerifier.verifyResponse(secretKey, password, apiResponse, verifyFields)) {
-            throw new SecurityException("Response verification failed for getStatement");
-        }
+        verify(apiResponse, verifyFields, "getStatement");
         Statement statement = new Statement();
         statement.setAvailableBalance(new java.math.BigDecimal(data.get("available_balance").getAsString()));
         statement.setOutstandingCredit(new java.math.BigDecimal(data.get("outstanding_credit").getAsString()));
@@ -339,19 +606,7 @@ public class GPayApiClient {
         java.util.List<StatementTransaction> txs = new java.util.ArrayList<>();
         if (data.has("day_statement") && data.get("day_statement").isJsonArray()) {
             for (com.google.gson.JsonElement el : data.getAsJsonArray("day_statement")) {
-                com.google.gson.JsonObject tx = el.getAsJsonObject();
-                StatementTransaction stx = new StatementTransaction();
-                stx.setTransactionId(tx.get("transaction_id").getAsString());
-                stx.setDatetime(tx.get("datetime").getAsString());
-                stx.setTimestamp(tx.has("timestamp") && !tx.get("timestamp").isJsonNull() ? new java.util.Date(Long.parseLong(tx.get("timestamp").getAsString())) : null);
-                stx.setDescription(tx.has("description") && !tx.get("description").isJsonNull() ? tx.get("description").getAsString() : null);
-                stx.setAmount(tx.has("amount") && !tx.get("amount").isJsonNull() ? new java.math.BigDecimal(tx.get("amount").getAsString()) : null);
-                stx.setBalance(tx.has("balance") && !tx.get("balance").isJsonNull() ? new java.math.BigDecimal(tx.get("balance").getAsString()) : null);
-                stx.setReferenceNo(tx.has("reference_no") && !tx.get("reference_no").isJsonNull() ? tx.get("reference_no").getAsString() : null);
-                stx.setOpTypeId(tx.has("op_type_id") && !tx.get("op_type_id").isJsonNull() ? OperationType.fromValue(tx.get("op_type_id").getAsInt()) : null);
-                stx.setStatus(tx.has("status") && !tx.get("status").isJsonNull() ? TransactionStatus.fromValue(tx.get("status").getAsInt()) : null);
-                stx.setCreatedAt(tx.has("created_at") && !tx.get("created_at").isJsonNull() ? new java.util.Date(Long.parseLong(tx.get("created_at").getAsString())) : null);
-                txs.add(stx);
+                txs.add(parseStatementTransaction(el.getAsJsonObject()));
             }
         }
         statement.setDayStatement(txs);
@@ -379,9 +634,7 @@ public class GPayApiClient {
         verifyFields.put("user_account_name", data.has("user_account_name") && !data.get("user_account_name").isJsonNull() ? data.get("user_account_name").getAsString() : "");
         verifyFields.put("can_receive_money", String.valueOf(data.get("can_receive_money").getAsBoolean()));
         verifyFields.put("response_timestamp", data.get("response_timestamp").getAsString());
-        if (!ResponseVerifier.verifyResponse(secretKey, password, apiResponse, verifyFields)) {
-            throw new SecurityException("Response verification failed for checkWallet");
-        }
+        verify(apiResponse, verifyFields, "checkWallet");
         WalletCheck check = new WalletCheck();
         check.setExists(data.get("exists").getAsBoolean());
         check.setWalletGatewayId(data.get("wallet_gateway_id").getAsString());
@@ -392,6 +645,64 @@ public class GPayApiClient {
         return check;
     }
 
+    /**
+     * Checks many wallets in parallel with a default concurrency of 32.
+     * @param walletGatewayIds The wallet gateway IDs to check; duplicates and nulls are ignored.
+     * @return BulkWalletCheck with the wallet checks and the failures, in input order.
+     * @throws InterruptedException if interrupted while waiting for the checks.
+     */
+    public BulkWalletCheck checkWallets(Collection<String> walletGatewayIds) throws InterruptedException {
+        return checkWallets(walletGatewayIds, 32, null);
+    }
+
+    /**
+     * Checks many wallets in parallel, removing duplicate IDs first.
+     * @param walletGatewayIds The wallet gateway IDs to check; duplicates and nulls are ignored.
+     * @param concurrency The maximum number of checkWallet calls in flight.
+     * @param listener Optional listener receiving each result as it arrives (may be null).
+     * @return BulkWalletCheck with the wallet checks and the failures, in input order.
+     * @throws InterruptedException if interrupted while waiting for the checks.
+     */
+    public BulkWalletCheck checkWallets(Collection<String> walletGatewayIds, int concurrency, WalletCheckListener listener) throws InterruptedException {
+        Set<String> unique = new LinkedHashSet<>(walletGatewayIds);
+        unique.remove(null);
+        Map<String, WalletCheck> results = new ConcurrentHashMap<>();
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        if (!unique.isEmpty()) {
+            ExecutorService executor = GPayExecutors.newBlockingExecutor("gpay-check-wallets", Math.max(1, Math.min(concurrency, unique.size())));
+            try {
+                for (String id : unique) {
+                    executor.execute(() -> {
+                        try {
+                            WalletCheck check = checkWallet(id);
+                            results.put(id, check);
+                            if (listener != null) listener.onResult(check);
+                        } catch (Exception e) {
+                            failures.put(id, e);
+                            if (listener != null) listener.onFailure(id, e);
+                        }
+                    });
+                }
+                executor.shutdown();
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // Keep waiting for the remaining checks
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        Map<String, WalletCheck> orderedResults = new LinkedHashMap<>();
+        Map<String, Exception> orderedFailures = new LinkedHashMap<>();
+        for (String id : unique) {
+            if (results.containsKey(id)) orderedResults.put(id, results.get(id));
+            if (failures.containsKey(id)) orderedFailures.put(id, failures.get(id));
+        }
+        BulkWalletCheck bulk = new BulkWalletCheck();
+        bulk.setResults(orderedResults);
+        bulk.setFailures(orderedFailures);
+        return bulk;
+    }
+
     /**
      * Retrieves a list of outstanding transactions.
      * @return OutstandingTransactions object containing outstanding credits, debits, and transactions.
@@ -408,9 +719,7 @@ public class GPayApiClient {
         verifyFields.put("outstanding_credit", data.get("outstanding_credit").getAsString());
         verifyFields.put("outstanding_debit", data.get("outstanding_debit").getAsString());
         verifyFields.put("response_timestamp", data.get("response_timestamp").getAsString());
-        if (!ResponseVerifier.verifyResponse(secretKey, password, apiResponse, verifyFields)) {
-            throw new SecurityException("Response verification failed for getOutstandingTransactions");
-        }
+        verify(apiResponse, verifyFields, "getOutstandingTransactions");
         OutstandingTransactions outstanding = new OutstandingTransactions();
         outstanding.setOutstandingCredit(new java.math.BigDecimal(data.get("outstanding_credit").getAsString()));
         outstanding.setOutstandingDebit(new java.math.BigDecimal(data.get("outstanding_debit").getAsString()));
@@ -418,25 +727,133 @@ public class GPayApiClient {
         java.util.List<OutstandingTransaction> txs = new java.util.ArrayList<>();
         if (data.has("outstanding_transactions") && data.get("outstanding_transactions").isJsonArray()) {
             for (com.google.gson.JsonElement el : data.getAsJsonArray("outstanding_transactions")) {
-                com.google.gson.JsonObject tx = el.getAsJsonObject();
-                OutstandingTransaction otx = new OutstandingTransaction();
-                otx.setTransactionId(tx.get("transaction_id").getAsString());
-                otx.setDatetime(tx.get("datetime").getAsString());
-                otx.setTimestamp(tx.has("timestamp") && !tx.get("timestamp").isJsonNull() ? new java.util.Date(Long.parseLong(tx.get("timestamp").getAsString())) : null);
-                otx.setDescription(tx.has("description") && !tx.get("description").isJsonNull() ? tx.get("description").getAsString() : null);
-                otx.setAmount(tx.has("amount") && !tx.get("amount").isJsonNull() ? new java.math.BigDecimal(tx.get("amount").getAsString()) : null);
-                otx.setBalance(tx.has("balance") && !tx.get("balance").isJsonNull() ? new java.math.BigDecimal(tx.get("balance").getAsString()) : null);
-                otx.setReferenceNo(tx.has("reference_no") && !tx.get("reference_no").isJsonNull() ? tx.get("reference_no").getAsString() : null);
-                otx.setOpTypeId(tx.has("op_type_id") && !tx.get("op_type_id").isJsonNull() ? OperationType.fromValue(tx.get("op_type_id").getAsInt()) : null);
-                otx.setStatus(tx.has("status") && !tx.get("status").isJsonNull() ? TransactionStatus.fromValue(tx.get("status").getAsInt()) : null);
-                otx.setCreatedAt(tx.has("created_at") && !tx.get("created_at").isJsonNull() ? new java.util.Date(Long.parseLong(tx.get("created_at").getAsString())) : null);
-                txs.add(otx);
+                txs.add(parseOutstandingTransaction(el.getAsJsonObject()));
             }
         }
         outstanding.setOutstandingTransactions(txs);
         return outstanding;
     }
 
+    /**
+     * Retrieves the statement of a day and returns a cursor parsing its transactions one at a time.
+     * The response is verified before the cursor is returned.
+     * @param date The date in YYYY-MM-DD format.
+     * @return TransactionReader over the day's transactions; its fields hold the balances and totals.
+     * @throws Exception if the request fails or response verification fails.
+     */
+    public TransactionReader<StatementTransaction> readStatement(String date) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("date", date);
+        params.put("request_timestamp", String.valueOf(System.currentTimeMillis()));
+        ApiResponse apiResponse = sendRequest("/info/statement", params);
+        Map<String, String> fields = TransactionReader.readFields(apiResponse.response);
+        verifyFields(apiResponse, fields, "readStatement", "available_balance", "outstanding_credit", "outstanding_debit",
+            "day_balance", "day_total_in", "day_total_out", "response_timestamp");
+        return new TransactionReader<>(apiResponse.response, fields, "day_statement", GPayApiClient::parseStatementTransaction);
+    }
+
+    /**
+     * Retrieves the outstanding transactions and returns a cursor parsing them one at a time.
+     * The response is verified before the cursor is returned.
+     * @return TransactionReader over the outstanding transactions; its fields hold the outstanding totals.
+     * @throws Exception if the request fails or response verification fails.
+     */
+    public TransactionReader<OutstandingTransaction> readOutstandingTransactions() throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("request_timestamp", String.valueOf(System.currentTimeMillis()));
+        ApiResponse apiResponse = sendRequest("/info/outstanding-transactions", params);
+        Map<String, String> fields = TransactionReader.readFields(apiResponse.response);
+        verifyFields(apiResponse, fields, "readOutstandingTransactions", "outstanding_credit", "outstanding_debit", "response_timestamp");
+        return new TransactionReader<>(apiResponse.response, fields, "outstanding_transactions", GPayApiClient::parseOutstandingTransaction);
+    }
+
+    private void verifyFields(ApiResponse apiResponse, Map<String, String> fields, String operation, String... names) throws Exception {
+        Map<String, String> verifyFields = new HashMap<>();
+        for (String name : names) {
+            verifyFields.put(name, fields.get(name));
+        }
+        verify(apiResponse, verifyFields, operation);
+    }
+
+    /**
+     * Publishes the transactions of a range of days as one continuous stream, oldest day first.
+     * <p>
+     * Nothing is fetched until the subscriber requests items, and the next day is only fetched once the
+     * current one is exhausted and demand remains. A failed fetch or verification terminates the stream with onError.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return A cold publisher; each subscriber gets its own pass over the range.
+     */
+    public Publisher<StatementTransaction> streamStatement(LocalDate from, LocalDate to) {
+        return new TransactionPublisher<>(() -> new TransactionPublisher.Cursor<StatementTransaction>() {
+            private LocalDate day = from;
+            private TransactionReader<StatementTransaction> reader;
+
+            @Override
+            public StatementTransaction next() throws Exception {
+                while (true) {
+                    StatementTransaction tx = reader == null ? null : reader.next();
+                    if (tx != null) {
+                        return tx;
+                    }
+                    if (day.isAfter(to)) {
+                        return null;
+                    }
+                    reader = readStatement(day.toString());
+                    day = day.plusDays(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Publishes the outstanding transactions, fetched when the subscriber first requests items.
+     * @return A cold publisher; each subscriber triggers its own fetch.
+     */
+    public Publisher<OutstandingTransaction> streamOutstandingTransactions() {
+        return new TransactionPublisher<>(() -> new TransactionPublisher.Cursor<OutstandingTransaction>() {
+            private TransactionReader<OutstandingTransaction> reader;
+
+            @Override
+            public OutstandingTransaction next() throws Exception {
+                if (reader == null) {
+                    reader = readOutstandingTransactions();
+                }
+                return reader.next();
+            }
+        });
+    }
+
+    private static StatementTransaction parseStatementTransaction(com.google.gson.JsonObject tx) {
+        StatementTransaction stx = new StatementTransaction();
+        stx.setTransactionId(tx.get("transaction_id").getAsString());
+        stx.setDatetime(tx.get("datetime").getAsString());
+        stx.setTimestamp(tx.has("timestamp") && !tx.get("timestamp").isJsonNull() ? new java.util.Date(Long.parseLong(tx.get("timestamp").getAsString())) : null);
+        stx.setDescription(tx.has("description") && !tx.get("description").isJsonNull() ? tx.get("description").getAsString() : null);
+        stx.setAmount(tx.has("amount") && !tx.get("amount").isJsonNull() ? new java.math.BigDecimal(tx.get("amount").getAsString()) : null);
+        stx.setBalance(tx.has("balance") && !tx.get("balance").isJsonNull() ? new java.math.BigDecimal(tx.get("balance").getAsString()) : null);
+        stx.setReferenceNo(tx.has("reference_no") && !tx.get("reference_no").isJsonNull() ? tx.get("reference_no").getAsString() : null);
+        stx.setOpTypeId(tx.has("op_type_id") && !tx.get("op_type_id").isJsonNull() ? OperationType.fromValue(tx.get("op_type_id").getAsInt()) : null);
+        stx.setStatus(tx.has("status") && !tx.get("status").isJsonNull() ? TransactionStatus.fromValue(tx.get("status").getAsInt()) : null);
+        stx.setCreatedAt(tx.has("created_at") && !tx.get("created_at").isJsonNull() ? new java.util.Date(Long.parseLong(tx.get("created_at").getAsString())) : null);
+        return stx;
+    }
+
+    private static OutstandingTransaction parseOutstandingTransaction(com.google.gson.JsonObject tx) {
+        OutstandingTransaction otx = new OutstandingTransaction();
+        otx.setTransactionId(tx.get("transaction_id").getAsString());
+        otx.setDatetime(tx.get("datetime").getAsString());
+        otx.setTimestamp(tx.has("timestamp") && !tx.get("timestamp").isJsonNull() ? new java.util.Date(Long.parseLong(tx.get("timestamp").getAsString())) : null);
+        otx.setDescription(tx.has("description") && !tx.get("description").isJsonNull() ? tx.get("description").getAsString() : null);
+        otx.setAmount(tx.has("amount") && !tx.get("amount").isJsonNull() ? new java.math.BigDecimal(tx.get("amount").getAsString()) : null);
+        otx.setBalance(tx.has("balance") && !tx.get("balance").isJsonNull() ? new java.math.BigDecimal(tx.get("balance").getAsString()) : null);
+        otx.setReferenceNo(tx.has("reference_no") && !tx.get("reference_no").isJsonNull() ? tx.get("reference_no").getAsString() : null);
+        otx.setOpTypeId(tx.has("op_type_id") && !tx.get("op_type_id").isJsonNull() ? OperationType.fromValue(tx.get("op_type_id").getAsInt()) : null);
+        otx.setStatus(tx.has("status") && !tx.get("status").isJsonNull() ? TransactionStatus.fromValue(tx.get("status").getAsInt()) : null);
+        otx.setCreatedAt(tx.has("created_at") && !tx.get("created_at").isJsonNull() ? new java.util.Date(Long.parseLong(tx.get("created_at").getAsString())) : null);
+        return otx;
+    }
+
 
 
 
@@ -450,16 +867,24 @@ public class GPayApiClient {
         public final Map<String,String> headers;
         /** The HTTP status code. */
         public final int code;
+        /** The endpoint path, for auditing. */
+        private final String endpoint;
+        /** The audit call ID, or 0 if auditing is off. */
+        private final long callId;
         /**
          * Constructs an ApiResponse.
          * @param response The response body.
          * @param headers The response headers.
          * @param code The HTTP status code.
+         * @param endpoint The endpoint path.
+         * @param callId The audit call ID, or 0.
          */
-        private ApiResponse(String response, Map<String, String> headers, int code) {
+        private ApiResponse(String response, Map<String, String> headers, int code, String endpoint, long callId) {
             this.response = response;
             this.headers = headers;
             this.code = code;
+            this.endpoint = endpoint;
+            this.callId = callId;
         }
         /**
          * Parses the response body as a JsonObject.
@@ -0,0 +1,49 @@
+package net.libyaguide.gpay.sdk.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for the threads the SDK uses to run blocking API calls in parallel.
+ * <p>
+ * This is the Java 8 implementation, which uses daemon platform threads. The JAR is multi-release: on Java 21
+ * and later a replacement of this class from {@code META-INF/versions/21} is loaded instead, which runs the
+ * same work on virtual threads. Bulk operations, pipelines and pollers all take their threads from here.
+ */
+public final class GPayExecutors {
+    private GPayExecutors() { }
+
+    /**
+     * Checks whether the SDK runs its blocking work on virtual threads.
+     * @return false; virtual threads are only used by the Java 21 implementation
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * Creates an executor running at most {@code threads} blocking calls at a time.
+     * @param name The thread name prefix.
+     * @param threads The maximum number of concurrent calls.
+     * @return A new executor; the caller shuts it down.
+     */
+    public static ExecutorService newBlockingExecutor(String name, int threads) {
+        return Executors.newFixedThreadPool(threads, threadFactory(name));
+    }
+
+    /**
+     * Creates a daemon thread factory with numbered thread names.
+     * @param name The thread name prefix.
+     * @return The thread factory.
+     */
+    public static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
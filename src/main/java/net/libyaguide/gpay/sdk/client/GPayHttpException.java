@@ -0,0 +1,32 @@
+package net.libyaguide.gpay.sdk.client;
+
+/**
+ * Thrown when the GPay API answers with a non-successful HTTP status code.
+ */
+public class GPayHttpException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+
+    /**
+     * Constructs a GPayHttpException.
+     * @param code The HTTP status code.
+     * @param message The HTTP status message.
+     */
+    public GPayHttpException(int code, String message) {
+        super("HTTP error: " + code + " - " + message);
+        this.code = code;
+    }
+
+    /**
+     * Gets the HTTP status code.
+     * @return the HTTP status code
+     */
+    public int getCode() { return code; }
+
+    /**
+     * Checks whether the status code is a server error (5xx), after which the outcome of the call is unknown.
+     * @return true for 5xx status codes
+     */
+    public boolean isServerError() { return code >= 500 && code < 600; }
+}
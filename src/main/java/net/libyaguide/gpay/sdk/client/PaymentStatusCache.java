@@ -0,0 +1,386 @@
+package net.libyaguide.gpay.sdk.client;
+
+import net.libyaguide.gpay.sdk.model.PaymentStatus;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the results of {@link GPayApiClient#checkPaymentStatus(String)} for a client set up with
+ * {@link GPayApiClient#setStatusCache(PaymentStatusCache)}.
+ * <p>
+ * <b>Policy:</b>
+ * <ul>
+ *   <li>A paid status is final, so it is kept until the cache runs out of room. Only statuses that passed
+ *       response verification are cached.</li>
+ *   <li>An unpaid status is kept for {@code unpaidTtlMillis} only, so a page polling for a payment sees it
+ *       shortly after it is made.</li>
+ *   <li>Entries are kept in least-recently-used order, in segments by request ID so lookups of different
+ *       requests rarely contend. When a segment is full its eldest entry is dropped.</li>
+ *   <li>With a spill directory, a paid status dropped from memory is written to a file named after its request
+ *       ID and read back on the next lookup. The files are kept across restarts and never removed by the cache.</li>
+ *   <li>Calls made with {@link CallOptions#setBypassCache(boolean)} skip the lookup; their result still
+ *       refreshes the cache.</li>
+ * </ul>
+ * Request IDs are unique per merchant only, so a cache must not be shared by clients of different API keys.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   PaymentStatusCache cache = new PaymentStatusCache(100_000, Paths.get("payment-status-cache"));
+ *   cache.setUnpaidTtlMillis(500);
+ *   client.setStatusCache(cache);
+ *   PaymentStatus status = client.checkPaymentStatus(requestId);   // answered locally once paid
+ * </pre>
+ */
+public class PaymentStatusCache {
+    private static final int SEGMENTS = 16;
+    private static final String SUFFIX = ".json";
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final Path spillDirectory;
+    private final Gson gson = new Gson();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong spillHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong spills = new AtomicLong();
+    private final AtomicLong spillErrors = new AtomicLong();
+    private volatile long unpaidTtlNanos = TimeUnit.SECONDS.toNanos(1);
+
+    private static final class Entry {
+        final PaymentStatus status;
+        final long expiresAtNanos;
+        boolean spilled;
+
+        Entry(PaymentStatus status, long expiresAtNanos, boolean spilled) {
+            this.status = status;
+            this.expiresAtNanos = expiresAtNanos;
+            this.spilled = spilled;
+        }
+    }
+
+    /**
+     * A spilled status, with timestamps as epoch milliseconds.
+     */
+    private static final class Spilled {
+        String requestId;
+        String transactionId;
+        String amount;
+        Long paymentTimestamp;
+        String referenceNo;
+        String description;
+        Long responseTimestamp;
+    }
+
+    private static final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        final int capacity;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * Creates a cache in memory only.
+     * @param maxEntries The most statuses kept in memory.
+     */
+    public PaymentStatusCache(int maxEntries) {
+        this.spillDirectory = null;
+        init(maxEntries);
+    }
+
+    /**
+     * Creates a cache that spills paid statuses to disk when they are dropped from memory.
+     * @param maxEntries The most statuses kept in memory.
+     * @param spillDirectory The directory holding the spilled statuses, created if needed.
+     * @throws IOException if the directory cannot be created.
+     */
+    public PaymentStatusCache(int maxEntries, Path spillDirectory) throws IOException {
+        this.spillDirectory = Files.createDirectories(spillDirectory);
+        init(maxEntries);
+    }
+
+    private void init(int maxEntries) {
+        int capacity = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Looks up the cached status of a payment request.
+     * @param requestId The payment request ID.
+     * @return A copy of the cached status, or null if none is cached or the unpaid status has expired.
+     */
+    public PaymentStatus get(String requestId) {
+        Segment segment = segment(requestId);
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(requestId);
+            if (entry != null) {
+                if (entry.expiresAtNanos - System.nanoTime() > 0) {
+                    hits.incrementAndGet();
+                    return copy(entry.status);
+                }
+                segment.entries.remove(requestId);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        PaymentStatus spilled = readSpilled(requestId);
+        if (spilled != null) {
+            hits.incrementAndGet();
+            spillHits.incrementAndGet();
+            store(requestId, new Entry(spilled, Long.MAX_VALUE, true));
+            return copy(spilled);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches a verified status: a paid one until it is dropped for room, an unpaid one for {@code unpaidTtlMillis}.
+     * @param requestId The payment request ID the status was fetched for.
+     * @param status The status.
+     */
+    public void put(String requestId, PaymentStatus status) {
+        if (status.isPaid()) {
+            store(requestId, new Entry(copy(status), Long.MAX_VALUE, false));
+        } else if (unpaidTtlNanos > 0) {
+            store(requestId, new Entry(copy(status), System.nanoTime() + unpaidTtlNanos, false));
+        }
+    }
+
+    /**
+     * Drops a status from memory and from the spill directory, e.g. after a request ID was reused by mistake.
+     * @param requestId The payment request ID.
+     */
+    public void remove(String requestId) {
+        Segment segment = segment(requestId);
+        segment.lock.lock();
+        try {
+            segment.entries.remove(requestId);
+        } finally {
+            segment.lock.unlock();
+        }
+        Path file = spillFile(requestId);
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                spillErrors.incrementAndGet();
+            }
+        }
+    }
+
+    void countBypass() {
+        bypasses.incrementAndGet();
+    }
+
+    private void store(String requestId, Entry entry) {
+        Segment segment = segment(requestId);
+        String eldestId = null;
+        Entry eldest = null;
+        segment.lock.lock();
+        try {
+            Entry previous = segment.entries.put(requestId, entry);
+            if (previous != null && previous.status.isPaid()) {
+                if (!entry.status.isPaid()) {
+                    // A response to a call sent before the payment was made
+                    segment.entries.put(requestId, previous);
+                    return;
+                }
+                entry.spilled = previous.spilled;
+            }
+            if (segment.entries.size() > segment.capacity) {
+                Map.Entry<String, Entry> first = segment.entries.entrySet().iterator().next();
+                eldestId = first.getKey();
+                eldest = first.getValue();
+                segment.entries.remove(eldestId);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        if (eldest != null) {
+            evictions.incrementAndGet();
+            if (eldest.status.isPaid() && !eldest.spilled) {
+                spill(eldestId, eldest.status);
+            }
+        }
+    }
+
+    private void spill(String requestId, PaymentStatus status) {
+        Path file = spillFile(requestId);
+        if (file == null) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp" + Thread.currentThread().getId());
+        try {
+            Spilled record = new Spilled();
+            record.requestId = status.getRequestId();
+            record.transactionId = status.getTransactionId();
+            record.amount = status.getAmount() == null ? null : status.getAmount().toPlainString();
+            record.paymentTimestamp = status.getPaymentTimestamp() == null ? null : status.getPaymentTimestamp().getTime();
+            record.referenceNo = status.getReferenceNo();
+            record.description = status.getDescription();
+            record.responseTimestamp = status.getResponseTimestamp() == null ? null : status.getResponseTimestamp().getTime();
+            Files.write(temp, gson.toJson(record).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            spills.incrementAndGet();
+        } catch (IOException e) {
+            spillErrors.incrementAndGet();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Left for the next spill of the same request to replace
+            }
+        }
+    }
+
+    private PaymentStatus readSpilled(String requestId) {
+        Path file = spillFile(requestId);
+        if (file == null) {
+            return null;
+        }
+        byte[] json;
+        try {
+            json = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            spillErrors.incrementAndGet();
+            return null;
+        }
+        try {
+            Spilled record = gson.fromJson(new String(json, StandardCharsets.UTF_8), Spilled.class);
+            if (record == null || !requestId.equals(record.requestId)) {
+                spillErrors.incrementAndGet();
+                return null;
+            }
+            PaymentStatus status = new PaymentStatus();
+            status.setRequestId(record.requestId);
+            status.setTransactionId(record.transactionId);
+            status.setAmount(record.amount == null ? null : new BigDecimal(record.amount));
+            status.setPaymentTimestamp(record.paymentTimestamp == null ? null : new Date(record.paymentTimestamp));
+            status.setReferenceNo(record.referenceNo);
+            status.setDescription(record.description);
+            status.setPaid(true);
+            status.setResponseTimestamp(record.responseTimestamp == null ? null : new Date(record.responseTimestamp));
+            return status;
+        } catch (JsonParseException | NumberFormatException e) {
+            spillErrors.incrementAndGet();
+            return null;
+        }
+    }
+
+    private Path spillFile(String requestId) {
+        // Request IDs are UUIDs; anything else is kept in memory only rather than used as a file name
+        if (spillDirectory == null || requestId.isEmpty() || requestId.length() > 64) {
+            return null;
+        }
+        for (int i = 0; i < requestId.length(); i++) {
+            char c = requestId.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '-' || c == '_')) {
+                return null;
+            }
+        }
+        return spillDirectory.resolve(requestId + SUFFIX);
+    }
+
+    private Segment segment(String requestId) {
+        int h = requestId.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static PaymentStatus copy(PaymentStatus status) {
+        PaymentStatus copy = new PaymentStatus();
+        copy.setRequestId(status.getRequestId());
+        copy.setTransactionId(status.getTransactionId());
+        copy.setAmount(status.getAmount());
+        copy.setPaymentTimestamp(status.getPaymentTimestamp() == null ? null : new Date(status.getPaymentTimestamp().getTime()));
+        copy.setReferenceNo(status.getReferenceNo());
+        copy.setDescription(status.getDescription());
+        copy.setPaid(status.isPaid());
+        copy.setResponseTimestamp(status.getResponseTimestamp() == null ? null : new Date(status.getResponseTimestamp().getTime()));
+        return copy;
+    }
+
+    /**
+     * Gets the number of statuses held in memory, including unpaid ones not yet purged after expiry.
+     * @return the number of entries
+     */
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+    /**
+     * Gets the number of lookups answered by the cache, from memory or the spill directory.
+     * @return the number of hits
+     */
+    public long getHits() { return hits.get(); }
+    /**
+     * Gets the number of hits answered from the spill directory.
+     * @return the number of spill hits
+     */
+    public long getSpillHits() { return spillHits.get(); }
+    /**
+     * Gets the number of lookups that found nothing and went to the API.
+     * @return the number of misses
+     */
+    public long getMisses() { return misses.get(); }
+    /**
+     * Gets the number of calls that skipped the lookup because of {@link CallOptions#isBypassCache()}.
+     * @return the number of bypasses
+     */
+    public long getBypasses() { return bypasses.get(); }
+    /**
+     * Gets the number of statuses dropped from memory for room.
+     * @return the number of evictions
+     */
+    public long getEvictions() { return evictions.get(); }
+    /**
+     * Gets the number of paid statuses written to the spill directory.
+     * @return the number of spills
+     */
+    public long getSpills() { return spills.get(); }
+    /**
+     * Gets the number of spill files that could not be written or read; those lookups go to the API.
+     * @return the number of spill errors
+     */
+    public long getSpillErrors() { return spillErrors.get(); }
+    /**
+     * Gets the time unpaid statuses are kept.
+     * @return the time in milliseconds
+     */
+    public long getUnpaidTtlMillis() { return TimeUnit.NANOSECONDS.toMillis(unpaidTtlNanos); }
+    /**
+     * Sets the time unpaid statuses are kept (default: 1000). 0 disables caching unpaid statuses.
+     * @param unpaidTtlMillis the time in milliseconds
+     */
+    public void setUnpaidTtlMillis(long unpaidTtlMillis) { this.unpaidTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, unpaidTtlMillis)); }
+}
@@ -0,0 +1,365 @@
+package net.libyaguide.gpay.sdk.client;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RequestDispatcher admits API calls through per-lane bulkheads with priority scheduling.
+ * <p>
+ * <b>Lanes:</b>
+ * <ul>
+ *   <li>PAYMENT - sendMoney and createPaymentRequest (highest priority).</li>
+ *   <li>QUERY - checkPaymentStatus, getWalletBalance and checkWallet.</li>
+ *   <li>REPORTING - getStatement and getOutstandingTransactions (lowest priority).</li>
+ * </ul>
+ * Each lane has its own concurrency limit and queue, so a burst in one lane cannot take the slots of
+ * another. All lanes also share a total limit; when a slot frees up, waiting calls of higher-priority lanes
+ * are admitted first. A call arriving at a full lane queue is rejected with {@link RejectedExecutionException}.
+ * <p>
+ * Queue depth, calls in flight and wait times are exposed per lane through {@link #getStats(Lane)}.
+ * <p>
+ * A client uses no dispatcher unless one is set with {@link GPayApiClient#setDispatcher}.
+ */
+public class RequestDispatcher {
+    /**
+     * Enum for the dispatcher lanes, in priority order.
+     */
+    public enum Lane {
+        /** Money movement calls. */
+        PAYMENT,
+        /** Small lookups. */
+        QUERY,
+        /** Heavy reporting calls. */
+        REPORTING
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+    private int totalLimit;
+    private int totalInFlight;
+
+    private static final class Waiter {
+        final Condition condition;
+        boolean granted;
+        Waiter(Condition condition) { this.condition = condition; }
+    }
+
+    private static final class LaneState {
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        int limit;
+        int maxQueue;
+        int inFlight;
+        long admitted;
+        long rejected;
+        long totalWaitNanos;
+        long maxWaitNanos;
+        LaneState(int limit, int maxQueue) {
+            this.limit = limit;
+            this.maxQueue = maxQueue;
+        }
+    }
+
+    /**
+     * A slot held by an admitted call. Closing it releases the slot.
+     */
+    public final class Permit implements AutoCloseable {
+        private final Lane lane;
+        private boolean released;
+
+        private Permit(Lane lane) { this.lane = lane; }
+
+        /**
+         * Gets the lane of the call.
+         * @return the lane
+         */
+        public Lane getLane() { return lane; }
+
+        /**
+         * Releases the slot.
+         */
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (released) {
+                    return;
+                }
+                released = true;
+                lanes.get(lane).inFlight--;
+                totalInFlight--;
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the counters of a lane.
+     */
+    public static final class LaneStats {
+        private final int queued;
+        private final int inFlight;
+        private final long admitted;
+        private final long rejected;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        LaneStats(int queued, int inFlight, long admitted, long rejected, long totalWaitNanos, long maxWaitNanos) {
+            this.queued = queued;
+            this.inFlight = inFlight;
+            this.admitted = admitted;
+            this.rejected = rejected;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        /**
+         * Gets the number of calls waiting in the lane queue.
+         * @return the queue depth
+         */
+        public int getQueued() { return queued; }
+        /**
+         * Gets the number of calls of the lane in flight.
+         * @return the calls in flight
+         */
+        public int getInFlight() { return inFlight; }
+        /**
+         * Gets the number of calls admitted since the dispatcher was created.
+         * @return the admitted calls
+         */
+        public long getAdmitted() { return admitted; }
+        /**
+         * Gets the number of calls rejected because the lane queue was full or the wait timed out.
+         * @return the rejected calls
+         */
+        public long getRejected() { return rejected; }
+        /**
+         * Gets the average time admitted calls waited for a slot.
+         * @return the average wait in nanoseconds
+         */
+        public long getAverageWaitNanos() { return admitted == 0 ? 0 : totalWaitNanos / admitted; }
+        /**
+         * Gets the longest time an admitted call waited for a slot.
+         * @return the maximum wait in nanoseconds
+         */
+        public long getMaxWaitNanos() { return maxWaitNanos; }
+
+        @Override
+        public String toString() {
+            return "queued=" + queued + ", inFlight=" + inFlight + ", admitted=" + admitted + ", rejected=" + rejected
+                + ", avgWaitMicros=" + getAverageWaitNanos() / 1000 + ", maxWaitMicros=" + maxWaitNanos / 1000;
+        }
+    }
+
+    /**
+     * Constructs a dispatcher with the default limits: 64 calls in total, 32 PAYMENT, 32 QUERY and
+     * 8 REPORTING, and queues of 1000 calls per lane.
+     */
+    public RequestDispatcher() {
+        this(64);
+        setLaneLimit(Lane.PAYMENT, 32, 1000);
+        setLaneLimit(Lane.QUERY, 32, 1000);
+        setLaneLimit(Lane.REPORTING, 8, 1000);
+    }
+
+    /**
+     * Constructs a dispatcher with the given total limit; each lane may use all of it until configured.
+     * @param totalLimit The maximum number of calls in flight across all lanes.
+     */
+    public RequestDispatcher(int totalLimit) {
+        this.totalLimit = totalLimit;
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneState(totalLimit, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Sets the concurrency limit and queue size of a lane.
+     * @param lane The lane.
+     * @param limit The maximum number of calls of the lane in flight.
+     * @param maxQueue The maximum number of calls of the lane waiting for a slot.
+     */
+    public void setLaneLimit(Lane lane, int limit, int maxQueue) {
+        lock.lock();
+        try {
+            LaneState state = lanes.get(lane);
+            state.limit = limit;
+            state.maxQueue = maxQueue;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the maximum number of calls in flight across all lanes.
+     * @param totalLimit the total limit
+     */
+    public void setTotalLimit(int totalLimit) {
+        lock.lock();
+        try {
+            this.totalLimit = totalLimit;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a slot in the given lane.
+     * @param lane The lane of the call.
+     * @return The permit; close it when the call completes.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws RejectedExecutionException if the lane queue is full.
+     */
+    public Permit acquire(Lane lane) throws InterruptedException {
+        return acquire(lane, Long.MAX_VALUE);
+    }
+
+    /**
+     * Waits at most the given time for a slot in the given lane.
+     * @param lane The lane of the call.
+     * @param timeoutNanos The maximum time to wait, in nanoseconds.
+     * @return The permit; close it when the call completes.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws RejectedExecutionException if the lane queue is full or no slot frees up in time.
+     */
+    public Permit acquire(Lane lane, long timeoutNanos) throws InterruptedException {
+        return acquire(lane, timeoutNanos, null);
+    }
+
+    /**
+     * Waits at most the given time for a slot in the given lane, giving up as soon as the token is cancelled.
+     * @param lane The lane of the call.
+     * @param timeoutNanos The maximum time to wait, in nanoseconds.
+     * @param token The cancellation token of the call, or null.
+     * @return The permit; close it when the call completes.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws RejectedExecutionException if the lane queue is full, no slot frees up in time or the token is cancelled.
+     */
+    public Permit acquire(Lane lane, long timeoutNanos, CancellationToken token) throws InterruptedException {
+        if (token != null && token.isCancelled()) {
+            throw new RejectedExecutionException("Cancelled before a " + lane + " slot was free");
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            LaneState state = lanes.get(lane);
+            if (state.queue.isEmpty() && state.inFlight < state.limit && totalInFlight < totalLimit) {
+                state.inFlight++;
+                totalInFlight++;
+                state.admitted++;
+                return new Permit(lane);
+            }
+            if (state.queue.size() >= state.maxQueue) {
+                state.rejected++;
+                throw new RejectedExecutionException(lane + " lane queue is full (" + state.maxQueue + ")");
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            state.queue.addLast(waiter);
+            AutoCloseable registration = token == null ? null : token.onCancel(() -> wake(waiter));
+            long remaining = timeoutNanos;
+            try {
+                while (!waiter.granted) {
+                    if (token != null && token.isCancelled()) {
+                        state.queue.remove(waiter);
+                        state.rejected++;
+                        throw new RejectedExecutionException("Cancelled waiting for a " + lane + " slot");
+                    }
+                    if (remaining <= 0) {
+                        state.queue.remove(waiter);
+                        state.rejected++;
+                        throw new RejectedExecutionException("Timed out waiting for a " + lane + " slot");
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // Granted while being interrupted: hand the slot back
+                    state.inFlight--;
+                    totalInFlight--;
+                    dispatch();
+                } else {
+                    state.queue.remove(waiter);
+                }
+                throw e;
+            } finally {
+                if (registration != null) {
+                    try {
+                        registration.close();
+                    } catch (Exception ignored) {
+                        // Unregistering a callback does not fail
+                    }
+                }
+            }
+            long waited = System.nanoTime() - start;
+            state.admitted++;
+            state.totalWaitNanos += waited;
+            state.maxWaitNanos = Math.max(state.maxWaitNanos, waited);
+            return new Permit(lane);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void wake(Waiter waiter) {
+        lock.lock();
+        try {
+            waiter.condition.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        for (Lane lane : Lane.values()) {
+            LaneState state = lanes.get(lane);
+            while (!state.queue.isEmpty() && state.inFlight < state.limit && totalInFlight < totalLimit) {
+                Waiter waiter = state.queue.pollFirst();
+                waiter.granted = true;
+                state.inFlight++;
+                totalInFlight++;
+                waiter.condition.signal();
+            }
+        }
+    }
+
+    /**
+     * Gets a snapshot of the counters of a lane.
+     * @param lane The lane.
+     * @return The lane counters.
+     */
+    public LaneStats getStats(Lane lane) {
+        lock.lock();
+        try {
+            LaneState s = lanes.get(lane);
+            return new LaneStats(s.queue.size(), s.inFlight, s.admitted, s.rejected, s.totalWaitNanos, s.maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the lane an endpoint path belongs to.
+     * @param endpoint The endpoint path, e.g. {@code /payment/send-money}.
+     * @return The lane of the endpoint.
+     */
+    public static Lane laneOf(String endpoint) {
+        switch (endpoint) {
+            case "/payment/send-money":
+            case "/payment/create-payment-request":
+                return Lane.PAYMENT;
+            case "/info/statement":
+            case "/info/outstanding-transactions":
+                return Lane.REPORTING;
+            default:
+                return Lane.QUERY;
+        }
+    }
+}
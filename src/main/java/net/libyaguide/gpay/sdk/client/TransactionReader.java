@@ -0,0 +1,121 @@
+package net.libyaguide.gpay.sdk.client;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A cursor over the transaction array of a verified response, parsing one transaction per {@link #next()} call.
+ * <p>
+ * The response fields outside the array (balances, totals, timestamps) are read in a first pass that skips
+ * the array, so the response is verified before any transaction is handed out. Transactions are then parsed
+ * lazily: a consumer that stops early never materializes the rest of the array.
+ *
+ * @param <T> The transaction type.
+ */
+public class TransactionReader<T> implements Closeable {
+    private final JsonReader reader;
+    private final Map<String, String> fields;
+    private final Function<JsonObject, T> parser;
+    private boolean done;
+
+    TransactionReader(String body, Map<String, String> fields, String arrayName, Function<JsonObject, T> parser) throws IOException {
+        this.fields = Collections.unmodifiableMap(fields);
+        this.parser = parser;
+        this.reader = new JsonReader(new StringReader(body));
+        this.done = !seekArray(reader, arrayName);
+    }
+
+    /**
+     * Reads the scalar fields of the {@code data} object of a response, skipping arrays and objects.
+     * @param body The response body.
+     * @return The scalar fields as strings; JSON null becomes an empty string.
+     * @throws IOException if the body is not valid JSON.
+     */
+    static Map<String, String> readFields(String body) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        try (JsonReader reader = new JsonReader(new StringReader(body))) {
+            if (!seekData(reader)) {
+                return fields;
+            }
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if (token == JsonToken.BOOLEAN) {
+                    fields.put(name, String.valueOf(reader.nextBoolean()));
+                } else if (token == JsonToken.NULL) {
+                    reader.nextNull();
+                    fields.put(name, "");
+                } else if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    fields.put(name, reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static boolean seekData(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("data".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    private static boolean seekArray(JsonReader reader, String arrayName) throws IOException {
+        if (!seekData(reader)) {
+            return false;
+        }
+        while (reader.hasNext()) {
+            if (arrayName.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Parses the next transaction.
+     * @return The transaction, or null when the array is exhausted.
+     * @throws IOException if the response is not valid JSON.
+     */
+    public T next() throws IOException {
+        if (done) {
+            return null;
+        }
+        if (!reader.hasNext()) {
+            done = true;
+            return null;
+        }
+        return parser.apply(JsonParser.parseReader(reader).getAsJsonObject());
+    }
+
+    /**
+     * Gets the verified fields of the response outside the transaction array, e.g. {@code available_balance}.
+     * @return an unmodifiable map of the scalar fields as strings
+     */
+    public Map<String, String> getFields() { return fields; }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        reader.close();
+    }
+}
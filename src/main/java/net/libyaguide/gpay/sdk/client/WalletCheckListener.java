@@ -0,0 +1,22 @@
+package net.libyaguide.gpay.sdk.client;
+
+import net.libyaguide.gpay.sdk.model.WalletCheck;
+
+/**
+ * Listener receiving the partial results of {@link GPayApiClient#checkWallets} as they arrive.
+ * Called from the worker threads; implementations must be thread-safe.
+ */
+public interface WalletCheckListener {
+    /**
+     * Called when a wallet check succeeds.
+     * @param check The wallet check.
+     */
+    void onResult(WalletCheck check);
+
+    /**
+     * Called when a wallet check fails.
+     * @param walletGatewayId The wallet gateway ID.
+     * @param error The error thrown by checkWallet.
+     */
+    default void onFailure(String walletGatewayId, Exception error) { }
+}
@@ -0,0 +1,90 @@
+package net.libyaguide.gpay.sdk.crypto;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.*;
+
+/**
+ * Utility class for signing API responses the way the GPay API does, for stub servers and replayed traffic.
+ * <p>
+ * The signed fields of each endpoint are the ones {@link ResponseVerifier} is called with by
+ * {@link net.libyaguide.gpay.sdk.client.GPayApiClient}. JSON null and missing fields are signed as empty strings.
+ */
+public class ResponseSigner {
+    private static final Map<String, List<String>> SIGNED_FIELDS = new HashMap<>();
+
+    static {
+        SIGNED_FIELDS.put("/info/balance", Arrays.asList("balance", "response_timestamp"));
+        SIGNED_FIELDS.put("/payment/create-payment-request", Arrays.asList(
+            "requester_username", "request_id", "request_time", "amount", "reference_no", "response_timestamp"));
+        SIGNED_FIELDS.put("/payment/check-payment-status", Arrays.asList(
+            "request_id", "transaction_id", "amount", "payment_timestamp", "reference_no", "description", "is_paid", "response_timestamp"));
+        SIGNED_FIELDS.put("/payment/send-money", Arrays.asList(
+            "amount", "sender_fee", "transaction_id", "old_balance", "new_balance", "timestamp", "reference_no", "response_timestamp"));
+        SIGNED_FIELDS.put("/info/statement", Arrays.asList(
+            "available_balance", "outstanding_credit", "outstanding_debit", "day_balance", "day_total_in", "day_total_out", "response_timestamp"));
+        SIGNED_FIELDS.put("/info/check-wallet", Arrays.asList(
+            "exists", "wallet_gateway_id", "wallet_name", "user_account_name", "can_receive_money", "response_timestamp"));
+        SIGNED_FIELDS.put("/info/outstanding-transactions", Arrays.asList(
+            "outstanding_credit", "outstanding_debit", "response_timestamp"));
+    }
+
+    /**
+     * Extracts the endpoint from a URL or path: its last two segments, e.g. {@code /info/balance}.
+     * @param urlOrPath The request URL or path.
+     * @return The endpoint path.
+     */
+    public static String endpointOf(String urlOrPath) {
+        String path = urlOrPath;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        int last = path.lastIndexOf('/');
+        int previous = last > 0 ? path.lastIndexOf('/', last - 1) : -1;
+        return previous >= 0 ? path.substring(previous) : path;
+    }
+
+    /**
+     * Gets the names of the signed response fields of an endpoint.
+     * @param endpoint The endpoint path, e.g. {@code /info/balance}.
+     * @return The signed field names, or null for an unknown endpoint.
+     */
+    public static List<String> signedFields(String endpoint) {
+        List<String> fields = SIGNED_FIELDS.get(endpoint);
+        return fields == null ? null : Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Signs a response body with a fresh random salt.
+     * @param endpoint The endpoint path, e.g. {@code /info/balance}.
+     * @param body The response body, with the fields under {@code data}.
+     * @param secretKey The secret key for HMAC.
+     * @param password The password used in hash token generation.
+     * @return The {@code X-Signature-Salt} and {@code X-Signature-Hash} headers.
+     * @throws IllegalArgumentException if the endpoint is unknown.
+     * @throws Exception if the hashing fails.
+     */
+    public static Map<String, String> sign(String endpoint, String body, String secretKey, String password) throws Exception {
+        List<String> names = SIGNED_FIELDS.get(endpoint);
+        if (names == null) {
+            throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+        }
+        JsonObject root = JsonParser.parseString(body).getAsJsonObject();
+        JsonObject data = root.has("data") && root.get("data").isJsonObject() ? root.getAsJsonObject("data") : new JsonObject();
+        Map<String, String> fields = new HashMap<>();
+        for (String name : names) {
+            JsonElement value = data.get(name);
+            fields.put(name, value == null || value.isJsonNull() ? "" : value.getAsString());
+        }
+        String salt = HashTokenGenerator.generateSalt();
+        String hash = VerificationHashGenerator.generateVerificationHash(
+            HashTokenGenerator.generateHashToken(salt, password), fields, secretKey);
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("X-Signature-Salt", salt);
+        headers.put("X-Signature-Hash", hash);
+        return headers;
+    }
+}
@@ -0,0 +1,291 @@
+package net.libyaguide.gpay.sdk.export;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * A reusable UTF-8 byte buffer with formatters for the values of an export.
+ * <p>
+ * Numbers, dates and strings are written digit by digit and character by character into the buffer, so
+ * formatting allocates nothing once the buffer has grown to the size of a day. The one exception is a
+ * {@link BigDecimal}, whose unscaled value is read through a small {@link BigInteger}.
+ */
+final class RecordEncoder {
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+    }
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private byte[] buf;
+    private int len;
+    private int records;
+
+    RecordEncoder(int capacity) {
+        buf = new byte[Math.max(16, capacity)];
+    }
+
+    byte[] array() {
+        return buf;
+    }
+
+    int length() {
+        return len;
+    }
+
+    /**
+     * Gets the number of records ended with {@link #endRecord()} since the last reset.
+     */
+    int records() {
+        return records;
+    }
+
+    void reset() {
+        len = 0;
+        records = 0;
+    }
+
+    void endRecord() {
+        ensure(1);
+        buf[len++] = '\n';
+        records++;
+    }
+
+    void ascii(char c) {
+        ensure(1);
+        buf[len++] = (byte) c;
+    }
+
+    /**
+     * Writes a string known to be ASCII and to need no escaping, such as a field name.
+     */
+    void ascii(String s) {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            buf[len++] = (byte) s.charAt(i);
+        }
+    }
+
+    void number(long v) {
+        if (v == Long.MIN_VALUE) {
+            ascii("-9223372036854775808");
+            return;
+        }
+        ensure(20);
+        if (v < 0) {
+            buf[len++] = '-';
+            v = -v;
+        }
+        int digits = digits(v);
+        int end = len + digits;
+        int pos = end;
+        while (v >= 100) {
+            int pair = (int) (v % 100);
+            v /= 100;
+            buf[--pos] = DIGIT_PAIRS[2 * pair + 1];
+            buf[--pos] = DIGIT_PAIRS[2 * pair];
+        }
+        if (v >= 10) {
+            buf[--pos] = DIGIT_PAIRS[2 * (int) v + 1];
+            buf[--pos] = DIGIT_PAIRS[2 * (int) v];
+        } else {
+            buf[--pos] = (byte) ('0' + v);
+        }
+        len = end;
+    }
+
+    /**
+     * Writes a decimal in plain notation, e.g. {@code -125.500}.
+     */
+    void decimal(BigDecimal v) {
+        int scale = v.scale();
+        BigInteger unscaled = v.unscaledValue();
+        if (unscaled.bitLength() > 62 || scale < 0 || scale > 18) {
+            ascii(v.toPlainString());
+            return;
+        }
+        long u = unscaled.longValue();
+        if (scale == 0) {
+            number(u);
+            return;
+        }
+        if (u < 0) {
+            ascii('-');
+            u = -u;
+        }
+        long pow = 1;
+        for (int i = 0; i < scale; i++) {
+            pow *= 10;
+        }
+        number(u / pow);
+        ascii('.');
+        long fraction = u % pow;
+        ensure(scale);
+        for (int i = len + scale - 1; i >= len; i--) {
+            buf[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        len += scale;
+    }
+
+    /**
+     * Writes an ISO-8601 date, {@code yyyy-MM-dd}.
+     */
+    void date(long epochDay) {
+        // Civil-from-days over 400-year eras, as in java.time.LocalDate.ofEpochDay
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            number(year);
+        } else {
+            pair((int) (year / 100));
+            pair((int) (year % 100));
+        }
+        ascii('-');
+        pair(month);
+        ascii('-');
+        pair(day);
+    }
+
+    /**
+     * Writes an ISO-8601 UTC instant with milliseconds, {@code yyyy-MM-ddTHH:mm:ss.SSSZ}.
+     */
+    void instant(long epochMillis) {
+        long epochDay = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+        date(epochDay);
+        ascii('T');
+        pair(millisOfDay / 3_600_000);
+        ascii(':');
+        pair(millisOfDay / 60_000 % 60);
+        ascii(':');
+        pair(millisOfDay / 1000 % 60);
+        ascii('.');
+        int millis = millisOfDay % 1000;
+        ensure(3);
+        buf[len++] = (byte) ('0' + millis / 100);
+        buf[len++] = DIGIT_PAIRS[2 * (millis % 100)];
+        buf[len++] = DIGIT_PAIRS[2 * (millis % 100) + 1];
+        ascii('Z');
+    }
+
+    /**
+     * Writes a CSV field, quoted if it contains a separator, quote or line break.
+     */
+    void csv(CharSequence s) {
+        boolean quote = false;
+        for (int i = 0, n = s.length(); i < n && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            utf8(s, false);
+            return;
+        }
+        ascii('"');
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                ascii('"');
+            }
+            i = utf8Char(s, i, false);
+        }
+        ascii('"');
+    }
+
+    /**
+     * Writes a JSON string literal, including the quotes.
+     */
+    void json(CharSequence s) {
+        ascii('"');
+        utf8(s, true);
+        ascii('"');
+    }
+
+    private void utf8(CharSequence s, boolean jsonEscape) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            i = utf8Char(s, i, jsonEscape);
+        }
+    }
+
+    /**
+     * Encodes the character at {@code i}, and the low surrogate after it if it is a pair.
+     * @return the index of the last character consumed
+     */
+    private int utf8Char(CharSequence s, int i, boolean jsonEscape) {
+        char c = s.charAt(i);
+        ensure(6);
+        if (c < 0x80) {
+            if (jsonEscape && (c < 0x20 || c == '"' || c == '\\')) {
+                buf[len++] = '\\';
+                switch (c) {
+                    case '"': buf[len++] = '"'; break;
+                    case '\\': buf[len++] = '\\'; break;
+                    case '\n': buf[len++] = 'n'; break;
+                    case '\r': buf[len++] = 'r'; break;
+                    case '\t': buf[len++] = 't'; break;
+                    default:
+                        buf[len++] = 'u';
+                        buf[len++] = '0';
+                        buf[len++] = '0';
+                        buf[len++] = HEX[c >> 4];
+                        buf[len++] = HEX[c & 0xf];
+                }
+            } else {
+                buf[len++] = (byte) c;
+            }
+        } else if (c < 0x800) {
+            buf[len++] = (byte) (0xc0 | c >> 6);
+            buf[len++] = (byte) (0x80 | c & 0x3f);
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            buf[len++] = (byte) (0xf0 | cp >> 18);
+            buf[len++] = (byte) (0x80 | cp >> 12 & 0x3f);
+            buf[len++] = (byte) (0x80 | cp >> 6 & 0x3f);
+            buf[len++] = (byte) (0x80 | cp & 0x3f);
+        } else if (Character.isSurrogate(c)) {
+            buf[len++] = '?';
+        } else {
+            buf[len++] = (byte) (0xe0 | c >> 12);
+            buf[len++] = (byte) (0x80 | c >> 6 & 0x3f);
+            buf[len++] = (byte) (0x80 | c & 0x3f);
+        }
+        return i;
+    }
+
+    private void pair(int v) {
+        ensure(2);
+        buf[len++] = DIGIT_PAIRS[2 * v];
+        buf[len++] = DIGIT_PAIRS[2 * v + 1];
+    }
+
+    private static int digits(long v) {
+        long p = 10;
+        for (int d = 1; d < 19; d++) {
+            if (v < p) {
+                return d;
+            }
+            p *= 10;
+        }
+        return 19;
+    }
+
+    private void ensure(int n) {
+        if (len + n > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package net.libyaguide.gpay.sdk.harvest;
+
+import net.libyaguide.gpay.sdk.archive.StatementArchive;
+import net.libyaguide.gpay.sdk.model.StatementTransaction;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link HarvestSink} that stores each tenant's statements in its own {@link StatementArchive}, in the
+ * subdirectory of a root directory named after the tenant.
+ * <p>
+ * Archives are opened on the first day delivered for a tenant and kept open, so they can be queried once the
+ * harvest is done.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   ArchiveHarvestSink sink = new ArchiveHarvestSink(Paths.get("statements"));
+ *   StatementHarvester harvester = new StatementHarvester(sink);
+ *   harvester.addTenant("merchant-a", clientA);
+ *   harvester.harvest(from, to);
+ *   List&lt;StatementTransaction&gt; matches = sink.getArchive("merchant-a").query(query);
+ * </pre>
+ */
+public class ArchiveHarvestSink implements HarvestSink {
+    private final Path root;
+    private final ConcurrentHashMap<String, StatementArchive> archives = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a sink.
+     * @param root The directory holding one archive directory per tenant.
+     */
+    public ArchiveHarvestSink(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void accept(String tenant, LocalDate day, List<StatementTransaction> transactions) throws IOException {
+        getArchive(tenant).put(day, transactions);
+    }
+
+    /**
+     * Gets the archive of a tenant, opening it if needed.
+     * @param tenant The tenant name.
+     * @return The tenant's archive.
+     * @throws IOException if the archive cannot be opened.
+     */
+    public StatementArchive getArchive(String tenant) throws IOException {
+        StatementArchive archive = archives.get(tenant);
+        if (archive != null) {
+            return archive;
+        }
+        synchronized (archives) {
+            archive = archives.get(tenant);
+            if (archive == null) {
+                archive = StatementArchive.open(root.resolve(StatementHarvester.checkTenant(tenant)));
+                archives.put(tenant, archive);
+            }
+            return archive;
+        }
+    }
+}
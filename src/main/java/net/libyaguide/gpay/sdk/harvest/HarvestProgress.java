@@ -0,0 +1,112 @@
+package net.libyaguide.gpay.sdk.harvest;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represents the progress of a {@link StatementHarvester} run at one point in time, or its summary when the run
+ * has finished.
+ * <p>
+ * A task is the statement of one tenant and day. Every task of a run ends up resumed, completed or failed.
+ */
+public class HarvestProgress {
+    private final long totalTasks;
+    private final long resumedTasks;
+    private final long completedTasks;
+    private final long failedTasks;
+    private final long retries;
+    private final long steals;
+    private final long transactions;
+    private final int inFlight;
+    private final long elapsedMillis;
+    private final Map<String, Exception> failures;
+
+    HarvestProgress(long totalTasks, long resumedTasks, long completedTasks, long failedTasks, long retries,
+                    long steals, long transactions, int inFlight, long elapsedMillis, Map<String, Exception> failures) {
+        this.totalTasks = totalTasks;
+        this.resumedTasks = resumedTasks;
+        this.completedTasks = completedTasks;
+        this.failedTasks = failedTasks;
+        this.retries = retries;
+        this.steals = steals;
+        this.transactions = transactions;
+        this.inFlight = inFlight;
+        this.elapsedMillis = elapsedMillis;
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Gets the number of tasks in the run: the tenants times the days.
+     * @return the number of tasks
+     */
+    public long getTotalTasks() { return totalTasks; }
+    /**
+     * Gets the number of tasks skipped because the checkpoint shows an earlier run finished them.
+     * @return the number of resumed tasks
+     */
+    public long getResumedTasks() { return resumedTasks; }
+    /**
+     * Gets the number of tasks fetched and handed to the sink in this run.
+     * @return the number of completed tasks
+     */
+    public long getCompletedTasks() { return completedTasks; }
+    /**
+     * Gets the number of tasks given up on, after their last attempt or a non-retryable error.
+     * @return the number of failed tasks
+     */
+    public long getFailedTasks() { return failedTasks; }
+    /**
+     * Gets the number of tasks not finished yet.
+     * @return the number of remaining tasks
+     */
+    public long getRemainingTasks() { return totalTasks - resumedTasks - completedTasks - failedTasks; }
+    /**
+     * Gets the number of attempts that failed with a retryable error and were scheduled again.
+     * @return the number of retries
+     */
+    public long getRetries() { return retries; }
+    /**
+     * Gets the number of tasks a worker took from another worker's queue.
+     * @return the number of steals
+     */
+    public long getSteals() { return steals; }
+    /**
+     * Gets the number of transactions handed to the sink in this run.
+     * @return the number of transactions
+     */
+    public long getTransactions() { return transactions; }
+    /**
+     * Gets the number of tasks being fetched or stored at the time of the snapshot.
+     * @return the number of tasks in flight
+     */
+    public int getInFlight() { return inFlight; }
+    /**
+     * Gets the time since the run started.
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() { return elapsedMillis; }
+    /**
+     * Gets the tasks completed per second since the run started.
+     * @return the task throughput
+     */
+    public double getTasksPerSecond() { return elapsedMillis == 0 ? 0 : completedTasks * 1000.0 / elapsedMillis; }
+    /**
+     * Gets the transactions handed to the sink per second since the run started.
+     * @return the transaction throughput
+     */
+    public double getTransactionsPerSecond() { return elapsedMillis == 0 ? 0 : transactions * 1000.0 / elapsedMillis; }
+    /**
+     * Gets the failed tasks with the error of their last attempt.
+     * @return the errors keyed by {@code <tenant>/<yyyy-MM-dd>}
+     */
+    public Map<String, Exception> getFailures() { return failures; }
+
+    @Override
+    public String toString() {
+        return "HarvestProgress{total=" + totalTasks + ", resumed=" + resumedTasks + ", completed=" + completedTasks
+            + ", failed=" + failedTasks + ", remaining=" + getRemainingTasks() + ", inFlight=" + inFlight
+            + ", retries=" + retries + ", steals=" + steals + ", transactions=" + transactions
+            + ", elapsedMillis=" + elapsedMillis + String.format(", tasksPerSecond=%.1f, transactionsPerSecond=%.1f}",
+            getTasksPerSecond(), getTransactionsPerSecond());
+    }
+}
@@ -0,0 +1,26 @@
+package net.libyaguide.gpay.sdk.harvest;
+
+import net.libyaguide.gpay.sdk.model.StatementTransaction;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Receives the statements fetched by a {@link StatementHarvester}, one tenant and day at a time.
+ * <p>
+ * {@link #accept} is called from the harvester's worker threads, for different tenants and days at once, so
+ * implementations must be thread-safe. A (tenant, day) is recorded as done in the checkpoint only after
+ * {@code accept} returns, so a sink must have stored the statement durably by then. The same day may be
+ * delivered again after a crash or a retry, and must then replace what was stored before.
+ */
+public interface HarvestSink {
+    /**
+     * Called with the statement of one tenant and day.
+     * @param tenant The tenant name.
+     * @param day The statement day.
+     * @param transactions The day's transactions in statement order.
+     * @throws Exception if the statement cannot be stored; the harvester retries an {@link java.io.IOException}
+     *         like a failed fetch and gives up on the day for any other exception.
+     */
+    void accept(String tenant, LocalDate day, List<StatementTransaction> transactions) throws Exception;
+}
@@ -0,0 +1,583 @@
+package net.libyaguide.gpay.sdk.harvest;
+
+import net.libyaguide.gpay.sdk.client.CrcLines;
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.client.GPayHttpException;
+import net.libyaguide.gpay.sdk.client.TransactionReader;
+import net.libyaguide.gpay.sdk.model.StatementTransaction;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * StatementHarvester fetches the statements of many merchants (tenants) over a range of days and hands them to
+ * a {@link HarvestSink}.
+ * <p>
+ * <b>Scheduling:</b>
+ * <ul>
+ *   <li>Each (tenant, day) is a task. Tasks are spread over the queues of a fixed pool of workers, one queue
+ *       per worker, interleaving tenants so each queue holds a mix of them.</li>
+ *   <li>A worker takes tasks from the head of its own queue. When its queue is empty, or holds only tasks it
+ *       cannot run yet, it steals from the tail of another worker's queue, so no worker idles while work is
+ *       left anywhere.</li>
+ *   <li>The pool size caps the requests in flight across all tenants; each tenant also has its own cap, so a
+ *       merchant with a long history cannot occupy every worker. A task whose tenant is at its cap is left in
+ *       its queue for a later pass.</li>
+ * </ul>
+ *
+ * <b>Retry and resume:</b>
+ * <ul>
+ *   <li>A task that fails with an I/O error, a 5xx, 408 or 429 status, or a rejection by a dispatcher, quota or
+ *       scheduling transport is tried again after an exponential backoff, up to {@code maxAttempts} times. Other
+ *       errors, such as a failed response verification, fail the task at once.</li>
+ *   <li>Failed tasks do not stop the run; they are listed in the {@link HarvestProgress} it returns.</li>
+ *   <li>With a checkpoint file, every task is recorded once its statement is in the sink, as a {@link CrcLines}
+ *       line. A later run with the same checkpoint skips the
+ *       recorded tasks. Today and later days are never recorded, as their statements are still changing.</li>
+ * </ul>
+ *
+ * <b>Progress:</b> a progress listener receives a {@link HarvestProgress} snapshot every
+ * {@code progressIntervalMillis} and the summary when the run ends; {@link #getProgress()} can be polled from
+ * any thread.
+ * <p>
+ * Tenants are identified by name and fetched with their own client. Clients built on one shared transport
+ * share its connection pool, which should then allow at least {@code parallelism} connections.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   StatementHarvester harvester = new StatementHarvester(new ArchiveHarvestSink(Paths.get("statements")));
+ *   for (Merchant m : merchants) {
+ *       harvester.addTenant(m.getName(), new GPayApiClient(m.getApiKey(), m.getSecretKey(), m.getPassword(), baseUrl));
+ *   }
+ *   harvester.setParallelism(64);
+ *   harvester.setTenantConcurrency(4);
+ *   harvester.setCheckpoint(Paths.get("harvest.checkpoint"));
+ *   harvester.setProgressListener(p -&gt; log.info(p.toString()));
+ *   HarvestProgress result = harvester.harvest(LocalDate.now().minusDays(7), LocalDate.now().minusDays(1));
+ * </pre>
+ */
+public class StatementHarvester {
+    private static final int SCAN_LIMIT = 32;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private final HarvestSink sink;
+    private final Map<String, Tenant> tenants = new LinkedHashMap<>();
+    private int parallelism = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+    private int tenantConcurrency = 4;
+    private int maxAttempts = 4;
+    private long retryBackoffMillis = 1000;
+    private Path checkpoint;
+    private Consumer<HarvestProgress> progressListener;
+    private long progressIntervalMillis = 10_000;
+    private Run current;
+    private HarvestProgress last;
+
+    private static final class Tenant {
+        final String name;
+        final GPayApiClient client;
+        final int maxConcurrency;
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Tenant(String name, GPayApiClient client, int maxConcurrency) {
+            this.name = name;
+            this.client = client;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        boolean tryAcquire(int defaultLimit) {
+            int limit = maxConcurrency > 0 ? maxConcurrency : defaultLimit;
+            for (;;) {
+                int n = inFlight.get();
+                if (n >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static final class Task {
+        final Tenant tenant;
+        final LocalDate day;
+        int attempts;
+        long notBefore;
+
+        Task(Tenant tenant, LocalDate day) {
+            this.tenant = tenant;
+            this.day = day;
+        }
+
+        String key() {
+            return tenant.name + "/" + day;
+        }
+    }
+
+    /**
+     * Creates a harvester.
+     * @param sink The sink receiving the statements.
+     */
+    public StatementHarvester(HarvestSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Adds a tenant limited by the default tenant concurrency.
+     * @param name The tenant name: letters, digits, '.', '_' or '-'.
+     * @param client The client holding the tenant's credentials.
+     */
+    public void addTenant(String name, GPayApiClient client) {
+        addTenant(name, client, 0);
+    }
+
+    /**
+     * Adds a tenant with its own concurrency limit.
+     * @param name The tenant name: letters, digits, '.', '_' or '-'.
+     * @param client The client holding the tenant's credentials.
+     * @param maxConcurrency The most statements of this tenant fetched at once, or 0 for the default tenant concurrency.
+     */
+    public synchronized void addTenant(String name, GPayApiClient client, int maxConcurrency) {
+        checkTenant(name);
+        if (tenants.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate tenant: " + name);
+        }
+        tenants.put(name, new Tenant(name, client, Math.max(0, maxConcurrency)));
+    }
+
+    /**
+     * Fetches the statements of every tenant for a range of days.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return The summary of the run, listing the tasks that failed.
+     * @throws IOException if the checkpoint file cannot be read or written; the tasks recorded before are kept.
+     * @throws InterruptedException if the calling thread is interrupted; the workers are stopped.
+     */
+    public HarvestProgress harvest(LocalDate from, LocalDate to) throws IOException, InterruptedException {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("to is before from");
+        }
+        Run run;
+        synchronized (this) {
+            if (current != null) {
+                throw new IllegalStateException("A harvest is already running");
+            }
+            run = new Run(new ArrayList<>(tenants.values()), parallelism);
+            current = run;
+        }
+        Consumer<HarvestProgress> listener = progressListener;
+        ExecutorService workers = GPayExecutors.newBlockingExecutor("gpay-harvest", run.queues.size());
+        ScheduledExecutorService reporter = null;
+        try {
+            run.plan(from, to);
+            if (listener != null) {
+                reporter = Executors.newSingleThreadScheduledExecutor(GPayExecutors.threadFactory("gpay-harvest-progress"));
+                reporter.scheduleAtFixedRate(() -> listener.accept(run.snapshot()), progressIntervalMillis,
+                    progressIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < run.queues.size(); i++) {
+                int worker = i;
+                futures.add(workers.submit(() -> run.work(worker)));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    run.fail(e.getCause());
+                }
+            }
+            Throwable fatal = run.fatal;
+            if (fatal instanceof IOException) {
+                throw (IOException) fatal;
+            } else if (fatal instanceof RuntimeException) {
+                throw (RuntimeException) fatal;
+            } else if (fatal instanceof Error) {
+                throw (Error) fatal;
+            }
+            HarvestProgress result = run.snapshot();
+            if (reporter != null) {
+                reporter.shutdownNow();
+                listener.accept(result);
+            }
+            return result;
+        } finally {
+            workers.shutdownNow();
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+            run.close();
+            synchronized (this) {
+                last = run.snapshot();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Gets the progress of the running harvest, or the summary of the last one.
+     * @return the progress, or null if no harvest has run
+     */
+    public HarvestProgress getProgress() {
+        Run run;
+        synchronized (this) {
+            if (current == null) {
+                return last;
+            }
+            run = current;
+        }
+        return run.snapshot();
+    }
+
+    /**
+     * Checks whether an error is worth another attempt: I/O errors, server errors, timeouts, throttling and
+     * rejections by a full dispatcher, quota or scheduling transport.
+     */
+    static boolean isRetryable(Exception e) {
+        if (e instanceof GPayHttpException) {
+            GPayHttpException http = (GPayHttpException) e;
+            return http.isServerError() || http.getCode() == 408 || http.getCode() == 429;
+        }
+        return e instanceof IOException || e instanceof RejectedExecutionException;
+    }
+
+    static String checkTenant(String name) {
+        if (name == null || !name.matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("Tenant name must be letters, digits, '.', '_' or '-': " + name);
+        }
+        return name;
+    }
+
+    /**
+     * State of a single run: the worker queues, the counters and the checkpoint file.
+     */
+    private final class Run implements Closeable {
+        final List<Tenant> tenants;
+        final List<ConcurrentLinkedDeque<Task>> queues = new ArrayList<>();
+        final int defaultLimit = tenantConcurrency;
+        final int attemptsAllowed = maxAttempts;
+        final long backoffMillis = retryBackoffMillis;
+        final Path checkpointPath = checkpoint;
+        final long startNanos = System.nanoTime();
+        final AtomicLong remaining = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong steals = new AtomicLong();
+        final AtomicLong transactions = new AtomicLong();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final Map<String, Exception> failures = new ConcurrentHashMap<>();
+        // Bumped whenever a task may have become runnable; idle workers wait for it to change
+        final AtomicLong version = new AtomicLong();
+        final AtomicInteger waiting = new AtomicInteger();
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition changed = lock.newCondition();
+        final ReentrantLock checkpointLock = new ReentrantLock();
+        LocalDate today;
+        volatile long total;
+        volatile long resumed;
+        FileChannel checkpointChannel;
+        volatile Throwable fatal;
+
+        Run(List<Tenant> tenants, int workers) {
+            this.tenants = tenants;
+            for (int i = 0; i < Math.max(1, workers); i++) {
+                queues.add(new ConcurrentLinkedDeque<>());
+            }
+        }
+
+        void plan(LocalDate from, LocalDate to) throws IOException {
+            Set<String> done = checkpointPath == null ? Collections.emptySet() : openCheckpoint();
+            today = LocalDate.now();
+            int n = queues.size();
+            long next = 0;
+            long dayIndex = 0;
+            long tasks = 0;
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1), dayIndex++) {
+                for (Tenant tenant : tenants) {
+                    total++;
+                    if (day.isBefore(today) && done.contains(tenant.name + " " + day)) {
+                        resumed++;
+                        continue;
+                    }
+                    // Shift by the day so a tenant does not always land on the same worker
+                    queues.get((int) ((next++ + dayIndex) % n)).addLast(new Task(tenant, day));
+                    tasks++;
+                }
+            }
+            remaining.set(tasks);
+        }
+
+        void work(int worker) {
+            try {
+                while (remaining.get() > 0 && fatal == null && !Thread.currentThread().isInterrupted()) {
+                    long seen = version.get();
+                    Task task = take(worker);
+                    if (task == null) {
+                        awaitChange(seen);
+                    } else {
+                        execute(worker, task);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                signal();
+            }
+        }
+
+        private Task take(int worker) {
+            long now = System.nanoTime();
+            Task task = scan(queues.get(worker), true, now);
+            if (task != null) {
+                return task;
+            }
+            int n = queues.size();
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int k = 0; k < n; k++) {
+                int victim = (start + k) % n;
+                if (victim != worker && (task = scan(queues.get(victim), false, now)) != null) {
+                    steals.incrementAndGet();
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Takes the first runnable task among the next few at the head (own queue) or tail (stealing) of a queue,
+         * putting the skipped ones back where they were.
+         */
+        private Task scan(ConcurrentLinkedDeque<Task> queue, boolean own, long now) {
+            Task found = null;
+            Task[] skipped = null;
+            int count = 0;
+            while (count < SCAN_LIMIT) {
+                Task task = own ? queue.pollFirst() : queue.pollLast();
+                if (task == null) {
+                    break;
+                }
+                if (task.notBefore - now <= 0 && task.tenant.tryAcquire(defaultLimit)) {
+                    found = task;
+                    break;
+                }
+                if (skipped == null) {
+                    skipped = new Task[SCAN_LIMIT];
+                }
+                skipped[count++] = task;
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                if (own) {
+                    queue.addFirst(skipped[i]);
+                } else {
+                    queue.addLast(skipped[i]);
+                }
+            }
+            return found;
+        }
+
+        private void execute(int worker, Task task) throws IOException {
+            inFlight.incrementAndGet();
+            try {
+                List<StatementTransaction> statement;
+                try {
+                    statement = fetch(task);
+                    sink.accept(task.tenant.name, task.day, statement);
+                } catch (Exception e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    if (isRetryable(e) && ++task.attempts < attemptsAllowed) {
+                        long delay = Math.min(backoffMillis << Math.min(task.attempts - 1, 20), MAX_BACKOFF_MILLIS);
+                        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                        task.notBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                        retries.incrementAndGet();
+                        queues.get(worker).addLast(task);
+                    } else {
+                        failures.put(task.key(), e);
+                        failed.incrementAndGet();
+                        remaining.decrementAndGet();
+                    }
+                    return;
+                }
+                if (task.day.isBefore(today)) {
+                    record(task);
+                }
+                transactions.addAndGet(statement.size());
+                completed.incrementAndGet();
+                remaining.decrementAndGet();
+            } finally {
+                task.tenant.inFlight.decrementAndGet();
+                inFlight.decrementAndGet();
+                signal();
+            }
+        }
+
+        private List<StatementTransaction> fetch(Task task) throws Exception {
+            List<StatementTransaction> statement = new ArrayList<>();
+            try (TransactionReader<StatementTransaction> reader = task.tenant.client.readStatement(task.day.toString())) {
+                StatementTransaction tx;
+                while ((tx = reader.next()) != null) {
+                    statement.add(tx);
+                }
+            }
+            return statement;
+        }
+
+        private void awaitChange(long seen) throws InterruptedException {
+            waiting.incrementAndGet();
+            lock.lock();
+            try {
+                // Retries that are not due yet are not signalled, so the wait is bounded
+                if (version.get() == seen && remaining.get() > 0 && fatal == null) {
+                    changed.awaitNanos(IDLE_WAIT_NANOS);
+                }
+            } finally {
+                lock.unlock();
+                waiting.decrementAndGet();
+            }
+        }
+
+        private void signal() {
+            version.incrementAndGet();
+            if (waiting.get() > 0) {
+                lock.lock();
+                try {
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        void fail(Throwable t) {
+            if (fatal == null) {
+                fatal = t;
+            }
+            signal();
+        }
+
+        HarvestProgress snapshot() {
+            return new HarvestProgress(total, resumed, completed.get(), failed.get(), retries.get(), steals.get(),
+                transactions.get(), inFlight.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                new HashMap<>(failures));
+        }
+
+        private Set<String> openCheckpoint() throws IOException {
+            Set<String> done = new HashSet<>();
+            long valid = Files.exists(checkpointPath) ? CrcLines.scan(checkpointPath, true, done::add) : 0;
+            checkpointChannel = FileChannel.open(checkpointPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // An unterminated or corrupt last line is a torn write
+            CrcLines.truncate(checkpointChannel, valid);
+            return done;
+        }
+
+        private void record(Task task) throws IOException {
+            if (checkpointChannel == null) {
+                return;
+            }
+            ByteBuffer line = ByteBuffer.wrap(CrcLines.encode(task.tenant.name + " " + task.day));
+            checkpointLock.lock();
+            try {
+                CrcLines.append(checkpointChannel, line);
+            } finally {
+                checkpointLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (checkpointChannel != null) {
+                checkpointChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of workers, which caps the statements fetched at once across all tenants.
+     * @return the parallelism
+     */
+    public int getParallelism() { return parallelism; }
+    /**
+     * Sets the number of workers (default: four per available processor, at least 16).
+     * @param parallelism the parallelism
+     */
+    public void setParallelism(int parallelism) { this.parallelism = Math.max(1, parallelism); }
+    /**
+     * Gets the most statements of one tenant fetched at once, for tenants added without their own limit.
+     * @return the default tenant concurrency
+     */
+    public int getTenantConcurrency() { return tenantConcurrency; }
+    /**
+     * Sets the most statements of one tenant fetched at once, for tenants added without their own limit (default: 4).
+     * @param tenantConcurrency the default tenant concurrency
+     */
+    public void setTenantConcurrency(int tenantConcurrency) { this.tenantConcurrency = Math.max(1, tenantConcurrency); }
+    /**
+     * Gets the number of attempts for a task failing with retryable errors.
+     * @return the maximum attempts
+     */
+    public int getMaxAttempts() { return maxAttempts; }
+    /**
+     * Sets the number of attempts for a task failing with retryable errors (default: 4).
+     * @param maxAttempts the maximum attempts
+     */
+    public void setMaxAttempts(int maxAttempts) { this.maxAttempts = Math.max(1, maxAttempts); }
+    /**
+     * Gets the backoff before the first retry; it doubles with each further attempt, up to a minute.
+     * @return the backoff in milliseconds
+     */
+    public long getRetryBackoffMillis() { return retryBackoffMillis; }
+    /**
+     * Sets the backoff before the first retry (default: 1000). The actual delay is randomised between half and
+     * all of it.
+     * @param retryBackoffMillis the backoff in milliseconds
+     */
+    public void setRetryBackoffMillis(long retryBackoffMillis) { this.retryBackoffMillis = Math.max(0, retryBackoffMillis); }
+    /**
+     * Gets the checkpoint file.
+     * @return the checkpoint file, or null if runs are not resumable
+     */
+    public Path getCheckpoint() { return checkpoint; }
+    /**
+     * Sets the file recording the finished tasks, so a later run skips them (default: none). Delete it to fetch
+     * everything again.
+     * @param checkpoint the checkpoint file, or null
+     */
+    public void setCheckpoint(Path checkpoint) { this.checkpoint = checkpoint; }
+    /**
+     * Gets the progress listener.
+     * @return the listener, or null
+     */
+    public Consumer<HarvestProgress> getProgressListener() { return progressListener; }
+    /**
+     * Sets a listener called with a progress snapshot every {@code progressIntervalMillis}, from a private thread,
+     * and with the summary when a run succeeds, from the thread that ran it.
+     * @param progressListener the listener, or null
+     */
+    public void setProgressListener(Consumer<HarvestProgress> progressListener) { this.progressListener = progressListener; }
+    /**
+     * Gets the interval between progress reports.
+     * @return the interval in milliseconds
+     */
+    public long getProgressIntervalMillis() { return progressIntervalMillis; }
+    /**
+     * Sets the interval between progress reports (default: 10000).
+     * @param progressIntervalMillis the interval in milliseconds
+     */
+    public void setProgressIntervalMillis(long progressIntervalMillis) { this.progressIntervalMillis = Math.max(1, progressIntervalMillis); }
+}
@@ -0,0 +1,52 @@
+package net.libyaguide.gpay.sdk.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represents the result of a bulk wallet check.
+ * Contains the wallet checks that succeeded and the errors of those that failed.
+ */
+public class BulkWalletCheck {
+    /** The wallet checks keyed by wallet gateway ID. */
+    private Map<String, WalletCheck> results = Collections.emptyMap();
+    /** The errors keyed by wallet gateway ID. */
+    private Map<String, Exception> failures = Collections.emptyMap();
+
+    // Getters and setters
+    /**
+     * Gets the wallet checks keyed by wallet gateway ID.
+     * @return the wallet checks
+     */
+    public Map<String, WalletCheck> getResults() { return results; }
+    /**
+     * Sets the wallet checks keyed by wallet gateway ID.
+     * @param results the wallet checks
+     */
+    public void setResults(Map<String, WalletCheck> results) { this.results = results; }
+    /**
+     * Gets the errors of the checks that failed, keyed by wallet gateway ID.
+     * @return the failures
+     */
+    public Map<String, Exception> getFailures() { return failures; }
+    /**
+     * Sets the errors of the checks that failed, keyed by wallet gateway ID.
+     * @param failures the failures
+     */
+    public void setFailures(Map<String, Exception> failures) { this.failures = failures; }
+    /**
+     * Checks whether every wallet was checked and can receive money.
+     * @return true if there are no failures and every wallet exists and can receive money
+     */
+    public boolean allCanReceiveMoney() {
+        if (!failures.isEmpty()) {
+            return false;
+        }
+        for (WalletCheck check : results.values()) {
+            if (!check.exists() || !check.canReceiveMoney()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
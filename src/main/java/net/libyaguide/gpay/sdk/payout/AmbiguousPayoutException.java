@@ -0,0 +1,28 @@
+package net.libyaguide.gpay.sdk.payout;
+
+/**
+ * Thrown when the outcome of a payout could not be determined, so it must neither be assumed
+ * to have failed nor be retried blindly.
+ */
+public class AmbiguousPayoutException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String referenceNo;
+
+    /**
+     * Constructs an AmbiguousPayoutException.
+     * @param referenceNo The reference number of the payout.
+     * @param message The detail message.
+     * @param cause The error that made the outcome ambiguous.
+     */
+    public AmbiguousPayoutException(String referenceNo, String message, Throwable cause) {
+        super(message, cause);
+        this.referenceNo = referenceNo;
+    }
+
+    /**
+     * Gets the reference number of the payout.
+     * @return the reference number
+     */
+    public String getReferenceNo() { return referenceNo; }
+}
@@ -0,0 +1,35 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import java.math.BigDecimal;
+
+/**
+ * Thrown when a payout cannot be reserved against the locally known wallet balance.
+ */
+public class InsufficientBalanceException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final BigDecimal requested;
+    private final BigDecimal available;
+
+    /**
+     * Constructs an InsufficientBalanceException.
+     * @param requested The amount requested, including the fee reserve.
+     * @param available The amount available at the time of the request.
+     */
+    public InsufficientBalanceException(BigDecimal requested, BigDecimal available) {
+        super("Insufficient balance: requested " + requested + ", available " + available);
+        this.requested = requested;
+        this.available = available;
+    }
+
+    /**
+     * Gets the amount requested, including the fee reserve.
+     * @return the requested amount
+     */
+    public BigDecimal getRequested() { return requested; }
+    /**
+     * Gets the amount available at the time of the request.
+     * @return the available amount
+     */
+    public BigDecimal getAvailable() { return available; }
+}
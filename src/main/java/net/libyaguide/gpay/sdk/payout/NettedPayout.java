@@ -0,0 +1,46 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import net.libyaguide.gpay.sdk.model.SendMoneyResult;
+
+/**
+ * Links an original payout instruction to the aggregated transfer that carried it.
+ */
+public class NettedPayout {
+    private final PayoutInstruction instruction;
+    private final String nettedReferenceNo;
+    private final int nettedCount;
+    private final SendMoneyResult result;
+
+    NettedPayout(PayoutInstruction instruction, String nettedReferenceNo, int nettedCount, SendMoneyResult result) {
+        this.instruction = instruction;
+        this.nettedReferenceNo = nettedReferenceNo;
+        this.nettedCount = nettedCount;
+        this.result = result;
+    }
+
+    /**
+     * Gets the original instruction.
+     * @return the instruction as submitted
+     */
+    public PayoutInstruction getInstruction() { return instruction; }
+    /**
+     * Gets the reference number of the aggregated transfer.
+     * @return the netted reference number
+     */
+    public String getNettedReferenceNo() { return nettedReferenceNo; }
+    /**
+     * Gets the number of instructions carried by the aggregated transfer.
+     * @return the number of instructions
+     */
+    public int getNettedCount() { return nettedCount; }
+    /**
+     * Gets the transaction ID of the aggregated transfer.
+     * @return the transaction ID
+     */
+    public String getTransactionId() { return result.getTransactionId(); }
+    /**
+     * Gets the result of the aggregated transfer.
+     * @return the SendMoneyResult of the aggregated sendMoney call
+     */
+    public SendMoneyResult getResult() { return result; }
+}
@@ -0,0 +1,186 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PayoutFileReader streams payout instructions from a CSV or JSONL file, one row at a time.
+ * <p>
+ * <b>CSV:</b> the first line is a header naming the columns {@code amount}, {@code wallet_gateway_id},
+ * {@code reference_no} and {@code description} (any order, case-insensitive). Fields may be quoted with
+ * double quotes; quoted fields may not span lines.
+ * <p>
+ * <b>JSONL:</b> one JSON object per line with the same keys.
+ * <p>
+ * Blank lines are skipped. A value that cannot be parsed is returned as null so that validation can
+ * report it against its row.
+ */
+public class PayoutFileReader implements Closeable {
+    /**
+     * Enum for the supported payout file formats.
+     */
+    public enum Format {
+        /** Comma separated values with a header line. */
+        CSV,
+        /** One JSON object per line. */
+        JSONL;
+
+        /**
+         * Guesses the format from a file name: {@code .jsonl} and {@code .json} are JSONL, everything else is CSV.
+         * @param file The file.
+         * @return The guessed format.
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private Map<String, Integer> columns;
+    private long row;
+
+    /**
+     * Opens a payout file.
+     * @param file The file to read.
+     * @param format The file format.
+     * @throws IOException if the file cannot be opened or the CSV header cannot be read.
+     */
+    public PayoutFileReader(Path file, Format format) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.format = format;
+        if (format == Format.CSV) {
+            String header = nextLine();
+            columns = new HashMap<>();
+            if (header != null) {
+                List<String> names = splitCsv(header);
+                for (int i = 0; i < names.size(); i++) {
+                    columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the next instruction.
+     * @return The next instruction, or null at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public PayoutInstruction next() throws IOException {
+        String line = nextLine();
+        if (line == null) {
+            return null;
+        }
+        row++;
+        PayoutInstruction instruction = new PayoutInstruction();
+        instruction.setRow(row);
+        if (format == Format.CSV) {
+            List<String> fields = splitCsv(line);
+            instruction.setAmount(parseAmount(column(fields, "amount")));
+            instruction.setWalletGatewayId(emptyToNull(column(fields, "wallet_gateway_id")));
+            instruction.setReferenceNo(emptyToNull(column(fields, "reference_no")));
+            instruction.setDescription(emptyToNull(column(fields, "description")));
+        } else {
+            JsonObject obj;
+            try {
+                obj = JsonParser.parseString(line).getAsJsonObject();
+            } catch (RuntimeException e) {
+                return instruction;
+            }
+            instruction.setAmount(parseAmount(string(obj, "amount")));
+            instruction.setWalletGatewayId(emptyToNull(string(obj, "wallet_gateway_id")));
+            instruction.setReferenceNo(emptyToNull(string(obj, "reference_no")));
+            instruction.setDescription(emptyToNull(string(obj, "description")));
+        }
+        return instruction;
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private String column(List<String> fields, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= fields.size() ? null : fields.get(index).trim();
+    }
+
+    private static String string(JsonObject obj, String key) {
+        JsonElement el = obj.get(key);
+        return el == null || el.isJsonNull() ? null : el.getAsString();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        sb.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        return fields;
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,92 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import java.math.BigDecimal;
+
+/**
+ * Represents a single payout to make: one row of a payout file.
+ */
+public class PayoutInstruction {
+    /** The 1-based row number in the source file, excluding any header. */
+    private long row;
+    /** The amount to send. */
+    private BigDecimal amount;
+    /** The recipient's wallet gateway ID. */
+    private String walletGatewayId;
+    /** The reference number, if any. */
+    private String referenceNo;
+    /** The description, if any. */
+    private String description;
+
+    /**
+     * Constructs an empty PayoutInstruction.
+     */
+    public PayoutInstruction() { }
+
+    /**
+     * Constructs a PayoutInstruction.
+     * @param row The row number.
+     * @param amount The amount to send.
+     * @param walletGatewayId The recipient's wallet gateway ID.
+     * @param referenceNo The reference number, or null.
+     * @param description The description, or null.
+     */
+    public PayoutInstruction(long row, BigDecimal amount, String walletGatewayId, String referenceNo, String description) {
+        this.row = row;
+        this.amount = amount;
+        this.walletGatewayId = walletGatewayId;
+        this.referenceNo = referenceNo;
+        this.description = description;
+    }
+
+    // Getters and setters
+    /**
+     * Gets the row number.
+     * @return the 1-based row number
+     */
+    public long getRow() { return row; }
+    /**
+     * Sets the row number.
+     * @param row the 1-based row number
+     */
+    public void setRow(long row) { this.row = row; }
+    /**
+     * Gets the amount to send.
+     * @return the amount
+     */
+    public BigDecimal getAmount() { return amount; }
+    /**
+     * Sets the amount to send.
+     * @param amount the amount
+     */
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    /**
+     * Gets the recipient's wallet gateway ID.
+     * @return the wallet gateway ID
+     */
+    public String getWalletGatewayId() { return walletGatewayId; }
+    /**
+     * Sets the recipient's wallet gateway ID.
+     * @param walletGatewayId the wallet gateway ID
+     */
+    public void setWalletGatewayId(String walletGatewayId) { this.walletGatewayId = walletGatewayId; }
+    /**
+     * Gets the reference number.
+     * @return the reference number, or null
+     */
+    public String getReferenceNo() { return referenceNo; }
+    /**
+     * Sets the reference number.
+     * @param referenceNo the reference number
+     */
+    public void setReferenceNo(String referenceNo) { this.referenceNo = referenceNo; }
+    /**
+     * Gets the description.
+     * @return the description, or null
+     */
+    public String getDescription() { return description; }
+    /**
+     * Sets the description.
+     * @param description the description
+     */
+    public void setDescription(String description) { this.description = description; }
+}
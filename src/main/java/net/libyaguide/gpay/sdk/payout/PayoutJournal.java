@@ -0,0 +1,494 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import net.libyaguide.gpay.sdk.client.CrcLines;
+import net.libyaguide.gpay.sdk.model.SendMoneyResult;
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PayoutJournal is an append-only write-ahead journal for payouts.
+ * <p>
+ * Each payout intent is made durable before sendMoney is called, and the verified result is recorded
+ * afterwards. After a crash, {@link #getInDoubt()} lists the transfers that were sent (or were about to be)
+ * without a recorded outcome.
+ * <p>
+ * <b>Format:</b>
+ * <ul>
+ *   <li>The journal is a directory of segment files named {@code payout-NNNNNNNNNNNNNNNNNNNN.log}.</li>
+ *   <li>Each record is one {@link CrcLines} line: the CRC32 of the JSON payload in hex, a space, and the JSON payload.</li>
+ *   <li>A torn record at the end of the last segment is truncated when the journal is opened. A bad record
+ *       followed by valid ones, or anywhere in an earlier segment, is corruption and fails the open.</li>
+ *   <li>A batch whose write fails is cut off again, so later batches never follow a torn record. If that
+ *       also fails, the journal refuses further records until it is reopened.</li>
+ * </ul>
+ *
+ * <b>Group commit:</b>
+ * <ul>
+ *   <li>Callers hand records to a single writer thread and wait for them to become durable.</li>
+ *   <li>The writer drains everything queued, writes it in one go and calls fsync once for the whole batch.</li>
+ * </ul>
+ *
+ * <b>Rotation and compaction:</b>
+ * <ul>
+ *   <li>A new segment is started when the active one exceeds {@code maxSegmentBytes}.</li>
+ *   <li>When more than {@code maxClosedSegments} closed segments exist, they are rewritten into one segment
+ *       holding only the intents still in doubt, and the results that older segments still need until they
+ *       are deleted.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   PayoutJournal journal = PayoutJournal.open(Paths.get("payout-journal"));
+ *   for (PayoutJournalEntry e : journal.getInDoubt()) { ... reconcile ... }
+ *   PayoutSender sender = journal.wrap(client::sendMoney);
+ *   sender.sendMoney(amount, walletGatewayId, referenceNo, description);
+ * </pre>
+ */
+public class PayoutJournal implements Closeable {
+    private static final String PREFIX = "payout-";
+    private static final String SUFFIX = ".log";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private final Path directory;
+    private final Gson gson = new Gson();
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Map<String, Tracked> inDoubt = new ConcurrentHashMap<>();
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile IOException failed;
+    private long maxSegmentBytes = 64L * 1024 * 1024;
+    private int maxClosedSegments = 4;
+    private long activeSeq;
+    private FileChannel active;
+    private volatile long batches;
+    private volatile long records;
+
+    private static final class Tracked {
+        final PayoutJournalEntry intent;
+        final long segment;
+        Tracked(PayoutJournalEntry intent, long segment) {
+            this.intent = intent;
+            this.segment = segment;
+        }
+    }
+
+    private static final class PendingWrite {
+        final PayoutJournalEntry entry;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        PendingWrite(PayoutJournalEntry entry) { this.entry = entry; }
+    }
+
+    private PayoutJournal(Path directory) {
+        this.directory = directory;
+        this.writer = new Thread(this::writeLoop, "gpay-payout-journal");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens (or creates) a journal in the given directory and runs the recovery scan.
+     * @param directory The journal directory.
+     * @return The opened journal.
+     * @throws IOException if the directory cannot be read or written.
+     */
+    public static PayoutJournal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        PayoutJournal journal = new PayoutJournal(directory);
+        journal.recover();
+        journal.writer.start();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        // A leftover compaction output was never moved into place, so the originals are intact
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + COMPACT_SUFFIX)) {
+            for (Path p : stream) {
+                Files.delete(p);
+            }
+        }
+        List<Long> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            long seq = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            long validBytes = CrcLines.scan(segmentPath(seq), last, payload -> apply(decode(payload), seq));
+            if (last) {
+                try (FileChannel ch = FileChannel.open(segmentPath(seq), StandardOpenOption.WRITE)) {
+                    CrcLines.truncate(ch, validBytes);
+                }
+            }
+        }
+        activeSeq = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        active = openSegment(activeSeq);
+    }
+
+    private PayoutJournalEntry decode(String json) throws IOException {
+        try {
+            return gson.fromJson(json, PayoutJournalEntry.class);
+        } catch (RuntimeException e) {
+            throw new IOException("Unreadable payout journal record: " + json, e);
+        }
+    }
+
+    private byte[] encode(PayoutJournalEntry entry) {
+        return CrcLines.encode(gson.toJson(entry));
+    }
+
+    private void apply(PayoutJournalEntry entry, long seq) {
+        switch (entry.getType()) {
+            case INTENT:
+                inDoubt.put(entry.getId(), new Tracked(entry, seq));
+                break;
+            case ERROR:
+                Tracked tracked = inDoubt.get(entry.getId());
+                if (tracked != null) {
+                    tracked.intent.setError(entry.getError());
+                }
+                break;
+            default:
+                inDoubt.remove(entry.getId());
+        }
+    }
+
+    /**
+     * Returns the intents that have no recorded result, oldest first.
+     * @return The in-doubt payout intents.
+     */
+    public List<PayoutJournalEntry> getInDoubt() {
+        List<PayoutJournalEntry> list = new ArrayList<>();
+        for (Tracked t : inDoubt.values()) {
+            list.add(t.intent);
+        }
+        list.sort(Comparator.comparingLong(PayoutJournalEntry::getTime));
+        return list;
+    }
+
+    /**
+     * Durably records a payout intent. Must be called before sendMoney.
+     * @param amount The amount to send.
+     * @param walletGatewayId The recipient's wallet gateway ID.
+     * @param referenceNo Optional reference number.
+     * @param description Optional description.
+     * @return The journal ID of the payout.
+     * @throws IOException if the record cannot be made durable.
+     */
+    public String recordIntent(BigDecimal amount, String walletGatewayId, String referenceNo, String description) throws IOException {
+        String id = UUID.randomUUID().toString();
+        append(PayoutJournalEntry.intent(id, amount, walletGatewayId, referenceNo, description));
+        return id;
+    }
+
+    /**
+     * Durably records the verified result of a payout.
+     * @param id The journal ID returned by recordIntent.
+     * @param result The result returned by sendMoney.
+     * @throws IOException if the record cannot be made durable.
+     */
+    public void recordResult(String id, SendMoneyResult result) throws IOException {
+        append(PayoutJournalEntry.result(id, result));
+    }
+
+    /**
+     * Records a failed attempt. The payout stays in doubt, with the error attached.
+     * @param id The journal ID returned by recordIntent.
+     * @param error The error thrown by sendMoney.
+     * @throws IOException if the record cannot be made durable.
+     */
+    public void recordError(String id, Exception error) throws IOException {
+        append(PayoutJournalEntry.note(PayoutJournalEntry.Type.ERROR, id, String.valueOf(error)));
+    }
+
+    /**
+     * Records that a payout is known not to have happened, removing it from the in-doubt list.
+     * @param id The journal ID returned by recordIntent.
+     * @param reason The reason, for the record.
+     * @throws IOException if the record cannot be made durable.
+     */
+    public void recordAbandoned(String id, String reason) throws IOException {
+        append(PayoutJournalEntry.note(PayoutJournalEntry.Type.ABANDONED, id, reason));
+    }
+
+    /**
+     * Wraps a sender so that every payout is journaled: intent before the call, result or error after it.
+     * @param delegate The sender to wrap, usually {@code client::sendMoney}.
+     * @return The journaling sender.
+     */
+    public PayoutSender wrap(PayoutSender delegate) {
+        return (amount, walletGatewayId, referenceNo, description) -> {
+            String id = recordIntent(amount, walletGatewayId, referenceNo, description);
+            SendMoneyResult result;
+            try {
+                result = delegate.sendMoney(amount, walletGatewayId, referenceNo, description);
+            } catch (Exception e) {
+                recordError(id, e);
+                throw e;
+            }
+            recordResult(id, result);
+            return result;
+        };
+    }
+
+    private void append(PayoutJournalEntry entry) throws IOException {
+        if (closed) {
+            throw new IOException("Payout journal is closed");
+        }
+        if (failed != null) {
+            throw new IOException("Payout journal has failed and must be reopened", failed);
+        }
+        PendingWrite write = new PendingWrite(entry);
+        queue.add(write);
+        // The writer may have stopped after the check above; if it has not taken the record, nobody will
+        if (closed && queue.remove(write)) {
+            throw new IOException("Payout journal is closed");
+        }
+        try {
+            write.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the payout journal", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                writeBatch(batch);
+                for (PendingWrite w : batch) {
+                    w.done.complete(null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+                for (PendingWrite w : batch) {
+                    w.done.completeExceptionally(new IOException("Payout journal writer was interrupted", e));
+                }
+                break;
+            } catch (IOException | RuntimeException e) {
+                for (PendingWrite w : batch) {
+                    w.done.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+        PendingWrite late;
+        while ((late = queue.poll()) != null) {
+            late.done.completeExceptionally(new IOException("Payout journal is closed"));
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) throws IOException {
+        byte[][] lines = new byte[batch.size()][];
+        int total = 0;
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = encode(batch.get(i).entry);
+            total += lines[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (byte[] line : lines) {
+            buffer.put(line);
+        }
+        buffer.flip();
+        segmentLock.lock();
+        try {
+            if (failed != null) {
+                throw new IOException("Payout journal has failed and must be reopened", failed);
+            }
+            try {
+                CrcLines.append(active, buffer);
+            } catch (IOException e) {
+                // The failed batch was cut off again unless the channel had to be closed
+                if (!active.isOpen()) {
+                    failed = e;
+                }
+                throw e;
+            }
+            for (PendingWrite w : batch) {
+                apply(w.entry, activeSeq);
+            }
+            batches++;
+            records += batch.size();
+            if (active.size() >= maxSegmentBytes) {
+                rotate();
+            }
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    private void rotate() throws IOException {
+        active.close();
+        activeSeq++;
+        active = openSegment(activeSeq);
+        if (listSegments().size() - 1 > maxClosedSegments) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites all closed segments into a single segment containing only the intents still in doubt.
+     * Called automatically after rotation; may also be called explicitly.
+     * <p>
+     * The newest closed segment is replaced by the compacted one, which also keeps the terminal records it
+     * held for intents of older segments. The older segments are then deleted oldest first, so after a crash
+     * at any point every intent left on disk still finds its result.
+     * @throws IOException if the segments cannot be rewritten.
+     */
+    public void compact() throws IOException {
+        segmentLock.lock();
+        try {
+            List<Long> closedSegments = listSegments();
+            closedSegments.remove(Long.valueOf(activeSeq));
+            if (closedSegments.isEmpty()) {
+                return;
+            }
+            long target = closedSegments.get(closedSegments.size() - 1);
+            List<PayoutJournalEntry> carried = terminalRecordsOfOlderIntents(target);
+            Path tmp = directory.resolve(PREFIX + String.format("%020d", target) + SUFFIX + COMPACT_SUFFIX);
+            List<Tracked> kept = new ArrayList<>();
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Tracked t : inDoubt.values()) {
+                    if (t.segment <= target) {
+                        write(ch, encode(t.intent));
+                        kept.add(t);
+                    }
+                }
+                for (PayoutJournalEntry e : carried) {
+                    write(ch, encode(e));
+                }
+                ch.force(true);
+            }
+            Files.move(tmp, segmentPath(target), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (long seq : closedSegments) {
+                if (seq != target) {
+                    Files.deleteIfExists(segmentPath(seq));
+                }
+            }
+            for (Tracked t : kept) {
+                inDoubt.replace(t.intent.getId(), t, new Tracked(t.intent, target));
+            }
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the results and abandonments in a segment whose intents were written in an earlier segment.
+     */
+    private List<PayoutJournalEntry> terminalRecordsOfOlderIntents(long seq) throws IOException {
+        Set<String> intents = new HashSet<>();
+        List<PayoutJournalEntry> terminal = new ArrayList<>();
+        CrcLines.scan(segmentPath(seq), false, payload -> {
+            PayoutJournalEntry entry = decode(payload);
+            if (entry.getType() == PayoutJournalEntry.Type.INTENT) {
+                intents.add(entry.getId());
+            } else if (entry.getType() != PayoutJournalEntry.Type.ERROR && !intents.contains(entry.getId())) {
+                terminal.add(entry);
+            }
+        });
+        return terminal;
+    }
+
+    private static void write(FileChannel ch, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            ch.write(buffer);
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> seqs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                try {
+                    seqs.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // Not a segment file
+                }
+            }
+        }
+        Collections.sort(seqs);
+        return seqs;
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(PREFIX + String.format("%020d", seq) + SUFFIX);
+    }
+
+    private FileChannel openSegment(long seq) throws IOException {
+        FileChannel ch = FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        ch.position(ch.size());
+        return ch;
+    }
+
+    /**
+     * Gets the number of fsync batches written since the journal was opened.
+     * @return the number of batches
+     */
+    public long getBatchCount() { return batches; }
+    /**
+     * Gets the number of records written since the journal was opened.
+     * @return the number of records
+     */
+    public long getRecordCount() { return records; }
+    /**
+     * Gets the size at which the active segment is rotated.
+     * @return the size in bytes
+     */
+    public long getMaxSegmentBytes() { return maxSegmentBytes; }
+    /**
+     * Sets the size at which the active segment is rotated (default: 64 MiB).
+     * @param maxSegmentBytes the size in bytes
+     */
+    public void setMaxSegmentBytes(long maxSegmentBytes) { this.maxSegmentBytes = maxSegmentBytes; }
+    /**
+     * Gets the number of closed segments kept before compaction.
+     * @return the number of closed segments
+     */
+    public int getMaxClosedSegments() { return maxClosedSegments; }
+    /**
+     * Sets the number of closed segments kept before compaction (default: 4).
+     * @param maxClosedSegments the number of closed segments
+     */
+    public void setMaxClosedSegments(int maxClosedSegments) { this.maxClosedSegments = maxClosedSegments; }
+
+    /**
+     * Flushes pending records and closes the journal.
+     * @throws IOException if the active segment cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            // Stop the writer so its waiting callers are failed rather than left hanging
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        segmentLock.lock();
+        try {
+            active.close();
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+}
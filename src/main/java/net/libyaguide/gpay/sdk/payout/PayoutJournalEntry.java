@@ -0,0 +1,137 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import net.libyaguide.gpay.sdk.model.SendMoneyResult;
+
+import java.math.BigDecimal;
+
+/**
+ * Represents a single record of the {@link PayoutJournal}.
+ */
+public class PayoutJournalEntry {
+    /**
+     * Enum representing the kind of journal record.
+     */
+    public enum Type {
+        /** Written before sendMoney is called. */
+        INTENT,
+        /** Written after sendMoney returned a verified result. */
+        RESULT,
+        /** Written when sendMoney failed; the transfer stays in doubt. */
+        ERROR,
+        /** Written when the transfer is known not to have happened. */
+        ABANDONED
+    }
+
+    private Type type;
+    private String id;
+    private long time;
+    private BigDecimal amount;
+    private String walletGatewayId;
+    private String referenceNo;
+    private String description;
+    private String transactionId;
+    private BigDecimal senderFee;
+    private BigDecimal newBalance;
+    private String error;
+
+    static PayoutJournalEntry intent(String id, BigDecimal amount, String walletGatewayId, String referenceNo, String description) {
+        PayoutJournalEntry e = new PayoutJournalEntry();
+        e.type = Type.INTENT;
+        e.id = id;
+        e.time = System.currentTimeMillis();
+        e.amount = amount;
+        e.walletGatewayId = walletGatewayId;
+        e.referenceNo = referenceNo;
+        e.description = description;
+        return e;
+    }
+
+    static PayoutJournalEntry result(String id, SendMoneyResult result) {
+        PayoutJournalEntry e = new PayoutJournalEntry();
+        e.type = Type.RESULT;
+        e.id = id;
+        e.time = System.currentTimeMillis();
+        e.amount = result.getAmount();
+        e.referenceNo = result.getReferenceNo();
+        e.transactionId = result.getTransactionId();
+        e.senderFee = result.getSenderFee();
+        e.newBalance = result.getNewBalance();
+        return e;
+    }
+
+    static PayoutJournalEntry note(Type type, String id, String error) {
+        PayoutJournalEntry e = new PayoutJournalEntry();
+        e.type = type;
+        e.id = id;
+        e.time = System.currentTimeMillis();
+        e.error = error;
+        return e;
+    }
+
+    /**
+     * Gets the record type.
+     * @return the record type
+     */
+    public Type getType() { return type; }
+    /**
+     * Gets the journal ID of the payout this record belongs to.
+     * @return the payout ID
+     */
+    public String getId() { return id; }
+    /**
+     * Gets the time the record was created.
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTime() { return time; }
+    /**
+     * Gets the amount to send or sent.
+     * @return the amount
+     */
+    public BigDecimal getAmount() { return amount; }
+    /**
+     * Gets the recipient's wallet gateway ID (INTENT records only).
+     * @return the wallet gateway ID
+     */
+    public String getWalletGatewayId() { return walletGatewayId; }
+    /**
+     * Gets the reference number.
+     * @return the reference number, or null
+     */
+    public String getReferenceNo() { return referenceNo; }
+    /**
+     * Gets the description (INTENT records only).
+     * @return the description, or null
+     */
+    public String getDescription() { return description; }
+    /**
+     * Gets the transaction ID (RESULT records only).
+     * @return the transaction ID
+     */
+    public String getTransactionId() { return transactionId; }
+    /**
+     * Gets the fee charged to the sender (RESULT records only).
+     * @return the sender fee
+     */
+    public BigDecimal getSenderFee() { return senderFee; }
+    /**
+     * Gets the balance after the transaction (RESULT records only).
+     * @return the new balance
+     */
+    public BigDecimal getNewBalance() { return newBalance; }
+    /**
+     * Gets the error message (ERROR and ABANDONED records only).
+     * @return the error message, or null
+     */
+    public String getError() { return error; }
+    /**
+     * Sets the error message. Used to attach the last error to an in-doubt intent.
+     * @param error the error message
+     */
+    void setError(String error) { this.error = error; }
+
+    @Override
+    public String toString() {
+        return type + " " + id + " amount=" + amount + " wallet=" + walletGatewayId + " ref=" + referenceNo
+            + (transactionId != null ? " txn=" + transactionId : "") + (error != null ? " error=" + error : "");
+    }
+}
@@ -0,0 +1,281 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.model.SendMoneyResult;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * PayoutNetter coalesces small payouts to the same wallet into one sendMoney call.
+ * <p>
+ * Instructions are buffered per {@code walletGatewayId}. A buffer is flushed as one transfer of the summed
+ * amount when the first of these is reached:
+ * <ul>
+ *   <li>{@code maxDelayMillis} have passed since the first instruction of the buffer.</li>
+ *   <li>The buffer holds {@code maxCount} instructions.</li>
+ *   <li>The buffered amount reaches {@code maxAmount}.</li>
+ * </ul>
+ * The aggregated transfer gets a generated reference number. Every original instruction is completed with a
+ * {@link NettedPayout} linking it to the transaction ID of that transfer; an optional listener receives the
+ * same mapping for persistence once all of them are completed. If the aggregated transfer fails, all of its
+ * instructions fail with the same error. Instructions still buffered when the netter stops fail with a
+ * {@link RejectedExecutionException}.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   PayoutNetter netter = new PayoutNetter(client::sendMoney);
+ *   netter.setMaxDelayMillis(60000);
+ *   CompletableFuture&lt;NettedPayout&gt; f = netter.submit(new PayoutInstruction(1, amount, walletGatewayId, "ORDER_1", null));
+ * </pre>
+ */
+public class PayoutNetter implements Closeable {
+    private final PayoutSender sender;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(GPayExecutors.threadFactory("gpay-netting-timer"));
+    private final ExecutorService senders;
+    private final AtomicLong instructionsIn = new AtomicLong();
+    private final AtomicLong transfersOut = new AtomicLong();
+    private final AtomicLong listenerErrors = new AtomicLong();
+    private volatile long maxDelayMillis = 30000;
+    private volatile int maxCount = 50;
+    private volatile BigDecimal maxAmount;
+    private volatile String referencePrefix = "NET_";
+    private volatile Consumer<NettedPayout> listener;
+    private volatile boolean closed;
+
+    private static final class Pending {
+        final PayoutInstruction instruction;
+        final CompletableFuture<NettedPayout> future = new CompletableFuture<>();
+        Pending(PayoutInstruction instruction) { this.instruction = instruction; }
+    }
+
+    private final class Bucket {
+        final String walletGatewayId;
+        final List<Pending> items = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        boolean sealed;
+        ScheduledFuture<?> deadline;
+
+        Bucket(String walletGatewayId) { this.walletGatewayId = walletGatewayId; }
+    }
+
+    /**
+     * Constructs a netter sending aggregated transfers through the given sender, at most 4 at a time.
+     * @param sender The sender, usually {@code client::sendMoney}.
+     */
+    public PayoutNetter(PayoutSender sender) {
+        this(sender, 4);
+    }
+
+    /**
+     * Constructs a netter sending aggregated transfers through the given sender.
+     * @param sender The sender, usually {@code client::sendMoney}.
+     * @param concurrency The maximum number of aggregated transfers in flight.
+     */
+    public PayoutNetter(PayoutSender sender, int concurrency) {
+        this.sender = sender;
+        this.senders = GPayExecutors.newBlockingExecutor("gpay-netting-sender", concurrency);
+    }
+
+    /**
+     * Buffers a payout instruction.
+     * @param instruction The instruction; its amount must be positive.
+     * @return A future completed when the aggregated transfer carrying this instruction completes.
+     */
+    public CompletableFuture<NettedPayout> submit(PayoutInstruction instruction) {
+        if (closed) {
+            throw new IllegalStateException("PayoutNetter is closed");
+        }
+        if (instruction.getAmount() == null || instruction.getAmount().signum() <= 0) {
+            throw new IllegalArgumentException("Payout amount must be positive");
+        }
+        Pending pending = new Pending(instruction);
+        instructionsIn.incrementAndGet();
+        while (true) {
+            Bucket bucket = buckets.computeIfAbsent(instruction.getWalletGatewayId(), Bucket::new);
+            boolean full;
+            synchronized (bucket) {
+                if (bucket.sealed) {
+                    // Flushed concurrently but not yet unmapped; unmap it here rather than spin until flush() does
+                    buckets.remove(bucket.walletGatewayId, bucket);
+                    continue;
+                }
+                bucket.items.add(pending);
+                bucket.total = bucket.total.add(instruction.getAmount());
+                BigDecimal limit = maxAmount;
+                // A close() that began after the check at the top may already have flushed and will not see
+                // a deadline scheduled now, so flush at once; the sender either takes it or fails it
+                full = closed || bucket.items.size() >= maxCount || (limit != null && bucket.total.compareTo(limit) >= 0);
+                if (bucket.deadline == null && !full) {
+                    try {
+                        bucket.deadline = timer.schedule(() -> flush(bucket), maxDelayMillis, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // Closed concurrently; flush now so the instruction is sent or failed
+                        full = true;
+                    }
+                }
+            }
+            if (full) {
+                flush(bucket);
+            }
+            return pending.future;
+        }
+    }
+
+    /**
+     * Flushes all buffered instructions immediately.
+     */
+    public void flushAll() {
+        for (Bucket bucket : buckets.values()) {
+            flush(bucket);
+        }
+    }
+
+    private void flush(Bucket bucket) {
+        List<Pending> items;
+        BigDecimal total;
+        synchronized (bucket) {
+            if (bucket.sealed) {
+                return;
+            }
+            bucket.sealed = true;
+            if (bucket.deadline != null) {
+                bucket.deadline.cancel(false);
+            }
+            items = bucket.items;
+            total = bucket.total;
+        }
+        buckets.remove(bucket.walletGatewayId, bucket);
+        if (items.isEmpty()) {
+            return;
+        }
+        try {
+            senders.execute(() -> send(bucket.walletGatewayId, items, total));
+        } catch (RejectedExecutionException e) {
+            // A timer flush or a late submit raced close()
+            for (Pending p : items) {
+                p.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void send(String walletGatewayId, List<Pending> items, BigDecimal total) {
+        String reference = items.size() == 1 && items.get(0).instruction.getReferenceNo() != null
+            ? items.get(0).instruction.getReferenceNo()
+            : referencePrefix + UUID.randomUUID().toString().replace("-", "");
+        String description = items.size() == 1 ? items.get(0).instruction.getDescription() : "Netted payout of " + items.size() + " items";
+        SendMoneyResult result;
+        try {
+            result = sender.sendMoney(total, walletGatewayId, reference, description);
+        } catch (Exception e) {
+            for (Pending p : items) {
+                p.future.completeExceptionally(e);
+            }
+            return;
+        }
+        transfersOut.incrementAndGet();
+        List<NettedPayout> netted = new ArrayList<>(items.size());
+        for (Pending p : items) {
+            NettedPayout payout = new NettedPayout(p.instruction, reference, items.size(), result);
+            netted.add(payout);
+            p.future.complete(payout);
+        }
+        Consumer<NettedPayout> l = listener;
+        if (l == null) {
+            return;
+        }
+        for (NettedPayout payout : netted) {
+            try {
+                l.accept(payout);
+            } catch (RuntimeException e) {
+                // The transfer went through; a failing listener must not hide that from the other instructions
+                listenerErrors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Flushes everything buffered, waits for the transfers in flight and stops the netter.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flushAll();
+        timer.shutdownNow();
+        senders.shutdown();
+        try {
+            senders.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of instructions submitted.
+     * @return the number of instructions
+     */
+    public long getInstructionCount() { return instructionsIn.get(); }
+    /**
+     * Gets the number of aggregated transfers sent successfully.
+     * @return the number of transfers
+     */
+    public long getTransferCount() { return transfersOut.get(); }
+    /**
+     * Gets the number of mappings the listener failed to accept.
+     * @return the number of listener errors
+     */
+    public long getListenerErrorCount() { return listenerErrors.get(); }
+    /**
+     * Gets the longest time an instruction is buffered.
+     * @return the delay in milliseconds
+     */
+    public long getMaxDelayMillis() { return maxDelayMillis; }
+    /**
+     * Sets the longest time an instruction is buffered (default: 30000).
+     * @param maxDelayMillis the delay in milliseconds
+     */
+    public void setMaxDelayMillis(long maxDelayMillis) { this.maxDelayMillis = maxDelayMillis; }
+    /**
+     * Gets the number of instructions that triggers a flush.
+     * @return the maximum count
+     */
+    public int getMaxCount() { return maxCount; }
+    /**
+     * Sets the number of instructions that triggers a flush (default: 50).
+     * @param maxCount the maximum count
+     */
+    public void setMaxCount(int maxCount) { this.maxCount = maxCount; }
+    /**
+     * Gets the buffered amount that triggers a flush.
+     * @return the maximum amount, or null for no limit
+     */
+    public BigDecimal getMaxAmount() { return maxAmount; }
+    /**
+     * Sets the buffered amount that triggers a flush (default: no limit).
+     * @param maxAmount the maximum amount, or null for no limit
+     */
+    public void setMaxAmount(BigDecimal maxAmount) { this.maxAmount = maxAmount; }
+    /**
+     * Gets the prefix of generated reference numbers.
+     * @return the reference prefix
+     */
+    public String getReferencePrefix() { return referencePrefix; }
+    /**
+     * Sets the prefix of generated reference numbers (default: NET_). Only letters, digits, spaces and underscores.
+     * @param referencePrefix the reference prefix
+     */
+    public void setReferencePrefix(String referencePrefix) { this.referencePrefix = referencePrefix; }
+    /**
+     * Sets a listener receiving the mapping of each instruction to its aggregated transfer. It is called after
+     * the instructions' futures are completed; exceptions it throws are counted and otherwise ignored.
+     * @param listener the listener, or null
+     */
+    public void setListener(Consumer<NettedPayout> listener) { this.listener = listener; }
+}
@@ -0,0 +1,266 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.GPayHttpException;
+import net.libyaguide.gpay.sdk.model.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PayoutOutcomeResolver sends money without ever paying twice for the same reference number.
+ * <p>
+ * When sendMoney fails with an ambiguous error (an I/O error such as a read timeout, an HTTP 5xx, or a
+ * response that failed verification) the transfer may or may not have happened. Instead of retrying, the
+ * resolver looks the transfer up by its reference number in {@link GPayApiClient#getOutstandingTransactions()}
+ * and in the statement of the current day:
+ * <ul>
+ *   <li>If a matching transfer is found, a SendMoneyResult is built from it and returned.</li>
+ *   <li>If no lookup finds it, the transfer is provably absent and is sent again, up to {@code maxResends} times.
+ *       After the last resend the original error is rethrown, and the transfer did not happen.</li>
+ *   <li>If the lookups themselves fail, an {@link AmbiguousPayoutException} is thrown and nothing is resent.</li>
+ * </ul>
+ * A reference number can only be in flight once per resolver; concurrent duplicates are rejected.
+ * <p>
+ * Results built from a lookup carry the transaction ID, amount, reference number, timestamp and new balance
+ * of the matched transaction; the sender fee and old balance are not known and are null.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   PayoutOutcomeResolver resolver = new PayoutOutcomeResolver(client);
+ *   SendMoneyResult result = resolver.sendMoney(amount, walletGatewayId, "PAYOUT-42", description);
+ * </pre>
+ */
+public class PayoutOutcomeResolver implements PayoutSender {
+    private final GPayApiClient client;
+    private final PayoutSender delegate;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private ZoneId zone = ZoneId.of("Africa/Tripoli");
+    private int lookupAttempts = 3;
+    private long lookupDelayMillis = 2000;
+    private int maxResends = 1;
+
+    /**
+     * Constructs a resolver that sends through the client directly.
+     * @param client The client used for sending and lookups.
+     */
+    public PayoutOutcomeResolver(GPayApiClient client) {
+        this(client, client::sendMoney);
+    }
+
+    /**
+     * Constructs a resolver that sends through the given sender, for example a journaling sender.
+     * @param client The client used for lookups.
+     * @param delegate The sender used for sending.
+     */
+    public PayoutOutcomeResolver(GPayApiClient client, PayoutSender delegate) {
+        this.client = client;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Sends money, resolving ambiguous failures by lookup instead of blind retries.
+     * @param amount The amount to send.
+     * @param walletGatewayId The recipient's wallet gateway ID (UUID).
+     * @param referenceNo Reference number; required, and must be unique per transfer.
+     * @param description Optional description.
+     * @return SendMoneyResult of the call, or one built from the matching transaction.
+     * @throws AmbiguousPayoutException if the outcome could not be determined.
+     * @throws IllegalStateException if a payout with the same reference number is already in flight.
+     * @throws Exception if the request fails with a definite error, or the transfer is absent after the last resend.
+     */
+    @Override
+    public SendMoneyResult sendMoney(BigDecimal amount, String walletGatewayId, String referenceNo, String description) throws Exception {
+        if (referenceNo == null || referenceNo.isEmpty()) {
+            throw new IllegalArgumentException("A reference number is required to resolve ambiguous payouts");
+        }
+        if (!inFlight.add(referenceNo)) {
+            throw new IllegalStateException("Payout with reference " + referenceNo + " is already in flight");
+        }
+        try {
+            LocalDate since = LocalDate.now(zone);
+            for (int attempt = 0; ; attempt++) {
+                Exception failure;
+                try {
+                    return delegate.sendMoney(amount, walletGatewayId, referenceNo, description);
+                } catch (Exception e) {
+                    if (!isAmbiguous(e)) {
+                        throw e;
+                    }
+                    failure = e;
+                }
+                SendMoneyResult found = awaitLookup(referenceNo, amount, since, failure);
+                if (found != null) {
+                    return found;
+                }
+                if (attempt >= maxResends) {
+                    // Provably absent: the transfer did not happen
+                    throw failure;
+                }
+            }
+        } finally {
+            inFlight.remove(referenceNo);
+        }
+    }
+
+    /**
+     * Checks whether an error leaves the outcome of sendMoney unknown.
+     * @param e The error thrown by sendMoney.
+     * @return true for I/O errors, HTTP 5xx and failed response verification.
+     */
+    public static boolean isAmbiguous(Exception e) {
+        if (e instanceof GPayHttpException) {
+            return ((GPayHttpException) e).isServerError();
+        }
+        return e instanceof IOException || e instanceof SecurityException;
+    }
+
+    private SendMoneyResult awaitLookup(String referenceNo, BigDecimal amount, LocalDate since, Exception failure) throws AmbiguousPayoutException {
+        for (int i = 0; i < lookupAttempts; i++) {
+            if (lookupDelayMillis > 0) {
+                try {
+                    Thread.sleep(lookupDelayMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new AmbiguousPayoutException(referenceNo, "Interrupted while resolving payout " + referenceNo, failure);
+                }
+            }
+            SendMoneyResult found;
+            try {
+                found = lookup(referenceNo, amount, since);
+            } catch (Exception e) {
+                AmbiguousPayoutException ambiguous = new AmbiguousPayoutException(referenceNo,
+                    "Could not look up payout " + referenceNo + ": " + e.getMessage(), failure);
+                ambiguous.addSuppressed(e);
+                throw ambiguous;
+            }
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a transfer by reference number in the outstanding transactions and in the statements
+     * from {@code since} to the current day.
+     * @param referenceNo The reference number of the transfer.
+     * @param amount The amount of the transfer, or null to match any amount.
+     * @param since The first statement day to search.
+     * @return SendMoneyResult built from the matching transaction, or null if none matches.
+     * @throws Exception if a lookup request fails or response verification fails.
+     */
+    public SendMoneyResult lookup(String referenceNo, BigDecimal amount, LocalDate since) throws Exception {
+        OutstandingTransactions outstanding = client.getOutstandingTransactions();
+        if (outstanding.getOutstandingTransactions() != null) {
+            for (OutstandingTransaction tx : outstanding.getOutstandingTransactions()) {
+                if (matches(referenceNo, amount, tx.getReferenceNo(), tx.getAmount(), tx.getOpTypeId())) {
+                    return toResult(tx.getTransactionId(), tx.getAmount(), referenceNo, tx.getTimestamp(), tx.getBalance(), outstanding.getResponseTimestamp());
+                }
+            }
+        }
+        LocalDate today = LocalDate.now(zone);
+        for (LocalDate day = today; !day.isBefore(since); day = day.minusDays(1)) {
+            Statement statement = client.getStatement(day.toString());
+            if (statement.getDayStatement() == null) {
+                continue;
+            }
+            for (StatementTransaction tx : statement.getDayStatement()) {
+                if (matches(referenceNo, amount, tx.getReferenceNo(), tx.getAmount(), tx.getOpTypeId())) {
+                    return toResult(tx.getTransactionId(), tx.getAmount(), referenceNo, tx.getTimestamp(), tx.getBalance(), statement.getResponseTimestamp());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Settles the in-doubt intents of a payout journal: found transfers get their result recorded,
+     * the others stay in doubt. Statements are searched from the day of each intent.
+     * @param journal The journal to reconcile.
+     * @return The number of intents settled.
+     * @throws Exception if a lookup request fails or the journal cannot be written.
+     */
+    public int reconcile(PayoutJournal journal) throws Exception {
+        int settled = 0;
+        for (PayoutJournalEntry entry : journal.getInDoubt()) {
+            if (entry.getReferenceNo() == null || entry.getReferenceNo().isEmpty()) {
+                continue;
+            }
+            LocalDate day = Instant.ofEpochMilli(entry.getTime()).atZone(zone).toLocalDate();
+            SendMoneyResult found = lookup(entry.getReferenceNo(), entry.getAmount(), day);
+            if (found != null) {
+                journal.recordResult(entry.getId(), found);
+                settled++;
+            }
+        }
+        return settled;
+    }
+
+    static boolean matches(String referenceNo, BigDecimal amount, String txReference, BigDecimal txAmount, OperationType opType) {
+        if (!referenceNo.equals(txReference)) {
+            return false;
+        }
+        if (opType != null && opType != OperationType.DIRECT_TRANSFER && opType != OperationType.LOCAL_TRANSFER) {
+            return false;
+        }
+        return amount == null || (txAmount != null && txAmount.abs().compareTo(amount.abs()) == 0);
+    }
+
+    private static SendMoneyResult toResult(String transactionId, BigDecimal amount, String referenceNo, Date timestamp, BigDecimal balance, Date responseTimestamp) {
+        SendMoneyResult result = new SendMoneyResult();
+        result.setTransactionId(transactionId);
+        result.setAmount(amount == null ? null : amount.abs());
+        result.setReferenceNo(referenceNo);
+        result.setTimestamp(timestamp);
+        result.setNewBalance(balance);
+        result.setResponseTimestamp(responseTimestamp);
+        return result;
+    }
+
+    /**
+     * Gets the time zone used to determine statement days.
+     * @return the time zone
+     */
+    public ZoneId getZone() { return zone; }
+    /**
+     * Sets the time zone used to determine statement days (default: Africa/Tripoli).
+     * @param zone the time zone
+     */
+    public void setZone(ZoneId zone) { this.zone = zone; }
+    /**
+     * Gets the number of lookups made before a transfer is considered absent.
+     * @return the number of lookups
+     */
+    public int getLookupAttempts() { return lookupAttempts; }
+    /**
+     * Sets the number of lookups made before a transfer is considered absent (default: 3).
+     * @param lookupAttempts the number of lookups
+     */
+    public void setLookupAttempts(int lookupAttempts) { this.lookupAttempts = lookupAttempts; }
+    /**
+     * Gets the delay before each lookup, giving the server time to settle the transfer.
+     * @return the delay in milliseconds
+     */
+    public long getLookupDelayMillis() { return lookupDelayMillis; }
+    /**
+     * Sets the delay before each lookup (default: 2000).
+     * @param lookupDelayMillis the delay in milliseconds
+     */
+    public void setLookupDelayMillis(long lookupDelayMillis) { this.lookupDelayMillis = lookupDelayMillis; }
+    /**
+     * Gets the maximum number of times a provably absent transfer is sent again.
+     * @return the maximum number of resends
+     */
+    public int getMaxResends() { return maxResends; }
+    /**
+     * Sets the maximum number of times a provably absent transfer is sent again (default: 1).
+     * @param maxResends the maximum number of resends
+     */
+    public void setMaxResends(int maxResends) { this.maxResends = maxResends; }
+}
@@ -0,0 +1,443 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.model.SendMoneyResult;
+import net.libyaguide.gpay.sdk.model.WalletCheck;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * PayoutPipeline sends the payouts of a CSV or JSONL file without loading it, with resumable progress.
+ * <p>
+ * <b>Processing:</b>
+ * <ul>
+ *   <li>Rows are streamed by {@link PayoutFileReader}; at most {@code concurrency} rows are in flight at a time.</li>
+ *   <li>Each row is validated; valid rows repeating the reference number of an earlier valid row are marked
+ *       DUPLICATE. An invalid row does not claim its reference number, so a corrected copy later in the file
+ *       is still sent.</li>
+ *   <li>Recipients are pre-checked with {@link GPayApiClient#checkWallet(String)}, once per wallet.</li>
+ *   <li>Valid rows are sent through the {@link PayoutSender}, {@code concurrency} at a time.</li>
+ *   <li>Each outcome is appended to the output file (one JSON object per line) as soon as it completes.</li>
+ * </ul>
+ *
+ * <b>Memory:</b> the rows themselves are not kept, but duplicate detection keeps every distinct reference
+ * number of the file and the pre-check keeps one result per distinct wallet, so memory grows with
+ * O(distinct references + distinct wallets), not with the file size. Split files with tens of millions of
+ * distinct references into several runs.
+ *
+ * <b>Checkpoints:</b>
+ * <ul>
+ *   <li>The checkpoint file holds the first row not yet finished; every row before it is in the output file.</li>
+ *   <li>A new run on the same files skips the rows before the checkpoint, and the rows after it that
+ *       the output file already records.</li>
+ *   <li>A row that was in flight when the process died has no output line. On resume, every row past the
+ *       checkpoint without an output line, up to {@code concurrency} rows past the last recorded one, is
+ *       first looked up with {@link PayoutOutcomeResolver#lookup(String, java.math.BigDecimal, LocalDate)}
+ *       by reference number and amount, from the day before the output file was last written. A found
+ *       transfer is recorded as SENT without sending; if the lookup fails, or the row has no reference
+ *       number, the row is recorded as UNKNOWN. Only rows not found are sent.</li>
+ *   <li>The in-flight window assumes the resumed run uses at least the concurrency of the interrupted one.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   PayoutPipeline pipeline = new PayoutPipeline(client, new PayoutOutcomeResolver(client));
+ *   pipeline.setConcurrency(16);
+ *   PayoutPipelineResult result = pipeline.run(Paths.get("payouts.csv"), Paths.get("payouts.out.jsonl"));
+ * </pre>
+ */
+public class PayoutPipeline {
+    private static final Pattern REFERENCE = Pattern.compile("[A-Za-z0-9 _]*");
+    private static final int MAX_DESCRIPTION = 255;
+
+    private final GPayApiClient client;
+    private final PayoutSender sender;
+    private PayoutOutcomeResolver resolver;
+    private final Gson gson = new Gson();
+    private int concurrency = 8;
+    private boolean walletPreCheck = true;
+    private int checkpointInterval = 100;
+
+    /**
+     * Constructs a pipeline that sends through the client directly.
+     * @param client The client used for wallet checks and sending.
+     */
+    public PayoutPipeline(GPayApiClient client) {
+        this(client, client::sendMoney);
+    }
+
+    /**
+     * Constructs a pipeline that sends through the given sender.
+     * @param client The client used for wallet checks.
+     * @param sender The sender used for payouts.
+     */
+    public PayoutPipeline(GPayApiClient client, PayoutSender sender) {
+        this.client = client;
+        this.sender = sender;
+        this.resolver = sender instanceof PayoutOutcomeResolver ? (PayoutOutcomeResolver) sender : new PayoutOutcomeResolver(client);
+    }
+
+    /**
+     * Runs the pipeline, guessing the format from the input file name and keeping the checkpoint
+     * next to the output file ({@code <output>.checkpoint}).
+     * @param input The payout file.
+     * @param output The output file.
+     * @return PayoutPipelineResult with the counts of this run.
+     * @throws IOException if a file cannot be read or written.
+     * @throws InterruptedException if the run is interrupted; progress up to that point is checkpointed.
+     */
+    public PayoutPipelineResult run(Path input, Path output) throws IOException, InterruptedException {
+        return run(input, PayoutFileReader.Format.of(input), output, output.resolveSibling(output.getFileName() + ".checkpoint"));
+    }
+
+    /**
+     * Runs the pipeline.
+     * @param input The payout file.
+     * @param format The payout file format.
+     * @param output The output file.
+     * @param checkpoint The checkpoint file.
+     * @return PayoutPipelineResult with the counts of this run.
+     * @throws IOException if a file cannot be read or written.
+     * @throws InterruptedException if the run is interrupted; progress up to that point is checkpointed.
+     */
+    public PayoutPipelineResult run(Path input, PayoutFileReader.Format format, Path output, Path checkpoint) throws IOException, InterruptedException {
+        long started = System.currentTimeMillis();
+        Run run = new Run(output, checkpoint);
+        ExecutorService executor = GPayExecutors.newBlockingExecutor("gpay-payout-pipeline", concurrency);
+        try (PayoutFileReader reader = new PayoutFileReader(input, format)) {
+            run.open();
+            Semaphore permits = new Semaphore(concurrency);
+            Set<String> references = new HashSet<>();
+            PayoutInstruction instruction;
+            while ((instruction = reader.next()) != null && run.failure == null) {
+                // Validated first, so an invalid row cannot make a later valid row with its reference a duplicate
+                String invalid = validate(instruction);
+                String ref = instruction.getReferenceNo();
+                boolean duplicate = invalid == null && ref != null && !references.add(ref);
+                long row = instruction.getRow();
+                if (row < run.startRow) {
+                    continue;
+                }
+                if (run.done.remove(row)) {
+                    run.result.countResumed();
+                    run.complete(row, null);
+                    continue;
+                }
+                if (invalid != null) {
+                    run.complete(row, outcome(instruction, PayoutPipelineResult.Status.INVALID, null, invalid));
+                    continue;
+                }
+                if (duplicate) {
+                    run.complete(row, outcome(instruction, PayoutPipelineResult.Status.DUPLICATE, null, "Duplicate reference_no"));
+                    continue;
+                }
+                permits.acquire();
+                final PayoutInstruction task = instruction;
+                final boolean inDoubt = row <= run.inDoubtUntil;
+                executor.execute(() -> {
+                    try {
+                        JsonObject found = inDoubt ? lookup(task, run.inDoubtSince) : null;
+                        run.complete(task.getRow(), found != null ? found : process(task, run.wallets));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            permits.acquire(concurrency);
+            if (run.failure != null) {
+                throw run.failure;
+            }
+        } finally {
+            // Let rows already handed to the sender finish so that their outcome is recorded
+            executor.shutdown();
+            boolean interrupted = false;
+            while (!executor.isTerminated()) {
+                try {
+                    executor.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            run.close();
+            run.result.setElapsedMillis(System.currentTimeMillis() - started);
+        }
+        return run.result;
+    }
+
+    /**
+     * Validates a row.
+     * @param instruction The row.
+     * @return The reason the row is invalid, or null if it is valid.
+     */
+    protected String validate(PayoutInstruction instruction) {
+        if (instruction.getAmount() == null) {
+            return "amount missing or not a number";
+        }
+        if (instruction.getAmount().signum() <= 0) {
+            return "amount must be positive";
+        }
+        if (instruction.getWalletGatewayId() == null) {
+            return "wallet_gateway_id missing";
+        }
+        if (instruction.getReferenceNo() != null && !REFERENCE.matcher(instruction.getReferenceNo()).matches()) {
+            return "reference_no may only contain letters, digits, spaces and underscores";
+        }
+        if (instruction.getDescription() != null && instruction.getDescription().length() > MAX_DESCRIPTION) {
+            return "description longer than " + MAX_DESCRIPTION + " characters";
+        }
+        return null;
+    }
+
+    private JsonObject lookup(PayoutInstruction instruction, LocalDate since) {
+        if (instruction.getReferenceNo() == null || instruction.getReferenceNo().isEmpty()) {
+            return outcome(instruction, PayoutPipelineResult.Status.UNKNOWN, null, "in flight when interrupted and has no reference_no to look up");
+        }
+        try {
+            SendMoneyResult found = resolver.lookup(instruction.getReferenceNo(), instruction.getAmount(), since);
+            return found == null ? null : outcome(instruction, PayoutPipelineResult.Status.SENT, found, null);
+        } catch (Exception e) {
+            // The row may have been sent by the interrupted run; never resend it blindly
+            return outcome(instruction, PayoutPipelineResult.Status.UNKNOWN, null, "lookup: " + e);
+        }
+    }
+
+    private JsonObject process(PayoutInstruction instruction, ConcurrentMap<String, CompletableFuture<WalletCheck>> wallets) {
+        if (walletPreCheck) {
+            WalletCheck check;
+            try {
+                check = checkWallet(instruction.getWalletGatewayId(), wallets);
+            } catch (Exception e) {
+                return outcome(instruction, PayoutPipelineResult.Status.FAILED, null, "checkWallet: " + e);
+            }
+            if (!check.exists() || !check.canReceiveMoney()) {
+                return outcome(instruction, PayoutPipelineResult.Status.REJECTED, null,
+                    check.exists() ? "Wallet cannot receive money" : "Wallet does not exist");
+            }
+        }
+        try {
+            SendMoneyResult result = sender.sendMoney(instruction.getAmount(), instruction.getWalletGatewayId(),
+                instruction.getReferenceNo(), instruction.getDescription());
+            return outcome(instruction, PayoutPipelineResult.Status.SENT, result, null);
+        } catch (Exception e) {
+            boolean unknown = e instanceof AmbiguousPayoutException || PayoutOutcomeResolver.isAmbiguous(e);
+            return outcome(instruction, unknown ? PayoutPipelineResult.Status.UNKNOWN : PayoutPipelineResult.Status.FAILED, null, String.valueOf(e));
+        }
+    }
+
+    private WalletCheck checkWallet(String walletGatewayId, ConcurrentMap<String, CompletableFuture<WalletCheck>> wallets) throws Exception {
+        CompletableFuture<WalletCheck> mine = new CompletableFuture<>();
+        CompletableFuture<WalletCheck> existing = wallets.putIfAbsent(walletGatewayId, mine);
+        if (existing == null) {
+            try {
+                mine.complete(client.checkWallet(walletGatewayId));
+            } catch (Exception e) {
+                // Do not cache failures: the next row for this wallet tries again
+                wallets.remove(walletGatewayId, mine);
+                mine.completeExceptionally(e);
+            }
+            existing = mine;
+        }
+        try {
+            return existing.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        }
+    }
+
+    private JsonObject outcome(PayoutInstruction instruction, PayoutPipelineResult.Status status, SendMoneyResult result, String error) {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("row", instruction.getRow());
+        obj.addProperty("status", status.name());
+        obj.addProperty("wallet_gateway_id", instruction.getWalletGatewayId());
+        obj.addProperty("amount", instruction.getAmount());
+        obj.addProperty("reference_no", instruction.getReferenceNo());
+        if (result != null) {
+            obj.addProperty("transaction_id", result.getTransactionId());
+            obj.addProperty("sender_fee", result.getSenderFee());
+            obj.addProperty("new_balance", result.getNewBalance());
+        }
+        if (error != null) {
+            obj.addProperty("error", error);
+        }
+        return obj;
+    }
+
+    /**
+     * State of a single run: output file, checkpoint watermark and rows already done.
+     */
+    private final class Run {
+        final Path outputPath;
+        final Path checkpointPath;
+        final PayoutPipelineResult result = new PayoutPipelineResult();
+        final ConcurrentMap<String, CompletableFuture<WalletCheck>> wallets = new ConcurrentHashMap<>();
+        final Set<Long> done = ConcurrentHashMap.newKeySet();
+        final ReentrantLock lock = new ReentrantLock();
+        final TreeSet<Long> completedAhead = new TreeSet<>();
+        volatile IOException failure;
+        FileChannel output;
+        long startRow = 1;
+        long inDoubtUntil;
+        LocalDate inDoubtSince;
+        long watermark;
+        int sinceCheckpoint;
+
+        Run(Path outputPath, Path checkpointPath) {
+            this.outputPath = outputPath;
+            this.checkpointPath = checkpointPath;
+        }
+
+        void open() throws IOException {
+            if (Files.exists(checkpointPath)) {
+                String text = new String(Files.readAllBytes(checkpointPath), StandardCharsets.US_ASCII).trim();
+                startRow = text.isEmpty() ? 1 : Long.parseLong(text);
+            }
+            watermark = startRow;
+            result.setStartRow(startRow);
+            boolean resumed = Files.exists(outputPath);
+            if (resumed) {
+                Instant written = Files.getLastModifiedTime(outputPath).toInstant();
+                inDoubtSince = written.atZone(resolver.getZone()).toLocalDate().minusDays(1);
+            }
+            output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long valid = 0;
+            long lastRecorded = startRow - 1;
+            if (output.size() > 0) {
+                // Rows finished after the checkpoint; also drop a torn last line
+                try (BufferedReader reader = Files.newBufferedReader(outputPath, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        long length = line.getBytes(StandardCharsets.UTF_8).length + 1;
+                        if (valid + length > output.size()) {
+                            break;
+                        }
+                        try {
+                            long row = JsonParser.parseString(line).getAsJsonObject().get("row").getAsLong();
+                            if (row >= startRow) {
+                                done.add(row);
+                                lastRecorded = Math.max(lastRecorded, row);
+                            }
+                        } catch (RuntimeException e) {
+                            break;
+                        }
+                        valid += length;
+                    }
+                }
+                output.truncate(valid);
+            }
+            output.position(valid);
+            // Rows dispatched by the interrupted run but never recorded lie within this window
+            inDoubtUntil = resumed ? lastRecorded + concurrency : 0;
+        }
+
+        void complete(long row, JsonObject outcome) {
+            lock.lock();
+            try {
+                if (outcome != null) {
+                    byte[] line = (gson.toJson(outcome) + "\n").getBytes(StandardCharsets.UTF_8);
+                    ByteBuffer buffer = ByteBuffer.wrap(line);
+                    while (buffer.hasRemaining()) {
+                        output.write(buffer);
+                    }
+                    result.count(PayoutPipelineResult.Status.valueOf(outcome.get("status").getAsString()));
+                }
+                if (row == watermark) {
+                    watermark++;
+                    while (!completedAhead.isEmpty() && completedAhead.first() == watermark) {
+                        completedAhead.pollFirst();
+                        watermark++;
+                    }
+                } else {
+                    completedAhead.add(row);
+                }
+                if (++sinceCheckpoint >= checkpointInterval) {
+                    checkpoint();
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void checkpoint() throws IOException {
+            output.force(false);
+            Path tmp = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+            Files.write(tmp, Long.toString(watermark).getBytes(StandardCharsets.US_ASCII));
+            Files.move(tmp, checkpointPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            sinceCheckpoint = 0;
+        }
+
+        void close() throws IOException {
+            lock.lock();
+            try {
+                if (output != null) {
+                    checkpoint();
+                    output.close();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of rows sent concurrently.
+     * @return the concurrency
+     */
+    public int getConcurrency() { return concurrency; }
+    /**
+     * Sets the number of rows sent concurrently (default: 8). This also bounds the rows held in memory.
+     * @param concurrency the concurrency
+     */
+    public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+    /**
+     * Checks whether recipients are pre-checked with checkWallet.
+     * @return true if the wallet pre-check is enabled
+     */
+    public boolean isWalletPreCheck() { return walletPreCheck; }
+    /**
+     * Enables or disables the checkWallet pre-check (default: enabled).
+     * @param walletPreCheck true to pre-check recipients
+     */
+    public void setWalletPreCheck(boolean walletPreCheck) { this.walletPreCheck = walletPreCheck; }
+    /**
+     * Gets the number of finished rows between checkpoints.
+     * @return the checkpoint interval
+     */
+    public int getCheckpointInterval() { return checkpointInterval; }
+    /**
+     * Sets the number of finished rows between checkpoints (default: 100).
+     * @param checkpointInterval the checkpoint interval
+     */
+    public void setCheckpointInterval(int checkpointInterval) { this.checkpointInterval = checkpointInterval; }
+    /**
+     * Gets the resolver used to look up rows that may have been sent by an interrupted run.
+     * @return the resolver
+     */
+    public PayoutOutcomeResolver getResolver() { return resolver; }
+    /**
+     * Sets the resolver used to look up rows that may have been sent by an interrupted run
+     * (default: the sender if it is a resolver, otherwise a resolver over the client).
+     * @param resolver the resolver
+     */
+    public void setResolver(PayoutOutcomeResolver resolver) { this.resolver = resolver; }
+}
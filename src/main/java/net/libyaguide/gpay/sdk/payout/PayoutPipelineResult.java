@@ -0,0 +1,75 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents the summary of a {@link PayoutPipeline} run.
+ */
+public class PayoutPipelineResult {
+    /**
+     * Enum representing the outcome of a single row, as written to the output file.
+     */
+    public enum Status {
+        /** The money was sent. */
+        SENT,
+        /** sendMoney failed with a definite error; nothing was sent. */
+        FAILED,
+        /** The outcome of sendMoney is unknown and must be reconciled. */
+        UNKNOWN,
+        /** The row failed validation. */
+        INVALID,
+        /** The row repeats the reference number of an earlier row. */
+        DUPLICATE,
+        /** The recipient wallet does not exist or cannot receive money. */
+        REJECTED
+    }
+
+    private final Map<Status, AtomicLong> counts = new EnumMap<>(Status.class);
+    private final AtomicLong resumed = new AtomicLong();
+    private volatile long startRow;
+    private volatile long elapsedMillis;
+
+    PayoutPipelineResult() {
+        for (Status s : Status.values()) {
+            counts.put(s, new AtomicLong());
+        }
+    }
+
+    void count(Status status) { counts.get(status).incrementAndGet(); }
+    void countResumed() { resumed.incrementAndGet(); }
+    void setStartRow(long startRow) { this.startRow = startRow; }
+    void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+
+    /**
+     * Gets the number of rows processed in this run with the given outcome.
+     * @param status the outcome
+     * @return the number of rows
+     */
+    public long getCount(Status status) { return counts.get(status).get(); }
+    /**
+     * Gets the number of rows at or after the checkpoint that an earlier run had already finished.
+     * @return the number of rows skipped because they are already in the output file
+     */
+    public long getResumed() { return resumed.get(); }
+    /**
+     * Gets the first row processed by this run, as read from the checkpoint.
+     * @return the 1-based start row
+     */
+    public long getStartRow() { return startRow; }
+    /**
+     * Gets the duration of the run.
+     * @return the duration in milliseconds
+     */
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PayoutPipelineResult{startRow=").append(startRow);
+        for (Map.Entry<Status, AtomicLong> e : counts.entrySet()) {
+            sb.append(", ").append(e.getKey()).append('=').append(e.getValue().get());
+        }
+        return sb.append(", resumed=").append(resumed.get()).append(", elapsedMillis=").append(elapsedMillis).append('}').toString();
+    }
+}
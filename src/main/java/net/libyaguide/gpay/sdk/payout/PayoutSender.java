@@ -0,0 +1,25 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import net.libyaguide.gpay.sdk.model.SendMoneyResult;
+
+import java.math.BigDecimal;
+
+/**
+ * Functional interface for anything that sends money with the signature of
+ * {@link net.libyaguide.gpay.sdk.client.GPayApiClient#sendMoney(BigDecimal, String, String, String)}.
+ * <p>
+ * {@code client::sendMoney} is the basic implementation; journaling and other payout stages wrap it.
+ */
+@FunctionalInterface
+public interface PayoutSender {
+    /**
+     * Sends money to another wallet.
+     * @param amount The amount to send.
+     * @param walletGatewayId The recipient's wallet gateway ID (UUID).
+     * @param referenceNo Optional reference number.
+     * @param description Optional description.
+     * @return SendMoneyResult object with details of the transaction.
+     * @throws Exception if the request fails or response verification fails.
+     */
+    SendMoneyResult sendMoney(BigDecimal amount, String walletGatewayId, String referenceNo, String description) throws Exception;
+}
@@ -0,0 +1,376 @@
+package net.libyaguide.gpay.sdk.payout;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.model.Balance;
+import net.libyaguide.gpay.sdk.model.SendMoneyResult;
+import net.libyaguide.gpay.sdk.model.Statement;
+import net.libyaguide.gpay.sdk.model.StatementTransaction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * ShadowBalanceLedger keeps an in-process copy of the wallet balance so that payout workers can check
+ * and reserve funds with a memory read instead of a {@link GPayApiClient#getWalletBalance()} call.
+ * <p>
+ * <b>Balance model:</b>
+ * <ul>
+ *   <li>The confirmed balance is seeded from getWalletBalance, replaced by the new balance of each
+ *       SendMoneyResult, and resynced from {@link Statement#getAvailableBalance()}. Older values never
+ *       replace newer ones.</li>
+ *   <li>Reservations are subtracted from the confirmed balance to give the available balance. Each
+ *       reservation covers the amount plus a fee reserve: a fixed part plus a percentage of the amount, both
+ *       configurable. The percentage defaults to 1% so that no reservation is made without a reserve; sender
+ *       fees above the reserve are counted in {@link #getFeeShortfalls()}.</li>
+ *   <li>Confirmed balance and reservations live in one immutable state updated with compare-and-set, so
+ *       concurrent workers can never reserve more than the available balance.</li>
+ * </ul>
+ * A payout whose outcome is ambiguous keeps its reservation until it is resolved: a resync finds the transfer
+ * by reference number in a statement from the day it was held on, or the caller releases it after learning that
+ * the transfer failed. The ledger errs on the side of under-reporting the available balance.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   ShadowBalanceLedger ledger = new ShadowBalanceLedger(client);
+ *   ledger.seed();
+ *   ledger.startResync(60, TimeUnit.SECONDS);
+ *   PayoutSender sender = ledger.wrap(client::sendMoney);
+ * </pre>
+ */
+public class ShadowBalanceLedger {
+    private final GPayApiClient client;
+    private final AtomicReference<State> state = new AtomicReference<>(new State(BigDecimal.ZERO, BigDecimal.ZERO, Long.MIN_VALUE));
+    private final AtomicLong feeShortfalls = new AtomicLong();
+    private volatile BigDecimal feeFixed = BigDecimal.ZERO;
+    private volatile BigDecimal feeRate = new BigDecimal("0.01");
+    private final Set<Reservation> heldUntilResync = ConcurrentHashMap.newKeySet();
+    private ZoneId zone = ZoneId.of("Africa/Tripoli");
+    private ScheduledExecutorService scheduler;
+
+    private static final class State {
+        final BigDecimal confirmed;
+        final BigDecimal reserved;
+        final long asOf;
+        State(BigDecimal confirmed, BigDecimal reserved, long asOf) {
+            this.confirmed = confirmed;
+            this.reserved = reserved;
+            this.asOf = asOf;
+        }
+    }
+
+    /**
+     * An amount reserved against the shadow balance. Released exactly once.
+     */
+    public final class Reservation {
+        private final BigDecimal amount;
+        private final BigDecimal payoutAmount;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile String referenceNo;
+        private volatile LocalDate heldOn;
+
+        private Reservation(BigDecimal amount, BigDecimal payoutAmount) {
+            this.amount = amount;
+            this.payoutAmount = payoutAmount;
+        }
+
+        /**
+         * Gets the reserved amount, including the fee reserve.
+         * @return the reserved amount
+         */
+        public BigDecimal getAmount() { return amount; }
+
+        /**
+         * Releases the reservation without changing the confirmed balance, e.g. after a definite failure.
+         */
+        public void release() {
+            heldUntilResync.remove(this);
+            if (released.compareAndSet(false, true)) {
+                update(s -> new State(s.confirmed, s.reserved.subtract(amount), s.asOf));
+            }
+        }
+
+        /**
+         * Releases the reservation and applies the result of the payout to the confirmed balance.
+         * @param result The result returned by sendMoney.
+         */
+        public void commit(SendMoneyResult result) {
+            observeFee(result);
+            heldUntilResync.remove(this);
+            if (released.compareAndSet(false, true)) {
+                long asOf = timeOf(result.getResponseTimestamp() != null ? result.getResponseTimestamp() : result.getTimestamp());
+                BigDecimal newBalance = result.getNewBalance();
+                BigDecimal spent = result.getAmount() == null ? BigDecimal.ZERO : result.getAmount();
+                if (result.getSenderFee() != null) {
+                    spent = spent.add(result.getSenderFee());
+                }
+                final BigDecimal debit = spent;
+                update(s -> {
+                    BigDecimal reserved = s.reserved.subtract(amount);
+                    if (newBalance != null) {
+                        // Results arriving out of order are already included in a newer balance
+                        return asOf >= s.asOf ? new State(newBalance, reserved, asOf) : new State(s.confirmed, reserved, s.asOf);
+                    }
+                    return new State(s.confirmed.subtract(debit), reserved, s.asOf);
+                });
+            }
+        }
+
+        /**
+         * Keeps the reservation of a payout whose outcome is ambiguous until a resync finds the transfer in a
+         * statement, or until {@link #release()} is called after the transfer is known to have failed.
+         * @param referenceNo The reference number of the payout, or null if it has none; the reservation is
+         *                    then kept until released by the caller.
+         */
+        public void holdUntilResolved(String referenceNo) {
+            this.referenceNo = referenceNo;
+            this.heldOn = LocalDate.now(zone);
+            if (!released.get()) {
+                heldUntilResync.add(this);
+            }
+        }
+    }
+
+    /**
+     * Constructs a ledger for the wallet of the given client.
+     * @param client The client used to seed and resync the balance.
+     */
+    public ShadowBalanceLedger(GPayApiClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Seeds the confirmed balance from getWalletBalance.
+     * @throws Exception if the request fails or response verification fails.
+     */
+    public void seed() throws Exception {
+        Balance balance = client.getWalletBalance();
+        applyConfirmed(balance.getBalance(), timeOf(balance.getResponseTimestamp()));
+    }
+
+    /**
+     * Resyncs the confirmed balance from the available balance of the current day statement, and releases the
+     * held reservations whose transfer appears in a statement since the day it was held on, as the confirmed
+     * balance then includes it.
+     * @throws Exception if a request fails or response verification fails.
+     */
+    public void resync() throws Exception {
+        Reservation[] held = heldUntilResync.toArray(new Reservation[0]);
+        LocalDate today = LocalDate.now(zone);
+        Statement statement = client.getStatement(today.toString());
+        applyConfirmed(statement.getAvailableBalance(), timeOf(statement.getResponseTimestamp()));
+        Map<LocalDate, Statement> statements = new HashMap<>();
+        statements.put(today, statement);
+        for (Reservation r : held) {
+            if (r.referenceNo == null || r.released.get()) {
+                continue;
+            }
+            for (LocalDate day = r.heldOn; !day.isAfter(today); day = day.plusDays(1)) {
+                Statement st = statements.get(day);
+                if (st == null) {
+                    st = client.getStatement(day.toString());
+                    statements.put(day, st);
+                }
+                if (contains(st, r)) {
+                    r.release();
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean contains(Statement statement, Reservation r) {
+        if (statement.getDayStatement() != null) {
+            for (StatementTransaction tx : statement.getDayStatement()) {
+                if (PayoutOutcomeResolver.matches(r.referenceNo, r.payoutAmount, tx.getReferenceNo(), tx.getAmount(), tx.getOpTypeId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void applyConfirmed(BigDecimal confirmed, long asOf) {
+        update(s -> asOf >= s.asOf ? new State(confirmed, s.reserved, asOf) : s);
+    }
+
+    /**
+     * Starts resyncing periodically on a private daemon thread.
+     * @param period The resync period.
+     * @param unit The unit of the period.
+     */
+    public synchronized void startResync(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Resync already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(GPayExecutors.threadFactory("gpay-balance-resync"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                resync();
+            } catch (Exception ignored) {
+                // Keep the last known balance; the next run tries again
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the periodic resync.
+     */
+    public synchronized void stopResync() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Reserves an amount plus the fee reserve if the available balance allows it.
+     * @param amount The payout amount.
+     * @return The reservation, or null if the available balance is insufficient.
+     */
+    public Reservation tryReserve(BigDecimal amount) {
+        BigDecimal total = withFeeReserve(amount);
+        while (true) {
+            State s = state.get();
+            if (s.confirmed.subtract(s.reserved).compareTo(total) < 0) {
+                return null;
+            }
+            if (state.compareAndSet(s, new State(s.confirmed, s.reserved.add(total), s.asOf))) {
+                return new Reservation(total, amount);
+            }
+        }
+    }
+
+    /**
+     * Reserves an amount plus the fee reserve.
+     * @param amount The payout amount.
+     * @return The reservation.
+     * @throws InsufficientBalanceException if the available balance is insufficient.
+     */
+    public Reservation reserve(BigDecimal amount) {
+        Reservation r = tryReserve(amount);
+        if (r == null) {
+            throw new InsufficientBalanceException(withFeeReserve(amount), getAvailable());
+        }
+        return r;
+    }
+
+    /**
+     * Wraps a sender so that each payout is reserved before sending and settled afterwards.
+     * Definite failures release the reservation; ambiguous ones hold it until a resync finds the transfer.
+     * @param delegate The sender to wrap.
+     * @return The reserving sender; throws {@link InsufficientBalanceException} when funds are short.
+     */
+    public PayoutSender wrap(PayoutSender delegate) {
+        return (amount, walletGatewayId, referenceNo, description) -> {
+            Reservation reservation = reserve(amount);
+            SendMoneyResult result;
+            try {
+                result = delegate.sendMoney(amount, walletGatewayId, referenceNo, description);
+            } catch (Exception e) {
+                if (e instanceof AmbiguousPayoutException || PayoutOutcomeResolver.isAmbiguous(e)) {
+                    reservation.holdUntilResolved(referenceNo == null || referenceNo.isEmpty() ? null : referenceNo);
+                } else {
+                    reservation.release();
+                }
+                throw e;
+            }
+            reservation.commit(result);
+            return result;
+        };
+    }
+
+    private BigDecimal feeReserve(BigDecimal amount) {
+        return feeFixed.add(amount.multiply(feeRate)).setScale(Math.max(amount.scale(), 3), RoundingMode.UP);
+    }
+
+    private BigDecimal withFeeReserve(BigDecimal amount) {
+        return amount.add(feeReserve(amount));
+    }
+
+    private void observeFee(SendMoneyResult result) {
+        if (result.getSenderFee() != null && result.getAmount() != null
+                && result.getSenderFee().compareTo(feeReserve(result.getAmount())) > 0) {
+            feeShortfalls.incrementAndGet();
+        }
+    }
+
+    private void update(UnaryOperator<State> fn) {
+        while (true) {
+            State s = state.get();
+            State next = fn.apply(s);
+            if (next == s || state.compareAndSet(s, next)) {
+                return;
+            }
+        }
+    }
+
+    private static long timeOf(Date date) {
+        return date == null ? System.currentTimeMillis() : date.getTime();
+    }
+
+    /**
+     * Gets the confirmed balance minus all reservations.
+     * @return the available balance
+     */
+    public BigDecimal getAvailable() {
+        State s = state.get();
+        return s.confirmed.subtract(s.reserved);
+    }
+    /**
+     * Gets the last balance confirmed by the server.
+     * @return the confirmed balance
+     */
+    public BigDecimal getConfirmed() { return state.get().confirmed; }
+    /**
+     * Gets the sum of all outstanding reservations.
+     * @return the reserved amount
+     */
+    public BigDecimal getReserved() { return state.get().reserved; }
+    /**
+     * Gets the percentage part of the fee reserve.
+     * @return the fee rate as a fraction of the amount
+     */
+    public BigDecimal getFeeRate() { return feeRate; }
+    /**
+     * Sets the percentage part of the fee reserve (default: 0.01, i.e. 1%).
+     * @param rate the fee rate as a fraction of the amount
+     */
+    public void setFeeRate(BigDecimal rate) { this.feeRate = rate; }
+    /**
+     * Gets the fixed part of the fee reserve.
+     * @return the fixed fee per payout
+     */
+    public BigDecimal getFeeFixed() { return feeFixed; }
+    /**
+     * Sets the fixed part of the fee reserve (default: 0).
+     * @param feeFixed the fixed fee per payout
+     */
+    public void setFeeFixed(BigDecimal feeFixed) { this.feeFixed = feeFixed; }
+    /**
+     * Gets the number of payouts whose sender fee exceeded the fee reserve, a sign that the fee model is too low.
+     * @return the number of fee shortfalls
+     */
+    public long getFeeShortfalls() { return feeShortfalls.get(); }
+    /**
+     * Gets the time zone used to determine the current statement day.
+     * @return the time zone
+     */
+    public ZoneId getZone() { return zone; }
+    /**
+     * Sets the time zone used to determine the current statement day (default: Africa/Tripoli).
+     * @param zone the time zone
+     */
+    public void setZone(ZoneId zone) { this.zone = zone; }
+}
@@ -0,0 +1,115 @@
+package net.libyaguide.gpay.sdk.quota;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link QuotaStore} in a local directory, shared by the processes of one host.
+ * <p>
+ * Each key is a file {@code <key>.quota} holding the version on the first line and the value after it.
+ * Reads and compare-and-set both hold an exclusive lock on a companion file {@code <key>.quota.lock}: a file
+ * lock between processes and a lock per path between threads of one process, since file locks are held per
+ * process. A new value is written to a temporary file and moved over the old one, so a crash mid-write never
+ * leaves a truncated or half-written value behind.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   QuotaStore store = new FileQuotaStore(Paths.get("/var/run/gpay-quota"));
+ * </pre>
+ */
+public class FileQuotaStore implements QuotaStore {
+    private static final ConcurrentHashMap<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+
+    /**
+     * Creates a store in a directory.
+     * @param directory The directory, created if needed.
+     * @throws IOException if the directory cannot be created.
+     */
+    public FileQuotaStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public Entry get(String key) throws IOException {
+        Path file = file(key);
+        ReentrantLock lock = LOCKS.computeIfAbsent(file, k -> new ReentrantLock());
+        lock.lock();
+        try (FileChannel lockChannel = openLock(file)) {
+            // Released when the channel closes
+            lockChannel.lock();
+            return read(file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(String key, long expectedVersion, String value) throws IOException {
+        Path file = file(key);
+        ReentrantLock lock = LOCKS.computeIfAbsent(file, k -> new ReentrantLock());
+        lock.lock();
+        try (FileChannel lockChannel = openLock(file)) {
+            lockChannel.lock();
+            Entry current = read(file);
+            long version = current == null ? 0 : current.getVersion();
+            if (version != expectedVersion) {
+                return false;
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(((version + 1) + "\n" + value).getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(false);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Path file(String key) {
+        if (!key.matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("Quota key must be letters, digits, '.', '_' or '-': " + key);
+        }
+        return directory.resolve(key + ".quota");
+    }
+
+    private static FileChannel openLock(Path file) throws IOException {
+        // The data file is replaced on every write, so processes lock a file that stays in place
+        return FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static Entry read(Path file) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (bytes.length == 0) {
+            return null;
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        int newline = text.indexOf('\n');
+        if (newline < 0) {
+            throw new IOException("Corrupt quota file");
+        }
+        return new Entry(text.substring(newline + 1), Long.parseLong(text.substring(0, newline)));
+    }
+}
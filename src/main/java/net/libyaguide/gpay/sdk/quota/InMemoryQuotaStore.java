@@ -0,0 +1,28 @@
+package net.libyaguide.gpay.sdk.quota;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link QuotaStore} in process memory. Coordinators sharing one instance behave like nodes sharing a
+ * remote store, which makes it the stand-in for tests and simulations.
+ */
+public class InMemoryQuotaStore implements QuotaStore {
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    @Override
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized boolean compareAndSet(String key, long expectedVersion, String value) {
+        Entry current = entries.get(key);
+        long version = current == null ? 0 : current.getVersion();
+        if (version != expectedVersion) {
+            return false;
+        }
+        entries.put(key, new Entry(value, version + 1));
+        return true;
+    }
+}
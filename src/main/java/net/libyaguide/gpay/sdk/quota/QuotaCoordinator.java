@@ -0,0 +1,423 @@
+package net.libyaguide.gpay.sdk.quota;
+
+import net.libyaguide.gpay.sdk.client.CancellationToken;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * QuotaCoordinator shares one request quota between all nodes using the same API key.
+ * <p>
+ * The quota is {@code limit} calls per fixed window (e.g. 1000 per second), counted cluster-wide in a
+ * {@link QuotaStore}. Each node leases tokens from the store in batches and spends them locally, so calls
+ * only touch the store once per batch. A background lease tops the batch up before it runs out.
+ * <p>
+ * <b>Sharing:</b>
+ * <ul>
+ *   <li>Every lease also registers the node. Nodes that have not leased for {@code nodeTtlMillis} drop out,
+ *       and {@link #close()} leaves at once, returning the unspent tokens.</li>
+ *   <li>In the first half of a window a node may lease up to its fair share, {@code limit} divided by the
+ *       active nodes, so a node joining or leaving changes every node's share from its next lease on.</li>
+ *   <li>In the second half, whatever is still unleased is open to any node, so the shares of idle nodes are
+ *       not wasted.</li>
+ *   <li>Tokens expire with their window. At most one unspent batch per node is lost at each window end.</li>
+ * </ul>
+ * When the store cannot be reached, the node keeps going on its last known fair share per window and
+ * counts the failure in {@link #getStoreErrors()}; before its first successful lease it has no share and
+ * waits. Windows are aligned to the wall clock, so node clocks should be kept in sync.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   QuotaCoordinator quota = new QuotaCoordinator(store, "merchant-main", 1000, 1000);
+ *   quota.setLeaseBatch(20);
+ *   client.setQuota(quota);
+ *   ...
+ *   quota.close();   // leave the cluster and hand back unspent tokens
+ * </pre>
+ */
+public class QuotaCoordinator implements Closeable {
+    private static final int MAX_CAS_ATTEMPTS = 32;
+
+    private final QuotaStore store;
+    private final String quotaKey;
+    private final long limit;
+    private final long windowMillis;
+    private final Gson gson = new Gson();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition refilled = lock.newCondition();
+    private final ExecutorService prefetcher = GPayExecutors.newBlockingExecutor("gpay-quota", 1);
+
+    private String nodeId = UUID.randomUUID().toString();
+    private long leaseBatch;
+    private long nodeTtlMillis;
+
+    // Guarded by lock
+    private long tokens;
+    private long windowStart = Long.MIN_VALUE;
+    private long grantedInWindow;
+    private long nextLeaseAt;
+    private boolean leasing;
+    private boolean closed;
+    private long share;
+
+    private volatile int activeNodes;
+    private volatile long leases;
+    private volatile long leasedTokens;
+    private volatile long storeErrors;
+    private volatile long rejected;
+
+    /**
+     * The state kept in the store, serialized as JSON.
+     */
+    private static final class State {
+        long windowStart;
+        long granted;
+        Map<String, NodeState> nodes = new HashMap<>();
+    }
+
+    private static final class NodeState {
+        long lastSeen;
+        long granted;
+    }
+
+    /**
+     * The outcome of a lease.
+     */
+    private static final class Lease {
+        final long granted;
+        final long windowStart;
+        final long share;
+        final int activeNodes;
+        Lease(long granted, long windowStart, long share, int activeNodes) {
+            this.granted = granted;
+            this.windowStart = windowStart;
+            this.share = share;
+            this.activeNodes = activeNodes;
+        }
+    }
+
+    /**
+     * Creates a coordinator for one node.
+     * @param store The store shared by all nodes.
+     * @param quotaKey The name of the quota, the same on all nodes; letters, digits, '.', '_' or '-'.
+     * @param limit The calls allowed per window across all nodes.
+     * @param windowMillis The window length in milliseconds.
+     */
+    public QuotaCoordinator(QuotaStore store, String quotaKey, long limit, long windowMillis) {
+        if (limit <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("limit and windowMillis must be positive");
+        }
+        this.store = store;
+        this.quotaKey = quotaKey;
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.leaseBatch = Math.max(1, limit / 100);
+        this.nodeTtlMillis = Math.max(10_000, 3 * windowMillis);
+    }
+
+    /**
+     * Takes one call's token, waiting for a lease or the next window if none is left.
+     * @param timeoutNanos The maximum time to wait, in nanoseconds.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws RejectedExecutionException if no token becomes available in time, or the coordinator is closed.
+     */
+    public void acquire(long timeoutNanos) throws InterruptedException {
+        acquire(timeoutNanos, null);
+    }
+
+    /**
+     * Takes one call's token like {@link #acquire(long)}, giving up as soon as the cancellation token is cancelled.
+     * @param timeoutNanos The maximum time to wait, in nanoseconds.
+     * @param cancellation The cancellation token of the call, or null.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws RejectedExecutionException if no token becomes available in time, the call is cancelled, or the
+     *         coordinator is closed.
+     */
+    public void acquire(long timeoutNanos, CancellationToken cancellation) throws InterruptedException {
+        long start = System.nanoTime();
+        AutoCloseable registration = cancellation == null ? null : cancellation.onCancel(this::wakeAll);
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new RejectedExecutionException("Quota " + quotaKey + " is closed");
+                }
+                if (cancellation != null && cancellation.isCancelled()) {
+                    throw new RejectedExecutionException("Cancelled waiting for quota " + quotaKey);
+                }
+                long now = System.currentTimeMillis();
+                if (now >= windowStart + windowMillis) {
+                    tokens = 0;
+                }
+                if (tokens > 0) {
+                    tokens--;
+                    if (tokens <= leaseBatch / 4 && !leasing && now >= nextLeaseAt) {
+                        leasing = true;
+                        prefetcher.execute(this::lease);
+                    }
+                    return;
+                }
+                if (!leasing && now >= nextLeaseAt) {
+                    leasing = true;
+                    lock.unlock();
+                    try {
+                        lease();
+                    } finally {
+                        lock.lock();
+                    }
+                    continue;
+                }
+                long remaining = timeoutNanos - (System.nanoTime() - start);
+                if (remaining <= 0) {
+                    rejected++;
+                    throw new RejectedExecutionException("Timed out waiting for quota " + quotaKey);
+                }
+                long untilLease = leasing ? remaining : TimeUnit.MILLISECONDS.toNanos(Math.max(1, nextLeaseAt - now));
+                refilled.awaitNanos(Math.min(remaining, untilLease));
+            }
+        } finally {
+            lock.unlock();
+            if (registration != null) {
+                try {
+                    registration.close();
+                } catch (Exception ignored) {
+                    // Unregistering a callback does not fail
+                }
+            }
+        }
+    }
+
+    private void wakeAll() {
+        lock.lock();
+        try {
+            refilled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Leases a batch from the store, or from the last known share when the store fails. Called with
+     * {@code leasing} set and without the lock held.
+     */
+    private void lease() {
+        Lease lease;
+        try {
+            lease = leaseFromStore();
+        } catch (IOException | RuntimeException e) {
+            lease = null;
+        }
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (lease == null) {
+                storeErrors++;
+                // Degraded: spend the last known fair share of the current window locally
+                long start = now - Math.floorMod(now, windowMillis);
+                long granted = start == windowStart ? Math.max(0, Math.min(leaseBatch, share - grantedInWindow)) : Math.min(leaseBatch, share);
+                lease = new Lease(granted, start, share, activeNodes);
+            } else {
+                leases++;
+                leasedTokens += lease.granted;
+                share = lease.share;
+                activeNodes = lease.activeNodes;
+            }
+            if (lease.windowStart != windowStart) {
+                windowStart = lease.windowStart;
+                tokens = 0;
+                grantedInWindow = 0;
+            }
+            tokens += lease.granted;
+            grantedInWindow += lease.granted;
+            // Out of quota: retry a few times per window rather than on every call
+            nextLeaseAt = lease.granted > 0 ? 0 : Math.min(windowStart + windowMillis, now + Math.max(1, windowMillis / 8));
+            leasing = false;
+            refilled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lease leaseFromStore() throws IOException {
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            QuotaStore.Entry entry = store.get(quotaKey);
+            State state = entry == null ? new State() : gson.fromJson(entry.getValue(), State.class);
+            long now = System.currentTimeMillis();
+            roll(state, now);
+            NodeState me = state.nodes.computeIfAbsent(nodeId, k -> new NodeState());
+            me.lastSeen = now;
+            int active = state.nodes.size();
+            long fairShare = (limit + active - 1) / active;
+            long available = limit - state.granted;
+            if (now < state.windowStart + windowMillis / 2) {
+                available = Math.min(available, fairShare - me.granted);
+            }
+            long grant = Math.max(0, Math.min(leaseBatch, available));
+            state.granted += grant;
+            me.granted += grant;
+            if (store.compareAndSet(quotaKey, entry == null ? 0 : entry.getVersion(), gson.toJson(state))) {
+                return new Lease(grant, state.windowStart, fairShare, active);
+            }
+        }
+        throw new IOException("Too much contention updating quota " + quotaKey);
+    }
+
+    /**
+     * Starts a new window if the stored one has ended, and drops nodes that stopped leasing.
+     */
+    private void roll(State state, long now) {
+        if (now >= state.windowStart + windowMillis) {
+            state.windowStart = now - Math.floorMod(now, windowMillis);
+            state.granted = 0;
+            for (NodeState node : state.nodes.values()) {
+                node.granted = 0;
+            }
+        }
+        state.nodes.entrySet().removeIf(e -> !e.getKey().equals(nodeId) && e.getValue().lastSeen < now - nodeTtlMillis);
+    }
+
+    /**
+     * Leaves the cluster: deregisters the node and returns its unspent tokens to the current window.
+     * Calls waiting for a token are rejected.
+     */
+    @Override
+    public void close() {
+        long unspent;
+        long window;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unspent = tokens;
+            window = windowStart;
+            tokens = 0;
+            refilled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        prefetcher.shutdownNow();
+        try {
+            for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+                QuotaStore.Entry entry = store.get(quotaKey);
+                if (entry == null) {
+                    return;
+                }
+                State state = gson.fromJson(entry.getValue(), State.class);
+                NodeState me = state.nodes.remove(nodeId);
+                if (me != null && state.windowStart == window) {
+                    state.granted -= Math.min(unspent, me.granted);
+                }
+                if (store.compareAndSet(quotaKey, entry.getVersion(), gson.toJson(state))) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The node then drops out after nodeTtlMillis
+            storeErrors++;
+        }
+    }
+
+    // Getters and setters
+    /**
+     * Gets the ID of this node.
+     * @return the node ID
+     */
+    public String getNodeId() { return nodeId; }
+    /**
+     * Sets the ID of this node, unique in the cluster (default: a random UUID). Set before the first call.
+     * @param nodeId the node ID, e.g. the host name
+     */
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+    /**
+     * Gets the number of tokens leased at a time.
+     * @return the batch size
+     */
+    public long getLeaseBatch() { return leaseBatch; }
+    /**
+     * Sets the number of tokens leased at a time (default: 1% of the limit). Larger batches mean fewer store
+     * round trips, but more tokens stranded on a node at the end of a window.
+     * @param leaseBatch the batch size, at least 1
+     */
+    public void setLeaseBatch(long leaseBatch) { this.leaseBatch = Math.max(1, leaseBatch); }
+    /**
+     * Gets how long a node stays registered without leasing.
+     * @return milliseconds
+     */
+    public long getNodeTtlMillis() { return nodeTtlMillis; }
+    /**
+     * Sets how long a node stays registered without leasing (default: 3 windows, at least 10 seconds).
+     * @param nodeTtlMillis milliseconds
+     */
+    public void setNodeTtlMillis(long nodeTtlMillis) { this.nodeTtlMillis = nodeTtlMillis; }
+    /**
+     * Gets the calls allowed per window across all nodes.
+     * @return the limit
+     */
+    public long getLimit() { return limit; }
+    /**
+     * Gets the window length.
+     * @return milliseconds
+     */
+    public long getWindowMillis() { return windowMillis; }
+    /**
+     * Gets the number of active nodes seen at the last lease.
+     * @return the number of nodes
+     */
+    public int getActiveNodes() { return activeNodes; }
+    /**
+     * Gets this node's fair share per window as of the last lease.
+     * @return tokens per window
+     */
+    public long getShare() {
+        lock.lock();
+        try {
+            return share;
+        } finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Gets the tokens leased and not yet spent.
+     * @return tokens
+     */
+    public long getLocalTokens() {
+        lock.lock();
+        try {
+            return System.currentTimeMillis() >= windowStart + windowMillis ? 0 : tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Gets the number of successful leases from the store.
+     * @return the number of leases
+     */
+    public long getLeases() { return leases; }
+    /**
+     * Gets the tokens leased from the store.
+     * @return tokens
+     */
+    public long getLeasedTokens() { return leasedTokens; }
+    /**
+     * Gets the number of failed store operations.
+     * @return the number of errors
+     */
+    public long getStoreErrors() { return storeErrors; }
+    /**
+     * Gets the number of calls rejected for lack of quota.
+     * @return the number of rejections
+     */
+    public long getRejected() { return rejected; }
+}
@@ -0,0 +1,61 @@
+package net.libyaguide.gpay.sdk.quota;
+
+import java.io.IOException;
+
+/**
+ * Shared storage for the state of cluster-wide quotas.
+ * <p>
+ * The store holds one versioned text value per quota key and offers a compare-and-set on the version, which
+ * maps directly onto etcd or Consul transactions, Redis {@code WATCH}/{@code MULTI}, DynamoDB conditional
+ * writes or a SQL row version. {@link InMemoryQuotaStore} and {@link FileQuotaStore} are stand-ins for
+ * tests and single-host deployments.
+ */
+public interface QuotaStore {
+    /**
+     * A stored value with its version.
+     */
+    final class Entry {
+        private final String value;
+        private final long version;
+
+        /**
+         * Creates an entry.
+         * @param value The stored value.
+         * @param version The version, greater than 0.
+         */
+        public Entry(String value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+
+        /**
+         * Gets the stored value.
+         * @return the value
+         */
+        public String getValue() { return value; }
+
+        /**
+         * Gets the version, which changes on every successful write.
+         * @return the version
+         */
+        public long getVersion() { return version; }
+    }
+
+    /**
+     * Reads a value.
+     * @param key The quota key.
+     * @return The entry, or null if the key has never been written.
+     * @throws IOException if the store cannot be reached.
+     */
+    Entry get(String key) throws IOException;
+
+    /**
+     * Writes a value if the stored version is still the expected one.
+     * @param key The quota key.
+     * @param expectedVersion The version read before, or 0 if the key did not exist.
+     * @param value The new value.
+     * @return true if written, false if another writer got there first.
+     * @throws IOException if the store cannot be reached.
+     */
+    boolean compareAndSet(String key, long expectedVersion, String value) throws IOException;
+}
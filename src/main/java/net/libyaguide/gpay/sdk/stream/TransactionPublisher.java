@@ -0,0 +1,167 @@
+package net.libyaguide.gpay.sdk.stream;
+
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A cold Reactive Streams publisher pulling items from a blocking cursor as the subscriber requests them.
+ * <p>
+ * Each subscription gets its own cursor. Items are pulled only while there is outstanding demand, so the
+ * cursor never fetches or parses ahead of the subscriber. Pulling runs on an executor, never on the thread
+ * calling {@link Subscription#request(long)}; signals to one subscriber are serialized.
+ * <p>
+ * Java 9+ applications using {@code java.util.concurrent.Flow} can adapt it with
+ * {@code org.reactivestreams.FlowAdapters.toFlowPublisher(publisher)}.
+ *
+ * @param <T> The item type.
+ */
+public class TransactionPublisher<T> implements Publisher<T> {
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(GPayExecutors.threadFactory("gpay-stream"));
+
+    /**
+     * A blocking source of items.
+     * @param <T> The item type.
+     */
+    @FunctionalInterface
+    public interface Cursor<T> {
+        /**
+         * Returns the next item, fetching more data if needed.
+         * @return The next item, or null when the source is exhausted.
+         * @throws Exception if fetching or parsing fails.
+         */
+        T next() throws Exception;
+    }
+
+    private final Supplier<Cursor<T>> cursors;
+    private final Executor executor;
+
+    /**
+     * Constructs a publisher pulling on the shared SDK stream threads.
+     * @param cursors Creates the cursor of each subscription.
+     */
+    public TransactionPublisher(Supplier<Cursor<T>> cursors) {
+        this(cursors, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Constructs a publisher pulling on the given executor.
+     * @param cursors Creates the cursor of each subscription.
+     * @param executor The executor running the blocking pulls.
+     */
+    public TransactionPublisher(Supplier<Cursor<T>> cursors, Executor executor) {
+        this.cursors = cursors;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        CursorSubscription<T> subscription = new CursorSubscription<>(subscriber, cursors, executor);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private static final class CursorSubscription<T> implements Subscription {
+        private final Subscriber<? super T> subscriber;
+        private final Supplier<Cursor<T>> cursors;
+        private final Executor executor;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private Cursor<T> cursor;
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        CursorSubscription(Subscriber<? super T> subscriber, Supplier<Cursor<T>> cursors, Executor executor) {
+            this.subscriber = subscriber;
+            this.cursors = cursors;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " items; must be positive (rule 3.9)");
+            } else {
+                requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                long r = requested.get();
+                long emitted = 0;
+                while (emitted != r) {
+                    if (terminated()) {
+                        return;
+                    }
+                    T item;
+                    try {
+                        if (cursor == null) {
+                            cursor = cursors.get();
+                        }
+                        item = cursor.next();
+                    } catch (Exception e) {
+                        cancelled = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+                    if (item == null) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    emitted++;
+                }
+                if (terminated()) {
+                    return;
+                }
+                if (emitted != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private boolean terminated() {
+            if (cancelled) {
+                cursor = null;
+                return true;
+            }
+            Throwable invalid = invalidRequest;
+            if (invalid != null) {
+                cancelled = true;
+                cursor = null;
+                subscriber.onError(invalid);
+                return true;
+            }
+            return false;
+        }
+    }
+}
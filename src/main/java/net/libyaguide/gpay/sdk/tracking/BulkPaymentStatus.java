@@ -0,0 +1,74 @@
+package net.libyaguide.gpay.sdk.tracking;
+
+import net.libyaguide.gpay.sdk.model.PaymentStatus;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents the result of a bulk payment status resolution.
+ * Contains the statuses found, how many were settled locally, and the requests that could not be resolved.
+ */
+public class BulkPaymentStatus {
+    /** The resolved statuses keyed by request ID. */
+    private final Map<String, PaymentStatus> statuses = new LinkedHashMap<>();
+    /** The errors of fallback calls keyed by request ID. */
+    private final Map<String, Exception> failures = new LinkedHashMap<>();
+    /** Number of statuses, paid or seen unpaid, settled from outstanding transactions or the statement. */
+    private int resolvedLocally;
+    /** Number of individual checkPaymentStatus calls made. */
+    private int fallbackCalls;
+    /** Number of snapshot calls (outstanding transactions and statement) made. */
+    private int snapshotCalls;
+
+    /**
+     * Gets the resolved statuses keyed by request ID.
+     * @return an unmodifiable view of the statuses
+     */
+    public Map<String, PaymentStatus> getStatuses() { return Collections.unmodifiableMap(statuses); }
+    /**
+     * Gets the status for a request ID.
+     * @param requestId the payment request ID
+     * @return the status, or null if it could not be resolved
+     */
+    public PaymentStatus getStatus(String requestId) { return statuses.get(requestId); }
+    /**
+     * Gets the errors of fallback calls keyed by request ID.
+     * @return an unmodifiable view of the failures
+     */
+    public Map<String, Exception> getFailures() { return Collections.unmodifiableMap(failures); }
+    /**
+     * Gets the number of statuses settled locally.
+     * @return the number of statuses settled without checkPaymentStatus
+     */
+    public int getResolvedLocally() { return resolvedLocally; }
+    /**
+     * Gets the number of individual checkPaymentStatus calls made.
+     * @return the number of fallback calls
+     */
+    public int getFallbackCalls() { return fallbackCalls; }
+    /**
+     * Gets the number of snapshot calls made.
+     * @return the number of getOutstandingTransactions and getStatement calls
+     */
+    public int getSnapshotCalls() { return snapshotCalls; }
+
+    void putLocal(PaymentStatus status) {
+        if (statuses.put(status.getRequestId(), status) == null) {
+            resolvedLocally++;
+        }
+    }
+
+    void putFallback(String requestId, PaymentStatus status) {
+        statuses.put(requestId, status);
+        fallbackCalls++;
+    }
+
+    void putFailure(String requestId, Exception error) {
+        failures.put(requestId, error);
+        fallbackCalls++;
+    }
+
+    void countSnapshot() { snapshotCalls++; }
+}
@@ -0,0 +1,274 @@
+package net.libyaguide.gpay.sdk.tracking;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.model.OutstandingTransaction;
+import net.libyaguide.gpay.sdk.model.OutstandingTransactions;
+import net.libyaguide.gpay.sdk.model.TransactionStatus;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OutstandingTransactionTracker turns the full snapshots returned by
+ * {@link GPayApiClient#getOutstandingTransactions()} into transition events.
+ * <p>
+ * The previous snapshot is kept indexed by transaction ID, so each new snapshot is compared in O(n).
+ * For every transaction that appeared, changed {@link TransactionStatus} or cleared, a
+ * {@link TransactionTransition} is published to the registered listeners.
+ * <p>
+ * <b>Adaptive polling:</b>
+ * <ul>
+ *   <li>While any transaction is PENDING the tracker polls every {@code pendingInterval}.</li>
+ *   <li>While transactions are outstanding but none is pending it polls every {@code idleInterval}.</li>
+ *   <li>While the list is empty the interval doubles on each poll, up to {@code maxIdleInterval}.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   OutstandingTransactionTracker tracker = new OutstandingTransactionTracker(client);
+ *   tracker.addListener(t -&gt; System.out.println(t));
+ *   tracker.start();
+ * </pre>
+ */
+public class OutstandingTransactionTracker {
+    private final GPayApiClient client;
+    private final List<TransactionTransitionListener> listeners = new CopyOnWriteArrayList<>();
+    // A lock rather than a monitor, so polls on virtual threads never pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<String, OutstandingTransaction> index = new HashMap<>();
+    private volatile long pendingIntervalMillis = 2000;
+    private volatile long idleIntervalMillis = 15000;
+    private volatile long maxIdleIntervalMillis = 120000;
+    private volatile long nextDelayMillis;
+    private ScheduledExecutorService scheduler;
+    private boolean ownsScheduler;
+    /** The next poll of the running loop, cancelled by stop(). */
+    private ScheduledFuture<?> pendingPoll;
+    /** Incremented by every start() and stop(); a poll of an earlier loop does not reschedule itself. */
+    private long generation;
+
+    /**
+     * Constructs a tracker for the given client.
+     * @param client The client used to fetch outstanding transactions.
+     */
+    public OutstandingTransactionTracker(GPayApiClient client) {
+        this.client = client;
+        this.nextDelayMillis = idleIntervalMillis;
+    }
+
+    /**
+     * Registers a listener for transition events.
+     * @param listener The listener to add.
+     */
+    public void addListener(TransactionTransitionListener listener) { listeners.add(listener); }
+
+    /**
+     * Removes a previously registered listener.
+     * @param listener The listener to remove.
+     */
+    public void removeListener(TransactionTransitionListener listener) { listeners.remove(listener); }
+
+    /**
+     * Fetches a new snapshot and publishes the transitions found.
+     * @return The transitions found, in the order they were published.
+     * @throws Exception if the request fails or response verification fails.
+     */
+    public List<TransactionTransition> poll() throws Exception {
+        return update(client.getOutstandingTransactions());
+    }
+
+    /**
+     * Compares the given snapshot with the previous one, publishes the transitions and keeps
+     * the snapshot as the new baseline. The first snapshot reports every transaction as APPEARED.
+     * @param snapshot The snapshot returned by getOutstandingTransactions.
+     * @return The transitions found, in the order they were published.
+     */
+    public List<TransactionTransition> update(OutstandingTransactions snapshot) {
+        List<OutstandingTransaction> txs = snapshot.getOutstandingTransactions();
+        if (txs == null) {
+            txs = Collections.emptyList();
+        }
+        List<TransactionTransition> transitions = new ArrayList<>();
+        boolean anyPending = false;
+        lock.lock();
+        try {
+            Map<String, OutstandingTransaction> previous = index;
+            Map<String, OutstandingTransaction> current = new HashMap<>(Math.max(16, txs.size() * 4 / 3 + 1));
+            for (OutstandingTransaction tx : txs) {
+                current.put(tx.getTransactionId(), tx);
+                if (tx.getStatus() == TransactionStatus.PENDING) {
+                    anyPending = true;
+                }
+                OutstandingTransaction old = previous.remove(tx.getTransactionId());
+                if (old == null) {
+                    transitions.add(new TransactionTransition(TransactionTransition.Type.APPEARED, tx.getTransactionId(), null, tx));
+                } else if (old.getStatus() != tx.getStatus()) {
+                    transitions.add(new TransactionTransition(TransactionTransition.Type.STATUS_CHANGED, tx.getTransactionId(), old, tx));
+                }
+            }
+            // Whatever is left in the previous index did not appear in the new snapshot
+            for (OutstandingTransaction old : previous.values()) {
+                transitions.add(new TransactionTransition(TransactionTransition.Type.CLEARED, old.getTransactionId(), old, null));
+            }
+            index = current;
+            nextDelayMillis = computeNextDelay(anyPending, current.isEmpty());
+        } finally {
+            lock.unlock();
+        }
+        for (TransactionTransition transition : transitions) {
+            for (TransactionTransitionListener listener : listeners) {
+                listener.onTransition(transition);
+            }
+        }
+        return transitions;
+    }
+
+    private long computeNextDelay(boolean anyPending, boolean empty) {
+        if (anyPending) {
+            return pendingIntervalMillis;
+        }
+        if (!empty) {
+            return idleIntervalMillis;
+        }
+        // Back off while nothing is outstanding
+        long doubled = Math.max(nextDelayMillis, idleIntervalMillis) * 2;
+        return Math.min(doubled, maxIdleIntervalMillis);
+    }
+
+    /**
+     * Returns the transactions of the last snapshot, indexed by transaction ID.
+     * @return An unmodifiable copy of the current index.
+     */
+    public Map<String, OutstandingTransaction> getCurrent() {
+        lock.lock();
+        try {
+            return Collections.unmodifiableMap(new HashMap<>(index));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the delay before the next scheduled poll, as chosen after the last snapshot.
+     * @return the delay in milliseconds
+     */
+    public long getNextDelayMillis() { return nextDelayMillis; }
+
+    /**
+     * Starts polling on a private single-thread scheduler (a virtual thread on Java 21 and later).
+     */
+    public void start() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(GPayExecutors.threadFactory("gpay-outstanding-tracker"));
+        try {
+            start(executor, true);
+        } catch (IllegalStateException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts polling on the given scheduler. The first poll runs immediately.
+     * @param executor The scheduler to run polls on.
+     */
+    public void start(ScheduledExecutorService executor) {
+        start(executor, false);
+    }
+
+    private void start(ScheduledExecutorService executor, boolean owned) {
+        lock.lock();
+        try {
+            if (scheduler != null) {
+                throw new IllegalStateException("Tracker already started");
+            }
+            // Set together with the scheduler, so a stop() in between cannot leave an owned scheduler running
+            scheduler = executor;
+            ownsScheduler = owned;
+            long current = ++generation;
+            pendingPoll = executor.schedule(() -> scheduledPoll(current), 0, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops polling. The next poll is cancelled, and a scheduler created by {@link #start()} is shut down.
+     * A poll already running completes but does not schedule another.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            if (pendingPoll != null) {
+                pendingPoll.cancel(false);
+                pendingPoll = null;
+            }
+            if (scheduler != null && ownsScheduler) {
+                scheduler.shutdownNow();
+            }
+            scheduler = null;
+            generation++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void scheduledPoll(long loop) {
+        try {
+            poll();
+        } catch (Exception e) {
+            for (TransactionTransitionListener listener : listeners) {
+                try {
+                    listener.onError(e);
+                } catch (RuntimeException ignored) {
+                    // One failing listener must not keep the error from the others
+                }
+            }
+        } finally {
+            // Reschedule even if a listener threw, or polling would stop silently
+            lock.lock();
+            try {
+                // A loop stopped (and possibly restarted) while this poll ran ends here
+                if (loop == generation && scheduler != null && !scheduler.isShutdown()) {
+                    pendingPoll = scheduler.schedule(() -> scheduledPoll(loop), nextDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (RejectedExecutionException ignored) {
+                // The scheduler was shut down by its owner
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the polling interval used while any transaction is pending.
+     * @return the interval in milliseconds
+     */
+    public long getPendingIntervalMillis() { return pendingIntervalMillis; }
+    /**
+     * Sets the polling interval used while any transaction is pending.
+     * @param pendingIntervalMillis the interval in milliseconds
+     */
+    public void setPendingIntervalMillis(long pendingIntervalMillis) { this.pendingIntervalMillis = pendingIntervalMillis; }
+    /**
+     * Gets the polling interval used while transactions are outstanding but none is pending.
+     * @return the interval in milliseconds
+     */
+    public long getIdleIntervalMillis() { return idleIntervalMillis; }
+    /**
+     * Sets the polling interval used while transactions are outstanding but none is pending.
+     * @param idleIntervalMillis the interval in milliseconds
+     */
+    public void setIdleIntervalMillis(long idleIntervalMillis) { this.idleIntervalMillis = idleIntervalMillis; }
+    /**
+     * Gets the upper bound of the back-off interval used while the list is empty.
+     * @return the interval in milliseconds
+     */
+    public long getMaxIdleIntervalMillis() { return maxIdleIntervalMillis; }
+    /**
+     * Sets the upper bound of the back-off interval used while the list is empty.
+     * @param maxIdleIntervalMillis the interval in milliseconds
+     */
+    public void setMaxIdleIntervalMillis(long maxIdleIntervalMillis) { this.maxIdleIntervalMillis = maxIdleIntervalMillis; }
+}
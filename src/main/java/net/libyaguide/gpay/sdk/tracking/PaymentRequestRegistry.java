@@ -0,0 +1,470 @@
+package net.libyaguide.gpay.sdk.tracking;
+
+import net.libyaguide.gpay.sdk.client.CrcLines;
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.model.PaymentRequest;
+import net.libyaguide.gpay.sdk.model.PaymentStatus;
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PaymentRequestRegistry makes createPaymentRequest idempotent per reference number.
+ * <p>
+ * <b>Behavior:</b>
+ * <ul>
+ *   <li>The first call for a reference number creates the payment request; later calls with the same
+ *       reference number and amount get the same {@link PaymentRequest} back without calling GPay.</li>
+ *   <li>A duplicate arriving while the first call is still running waits for it and gets its result, or its
+ *       failure. Failed calls are not remembered, so the next call tries again.</li>
+ *   <li>A duplicate with a different amount is rejected with {@link IllegalArgumentException}.</li>
+ *   <li>Calls without a reference number are passed through unchanged.</li>
+ * </ul>
+ *
+ * <b>Eviction:</b>
+ * <ul>
+ *   <li>An entry is evicted when it is settled: through {@link #settle(String)}, or when
+ *       {@link #checkPaymentStatus(String)} finds it paid.</li>
+ *   <li>Entries older than {@code ttlMillis} expire; they are swept at most once a minute, on the next call.</li>
+ * </ul>
+ *
+ * <b>Persistence:</b> with a file, issued requests survive restarts. The file holds one {@link CrcLines} line
+ * per issue or eviction: the CRC32 of the JSON payload in hex, a space, and the payload.
+ * <ul>
+ *   <li>The issue line is forced to disk before createPaymentRequest returns. If it cannot be written,
+ *       createPaymentRequest throws; the request stays registered in memory only.</li>
+ *   <li>A failed eviction line is only counted in {@link #getWriteErrors()}: the entry comes back after a
+ *       restart, until it is settled or expires again.</li>
+ *   <li>A failed write is cut off again, so later lines never follow a torn one. A torn last line is truncated
+ *       on open; a bad line followed by good ones fails the open.</li>
+ *   <li>The file is rewritten with only the live entries once most lines are stale.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   PaymentRequestRegistry registry = new PaymentRequestRegistry(client, Paths.get("payment-requests.log"));
+ *   PaymentRequest request = registry.createPaymentRequest(amount, orderId, "Order " + orderId);
+ *   PaymentStatus status = registry.checkPaymentStatus(orderId);   // evicts the entry once paid
+ * </pre>
+ */
+public class PaymentRequestRegistry implements Closeable {
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private final GPayApiClient client;
+    private final Path file;
+    private final Gson gson = new Gson();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock fileLock = new ReentrantLock();
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private FileChannel channel;
+    private long lines;
+    private volatile long ttlMillis = 24 * 60 * 60 * 1000L;
+    private volatile long nextSweep;
+
+    private static final class Entry {
+        final CompletableFuture<PaymentRequest> future = new CompletableFuture<>();
+        /** The amount the request was issued for, or null if an old registry line did not record it. */
+        final BigDecimal amount;
+        final long expiresAt;
+        Entry(BigDecimal amount, long expiresAt) {
+            this.amount = amount;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A line of the registry file.
+     */
+    private static final class Record {
+        String referenceNo;
+        boolean evicted;
+        String requestId;
+        String requesterUsername;
+        Long requestTime;
+        String amount;
+        /** The amount passed to createPaymentRequest, which duplicates are checked against. */
+        String requestedAmount;
+        Long responseTimestamp;
+        long expiresAt;
+    }
+
+    /**
+     * Constructs a registry kept in memory only.
+     * @param client The client creating the payment requests.
+     */
+    public PaymentRequestRegistry(GPayApiClient client) {
+        this.client = client;
+        this.file = null;
+    }
+
+    /**
+     * Constructs a registry persisted to a file, loading the entries issued before.
+     * @param client The client creating the payment requests.
+     * @param file The registry file, created if needed.
+     * @throws IOException if the file cannot be read or opened.
+     */
+    public PaymentRequestRegistry(GPayApiClient client, Path file) throws IOException {
+        this.client = client;
+        this.file = file;
+        load();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Creates a payment request, or returns the one already issued for the reference number.
+     * @param amount The amount to request.
+     * @param referenceNo The reference number that identifies the request, e.g. the order ID.
+     * @param description The description.
+     * @return The payment request.
+     * @throws IllegalArgumentException if the reference number was issued with a different amount.
+     * @throws IOException if the request was created but could not be written to the registry file; it stays
+     *         registered in memory, so a retry in this process gets it back.
+     * @throws Exception if the request fails or response verification fails.
+     */
+    public PaymentRequest createPaymentRequest(BigDecimal amount, String referenceNo, String description) throws Exception {
+        if (referenceNo == null || referenceNo.isEmpty()) {
+            return client.createPaymentRequest(amount, referenceNo, description);
+        }
+        long now = System.currentTimeMillis();
+        sweep(now);
+        Entry mine = new Entry(amount, now + ttlMillis);
+        while (true) {
+            Entry existing = entries.putIfAbsent(referenceNo, mine);
+            if (existing == null) {
+                break;
+            }
+            if (existing.future.isDone() && existing.expiresAt <= now) {
+                entries.remove(referenceNo, existing);
+                continue;
+            }
+            if (existing.amount != null && existing.amount.compareTo(amount) != 0) {
+                throw new IllegalArgumentException("Reference number " + referenceNo + " was already issued for "
+                    + existing.amount.toPlainString() + ", not " + amount.toPlainString());
+            }
+            (existing.future.isDone() ? hits : joined).incrementAndGet();
+            return await(existing.future);
+        }
+        PaymentRequest request;
+        try {
+            request = client.createPaymentRequest(amount, referenceNo, description);
+        } catch (Exception e) {
+            // Not remembered: the next call tries again
+            entries.remove(referenceNo, mine);
+            mine.future.completeExceptionally(e);
+            throw e;
+        }
+        issued.incrementAndGet();
+        // Written and completed under the file lock: a settle() can only evict a completed entry, so its eviction
+        // line always follows the issue line, and a compaction cannot run between the two and miss the entry
+        IOException failure = null;
+        fileLock.lock();
+        try {
+            append(issuedRecord(referenceNo, request, amount, mine.expiresAt));
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            // Completed even if the line is lost: the request exists, and a retry must not issue a second one
+            mine.future.complete(request);
+            fileLock.unlock();
+        }
+        if (failure != null) {
+            throw new IOException("Payment request " + request.getRequestId() + " for reference number " + referenceNo
+                + " was created but could not be recorded in " + file, failure);
+        }
+        return request;
+    }
+
+    /**
+     * Checks the status of the payment request issued for a reference number, and evicts it if it is paid.
+     * @param referenceNo The reference number.
+     * @return The status, or null if no payment request is registered for the reference number.
+     * @throws Exception if the request fails or response verification fails.
+     */
+    public PaymentStatus checkPaymentStatus(String referenceNo) throws Exception {
+        PaymentRequest request = get(referenceNo);
+        if (request == null) {
+            return null;
+        }
+        PaymentStatus status = client.checkPaymentStatus(request.getRequestId());
+        if (status.isPaid()) {
+            settle(referenceNo);
+        }
+        return status;
+    }
+
+    /**
+     * Gets the payment request issued for a reference number.
+     * @param referenceNo The reference number.
+     * @return The payment request, or null if none is registered or it is still being created.
+     */
+    public PaymentRequest get(String referenceNo) {
+        Entry entry = entries.get(referenceNo);
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            return null;
+        }
+        return entry.future.join();
+    }
+
+    /**
+     * Gets the registered payment requests, e.g. to resolve them with a {@link PaymentStatusResolver}.
+     * @return The issued payment requests that are neither settled nor expired.
+     */
+    public List<PaymentRequest> getIssued() {
+        List<PaymentRequest> requests = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Entry entry : entries.values()) {
+            if (entry.future.isDone() && !entry.future.isCompletedExceptionally() && entry.expiresAt > now) {
+                requests.add(entry.future.join());
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Evicts the payment request of a settled reference number. A later call with the reference number
+     * creates a new payment request.
+     * @param referenceNo The reference number.
+     * @return true if an entry was evicted.
+     */
+    public boolean settle(String referenceNo) {
+        Entry entry = entries.get(referenceNo);
+        if (entry == null || !entry.future.isDone() || !entries.remove(referenceNo, entry)) {
+            return false;
+        }
+        evicted.incrementAndGet();
+        Record record = new Record();
+        record.referenceNo = referenceNo;
+        record.evicted = true;
+        try {
+            append(record);
+        } catch (IOException e) {
+            // Counted; the entry only comes back after a restart
+        }
+        return true;
+    }
+
+    private void sweep(long now) {
+        if (now < nextSweep) {
+            return;
+        }
+        nextSweep = now + SWEEP_INTERVAL_MILLIS;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.future.isDone() && entry.expiresAt <= now && entries.remove(e.getKey(), entry)) {
+                evicted.incrementAndGet();
+            }
+        }
+        // Expired lines need no eviction record; they are skipped on load and dropped by compaction
+        compactIfStale();
+    }
+
+    private static Record issuedRecord(String referenceNo, PaymentRequest request, BigDecimal requestedAmount, long expiresAt) {
+        Record record = new Record();
+        record.referenceNo = referenceNo;
+        record.requestId = request.getRequestId();
+        record.requesterUsername = request.getRequesterUsername();
+        record.requestTime = request.getRequestTime() == null ? null : request.getRequestTime().getTime();
+        record.amount = request.getAmount() == null ? null : request.getAmount().toPlainString();
+        record.requestedAmount = requestedAmount == null ? null : requestedAmount.toPlainString();
+        record.responseTimestamp = request.getResponseTimestamp() == null ? null : request.getResponseTimestamp().getTime();
+        record.expiresAt = expiresAt;
+        return record;
+    }
+
+    private static PaymentRequest toRequest(Record record) {
+        PaymentRequest request = new PaymentRequest();
+        request.setReferenceNo(record.referenceNo);
+        request.setRequestId(record.requestId);
+        request.setRequesterUsername(record.requesterUsername);
+        request.setRequestTime(record.requestTime == null ? null : new Date(record.requestTime));
+        request.setAmount(record.amount == null ? null : new BigDecimal(record.amount));
+        request.setResponseTimestamp(record.responseTimestamp == null ? null : new Date(record.responseTimestamp));
+        return request;
+    }
+
+    /**
+     * Writes a line and forces it to disk. A failed line is cut off again and counted.
+     */
+    private void append(Record record) throws IOException {
+        if (file == null) {
+            return;
+        }
+        fileLock.lock();
+        try {
+            CrcLines.append(channel, ByteBuffer.wrap(encode(record)));
+            lines++;
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            throw e;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long valid = CrcLines.scan(file, true, payload -> {
+            Record record = decode(payload);
+            if (record.evicted) {
+                entries.remove(record.referenceNo);
+            } else if (record.expiresAt > now) {
+                String amount = record.requestedAmount != null ? record.requestedAmount : record.amount;
+                Entry entry = new Entry(amount == null ? null : new BigDecimal(amount), record.expiresAt);
+                entry.future.complete(toRequest(record));
+                entries.put(record.referenceNo, entry);
+            }
+            lines++;
+        });
+        // An unterminated or corrupt last line is a torn write
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            CrcLines.truncate(ch, valid);
+        }
+    }
+
+    /**
+     * Rewrites the file with the live entries once more than half of its lines are stale.
+     */
+    private void compactIfStale() {
+        if (file == null) {
+            return;
+        }
+        fileLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            List<Record> live = new ArrayList<>();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.future.isDone() && !entry.future.isCompletedExceptionally() && entry.expiresAt > now) {
+                    live.add(issuedRecord(e.getKey(), entry.future.join(), entry.amount, entry.expiresAt));
+                }
+            }
+            if (lines < 1000 || lines < 2L * live.size()) {
+                return;
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".compact");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Record record : live) {
+                    ByteBuffer line = ByteBuffer.wrap(encode(record));
+                    while (line.hasRemaining()) {
+                        out.write(line);
+                    }
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            lines = live.size();
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            try {
+                if (!channel.isOpen()) {
+                    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+            } catch (IOException reopen) {
+                writeErrors.incrementAndGet();
+            }
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private Record decode(String json) throws IOException {
+        try {
+            return gson.fromJson(json, Record.class);
+        } catch (RuntimeException e) {
+            throw new IOException("Unreadable payment request registry line: " + json, e);
+        }
+    }
+
+    private byte[] encode(Record record) {
+        return CrcLines.encode(gson.toJson(record));
+    }
+
+    private static PaymentRequest await(CompletableFuture<PaymentRequest> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Closes the registry file. The registry must not be used afterwards.
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (file == null) {
+            return;
+        }
+        fileLock.lock();
+        try {
+            channel.close();
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    // Getters and setters
+    /**
+     * Gets how long an issued payment request is remembered.
+     * @return milliseconds
+     */
+    public long getTtlMillis() { return ttlMillis; }
+    /**
+     * Sets how long an issued payment request is remembered (default: 24 hours). Set it to at least the time
+     * a payment request stays payable, so a retry cannot issue a second one for the same order.
+     * @param ttlMillis milliseconds
+     */
+    public void setTtlMillis(long ttlMillis) { this.ttlMillis = ttlMillis; }
+    /**
+     * Gets the number of registered reference numbers, including calls still running.
+     * @return the number of entries
+     */
+    public int size() { return entries.size(); }
+    /**
+     * Gets the number of payment requests created through the registry.
+     * @return the number of created requests
+     */
+    public long getIssuedCount() { return issued.get(); }
+    /**
+     * Gets the number of duplicate calls answered from the registry.
+     * @return the number of hits
+     */
+    public long getHits() { return hits.get(); }
+    /**
+     * Gets the number of duplicate calls that joined a call still running.
+     * @return the number of joined calls
+     */
+    public long getJoined() { return joined.get(); }
+    /**
+     * Gets the number of entries evicted as settled or expired.
+     * @return the number of evictions
+     */
+    public long getEvicted() { return evicted.get(); }
+    /**
+     * Gets the number of failed writes to the registry file.
+     * @return the number of write errors
+     */
+    public long getWriteErrors() { return writeErrors.get(); }
+}
@@ -0,0 +1,187 @@
+package net.libyaguide.gpay.sdk.tracking;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * PaymentStatusResolver settles many pending payment requests with a constant number of calls.
+ * <p>
+ * Instead of one {@link GPayApiClient#checkPaymentStatus(String)} round trip per request, the resolver:
+ * <ol>
+ *   <li>Fetches one {@link GPayApiClient#getOutstandingTransactions()} snapshot.</li>
+ *   <li>If requests remain, fetches the statement of the current day with {@link GPayApiClient#getStatement(String)}.</li>
+ *   <li>Matches payment transactions to requests by reference number and amount, skipping transaction IDs already seen.</li>
+ *   <li>Falls back to checkPaymentStatus only for the requests still unresolved.</li>
+ * </ol>
+ * A request is settled locally only when its reference number is unique among the pending requests and a
+ * payment transaction with that reference number and the same amount exists. Requests without a reference
+ * number always use the fallback.
+ * <p>
+ * Only a statement row with a completed or applied {@link TransactionStatus} marks a request paid. An outstanding
+ * transaction, or a statement row that is still pending, marks it seen but not paid; such a request is reported
+ * unpaid without a fallback call.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   PaymentStatusResolver resolver = new PaymentStatusResolver(client);
+ *   BulkPaymentStatus result = resolver.resolve(pendingRequests);
+ *   PaymentStatus status = result.getStatus(requestId);
+ * </pre>
+ */
+public class PaymentStatusResolver {
+    private final GPayApiClient client;
+    private ZoneId zone = ZoneId.of("Africa/Tripoli");
+    private boolean statementLookupEnabled = true;
+    private boolean fallbackEnabled = true;
+
+    /**
+     * Constructs a resolver for the given client.
+     * @param client The client used for snapshot and fallback calls.
+     */
+    public PaymentStatusResolver(GPayApiClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Resolves the status of the given payment requests.
+     * @param requests The payment requests, as returned by createPaymentRequest.
+     * @return BulkPaymentStatus with the statuses, counters and fallback failures.
+     * @throws Exception if a snapshot request fails or response verification fails.
+     */
+    public BulkPaymentStatus resolve(Collection<PaymentRequest> requests) throws Exception {
+        BulkPaymentStatus result = new BulkPaymentStatus();
+        // Pending requests keyed by reference number; ambiguous references are left to the fallback
+        Map<String, List<PaymentRequest>> grouped = new LinkedHashMap<>();
+        List<PaymentRequest> unmatchable = new ArrayList<>();
+        for (PaymentRequest request : requests) {
+            String ref = request.getReferenceNo();
+            if (ref == null || ref.isEmpty()) {
+                unmatchable.add(request);
+            } else {
+                grouped.computeIfAbsent(ref, k -> new ArrayList<>(1)).add(request);
+            }
+        }
+        Map<String, PaymentRequest> byReference = new HashMap<>();
+        for (Map.Entry<String, List<PaymentRequest>> entry : grouped.entrySet()) {
+            if (entry.getValue().size() == 1) {
+                byReference.put(entry.getKey(), entry.getValue().get(0));
+            } else {
+                unmatchable.addAll(entry.getValue());
+            }
+        }
+
+        Set<String> seenTransactions = new HashSet<>();
+        Set<String> seenUnpaid = new HashSet<>();
+        if (!byReference.isEmpty()) {
+            OutstandingTransactions outstanding = client.getOutstandingTransactions();
+            result.countSnapshot();
+            if (outstanding.getOutstandingTransactions() != null) {
+                for (OutstandingTransaction tx : outstanding.getOutstandingTransactions()) {
+                    // Outstanding transactions are not settled by definition
+                    match(result, byReference, seenTransactions, seenUnpaid, false, tx.getTransactionId(), tx.getReferenceNo(),
+                        tx.getAmount(), tx.getTimestamp(), tx.getDescription(), tx.getOpTypeId(), outstanding.getResponseTimestamp());
+                }
+            }
+        }
+        if (!byReference.isEmpty() && statementLookupEnabled) {
+            Statement statement = client.getStatement(LocalDate.now(zone).toString());
+            result.countSnapshot();
+            if (statement.getDayStatement() != null) {
+                for (StatementTransaction tx : statement.getDayStatement()) {
+                    boolean settled = tx.getStatus() == TransactionStatus.COMPLETED || tx.getStatus() == TransactionStatus.APPLIED;
+                    match(result, byReference, seenTransactions, seenUnpaid, settled, tx.getTransactionId(), tx.getReferenceNo(),
+                        tx.getAmount(), tx.getTimestamp(), tx.getDescription(), tx.getOpTypeId(), statement.getResponseTimestamp());
+                }
+            }
+        }
+
+        if (fallbackEnabled) {
+            List<PaymentRequest> leftovers = new ArrayList<>(unmatchable);
+            for (Map.Entry<String, PaymentRequest> entry : byReference.entrySet()) {
+                if (!seenUnpaid.contains(entry.getKey())) {
+                    leftovers.add(entry.getValue());
+                }
+            }
+            for (PaymentRequest request : leftovers) {
+                try {
+                    result.putFallback(request.getRequestId(), client.checkPaymentStatus(request.getRequestId()));
+                } catch (Exception e) {
+                    result.putFailure(request.getRequestId(), e);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void match(BulkPaymentStatus result, Map<String, PaymentRequest> byReference, Set<String> seenTransactions,
+                       Set<String> seenUnpaid, boolean settled, String transactionId, String referenceNo, BigDecimal amount,
+                       Date timestamp, String description, OperationType opType, Date responseTimestamp) {
+        if (referenceNo == null || (opType != null && opType != OperationType.PAYMENT_REQUEST)) {
+            return;
+        }
+        PaymentRequest request = byReference.get(referenceNo);
+        if (request == null || amount == null || request.getAmount() == null
+                || amount.abs().compareTo(request.getAmount().abs()) != 0) {
+            return;
+        }
+        PaymentStatus status = new PaymentStatus();
+        status.setRequestId(request.getRequestId());
+        status.setAmount(request.getAmount());
+        status.setReferenceNo(referenceNo);
+        status.setDescription(description);
+        status.setResponseTimestamp(responseTimestamp);
+        if (!settled) {
+            // Seen but not paid; a settled row later in the statement still wins
+            if (seenUnpaid.add(referenceNo)) {
+                status.setPaid(false);
+                result.putLocal(status);
+            }
+            return;
+        }
+        if (transactionId != null && !seenTransactions.add(transactionId)) {
+            return;
+        }
+        byReference.remove(referenceNo);
+        status.setTransactionId(transactionId);
+        status.setPaymentTimestamp(timestamp);
+        status.setPaid(true);
+        result.putLocal(status);
+    }
+
+    /**
+     * Gets the time zone used to determine the current statement day.
+     * @return the time zone
+     */
+    public ZoneId getZone() { return zone; }
+    /**
+     * Sets the time zone used to determine the current statement day (default: Africa/Tripoli).
+     * @param zone the time zone
+     */
+    public void setZone(ZoneId zone) { this.zone = zone; }
+    /**
+     * Checks whether the current day statement is fetched for requests not in the outstanding snapshot.
+     * @return true if the statement lookup is enabled
+     */
+    public boolean isStatementLookupEnabled() { return statementLookupEnabled; }
+    /**
+     * Enables or disables the current day statement lookup.
+     * @param statementLookupEnabled true to fetch the statement when needed
+     */
+    public void setStatementLookupEnabled(boolean statementLookupEnabled) { this.statementLookupEnabled = statementLookupEnabled; }
+    /**
+     * Checks whether unresolved requests fall back to checkPaymentStatus.
+     * @return true if the fallback is enabled
+     */
+    public boolean isFallbackEnabled() { return fallbackEnabled; }
+    /**
+     * Enables or disables the checkPaymentStatus fallback. When disabled, unresolved requests are
+     * simply missing from the result.
+     * @param fallbackEnabled true to resolve leftovers individually
+     */
+    public void setFallbackEnabled(boolean fallbackEnabled) { this.fallbackEnabled = fallbackEnabled; }
+}
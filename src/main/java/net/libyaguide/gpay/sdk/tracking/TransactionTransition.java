@@ -0,0 +1,76 @@
+package net.libyaguide.gpay.sdk.tracking;
+
+import net.libyaguide.gpay.sdk.model.OutstandingTransaction;
+import net.libyaguide.gpay.sdk.model.TransactionStatus;
+
+/**
+ * Represents a change of a single outstanding transaction between two snapshots.
+ */
+public class TransactionTransition {
+    /**
+     * Enum representing the kind of transition.
+     */
+    public enum Type {
+        /** The transaction was not in the previous snapshot. */
+        APPEARED,
+        /** The transaction is in both snapshots with a different status. */
+        STATUS_CHANGED,
+        /** The transaction was in the previous snapshot and is no longer outstanding. */
+        CLEARED
+    }
+
+    private final Type type;
+    private final String transactionId;
+    private final OutstandingTransaction previous;
+    private final OutstandingTransaction current;
+
+    /**
+     * Constructs a TransactionTransition.
+     * @param type The kind of transition.
+     * @param transactionId The transaction ID.
+     * @param previous The transaction from the previous snapshot, or null if it appeared.
+     * @param current The transaction from the current snapshot, or null if it cleared.
+     */
+    public TransactionTransition(Type type, String transactionId, OutstandingTransaction previous, OutstandingTransaction current) {
+        this.type = type;
+        this.transactionId = transactionId;
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /**
+     * Gets the kind of transition.
+     * @return the transition type
+     */
+    public Type getType() { return type; }
+    /**
+     * Gets the transaction ID.
+     * @return the transaction ID
+     */
+    public String getTransactionId() { return transactionId; }
+    /**
+     * Gets the transaction as seen in the previous snapshot.
+     * @return the previous transaction, or null for APPEARED
+     */
+    public OutstandingTransaction getPrevious() { return previous; }
+    /**
+     * Gets the transaction as seen in the current snapshot.
+     * @return the current transaction, or null for CLEARED
+     */
+    public OutstandingTransaction getCurrent() { return current; }
+    /**
+     * Gets the status before the transition.
+     * @return the previous status, or null for APPEARED
+     */
+    public TransactionStatus getPreviousStatus() { return previous == null ? null : previous.getStatus(); }
+    /**
+     * Gets the status after the transition.
+     * @return the current status, or null for CLEARED
+     */
+    public TransactionStatus getCurrentStatus() { return current == null ? null : current.getStatus(); }
+
+    @Override
+    public String toString() {
+        return type + " " + transactionId + " (" + getPreviousStatus() + " -> " + getCurrentStatus() + ")";
+    }
+}
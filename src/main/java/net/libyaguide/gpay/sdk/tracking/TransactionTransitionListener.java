@@ -0,0 +1,18 @@
+package net.libyaguide.gpay.sdk.tracking;
+
+/**
+ * Listener notified by {@link OutstandingTransactionTracker} when outstanding transactions change.
+ */
+public interface TransactionTransitionListener {
+    /**
+     * Called once for each transition found while comparing two snapshots.
+     * @param transition The transition.
+     */
+    void onTransition(TransactionTransition transition);
+
+    /**
+     * Called when a scheduled poll fails. The tracker keeps polling afterwards.
+     * @param error The error thrown by the client.
+     */
+    default void onError(Exception error) { }
+}
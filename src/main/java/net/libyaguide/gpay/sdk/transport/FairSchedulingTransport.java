@@ -0,0 +1,622 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import net.libyaguide.gpay.sdk.client.CancellationToken;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FairSchedulingTransport shares another transport between tenants, keyed by the API key of each request,
+ * with deficit round-robin.
+ * <p>
+ * <b>Scheduling:</b>
+ * <ul>
+ *   <li>At most {@code totalLimit} exchanges run on the underlying transport at a time. Calls beyond that wait
+ *       in a queue per tenant.</li>
+ *   <li>When a slot frees up, tenants with waiting calls take turns; on its turn a tenant may start as many
+ *       calls as its weight. A tenant with a single waiting call is therefore served within one round, however
+ *       many calls a large tenant has queued, while a busy tenant still gets every slot nobody else wants.</li>
+ *   <li>Each tenant also has its own concurrency limit and queue limit. A call arriving at a full tenant queue
+ *       is rejected with {@link RejectedExecutionException}.</li>
+ *   <li>Time spent queued counts against the request's timeout; cancelling its token removes a queued call.</li>
+ *   <li>{@link #executeAsync} queues without blocking: the returned future starts the exchange once a slot is
+ *       granted, so no pool thread waits for a slot.</li>
+ * </ul>
+ * Queue depth, calls in flight and wait times are exposed per tenant through {@link #getStats(String)}.
+ * Tenants without their own limits use the defaults.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   FairSchedulingTransport shared = new FairSchedulingTransport(new OkHttpTransport(), 64);
+ *   shared.setDefaultTenantLimit(16, 1, 1000);
+ *   shared.setTenantLimit(bigMerchantApiKey, 48, 4, 10000);
+ *   GPayApiClient merchantA = new GPayApiClient(apiKeyA, secretKeyA, passwordA, baseUrl, "en", shared);
+ *   GPayApiClient merchantB = new GPayApiClient(apiKeyB, secretKeyB, passwordB, baseUrl, "en", shared);
+ * </pre>
+ */
+public class FairSchedulingTransport implements GPayTransport {
+    private static final String BEARER = "Bearer ";
+
+    private final GPayTransport delegate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, TenantState> tenants = new HashMap<>();
+    /** Tenants with waiting calls, in round-robin order; the head has the turn. */
+    private final ArrayDeque<TenantState> active = new ArrayDeque<>();
+    private int totalLimit;
+    private int totalInFlight;
+    private int defaultLimit;
+    private int defaultWeight = 1;
+    private int defaultMaxQueue = 1000;
+    /** Expires queued asynchronous calls; created on first use. */
+    private ScheduledThreadPoolExecutor timer;
+
+    private static final class Waiter {
+        final Condition condition;
+        /** Completed when an asynchronous call is granted a slot; null for blocking calls. */
+        final CompletableFuture<TenantState> admission;
+        final TenantState tenant;
+        final long start;
+        boolean granted;
+        boolean cancelled;
+        Waiter(Condition condition) { this(condition, null, null, 0); }
+        Waiter(Condition condition, CompletableFuture<TenantState> admission, TenantState tenant, long start) {
+            this.condition = condition;
+            this.admission = admission;
+            this.tenant = tenant;
+            this.start = start;
+        }
+    }
+
+    private static final class TenantState {
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        boolean configured;
+        int limit;
+        int weight;
+        int maxQueue;
+        int inFlight;
+        int deficit;
+        boolean turn;
+        boolean active;
+        int maxQueued;
+        long admitted;
+        long rejected;
+        long totalWaitNanos;
+        long maxWaitNanos;
+    }
+
+    /**
+     * Snapshot of the counters of a tenant.
+     */
+    public static final class TenantStats {
+        private final int queued;
+        private final int maxQueued;
+        private final int inFlight;
+        private final long admitted;
+        private final long rejected;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        TenantStats(int queued, int maxQueued, int inFlight, long admitted, long rejected, long totalWaitNanos, long maxWaitNanos) {
+            this.queued = queued;
+            this.maxQueued = maxQueued;
+            this.inFlight = inFlight;
+            this.admitted = admitted;
+            this.rejected = rejected;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        /**
+         * Gets the number of calls waiting in the tenant queue.
+         * @return the queue depth
+         */
+        public int getQueued() { return queued; }
+        /**
+         * Gets the deepest the tenant queue has been.
+         * @return the peak queue depth
+         */
+        public int getMaxQueued() { return maxQueued; }
+        /**
+         * Gets the number of calls of the tenant in flight.
+         * @return the calls in flight
+         */
+        public int getInFlight() { return inFlight; }
+        /**
+         * Gets the number of calls admitted since the transport was created.
+         * @return the admitted calls
+         */
+        public long getAdmitted() { return admitted; }
+        /**
+         * Gets the number of calls rejected because the tenant queue was full, or that timed out or were cancelled while queued.
+         * @return the rejected calls
+         */
+        public long getRejected() { return rejected; }
+        /**
+         * Gets the average time admitted calls waited for a slot.
+         * @return the average wait in nanoseconds
+         */
+        public long getAverageWaitNanos() { return admitted == 0 ? 0 : totalWaitNanos / admitted; }
+        /**
+         * Gets the longest time an admitted call waited for a slot.
+         * @return the maximum wait in nanoseconds
+         */
+        public long getMaxWaitNanos() { return maxWaitNanos; }
+
+        @Override
+        public String toString() {
+            return "queued=" + queued + ", maxQueued=" + maxQueued + ", inFlight=" + inFlight + ", admitted=" + admitted
+                + ", rejected=" + rejected + ", avgWaitMicros=" + getAverageWaitNanos() / 1000 + ", maxWaitMicros=" + maxWaitNanos / 1000;
+        }
+    }
+
+    /**
+     * Constructs a scheduler in front of another transport.
+     * @param delegate The transport executing the exchanges.
+     * @param totalLimit The maximum number of exchanges in flight across all tenants.
+     */
+    public FairSchedulingTransport(GPayTransport delegate, int totalLimit) {
+        if (totalLimit < 1) {
+            throw new IllegalArgumentException("totalLimit must be at least 1");
+        }
+        this.delegate = delegate;
+        this.totalLimit = totalLimit;
+        this.defaultLimit = totalLimit;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        String apiKey = apiKeyOf(request);
+        long start = System.nanoTime();
+        TenantState tenant = admit(apiKey, request);
+        long waited = System.nanoTime() - start;
+        try {
+            if (request.getTimeoutNanos() != Long.MAX_VALUE) {
+                long remaining = request.getTimeoutNanos() - waited;
+                if (remaining <= 0) {
+                    throw new InterruptedIOException("Deadline exceeded waiting for a transport slot");
+                }
+                request.setTimeoutNanos(remaining);
+            }
+            return delegate.execute(request);
+        } finally {
+            release(tenant);
+        }
+    }
+
+    /**
+     * Queues the request like {@link #execute} without blocking the caller, then runs it with the underlying
+     * transport's {@code executeAsync}.
+     * @param request The request.
+     * @return A future completed with the response, or exceptionally with a {@link RejectedExecutionException}
+     *         if the tenant queue is full or an {@link InterruptedIOException} if the call times out or is
+     *         cancelled while queued.
+     */
+    @Override
+    public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        long start = System.nanoTime();
+        CompletableFuture<TenantState> admission = new CompletableFuture<>();
+        Waiter waiter;
+        lock.lock();
+        try {
+            TenantState tenant = tenant(apiKeyOf(request));
+            if (!tenant.active && tenant.inFlight < tenant.limit && totalInFlight < totalLimit) {
+                tenant.inFlight++;
+                totalInFlight++;
+                tenant.admitted++;
+                admission.complete(tenant);
+                waiter = null;
+            } else if (tenant.queue.size() >= tenant.maxQueue) {
+                tenant.rejected++;
+                admission.completeExceptionally(new RejectedExecutionException("Tenant queue is full (" + tenant.maxQueue + ")"));
+                waiter = null;
+            } else {
+                waiter = new Waiter(null, admission, tenant, start);
+                enqueue(tenant, waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (waiter != null && !admission.isDone()) {
+            CancellationToken token = request.getCancellationToken();
+            AutoCloseable registration = token == null ? null : token.onCancel(() -> abandon(waiter,
+                new InterruptedIOException("Call was cancelled while waiting for a transport slot")));
+            ScheduledFuture<?> expiry = null;
+            if (request.getTimeoutNanos() != Long.MAX_VALUE) {
+                try {
+                    expiry = timer().schedule(() -> abandon(waiter,
+                        new InterruptedIOException("Deadline exceeded waiting for a transport slot")),
+                        request.getTimeoutNanos(), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    abandon(waiter, new IOException("Transport is closed"));
+                }
+            }
+            ScheduledFuture<?> scheduled = expiry;
+            admission.whenComplete((t, e) -> {
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                if (registration != null) {
+                    try {
+                        registration.close();
+                    } catch (Exception ignored) {
+                        // Unregistering a callback does not fail
+                    }
+                }
+            });
+        }
+        // Started off the granting thread, which may hold the lock
+        return admission.thenComposeAsync(tenant -> {
+            CompletableFuture<TransportResponse> response;
+            try {
+                if (request.getTimeoutNanos() != Long.MAX_VALUE) {
+                    long remaining = request.getTimeoutNanos() - (System.nanoTime() - start);
+                    if (remaining <= 0) {
+                        throw new InterruptedIOException("Deadline exceeded waiting for a transport slot");
+                    }
+                    request.setTimeoutNanos(remaining);
+                }
+                response = delegate.executeAsync(request);
+            } catch (IOException | RuntimeException e) {
+                release(tenant);
+                CompletableFuture<TransportResponse> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            return response.whenComplete((r, e) -> release(tenant));
+        });
+    }
+
+    private void release(TenantState tenant) {
+        lock.lock();
+        try {
+            tenant.inFlight--;
+            totalInFlight--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(TenantState tenant, Waiter waiter) {
+        tenant.queue.addLast(waiter);
+        tenant.maxQueued = Math.max(tenant.maxQueued, tenant.queue.size());
+        if (!tenant.active) {
+            tenant.active = true;
+            active.addLast(tenant);
+        }
+        dispatch();
+    }
+
+    private void abandon(Waiter waiter, IOException reason) {
+        lock.lock();
+        try {
+            if (waiter.granted || !waiter.tenant.queue.remove(waiter)) {
+                return;
+            }
+            waiter.tenant.rejected++;
+        } finally {
+            lock.unlock();
+        }
+        waiter.admission.completeExceptionally(reason);
+    }
+
+    private ScheduledThreadPoolExecutor timer() {
+        lock.lock();
+        try {
+            if (timer == null) {
+                timer = new ScheduledThreadPoolExecutor(1, GPayExecutors.threadFactory("gpay-fair-scheduling-timer"));
+                timer.setRemoveOnCancelPolicy(true);
+            }
+            return timer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TenantState admit(String apiKey, TransportRequest request) throws IOException {
+        long start = System.nanoTime();
+        Waiter waiter;
+        TenantState tenant;
+        lock.lock();
+        try {
+            tenant = tenant(apiKey);
+            if (!tenant.active && tenant.inFlight < tenant.limit && totalInFlight < totalLimit) {
+                tenant.inFlight++;
+                totalInFlight++;
+                tenant.admitted++;
+                return tenant;
+            }
+            if (tenant.queue.size() >= tenant.maxQueue) {
+                tenant.rejected++;
+                throw new RejectedExecutionException("Tenant queue is full (" + tenant.maxQueue + ")");
+            }
+            waiter = new Waiter(lock.newCondition());
+            enqueue(tenant, waiter);
+        } finally {
+            lock.unlock();
+        }
+        CancellationToken token = request.getCancellationToken();
+        AutoCloseable registration = token == null ? null : token.onCancel(() -> cancel(waiter));
+        try {
+            lock.lock();
+            try {
+                long remaining = request.getTimeoutNanos();
+                while (!waiter.granted) {
+                    if (waiter.cancelled || remaining <= 0) {
+                        tenant.queue.remove(waiter);
+                        tenant.rejected++;
+                        throw waiter.cancelled
+                            ? new InterruptedIOException("Call was cancelled while waiting for a transport slot")
+                            : new InterruptedIOException("Deadline exceeded waiting for a transport slot");
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+                long waited = System.nanoTime() - start;
+                tenant.admitted++;
+                tenant.totalWaitNanos += waited;
+                tenant.maxWaitNanos = Math.max(tenant.maxWaitNanos, waited);
+                return tenant;
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // Granted while being interrupted: hand the slot back
+                    tenant.inFlight--;
+                    totalInFlight--;
+                    dispatch();
+                } else {
+                    tenant.queue.remove(waiter);
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a transport slot");
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            if (registration != null) {
+                try {
+                    registration.close();
+                } catch (Exception ignored) {
+                    // Unregistering a callback does not fail
+                }
+            }
+        }
+    }
+
+    private void cancel(Waiter waiter) {
+        lock.lock();
+        try {
+            if (!waiter.granted) {
+                waiter.cancelled = true;
+                waiter.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands free slots to waiting calls, tenant by tenant in deficit round-robin order.
+     */
+    private void dispatch() {
+        int idleTurns = 0;
+        while (totalInFlight < totalLimit && !active.isEmpty() && idleTurns <= active.size()) {
+            TenantState tenant = active.peekFirst();
+            if (!tenant.turn) {
+                tenant.turn = true;
+                tenant.deficit += tenant.weight;
+            }
+            Waiter waiter = tenant.queue.peekFirst();
+            if (waiter != null && tenant.deficit > 0 && tenant.inFlight < tenant.limit) {
+                tenant.queue.pollFirst();
+                waiter.granted = true;
+                tenant.inFlight++;
+                totalInFlight++;
+                tenant.deficit--;
+                if (waiter.admission != null) {
+                    long waited = System.nanoTime() - waiter.start;
+                    tenant.admitted++;
+                    tenant.totalWaitNanos += waited;
+                    tenant.maxWaitNanos = Math.max(tenant.maxWaitNanos, waited);
+                    waiter.admission.complete(tenant);
+                } else {
+                    waiter.condition.signal();
+                }
+                idleTurns = 0;
+                continue;
+            }
+            // End of the turn
+            active.pollFirst();
+            tenant.turn = false;
+            if (tenant.queue.isEmpty()) {
+                tenant.active = false;
+                tenant.deficit = 0;
+            } else {
+                // Capped by its own limit: keep at most one turn's worth of credit
+                tenant.deficit = Math.min(tenant.deficit, tenant.weight);
+                active.addLast(tenant);
+                idleTurns++;
+            }
+        }
+    }
+
+    private TenantState tenant(String apiKey) {
+        TenantState tenant = tenants.get(apiKey);
+        if (tenant == null) {
+            tenant = new TenantState();
+            tenant.limit = defaultLimit;
+            tenant.weight = defaultWeight;
+            tenant.maxQueue = defaultMaxQueue;
+            tenants.put(apiKey, tenant);
+        }
+        return tenant;
+    }
+
+    private static String apiKeyOf(TransportRequest request) {
+        String authorization = request.getHeaders() == null ? null : request.getHeaders().get("Authorization");
+        if (authorization == null) {
+            return "";
+        }
+        return authorization.startsWith(BEARER) ? authorization.substring(BEARER.length()) : authorization;
+    }
+
+    /**
+     * Sets the limits of one tenant.
+     * @param apiKey The tenant's API key.
+     * @param limit The maximum number of the tenant's calls in flight.
+     * @param weight The calls the tenant may start per round while others are waiting, at least 1.
+     * @param maxQueue The maximum number of the tenant's calls waiting for a slot.
+     */
+    public void setTenantLimit(String apiKey, int limit, int weight, int maxQueue) {
+        lock.lock();
+        try {
+            TenantState tenant = tenant(apiKey);
+            tenant.configured = true;
+            tenant.limit = Math.max(1, limit);
+            tenant.weight = Math.max(1, weight);
+            tenant.maxQueue = Math.max(0, maxQueue);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the limits of tenants without their own (default: no concurrency limit below the total,
+     * weight 1, queues of 1000 calls).
+     * @param limit The maximum number of a tenant's calls in flight.
+     * @param weight The calls a tenant may start per round while others are waiting, at least 1.
+     * @param maxQueue The maximum number of a tenant's calls waiting for a slot.
+     */
+    public void setDefaultTenantLimit(int limit, int weight, int maxQueue) {
+        lock.lock();
+        try {
+            defaultLimit = Math.max(1, limit);
+            defaultWeight = Math.max(1, weight);
+            defaultMaxQueue = Math.max(0, maxQueue);
+            for (TenantState tenant : tenants.values()) {
+                if (!tenant.configured) {
+                    tenant.limit = defaultLimit;
+                    tenant.weight = defaultWeight;
+                    tenant.maxQueue = defaultMaxQueue;
+                }
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the maximum number of exchanges in flight across all tenants.
+     * @param totalLimit The limit, at least 1.
+     */
+    public void setTotalLimit(int totalLimit) {
+        lock.lock();
+        try {
+            this.totalLimit = Math.max(1, totalLimit);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the counters of a tenant.
+     * @param apiKey The tenant's API key.
+     * @return The tenant counters, all zero for a tenant that has not made a call.
+     */
+    public TenantStats getStats(String apiKey) {
+        lock.lock();
+        try {
+            TenantState t = tenants.get(apiKey);
+            return t == null ? new TenantStats(0, 0, 0, 0, 0, 0, 0)
+                : new TenantStats(t.queue.size(), t.maxQueued, t.inFlight, t.admitted, t.rejected, t.totalWaitNanos, t.maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the counters of every tenant seen so far. The keys are API keys; mask them before
+     * logging or exporting them.
+     * @return The tenant counters keyed by API key.
+     */
+    public Map<String, TenantStats> getAllStats() {
+        lock.lock();
+        try {
+            Map<String, TenantStats> stats = new LinkedHashMap<>();
+            for (Map.Entry<String, TenantState> e : tenants.entrySet()) {
+                TenantState t = e.getValue();
+                stats.put(e.getKey(), new TenantStats(t.queue.size(), t.maxQueued, t.inFlight, t.admitted, t.rejected,
+                    t.totalWaitNanos, t.maxWaitNanos));
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of calls waiting across all tenants.
+     * @return the total queue depth
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            int queued = 0;
+            for (TenantState tenant : active) {
+                queued += tenant.queue.size();
+            }
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of exchanges in flight across all tenants.
+     * @return the calls in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return totalInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the transport executing the exchanges.
+     * @return the underlying transport
+     */
+    public GPayTransport getDelegate() { return delegate; }
+
+    @Override
+    public int getConnectionCount() { return delegate.getConnectionCount(); }
+
+    /**
+     * Stops the timer of queued asynchronous calls and closes the underlying transport.
+     * @throws IOException if the underlying transport fails to close.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (timer != null) {
+                timer.shutdownNow();
+            }
+        } finally {
+            lock.unlock();
+        }
+        delegate.close();
+    }
+}
@@ -0,0 +1,62 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Service provider interface for the HTTP exchange behind {@link net.libyaguide.gpay.sdk.client.GPayApiClient}.
+ * <p>
+ * The client signs the request, passes it through the request dispatcher and hands it to the transport;
+ * the transport only moves bytes. Response verification and error mapping stay in the client.
+ * <p>
+ * <b>Contract:</b>
+ * <ul>
+ *   <li>Any HTTP status is returned as a {@link TransportResponse}; only I/O failures are thrown.</li>
+ *   <li>The request timeout covers the whole exchange. Expiry throws an {@link java.io.InterruptedIOException}.</li>
+ *   <li>Cancelling the request's cancellation token aborts the exchange with an {@link java.io.InterruptedIOException}.</li>
+ *   <li>Implementations are thread-safe and shared by all calls of a client.</li>
+ * </ul>
+ * {@link OkHttpTransport} is the default. A transport on {@code java.net.http.HttpClient} is available in the
+ * {@code gpay-transport-jdk} module.
+ */
+public interface GPayTransport extends Closeable {
+    /**
+     * Executes a request, blocking until the response body has been read.
+     * @param request The request.
+     * @return The response.
+     * @throws IOException if the exchange fails, times out or is cancelled.
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+
+    /**
+     * Executes a request without blocking the caller. The default runs {@link #execute(TransportRequest)}
+     * on the common pool; implementations with a native asynchronous API override it.
+     * @param request The request.
+     * @return A future completed with the response, or exceptionally with the IOException.
+     */
+    default CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return execute(request);
+            } catch (IOException e) {
+                throw new CompletionException(new UncheckedIOException(e));
+            }
+        });
+    }
+
+    /**
+     * Gets the number of connections the transport holds open, for monitoring.
+     * @return the number of open connections, or -1 if the transport does not expose it
+     */
+    default int getConnectionCount() { return -1; }
+
+    /**
+     * Releases the connections and threads of the transport. The default does nothing.
+     * @throws IOException if releasing fails.
+     */
+    @Override
+    default void close() throws IOException { }
+}
@@ -0,0 +1,152 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import net.libyaguide.gpay.sdk.client.CallOptions;
+import net.libyaguide.gpay.sdk.client.CancellationToken;
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GPayTransport on OkHttp, the default transport of {@link GPayApiClient}.
+ * <p>
+ * The default client keeps up to {@link GPayApiClient#MAX_IDLE_CONNECTIONS} idle connections for 5 minutes,
+ * allows as many concurrent asynchronous calls per host, and uses 30 second connect and read timeouts.
+ * A preconfigured {@link OkHttpClient} (interceptors, proxy, certificate pinning) can be passed instead.
+ */
+public class OkHttpTransport implements GPayTransport {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final OkHttpClient httpClient;
+
+    /**
+     * Constructs a transport with the default OkHttp client.
+     */
+    public OkHttpTransport() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(GPayApiClient.MAX_IDLE_CONNECTIONS);
+        this.httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(GPayApiClient.MAX_IDLE_CONNECTIONS, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Constructs a transport on the given OkHttp client.
+     * @param httpClient The OkHttp client.
+     */
+    public OkHttpTransport(OkHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Gets the underlying OkHttp client.
+     * @return the OkHttp client
+     */
+    public OkHttpClient getHttpClient() { return httpClient; }
+
+    private Call newCall(TransportRequest request) {
+        Headers.Builder headers = new Headers.Builder();
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            headers.add(header.getKey(), header.getValue());
+        }
+        RequestBody body = request.getBody() == null ? null : RequestBody.create(request.getBody(), JSON);
+        Request.Builder builder = new Request.Builder()
+                .url(request.getUrl())
+                .headers(headers.build())
+                .method(request.getMethod(), body);
+        if (request.getOptions() != null) {
+            builder.tag(CallOptions.class, request.getOptions());
+        }
+        Call call = httpClient.newCall(builder.build());
+        if (request.getTimeoutNanos() != Long.MAX_VALUE) {
+            call.timeout().timeout(request.getTimeoutNanos(), TimeUnit.NANOSECONDS);
+        }
+        return call;
+    }
+
+    private static TransportResponse toResponse(Response response) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        response.headers().toMultimap().forEach((k, v) -> headers.put(k.toLowerCase(), String.join(",", v)));
+        ResponseBody body = response.body();
+        return new TransportResponse(response.code(), response.message(), headers, body == null ? "" : body.string());
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        Call call = newCall(request);
+        CancellationToken token = request.getCancellationToken();
+        AutoCloseable registration = token == null ? null : token.onCancel(call::cancel);
+        try (Response response = call.execute()) {
+            return toResponse(response);
+        } catch (IOException e) {
+            if (token != null && token.isCancelled()) {
+                InterruptedIOException cancelled = new InterruptedIOException("Call to " + request.getUrl() + " was cancelled");
+                cancelled.initCause(e);
+                throw cancelled;
+            }
+            throw e;
+        } finally {
+            unregister(registration);
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        Call call = newCall(request);
+        CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+        CancellationToken token = request.getCancellationToken();
+        AutoCloseable registration = token == null ? null : token.onCancel(call::cancel);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                try (Response r = response) {
+                    future.complete(toResponse(r));
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((r, e) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+            unregister(registration);
+        });
+        return future;
+    }
+
+    private static void unregister(AutoCloseable registration) {
+        if (registration != null) {
+            try {
+                registration.close();
+            } catch (Exception ignored) {
+                // Unregistering a callback does not fail
+            }
+        }
+    }
+
+    @Override
+    public int getConnectionCount() { return httpClient.connectionPool().connectionCount(); }
+
+    /**
+     * Evicts the pooled connections and stops the dispatcher threads.
+     */
+    @Override
+    public void close() {
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+}
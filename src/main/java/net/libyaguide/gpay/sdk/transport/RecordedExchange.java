@@ -0,0 +1,169 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A request/response pair captured by {@link RecordingTransport} and read back from a {@link TrafficRecording}.
+ */
+public class RecordedExchange {
+    /** When the request was sent, in nanoseconds since the recording started. */
+    private final long startNanos;
+    /** How long the exchange took, in nanoseconds. */
+    private final long durationNanos;
+    /** The HTTP method. */
+    private final String method;
+    /** The request URL. */
+    private final String url;
+    /** The request headers, with secrets redacted. */
+    private final Map<String, String> requestHeaders;
+    /** The request body, or null. */
+    private final String requestBody;
+    /** The HTTP status code. */
+    private final int code;
+    /** The HTTP status message. */
+    private final String message;
+    /** The response headers with lower-case names, with secrets redacted. */
+    private final Map<String, String> responseHeaders;
+    /** The response body. */
+    private final String responseBody;
+
+    RecordedExchange(long startNanos, long durationNanos, String method, String url, Map<String, String> requestHeaders,
+                     String requestBody, int code, String message, Map<String, String> responseHeaders, String responseBody) {
+        this.startNanos = startNanos;
+        this.durationNanos = durationNanos;
+        this.method = method;
+        this.url = url;
+        this.requestHeaders = Collections.unmodifiableMap(requestHeaders);
+        this.requestBody = requestBody;
+        this.code = code;
+        this.message = message;
+        this.responseHeaders = Collections.unmodifiableMap(responseHeaders);
+        this.responseBody = responseBody;
+    }
+
+    byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (responseBody == null ? 0 : responseBody.length()));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(startNanos);
+        out.writeLong(durationNanos);
+        writeString(out, method);
+        writeString(out, url);
+        writeMap(out, requestHeaders);
+        writeString(out, requestBody);
+        out.writeInt(code);
+        writeString(out, message);
+        writeMap(out, responseHeaders);
+        writeString(out, responseBody);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static RecordedExchange decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long startNanos = in.readLong();
+        long durationNanos = in.readLong();
+        String method = readString(in);
+        String url = readString(in);
+        Map<String, String> requestHeaders = readMap(in);
+        String requestBody = readString(in);
+        int code = in.readInt();
+        String message = readString(in);
+        Map<String, String> responseHeaders = readMap(in);
+        String responseBody = readString(in);
+        return new RecordedExchange(startNanos, durationNanos, method, url, requestHeaders, requestBody,
+            code, message, responseHeaders, responseBody);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+
+    // Getters
+    /**
+     * Gets when the request was sent.
+     * @return the time in nanoseconds since the recording started
+     */
+    public long getStartNanos() { return startNanos; }
+    /**
+     * Gets how long the exchange took.
+     * @return the duration in nanoseconds
+     */
+    public long getDurationNanos() { return durationNanos; }
+    /**
+     * Gets the HTTP method.
+     * @return the method
+     */
+    public String getMethod() { return method; }
+    /**
+     * Gets the request URL.
+     * @return the URL
+     */
+    public String getUrl() { return url; }
+    /**
+     * Gets the request headers, with secrets redacted.
+     * @return an unmodifiable map of the request headers
+     */
+    public Map<String, String> getRequestHeaders() { return requestHeaders; }
+    /**
+     * Gets the request body.
+     * @return the body, or null
+     */
+    public String getRequestBody() { return requestBody; }
+    /**
+     * Gets the HTTP status code.
+     * @return the status code
+     */
+    public int getCode() { return code; }
+    /**
+     * Gets the HTTP status message.
+     * @return the message
+     */
+    public String getMessage() { return message; }
+    /**
+     * Gets the response headers, with secrets redacted.
+     * @return an unmodifiable map of the response headers with lower-case names
+     */
+    public Map<String, String> getResponseHeaders() { return responseHeaders; }
+    /**
+     * Gets the response body.
+     * @return the body
+     */
+    public String getResponseBody() { return responseBody; }
+}
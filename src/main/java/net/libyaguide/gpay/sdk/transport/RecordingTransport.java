@@ -0,0 +1,251 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * RecordingTransport captures the exchanges of another transport into a {@link TrafficRecording}.
+ * <p>
+ * Every completed exchange is appended with its timing, the signed request (including the
+ * {@code X-Signature-*} headers) and the response. Exchanges that fail with an I/O error are not recorded.
+ * <p>
+ * <b>Redaction:</b>
+ * <ul>
+ *   <li>Headers named in {@code redactedHeaders} are stored as {@code ***}; by default Authorization, Cookie,
+ *       Set-Cookie and Proxy-Authorization, so the API key never reaches the file.</li>
+ *   <li>JSON fields named in {@code redactedFields} are masked in request and response bodies. Masking a
+ *       signed response field invalidates the recorded signature; replay with test keys to re-sign.</li>
+ * </ul>
+ * Writing failures do not fail the call; they are counted in {@link #getWriteErrors()}. Both files are forced
+ * to disk at most every {@code forceIntervalMillis} while recording, so a crash loses at most that much
+ * traffic. An interrupted write is discarded when the recording is reopened.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   RecordingTransport recorder = new RecordingTransport(new OkHttpTransport(), Paths.get("traffic.gpr"));
+ *   GPayApiClient client = new GPayApiClient(apiKey, secretKey, password, baseUrl, "en", recorder);
+ * </pre>
+ */
+public class RecordingTransport implements GPayTransport {
+    private static final String MASK = "***";
+
+    private final GPayTransport delegate;
+    private final FileChannel data;
+    private final FileChannel index;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long baseNanos;
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private volatile Set<String> redactedHeaders = new HashSet<>(Arrays.asList("authorization", "cookie", "set-cookie", "proxy-authorization"));
+    private volatile Pattern redactedFields;
+    private volatile long forceIntervalMillis = 1000;
+    /** When the files were last forced, as a {@link System#nanoTime()} value; guarded by lock. */
+    private long lastForceNanos = System.nanoTime();
+
+    /**
+     * Constructs a recorder appending to the given file, creating it if needed.
+     * @param delegate The transport executing the exchanges.
+     * @param file The data file; the index is written to {@code <file>.idx}.
+     * @throws IOException if the files cannot be opened or are not a recording.
+     */
+    public RecordingTransport(GPayTransport delegate, Path file) throws IOException {
+        this.delegate = delegate;
+        Path indexFile = TrafficRecording.indexOf(file);
+        this.data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long lastStart = recover(file, indexFile);
+            this.baseNanos = System.nanoTime() - lastStart;
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            index.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Prepares the files for appending: writes the headers of new files, drops a torn tail of existing ones.
+     * @return the start of the last recorded exchange plus one second, so appended exchanges keep their order
+     */
+    private long recover(Path file, Path indexFile) throws IOException {
+        if (data.size() == 0 && index.size() == 0) {
+            data.write(ByteBuffer.wrap(TrafficRecording.DATA_MAGIC), 0);
+            index.write(ByteBuffer.wrap(TrafficRecording.INDEX_MAGIC), 0);
+            return 0;
+        }
+        TrafficRecording.checkMagic(data, TrafficRecording.DATA_MAGIC, file);
+        TrafficRecording.checkMagic(index, TrafficRecording.INDEX_MAGIC, indexFile);
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(indexFile), TrafficRecording.INDEX_MAGIC.length,
+            (int) index.size() - TrafficRecording.INDEX_MAGIC.length).slice();
+        int count = TrafficRecording.validEntries(entries, data.size());
+        records.set(count);
+        long dataEnd = TrafficRecording.DATA_MAGIC.length;
+        long lastStart = 0;
+        if (count > 0) {
+            int at = (count - 1) * TrafficRecording.ENTRY_SIZE;
+            dataEnd = entries.getLong(at) + entries.getInt(at + 8);
+            lastStart = entries.getLong(at + 12) + 1_000_000_000L;
+        }
+        index.truncate(TrafficRecording.INDEX_MAGIC.length + (long) count * TrafficRecording.ENTRY_SIZE);
+        data.truncate(dataEnd);
+        return lastStart;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        long start = System.nanoTime();
+        TransportResponse response = delegate.execute(request);
+        record(request, response, start);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        long start = System.nanoTime();
+        return delegate.executeAsync(request).thenApply(response -> {
+            record(request, response, start);
+            return response;
+        });
+    }
+
+    private void record(TransportRequest request, TransportResponse response, long start) {
+        long end = System.nanoTime();
+        try {
+            RecordedExchange exchange = new RecordedExchange(start - baseNanos, end - start, request.getMethod(), request.getUrl(),
+                redactHeaders(request.getHeaders()), redactBody(request.getBody()), response.getCode(), response.getMessage(),
+                redactHeaders(response.getHeaders()), redactBody(response.getBody()));
+            byte[] compressed = TrafficRecording.deflate(exchange.encode());
+            ByteBuffer entry = ByteBuffer.allocate(TrafficRecording.ENTRY_SIZE);
+            lock.lock();
+            try {
+                long offset = data.size();
+                ByteBuffer payload = ByteBuffer.wrap(compressed);
+                while (payload.hasRemaining()) {
+                    data.write(payload, offset + payload.position());
+                }
+                entry.putLong(offset).putInt(compressed.length).putLong(exchange.getStartNanos()).putLong(exchange.getDurationNanos())
+                    .putInt(TrafficRecording.endpointHash(request.getUrl())).putInt(TrafficRecording.requestKey(request.getBody()).hashCode());
+                entry.flip();
+                long indexEnd = index.size();
+                while (entry.hasRemaining()) {
+                    index.write(entry, indexEnd + entry.position());
+                }
+                records.incrementAndGet();
+                if (end - lastForceNanos >= TimeUnit.MILLISECONDS.toNanos(forceIntervalMillis)) {
+                    // Data first, so a forced index entry never points past the forced data
+                    data.force(false);
+                    index.force(false);
+                    lastForceNanos = end;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+        }
+    }
+
+    private Map<String, String> redactHeaders(Map<String, String> headers) {
+        Set<String> redacted = redactedHeaders;
+        Map<String, String> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            copy.put(header.getKey(), redacted.contains(header.getKey().toLowerCase()) ? MASK : header.getValue());
+        }
+        return copy;
+    }
+
+    private String redactBody(String body) {
+        Pattern fields = redactedFields;
+        if (body == null || fields == null) {
+            return body;
+        }
+        Matcher m = fields.matcher(body);
+        StringBuffer sb = new StringBuffer(body.length());
+        while (m.find()) {
+            m.appendReplacement(sb, Matcher.quoteReplacement(m.group(1) + "\"" + MASK + "\""));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    @Override
+    public int getConnectionCount() { return delegate.getConnectionCount(); }
+
+    /**
+     * Flushes the recording to disk and closes it, then closes the wrapped transport.
+     * @throws IOException if the files cannot be flushed.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (data.isOpen()) {
+                data.force(true);
+                index.force(true);
+                data.close();
+                index.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+        delegate.close();
+    }
+
+    /**
+     * Gets the number of exchanges in the recording, including those of earlier sessions.
+     * @return the number of exchanges
+     */
+    public long getRecordCount() { return records.get(); }
+    /**
+     * Gets the number of exchanges that could not be written.
+     * @return the number of write errors
+     */
+    public long getWriteErrors() { return writeErrors.get(); }
+    /**
+     * Gets the longest time recorded exchanges stay unforced.
+     * @return milliseconds
+     */
+    public long getForceIntervalMillis() { return forceIntervalMillis; }
+    /**
+     * Sets the longest time recorded exchanges stay unforced (default: 1000); 0 forces after every exchange.
+     * @param forceIntervalMillis milliseconds
+     */
+    public void setForceIntervalMillis(long forceIntervalMillis) { this.forceIntervalMillis = forceIntervalMillis; }
+    /**
+     * Sets the headers stored as {@code ***} (default: Authorization, Cookie, Set-Cookie, Proxy-Authorization).
+     * @param names the header names, case-insensitive
+     */
+    public void setRedactedHeaders(Collection<String> names) {
+        Set<String> lower = new HashSet<>();
+        for (String name : names) {
+            lower.add(name.toLowerCase());
+        }
+        this.redactedHeaders = lower;
+    }
+    /**
+     * Sets the JSON fields masked in request and response bodies (default: none), e.g. {@code wallet_gateway_id}.
+     * @param names the field names
+     */
+    public void setRedactedFields(Collection<String> names) {
+        if (names.isEmpty()) {
+            this.redactedFields = null;
+            return;
+        }
+        StringJoiner alternatives = new StringJoiner("|");
+        for (String name : names) {
+            alternatives.add(Pattern.quote(name));
+        }
+        this.redactedFields = Pattern.compile("(\"(?:" + alternatives + ")\"\\s*:\\s*)(\"(?:[^\"\\\\]|\\\\.)*\"|-?\\d[\\d.eE+-]*)");
+    }
+}
@@ -0,0 +1,206 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import net.libyaguide.gpay.sdk.client.CancellationToken;
+import net.libyaguide.gpay.sdk.crypto.ResponseSigner;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ReplayTransport serves the responses of a {@link TrafficRecording} instead of calling the API.
+ * <p>
+ * <b>Matching:</b> a request gets the recorded response of the same endpoint with the same parameters
+ * (ignoring {@code request_timestamp}). If there is none, the recorded responses of the endpoint are served
+ * in recording order. Both cycle when exhausted, so a short recording can drive a long run. The index only
+ * holds hashes, so a candidate is served only after its decoded endpoint and parameters are compared with
+ * the request; a hash collision falls through to the next candidate.
+ * <p>
+ * <b>Timing:</b>
+ * <ul>
+ *   <li>ORIGINAL - each response is held back until the recorded duration of the exchange has passed.</li>
+ *   <li>MAX_SPEED - responses are returned as soon as they are read.</li>
+ * </ul>
+ * <b>Re-signing:</b> recorded responses are signed with the production keys. With test keys set through
+ * {@link #setSigningKeys(String, String)}, successful responses are signed again, so a client built with
+ * the test keys passes response verification.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   ReplayTransport replay = new ReplayTransport(TrafficRecording.open(Paths.get("traffic.gpr")));
+ *   replay.setSigningKeys("test-secret", "test-password");
+ *   GPayApiClient client = new GPayApiClient("test-key", "test-secret", "test-password", baseUrl, "en", replay);
+ * </pre>
+ */
+public class ReplayTransport implements GPayTransport {
+    /**
+     * Enum for the replay timing.
+     */
+    public enum Timing {
+        /** Hold each response for its recorded duration. */
+        ORIGINAL,
+        /** Return responses immediately. */
+        MAX_SPEED
+    }
+
+    private final TrafficRecording recording;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, ArrayDeque<Integer>> byEndpoint = new HashMap<>();
+    private final Map<Long, ArrayDeque<Integer>> byRequest = new HashMap<>();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong exactMatches = new AtomicLong();
+    private volatile Timing timing = Timing.ORIGINAL;
+    private volatile String secretKey;
+    private volatile String password;
+
+    /**
+     * Constructs a transport replaying the given recording.
+     * @param recording The recording; closed with the transport.
+     */
+    public ReplayTransport(TrafficRecording recording) {
+        this.recording = recording;
+        for (int i = 0; i < recording.size(); i++) {
+            int endpoint = recording.getEndpointHash(i);
+            byEndpoint.computeIfAbsent(endpoint, k -> new ArrayDeque<>()).addLast(i);
+            byRequest.computeIfAbsent(requestId(endpoint, recording.getKeyHash(i)), k -> new ArrayDeque<>()).addLast(i);
+        }
+    }
+
+    private static long requestId(int endpointHash, int keyHash) {
+        return ((long) endpointHash << 32) | (keyHash & 0xffffffffL);
+    }
+
+    private RecordedExchange pick(TransportRequest request, String endpoint) throws IOException {
+        int endpointHash = TrafficRecording.endpointHash(request.getUrl());
+        int key = TrafficRecording.requestKey(request.getBody()).hashCode();
+        RecordedExchange exchange = next(byRequest.get(requestId(endpointHash, key)), endpoint, request.getBody());
+        if (exchange != null) {
+            exactMatches.incrementAndGet();
+            return exchange;
+        }
+        return next(byEndpoint.get(endpointHash), endpoint, null);
+    }
+
+    /**
+     * Takes the next candidate whose decoded exchange really has the endpoint and, if given, the parameters.
+     */
+    private RecordedExchange next(ArrayDeque<Integer> candidates, String endpoint, String body) throws IOException {
+        if (candidates == null) {
+            return null;
+        }
+        int tries;
+        lock.lock();
+        try {
+            tries = candidates.size();
+        } finally {
+            lock.unlock();
+        }
+        for (int t = 0; t < tries; t++) {
+            Integer i;
+            lock.lock();
+            try {
+                // Rotate so repeated requests walk through the recorded responses
+                i = candidates.pollFirst();
+                candidates.addLast(i);
+            } finally {
+                lock.unlock();
+            }
+            RecordedExchange exchange = recording.read(i);
+            if (endpoint.equals(ResponseSigner.endpointOf(exchange.getUrl()))
+                    && (body == null || TrafficRecording.sameRequest(exchange.getRequestBody(), body))) {
+                return exchange;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        long start = System.nanoTime();
+        String endpoint = ResponseSigner.endpointOf(request.getUrl());
+        RecordedExchange exchange = pick(request, endpoint);
+        if (exchange == null) {
+            throw new IOException("No recorded exchange for " + endpoint);
+        }
+        if (timing == Timing.ORIGINAL) {
+            hold(request, start, exchange.getDurationNanos());
+        }
+        Map<String, String> headers = new HashMap<>(exchange.getResponseHeaders());
+        String secret = secretKey;
+        String pass = password;
+        if (secret != null && exchange.getCode() >= 200 && exchange.getCode() < 300 && ResponseSigner.signedFields(endpoint) != null) {
+            try {
+                for (Map.Entry<String, String> header : ResponseSigner.sign(endpoint, exchange.getResponseBody(), secret, pass).entrySet()) {
+                    headers.put(header.getKey().toLowerCase(), header.getValue());
+                }
+            } catch (Exception e) {
+                throw new IOException("Cannot re-sign recorded response of " + endpoint, e);
+            }
+        }
+        served.incrementAndGet();
+        return new TransportResponse(exchange.getCode(), exchange.getMessage(), headers, exchange.getResponseBody());
+    }
+
+    private static void hold(TransportRequest request, long start, long durationNanos) throws InterruptedIOException {
+        CancellationToken token = request.getCancellationToken();
+        long until = start + Math.min(durationNanos, request.getTimeoutNanos());
+        long remaining;
+        while ((remaining = until - System.nanoTime()) > 0) {
+            // Park in short steps so cancellation is noticed
+            LockSupport.parkNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)));
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted replaying " + request.getUrl());
+            }
+            if (token != null && token.isCancelled()) {
+                throw new InterruptedIOException("Call to " + request.getUrl() + " was cancelled");
+            }
+        }
+        if (durationNanos > request.getTimeoutNanos()) {
+            throw new InterruptedIOException("Timed out calling " + request.getUrl());
+        }
+    }
+
+    /**
+     * Closes the recording.
+     * @throws IOException if closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        recording.close();
+    }
+
+    /**
+     * Gets the number of responses served.
+     * @return the number of responses
+     */
+    public long getServedCount() { return served.get(); }
+    /**
+     * Gets the number of requests matched to a recording of the same parameters.
+     * @return the number of exact matches
+     */
+    public long getExactMatchCount() { return exactMatches.get(); }
+    /**
+     * Gets the replay timing.
+     * @return the timing
+     */
+    public Timing getTiming() { return timing; }
+    /**
+     * Sets the replay timing (default: ORIGINAL).
+     * @param timing the timing
+     */
+    public void setTiming(Timing timing) { this.timing = timing; }
+    /**
+     * Sets the keys used to re-sign successful responses, or null to serve the recorded signatures.
+     * @param secretKey the test secret key
+     * @param password the test password
+     */
+    public void setSigningKeys(String secretKey, String password) {
+        this.password = password;
+        this.secretKey = secretKey;
+    }
+}
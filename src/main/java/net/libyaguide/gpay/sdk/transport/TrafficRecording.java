@@ -0,0 +1,257 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import net.libyaguide.gpay.sdk.crypto.ResponseSigner;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A traffic recording written by {@link RecordingTransport}, opened for reading.
+ * <p>
+ * <b>Format:</b> two append-only files.
+ * <ul>
+ *   <li>The data file starts with the magic {@code GPAYREC1} and holds the exchanges, each deflated separately.</li>
+ *   <li>The index file ({@code <data>.idx}) starts with {@code GPAYIDX1} and holds one fixed-size entry per
+ *       exchange: data offset, length, start and duration, and hashes of the endpoint and request parameters.</li>
+ * </ul>
+ * The index is loaded at open, so exchanges are found without scanning the data file and read individually
+ * with positional reads. Entries beyond the end of the data file (an interrupted write) are ignored.
+ */
+public class TrafficRecording implements Closeable {
+    static final byte[] DATA_MAGIC = "GPAYREC1".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] INDEX_MAGIC = "GPAYIDX1".getBytes(StandardCharsets.US_ASCII);
+    /** offset(8) length(4) start(8) duration(8) endpoint hash(4) request key hash(4) */
+    static final int ENTRY_SIZE = 36;
+
+    private static final Gson GSON = new Gson();
+    private static final Type PARAMS_TYPE = new TypeToken<Map<String, String>>() { }.getType();
+
+    private final FileChannel data;
+    private final ByteBuffer index;
+    private final int size;
+
+    private TrafficRecording(FileChannel data, ByteBuffer index, int size) {
+        this.data = data;
+        this.index = index;
+        this.size = size;
+    }
+
+    /**
+     * Opens a recording for reading.
+     * @param file The data file; the index is read from {@code <file>.idx}.
+     * @return The opened recording.
+     * @throws IOException if a file cannot be read or has the wrong format.
+     */
+    public static TrafficRecording open(Path file) throws IOException {
+        FileChannel data = FileChannel.open(file, StandardOpenOption.READ);
+        try (FileChannel indexChannel = FileChannel.open(indexOf(file), StandardOpenOption.READ)) {
+            checkMagic(data, DATA_MAGIC, file);
+            checkMagic(indexChannel, INDEX_MAGIC, indexOf(file));
+            ByteBuffer index = ByteBuffer.allocate((int) (indexChannel.size() - INDEX_MAGIC.length));
+            while (index.hasRemaining() && indexChannel.read(index, INDEX_MAGIC.length + index.position()) >= 0) {
+                // Keep reading until the buffer is full
+            }
+            int size = validEntries(index, data.size());
+            return new TrafficRecording(data, index, size);
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    static Path indexOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    static void checkMagic(FileChannel channel, byte[] magic, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(magic.length);
+        channel.read(header, 0);
+        if (header.position() != magic.length || !Arrays.equals(header.array(), magic)) {
+            throw new IOException("Not a GPay traffic recording: " + file);
+        }
+    }
+
+    /**
+     * Counts the complete index entries whose data lies within the data file.
+     */
+    static int validEntries(ByteBuffer index, long dataSize) {
+        int count = index.capacity() / ENTRY_SIZE;
+        while (count > 0) {
+            int at = (count - 1) * ENTRY_SIZE;
+            if (index.getLong(at) + index.getInt(at + 8) <= dataSize) {
+                break;
+            }
+            count--;
+        }
+        return count;
+    }
+
+    static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated exchange in traffic recording");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt exchange in traffic recording", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Builds the key matching a replayed request to a recorded one: the sorted request parameters without
+     * {@code request_timestamp}, which differs on every call.
+     */
+    static String requestKey(String body) {
+        if (body == null || body.isEmpty()) {
+            return "";
+        }
+        Map<String, String> params;
+        try {
+            params = GSON.fromJson(body, PARAMS_TYPE);
+        } catch (JsonSyntaxException e) {
+            return body;
+        }
+        if (params == null) {
+            return "";
+        }
+        TreeMap<String, String> sorted = new TreeMap<>(params);
+        sorted.remove("request_timestamp");
+        return sorted.toString();
+    }
+
+    /**
+     * Checks that a recorded request body has the same parameters as a live one, ignoring
+     * {@code request_timestamp}. A recorded value of {@code ***} was redacted and matches any value.
+     */
+    static boolean sameRequest(String recordedBody, String body) {
+        Map<String, String> recorded = params(recordedBody);
+        Map<String, String> live = params(body);
+        if (recorded == null || live == null) {
+            return requestKey(recordedBody).equals(requestKey(body));
+        }
+        if (!recorded.keySet().equals(live.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, String> e : recorded.entrySet()) {
+            if (!"***".equals(e.getValue()) && !Objects.equals(e.getValue(), live.get(e.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, String> params(String body) {
+        if (body == null || body.isEmpty()) {
+            return new TreeMap<>();
+        }
+        try {
+            Map<String, String> params = GSON.fromJson(body, PARAMS_TYPE);
+            TreeMap<String, String> sorted = params == null ? new TreeMap<>() : new TreeMap<>(params);
+            sorted.remove("request_timestamp");
+            return sorted;
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+    }
+
+    static int endpointHash(String url) {
+        return ResponseSigner.endpointOf(url).hashCode();
+    }
+
+    /**
+     * Gets the number of exchanges in the recording.
+     * @return the number of exchanges
+     */
+    public int size() { return size; }
+
+    /**
+     * Gets when an exchange started.
+     * @param i The exchange number, from 0.
+     * @return the time in nanoseconds since the recording started
+     */
+    public long getStartNanos(int i) { return index.getLong(entry(i) + 12); }
+
+    /**
+     * Gets how long an exchange took.
+     * @param i The exchange number, from 0.
+     * @return the duration in nanoseconds
+     */
+    public long getDurationNanos(int i) { return index.getLong(entry(i) + 20); }
+
+    int getEndpointHash(int i) { return index.getInt(entry(i) + 28); }
+
+    int getKeyHash(int i) { return index.getInt(entry(i) + 32); }
+
+    private int entry(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Exchange " + i + " of " + size);
+        }
+        return i * ENTRY_SIZE;
+    }
+
+    /**
+     * Reads and decompresses an exchange.
+     * @param i The exchange number, from 0.
+     * @return The exchange.
+     * @throws IOException if the data file cannot be read or is corrupt.
+     */
+    public RecordedExchange read(int i) throws IOException {
+        int at = entry(i);
+        long offset = index.getLong(at);
+        ByteBuffer compressed = ByteBuffer.allocate(index.getInt(at + 8));
+        while (compressed.hasRemaining()) {
+            if (data.read(compressed, offset + compressed.position()) < 0) {
+                throw new IOException("Truncated exchange " + i + " in traffic recording");
+            }
+        }
+        return RecordedExchange.decode(inflate(compressed.array()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.close();
+    }
+}
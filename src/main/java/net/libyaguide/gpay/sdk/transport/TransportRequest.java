@@ -0,0 +1,94 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import net.libyaguide.gpay.sdk.client.CallOptions;
+import net.libyaguide.gpay.sdk.client.CancellationToken;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An HTTP request handed to a {@link GPayTransport}: already signed, with a JSON body or none.
+ */
+public class TransportRequest {
+    /** The HTTP method, e.g. POST. */
+    private final String method;
+    /** The absolute URL. */
+    private final String url;
+    /** The request headers, in insertion order. */
+    private final Map<String, String> headers;
+    /** The JSON body, or null for none. */
+    private final String body;
+    /** The time allowed for the whole exchange in nanoseconds, or Long.MAX_VALUE for the transport default. */
+    private long timeoutNanos = Long.MAX_VALUE;
+    /** The cancellation token, or null. */
+    private CancellationToken cancellationToken;
+    /** The call options of the call, or null. */
+    private CallOptions options;
+
+    /**
+     * Constructs a request.
+     * @param method The HTTP method, e.g. POST.
+     * @param url The absolute URL.
+     * @param headers The request headers.
+     * @param body The JSON body, or null for none.
+     */
+    public TransportRequest(String method, String url, Map<String, String> headers, String body) {
+        this.method = method;
+        this.url = url;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        this.body = body;
+    }
+
+    // Getters and setters
+    /**
+     * Gets the HTTP method.
+     * @return the method
+     */
+    public String getMethod() { return method; }
+    /**
+     * Gets the absolute URL.
+     * @return the URL
+     */
+    public String getUrl() { return url; }
+    /**
+     * Gets the request headers.
+     * @return an unmodifiable map of the headers
+     */
+    public Map<String, String> getHeaders() { return headers; }
+    /**
+     * Gets the JSON body.
+     * @return the body, or null for none
+     */
+    public String getBody() { return body; }
+    /**
+     * Gets the time allowed for the whole exchange.
+     * @return the timeout in nanoseconds, or Long.MAX_VALUE for the transport default
+     */
+    public long getTimeoutNanos() { return timeoutNanos; }
+    /**
+     * Sets the time allowed for the whole exchange.
+     * @param timeoutNanos the timeout in nanoseconds, or Long.MAX_VALUE for the transport default
+     */
+    public void setTimeoutNanos(long timeoutNanos) { this.timeoutNanos = timeoutNanos; }
+    /**
+     * Gets the cancellation token.
+     * @return the cancellation token, or null
+     */
+    public CancellationToken getCancellationToken() { return cancellationToken; }
+    /**
+     * Sets the cancellation token.
+     * @param cancellationToken the cancellation token, or null
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) { this.cancellationToken = cancellationToken; }
+    /**
+     * Gets the call options, e.g. to read their tags.
+     * @return the call options, or null
+     */
+    public CallOptions getOptions() { return options; }
+    /**
+     * Sets the call options.
+     * @param options the call options, or null
+     */
+    public void setOptions(CallOptions options) { this.options = options; }
+}
@@ -0,0 +1,59 @@
+package net.libyaguide.gpay.sdk.transport;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An HTTP response returned by a {@link GPayTransport}, with the body fully read.
+ */
+public class TransportResponse {
+    /** The HTTP status code. */
+    private final int code;
+    /** The HTTP status message; may be empty (HTTP/2 has none). */
+    private final String message;
+    /** The response headers with lower-case names; repeated headers are joined with commas. */
+    private final Map<String, String> headers;
+    /** The response body. */
+    private final String body;
+
+    /**
+     * Constructs a response.
+     * @param code The HTTP status code.
+     * @param message The HTTP status message; may be empty.
+     * @param headers The response headers with lower-case names.
+     * @param body The response body.
+     */
+    public TransportResponse(int code, String message, Map<String, String> headers, String body) {
+        this.code = code;
+        this.message = message;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+    }
+
+    // Getters
+    /**
+     * Gets the HTTP status code.
+     * @return the status code
+     */
+    public int getCode() { return code; }
+    /**
+     * Gets the HTTP status message.
+     * @return the message; may be empty
+     */
+    public String getMessage() { return message; }
+    /**
+     * Gets the response headers.
+     * @return an unmodifiable map of the headers with lower-case names
+     */
+    public Map<String, String> getHeaders() { return headers; }
+    /**
+     * Gets the response body.
+     * @return the body
+     */
+    public String getBody() { return body; }
+    /**
+     * Checks whether the status code is in the 2xx range.
+     * @return true for a successful status
+     */
+    public boolean isSuccessful() { return code >= 200 && code < 300; }
+}
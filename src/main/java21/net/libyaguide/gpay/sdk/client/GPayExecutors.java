@@ -0,0 +1,57 @@
+package net.libyaguide.gpay.sdk.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for the threads the SDK uses to run blocking API calls in parallel.
+ * <p>
+ * This is the Java 21 implementation, packaged under {@code META-INF/versions/21} of the multi-release JAR.
+ * Blocking calls, bulk operations and pollers run on virtual threads, so thousands of calls waiting on the
+ * network do not hold thousands of platform threads. Setting the system property
+ * {@code gpay.virtualThreads=false} falls back to daemon platform threads.
+ */
+public final class GPayExecutors {
+    private static final boolean VIRTUAL = !"false".equalsIgnoreCase(System.getProperty("gpay.virtualThreads"));
+
+    private GPayExecutors() { }
+
+    /**
+     * Checks whether the SDK runs its blocking work on virtual threads.
+     * @return true unless disabled with {@code gpay.virtualThreads=false}
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    /**
+     * Creates an executor running at most {@code threads} blocking calls at a time.
+     * @param name The thread name prefix.
+     * @param threads The maximum number of concurrent calls.
+     * @return A new executor; the caller shuts it down.
+     */
+    public static ExecutorService newBlockingExecutor(String name, int threads) {
+        // A fixed pool keeps the concurrency limit; with virtual threads the idle workers cost almost nothing
+        return Executors.newFixedThreadPool(threads, threadFactory(name));
+    }
+
+    /**
+     * Creates a thread factory with numbered thread names: virtual threads, or daemon platform threads
+     * when virtual threads are disabled.
+     * @param name The thread name prefix.
+     * @return The thread factory.
+     */
+    public static ThreadFactory threadFactory(String name) {
+        if (VIRTUAL) {
+            return Thread.ofVirtual().name(name + "-", 1).factory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
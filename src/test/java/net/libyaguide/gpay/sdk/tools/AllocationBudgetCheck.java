@@ -0,0 +1,293 @@
+package net.libyaguide.gpay.sdk.tools;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.crypto.HashTokenGenerator;
+import net.libyaguide.gpay.sdk.crypto.ResponseSigner;
+import net.libyaguide.gpay.sdk.crypto.VerificationHashGenerator;
+import net.libyaguide.gpay.sdk.transport.GPayTransport;
+import net.libyaguide.gpay.sdk.transport.TransportRequest;
+import net.libyaguide.gpay.sdk.transport.TransportResponse;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * AllocationBudgetCheck measures the bytes allocated per operation on the request hot path and compares them
+ * with the budgets in a checked-in file.
+ * <p>
+ * <b>Operations:</b>
+ * <ul>
+ *   <li>{@code sign.<endpoint>} - salt, hash token and request signature, as {@code sendRequest} computes them.</li>
+ *   <li>{@code verify.<endpoint>} - the response signature over the endpoint's signed fields.</li>
+ *   <li>{@code decode.<endpoint>[.<size>]} - the complete client call against an in-memory transport returning a
+ *       signed canned response: request signing and serialization, dispatch, verification and decoding. Statements
+ *       and outstanding transactions are measured with several numbers of transactions.</li>
+ * </ul>
+ * Each operation is warmed up so the JIT has compiled it, then measured on the current thread with
+ * {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes}. Results depend on the JVM, so budgets are
+ * keyed by the JDK feature version ({@code jdk17.decode.send-money=...}) and only the running JDK's budgets
+ * are checked. A JDK without any budgets in the file is reported and passes; record its budgets with
+ * {@code --update} on that JDK.
+ * <p>
+ * <b>Arguments:</b> {@code [budgetFile=allocation-budgets.properties] [--update]}
+ * <p>
+ * <b>Exit status:</b> 0 when every operation is within its budget or the running JDK has no budgets, 1 when
+ * a budget is exceeded or missing, 2 when the JVM cannot measure allocation. With {@code --update} the
+ * running JDK's budgets are rewritten with the current measurements plus 10% headroom, which locks in
+ * improvements; the budgets of other JDKs are kept. Review the diff before committing it.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   mvn verify
+ *   java -cp target/classes:target/test-classes:... net.libyaguide.gpay.sdk.tools.AllocationBudgetCheck allocation-budgets.properties --update
+ * </pre>
+ */
+public final class AllocationBudgetCheck {
+    private static final String API_KEY = "budget-api-key";
+    private static final String SECRET_KEY = "budget-secret-key";
+    private static final String PASSWORD = "budget-password";
+    private static final String BASE_URL = "http://gpay.invalid/api";
+    private static final int[] SIZES = {10, 100, 1000};
+    private static final double HEADROOM = 1.10;
+    /** Slack over a budget for measurement noise, such as a buffer resized once inside the measured window. */
+    private static final long TOLERANCE_BYTES = 64;
+
+    private static final Gson GSON = new Gson();
+
+    private AllocationBudgetCheck() { }
+
+    /**
+     * An operation whose allocation is measured.
+     */
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Serves a fixed signed response per endpoint without any I/O.
+     */
+    private static final class CannedTransport implements GPayTransport {
+        private final Map<String, TransportResponse> responses = new HashMap<>();
+
+        void put(String endpoint, Map<String, Object> data) throws Exception {
+            String body = GSON.toJson(Collections.singletonMap("data", data));
+            Map<String, String> headers = new HashMap<>();
+            headers.put("content-type", "application/json");
+            for (Map.Entry<String, String> header : ResponseSigner.sign(endpoint, body, SECRET_KEY, PASSWORD).entrySet()) {
+                headers.put(header.getKey().toLowerCase(), header.getValue());
+            }
+            responses.put(endpoint, new TransportResponse(200, "OK", headers, body));
+        }
+
+        @Override
+        public TransportResponse execute(TransportRequest request) throws IOException {
+            TransportResponse response = responses.get(ResponseSigner.endpointOf(request.getUrl()));
+            if (response == null) {
+                throw new IOException("No canned response for " + request.getUrl());
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Runs the check.
+     * @param args {@code [budgetFile] [--update]}
+     * @throws Exception if an operation fails or the budget file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        Path file = Paths.get("allocation-budgets.properties");
+        boolean update = false;
+        for (String arg : args) {
+            if ("--update".equals(arg)) {
+                update = true;
+            } else {
+                file = Paths.get(arg);
+            }
+        }
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM cannot measure thread allocation");
+            System.exit(2);
+        }
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        allocation.setThreadAllocatedMemoryEnabled(true);
+
+        String jdk = "jdk" + featureVersion() + ".";
+        Properties budgets = new Properties();
+        if (Files.exists(file)) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                budgets.load(in);
+            }
+        }
+        if (!update && budgets.stringPropertyNames().stream().noneMatch(key -> key.startsWith(jdk))) {
+            System.out.println("WARNING: no allocation budgets for " + jdk.substring(0, jdk.length() - 1) + " in "
+                + file.toAbsolutePath() + "; run with --update on this JDK to record them");
+            return;
+        }
+
+        Map<String, Long> measured = new TreeMap<>();
+        for (Map.Entry<String, Operation> op : operations().entrySet()) {
+            measured.put(op.getKey(), measure(allocation, op.getValue()));
+        }
+
+        if (update) {
+            write(file, budgets, jdk, measured);
+            System.out.println("Updated " + measured.size() + " " + jdk.substring(0, jdk.length() - 1) + " budgets in " + file.toAbsolutePath());
+            return;
+        }
+        int failures = 0;
+        System.out.printf("%-48s %12s %12s%n", "operation", "bytes/op", "budget");
+        for (Map.Entry<String, Long> result : measured.entrySet()) {
+            String budget = budgets.getProperty(jdk + result.getKey());
+            String status;
+            if (budget == null) {
+                status = "NO BUDGET";
+                failures++;
+            } else if (result.getValue() > Long.parseLong(budget.trim()) + TOLERANCE_BYTES) {
+                status = "OVER BUDGET";
+                failures++;
+            } else {
+                status = result.getValue() * HEADROOM * HEADROOM < Long.parseLong(budget.trim()) ? "ok (budget can be lowered)" : "ok";
+            }
+            System.out.printf("%-48s %12d %12s  %s%n", jdk + result.getKey(), result.getValue(), budget == null ? "-" : budget.trim(), status);
+        }
+        if (failures > 0) {
+            System.out.println(failures + " operation(s) over or without budget in " + file.toAbsolutePath());
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Operation> operations() throws Exception {
+        Map<String, Operation> ops = new LinkedHashMap<>();
+        CannedTransport transport = new CannedTransport();
+        GPayApiClient client = new GPayApiClient(API_KEY, SECRET_KEY, PASSWORD, BASE_URL, "en", transport);
+        String walletId = "9f1c2a3b-0000-4000-8000-000000000001";
+        String requestId = "9f1c2a3b-0000-4000-8000-000000000002";
+        BigDecimal amount = new BigDecimal("125.50");
+
+        // Request signing, with the parameters of a small and a large request
+        Map<String, String> balanceParams = new HashMap<>();
+        balanceParams.put("request_timestamp", "1700000000000");
+        Map<String, String> sendMoneyParams = new HashMap<>(balanceParams);
+        sendMoneyParams.put("amount", "125.50");
+        sendMoneyParams.put("wallet_gateway_id", walletId);
+        sendMoneyParams.put("reference_no", "REF_0001");
+        sendMoneyParams.put("description", "Allocation budget");
+        ops.put("sign.balance", () -> sign(balanceParams));
+        ops.put("sign.send-money", () -> sign(sendMoneyParams));
+
+        // Canned responses, built by the stub server so they match what the API returns
+        Map<String, String> params = new HashMap<>();
+        params.put("amount", "125.50");
+        params.put("reference_no", "REF_0001");
+        params.put("request_id", requestId);
+        params.put("wallet_gateway_id", walletId);
+        params.put("date", "2024-01-15");
+        String[] endpoints = {"/info/balance", "/payment/create-payment-request", "/payment/check-payment-status",
+            "/payment/send-money", "/info/check-wallet", "/info/statement", "/info/outstanding-transactions"};
+        for (String endpoint : endpoints) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            StubGPayServer.respond(endpoint, params, SIZES[0], SIZES[0], data);
+            transport.put(endpoint, data);
+            Map<String, String> fields = new HashMap<>();
+            for (String name : ResponseSigner.signedFields(endpoint)) {
+                Object value = data.get(name);
+                fields.put(name, value == null ? "" : value.toString());
+            }
+            String hashToken = HashTokenGenerator.generateHashToken(HashTokenGenerator.generateSalt(), PASSWORD);
+            ops.put("verify." + name(endpoint), () -> VerificationHashGenerator.generateVerificationHash(hashToken, fields, SECRET_KEY));
+        }
+
+        // Decoding of each endpoint's response through the client
+        ops.put("decode.balance", client::getWalletBalance);
+        ops.put("decode.create-payment-request", () -> client.createPaymentRequest(amount, "REF_0001", "Allocation budget"));
+        ops.put("decode.check-payment-status", () -> client.checkPaymentStatus(requestId));
+        ops.put("decode.send-money", () -> client.sendMoney(amount, walletId, "REF_0001", "Allocation budget"));
+        ops.put("decode.check-wallet", () -> client.checkWallet(walletId));
+        for (int size : SIZES) {
+            Map<String, Object> statement = new LinkedHashMap<>();
+            StubGPayServer.respond("/info/statement", params, size, 0, statement);
+            Map<String, Object> outstanding = new LinkedHashMap<>();
+            StubGPayServer.respond("/info/outstanding-transactions", params, 0, size, outstanding);
+            CannedTransport sized = new CannedTransport();
+            sized.put("/info/statement", statement);
+            sized.put("/info/outstanding-transactions", outstanding);
+            GPayApiClient sizedClient = new GPayApiClient(API_KEY, SECRET_KEY, PASSWORD, BASE_URL, "en", sized);
+            ops.put("decode.statement." + size, () -> sizedClient.getStatement("2024-01-15"));
+            ops.put("decode.outstanding-transactions." + size, sizedClient::getOutstandingTransactions);
+        }
+        return ops;
+    }
+
+    private static String sign(Map<String, String> params) throws Exception {
+        String salt = HashTokenGenerator.generateSalt();
+        String hashToken = HashTokenGenerator.generateHashToken(salt, PASSWORD);
+        return VerificationHashGenerator.generateVerificationHash(hashToken, params, SECRET_KEY);
+    }
+
+    private static String name(String endpoint) {
+        return endpoint.substring(endpoint.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Measures the bytes one run of an operation allocates on the current thread.
+     */
+    private static long measure(com.sun.management.ThreadMXBean allocation, Operation op) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        // Time one run to size the warm-up and measurement to about 2 and 0.5 seconds
+        long start = System.nanoTime();
+        op.run();
+        long nanos = Math.max(1000, System.nanoTime() - start);
+        int warmup = (int) Math.max(200, Math.min(20000, 2_000_000_000L / nanos));
+        for (int i = 0; i < warmup; i++) {
+            op.run();
+        }
+        int iterations = Math.max(50, warmup / 4);
+        long before = allocation.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        long after = allocation.getThreadAllocatedBytes(threadId);
+        return (after - before) / iterations;
+    }
+
+    /**
+     * Gets the feature version of the running JDK: 8 for {@code 1.8.0_392}, 17 for {@code 17.0.9}.
+     */
+    private static int featureVersion() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    /**
+     * Rewrites the budget file with the running JDK's budgets replaced and the other JDKs' budgets kept.
+     */
+    private static void write(Path file, Properties budgets, String jdk, Map<String, Long> measured) throws IOException {
+        Map<String, String> lines = new TreeMap<>();
+        for (String key : budgets.stringPropertyNames()) {
+            if (!key.startsWith(jdk)) {
+                lines.put(key, budgets.getProperty(key).trim());
+            }
+        }
+        for (Map.Entry<String, Long> result : measured.entrySet()) {
+            lines.put(jdk + result.getKey(), Long.toString((long) Math.ceil(result.getValue() * HEADROOM)));
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# Bytes allocated per operation on the request hot path, checked by AllocationBudgetCheck.\n");
+            out.write("# Keyed by JDK feature version, with 10% headroom. Regenerate on each JDK with --update and review the diff.\n");
+            for (Map.Entry<String, String> line : lines.entrySet()) {
+                out.write(line.getKey() + "=" + line.getValue() + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package net.libyaguide.gpay.sdk.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with log-linear buckets in microseconds.
+ * <p>
+ * Values below 64 us are counted exactly; above that each power of two is split into 32 buckets, so any
+ * recorded value is reported within about 3% of its true value. Values up to about 12 days fit.
+ * Recording is wait-free and safe from any number of threads.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR = 64;
+    private static final int SUB_BUCKETS = 32;
+    private static final int MAX_SHIFT = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR + MAX_SHIFT * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * @param nanos The latency in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long m;
+        while (micros > (m = max.get()) && !max.compareAndSet(m, micros)) {
+            // Retry until the maximum is published
+        }
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int shift = Math.min(MAX_SHIFT, 63 - Long.numberOfLeadingZeros(micros) - 5);
+        long top = Math.min(micros >>> shift, 2L * SUB_BUCKETS - 1);
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (top - SUB_BUCKETS);
+    }
+
+    private static long valueOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long top = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        // Middle of the bucket
+        return (top << shift) + (1L << (shift - 1));
+    }
+
+    /**
+     * Gets the number of recorded values.
+     * @return the count
+     */
+    public long getCount() { return count.get(); }
+
+    /**
+     * Gets the largest recorded value.
+     * @return the maximum in microseconds
+     */
+    public long getMaxMicros() { return max.get(); }
+
+    /**
+     * Gets the mean of the recorded values.
+     * @return the mean in microseconds
+     */
+    public double getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Gets the value below which the given fraction of the recorded values fall.
+     * @param quantile The quantile, e.g. 0.99.
+     * @return the value in microseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtQuantile(double quantile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(valueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+}
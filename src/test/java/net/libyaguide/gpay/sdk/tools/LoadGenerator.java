@@ -0,0 +1,624 @@
+package net.libyaguide.gpay.sdk.tools;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.client.RequestDispatcher;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator drives a {@link GPayApiClient} with a weighted mix of endpoints and reports latency, CPU,
+ * allocation and GC statistics.
+ * <p>
+ * <b>Load models:</b>
+ * <ul>
+ *   <li>OPEN - calls are issued at a fixed arrival rate, whether or not earlier calls have finished, and run on
+ *       up to {@code concurrency} threads. This models independent users and shows queueing when the client
+ *       falls behind.</li>
+ *   <li>CLOSED - {@code concurrency} callers each issue their next call when the previous one returns. With a
+ *       target rate the callers are paced to it; without, they run as fast as the client allows.</li>
+ * </ul>
+ * <b>Latency:</b> every call has an intended start time from the schedule, and its latency is measured from
+ * there rather than from when a thread got to it. A stalled client therefore shows up in the percentiles
+ * instead of silently lowering the rate (coordinated omission). The uncorrected service time is reported
+ * next to it. Unpaced closed runs have no schedule, so both are the same.
+ * <p>
+ * <b>Statistics:</b> process CPU time, bytes allocated by the calling threads (not measurable on virtual
+ * threads; run with {@code -Dgpay.virtualThreads=false} to get them) and collections per garbage collector,
+ * all over the measured phase only. A warm-up phase runs first and is discarded.
+ * <p>
+ * Payment endpoints move money, so {@code create-payment-request} and {@code send-money} are refused unless
+ * {@link #setAllowPayments(boolean)} is set; the command line sets it only against the local stub.
+ * <p>
+ * <b>Arguments:</b> {@code key=value} pairs, all optional:
+ * <ul>
+ *   <li>{@code mode=open|closed} (default open), {@code rate=1000} calls per second (0 for unpaced closed runs),
+ *       {@code concurrency=256}, {@code duration=30} and {@code warmup=5} seconds.</li>
+ *   <li>{@code mix=balance:4,check-wallet:3,check-payment-status:2,statement:1} endpoint weights.</li>
+ *   <li>{@code target=stub} (default) starts a {@link StubGPayServer} answering after {@code latency=20} ms;
+ *       any other value is a base URL, with credentials from {@code GPAY_API_KEY}, {@code GPAY_SECRET_KEY}
+ *       and {@code GPAY_PASSWORD}.</li>
+ *   <li>{@code wallet=<id>} the wallet gateway ID for check-wallet and send-money,
+ *       {@code allowPayments=true} to allow payment endpoints against a base URL.</li>
+ *   <li>{@code report=gpay-load-report.json} the JSON report file.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   java -cp gpay-api-client.jar:gpay-api-client-tests.jar:... net.libyaguide.gpay.sdk.tools.LoadGenerator mode=open rate=3000 duration=60
+ *
+ *   LoadGenerator load = new LoadGenerator(client);
+ *   load.setRate(2000);
+ *   load.setMix("balance:1,check-wallet:1");
+ *   LoadReport report = load.run();
+ *   report.writeTo(Paths.get("load.json"));
+ * </pre>
+ */
+public class LoadGenerator {
+    private static final String STUB_API_KEY = "load-api-key";
+    private static final String STUB_SECRET_KEY = "load-secret-key";
+    private static final String STUB_PASSWORD = "load-password";
+
+    /**
+     * Enum for the load model.
+     */
+    public enum Mode {
+        /** Fixed arrival rate, independent of response times. */
+        OPEN,
+        /** A fixed number of callers, each waiting for its previous call. */
+        CLOSED
+    }
+
+    /**
+     * Enum for the endpoints a run can call.
+     */
+    public enum Endpoint {
+        /** {@link GPayApiClient#getWalletBalance()} */
+        BALANCE("balance", false),
+        /** {@link GPayApiClient#createPaymentRequest(BigDecimal, String, String)} */
+        CREATE_PAYMENT_REQUEST("create-payment-request", true),
+        /** {@link GPayApiClient#checkPaymentStatus(String)} with a random request ID */
+        CHECK_PAYMENT_STATUS("check-payment-status", false),
+        /** {@link GPayApiClient#sendMoney(BigDecimal, String, String, String)} */
+        SEND_MONEY("send-money", true),
+        /** {@link GPayApiClient#getStatement(String)} for one of the last 30 days */
+        STATEMENT("statement", false),
+        /** {@link GPayApiClient#checkWallet(String)} */
+        CHECK_WALLET("check-wallet", false),
+        /** {@link GPayApiClient#getOutstandingTransactions()} */
+        OUTSTANDING_TRANSACTIONS("outstanding-transactions", false);
+
+        private final String key;
+        private final boolean payment;
+
+        Endpoint(String key, boolean payment) {
+            this.key = key;
+            this.payment = payment;
+        }
+
+        /**
+         * Gets the name used in mixes and reports.
+         * @return the name, e.g. {@code check-wallet}
+         */
+        public String getKey() { return key; }
+
+        /**
+         * Gets whether the endpoint moves money.
+         * @return true for payment endpoints
+         */
+        public boolean isPayment() { return payment; }
+
+        /**
+         * Looks up an endpoint by its name.
+         * @param key The name, e.g. {@code check-wallet}.
+         * @return The endpoint.
+         * @throws IllegalArgumentException if there is no such endpoint.
+         */
+        public static Endpoint fromKey(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key.equalsIgnoreCase(key.trim())) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint: " + key);
+        }
+    }
+
+    private final GPayApiClient client;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final AtomicLong sequence = new AtomicLong();
+    private Mode mode = Mode.OPEN;
+    private double rate = 1000;
+    private int concurrency = 256;
+    private long durationSeconds = 30;
+    private long warmupSeconds = 5;
+    private long drainSeconds = 30;
+    private Map<Endpoint, Integer> mix = parseMix("balance:4,check-wallet:3,check-payment-status:2,statement:1");
+    private String walletGatewayId = UUID.randomUUID().toString();
+    private boolean allowPayments;
+
+    /**
+     * Constructs a load generator for the given client.
+     * @param client The client under load. Its dispatcher limits are kept; size them for the target load.
+     */
+    public LoadGenerator(GPayApiClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Parses an endpoint mix such as {@code balance:4,check-wallet:1}. An endpoint without weight counts 1.
+     * @param mix The comma-separated endpoints and weights.
+     * @return The weights by endpoint.
+     * @throws IllegalArgumentException if an endpoint is unknown or a weight is not positive.
+     */
+    public static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String part : mix.split(",")) {
+            if (part.trim().isEmpty()) {
+                continue;
+            }
+            String[] pair = part.split(":");
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Weight of " + pair[0] + " must be positive");
+            }
+            weights.merge(Endpoint.fromKey(pair[0]), weight, Integer::sum);
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Endpoint mix is empty");
+        }
+        return weights;
+    }
+
+    /**
+     * Runs the warm-up phase, then the measured phase, and reports the measured phase.
+     * @return The report.
+     * @throws InterruptedException if interrupted while the load runs.
+     * @throws IllegalStateException if the mix contains payment endpoints and payments are not allowed.
+     */
+    public LoadReport run() throws InterruptedException {
+        for (Endpoint endpoint : mix.keySet()) {
+            if (endpoint.isPayment() && !allowPayments) {
+                throw new IllegalStateException(endpoint.getKey() + " moves money; enable allowPayments to load it");
+            }
+        }
+        if (mode == Mode.OPEN && rate <= 0) {
+            throw new IllegalStateException("Open-model runs need a positive rate");
+        }
+        if (warmupSeconds > 0) {
+            runPhase(TimeUnit.SECONDS.toNanos(warmupSeconds), new Stats());
+        }
+
+        Stats stats = new Stats();
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        long[] gcCounts = new long[collectors.size()];
+        long[] gcTimes = new long[collectors.size()];
+        for (int i = 0; i < gcCounts.length; i++) {
+            gcCounts[i] = collectors.get(i).getCollectionCount();
+            gcTimes[i] = collectors.get(i).getCollectionTime();
+        }
+        long cpuStart = processCpuTime(os);
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        runPhase(TimeUnit.SECONDS.toNanos(durationSeconds), stats);
+        long elapsed = System.nanoTime() - start;
+        long cpuEnd = processCpuTime(os);
+
+        LoadReport report = new LoadReport();
+        report.startedAt = startedAt.toString();
+        report.javaVersion = System.getProperty("java.version");
+        report.threadMode = GPayExecutors.isVirtual() ? "virtual" : "platform";
+        report.mode = mode.name();
+        report.targetRate = rate;
+        report.concurrency = concurrency;
+        report.durationSeconds = elapsed / 1e9;
+        report.incomplete = stats.incomplete;
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.endpoints.entrySet()) {
+            EndpointStats endpoint = entry.getValue();
+            LoadReport.EndpointReport result = new LoadReport.EndpointReport();
+            result.calls = endpoint.latency.getCount();
+            result.errors = endpoint.errors.get();
+            for (Map.Entry<String, AtomicLong> type : endpoint.errorTypes.entrySet()) {
+                result.errorTypes.put(type.getKey(), type.getValue().get());
+            }
+            result.latency = LoadReport.LatencySummary.of(endpoint.latency);
+            result.serviceTime = LoadReport.LatencySummary.of(endpoint.serviceTime);
+            report.endpoints.put(entry.getKey().getKey(), result);
+            report.calls += result.calls;
+            report.errors += result.errors;
+        }
+        report.achievedRate = report.calls / report.durationSeconds;
+
+        LoadReport.ProcessReport process = report.process;
+        process.processors = Runtime.getRuntime().availableProcessors();
+        if (cpuStart >= 0 && cpuEnd >= 0) {
+            process.cpuTimeMillis = (cpuEnd - cpuStart) / 1e6;
+            process.cpuUtilization = (double) (cpuEnd - cpuStart) / elapsed / process.processors;
+            process.cpuMicrosPerCall = report.calls == 0 ? 0 : (cpuEnd - cpuStart) / 1e3 / report.calls;
+        }
+        process.allocationMeasuredCalls = stats.allocationCalls.get();
+        if (process.allocationMeasuredCalls > 0) {
+            process.allocatedBytes = stats.allocatedBytes.get();
+            process.allocatedBytesPerCall = (double) process.allocatedBytes / process.allocationMeasuredCalls;
+        }
+        for (int i = 0; i < gcCounts.length; i++) {
+            GarbageCollectorMXBean collector = collectors.get(i);
+            long count = collector.getCollectionCount() - gcCounts[i];
+            long time = collector.getCollectionTime() - gcTimes[i];
+            process.collectors.add(new LoadReport.CollectorReport(collector.getName(), count, time));
+            process.gcCount += count;
+            process.gcTimeMillis += time;
+        }
+        process.heapUsedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return report;
+    }
+
+    private void runPhase(long durationNanos, Stats stats) throws InterruptedException {
+        Endpoint[] wheel = wheel();
+        ExecutorService executor = GPayExecutors.newBlockingExecutor("gpay-load", concurrency);
+        AtomicLong submitted = new AtomicLong();
+        AtomicLong finished = new AtomicLong();
+        try {
+            if (mode == Mode.OPEN) {
+                runOpen(executor, wheel, durationNanos, stats, submitted, finished);
+            } else {
+                runClosed(executor, wheel, durationNanos, stats, submitted, finished);
+            }
+            executor.shutdown();
+            executor.awaitTermination(drainSeconds, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        stats.incomplete = submitted.get() - finished.get();
+    }
+
+    private void runOpen(ExecutorService executor, Endpoint[] wheel, long durationNanos, Stats stats,
+                         AtomicLong submitted, AtomicLong finished) {
+        double intervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        for (long i = 0; ; i++) {
+            long offset = (long) (i * intervalNanos);
+            if (offset >= durationNanos) {
+                return;
+            }
+            long intended = start + offset;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = wheel[ThreadLocalRandom.current().nextInt(wheel.length)];
+            submitted.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    call(endpoint, intended, stats);
+                } finally {
+                    finished.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    private void runClosed(ExecutorService executor, Endpoint[] wheel, long durationNanos, Stats stats,
+                           AtomicLong submitted, AtomicLong finished) throws InterruptedException {
+        // Each caller gets an equal share of the target rate
+        long intervalNanos = rate > 0 ? (long) (concurrency * 1e9 / rate) : 0;
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            // Stagger the callers so paced calls do not arrive in bursts
+            long first = start + (intervalNanos * c) / concurrency;
+            executor.execute(() -> {
+                try {
+                    long intended = first;
+                    while (!Thread.currentThread().isInterrupted()) {
+                        if (intervalNanos > 0) {
+                            long wait = intended - System.nanoTime();
+                            if (wait > 0) {
+                                LockSupport.parkNanos(wait);
+                            }
+                        } else {
+                            intended = System.nanoTime();
+                        }
+                        if (intended - deadline >= 0) {
+                            return;
+                        }
+                        submitted.incrementAndGet();
+                        call(wheel[ThreadLocalRandom.current().nextInt(wheel.length)], intended, stats);
+                        finished.incrementAndGet();
+                        intended += intervalNanos;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await(TimeUnit.NANOSECONDS.toSeconds(durationNanos) + drainSeconds, TimeUnit.SECONDS);
+    }
+
+    private Endpoint[] wheel() {
+        List<Endpoint> wheel = new ArrayList<>();
+        for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                wheel.add(entry.getKey());
+            }
+        }
+        return wheel.toArray(new Endpoint[0]);
+    }
+
+    private void call(Endpoint endpoint, long intended, Stats stats) {
+        EndpointStats endpointStats = stats.endpoints.get(endpoint);
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            invoke(endpoint);
+        } catch (Exception e) {
+            endpointStats.errors.incrementAndGet();
+            endpointStats.errorTypes.computeIfAbsent(e.getClass().getSimpleName(), k -> new AtomicLong()).incrementAndGet();
+        } finally {
+            long end = System.nanoTime();
+            endpointStats.latency.record(end - intended);
+            endpointStats.serviceTime.record(end - start);
+            long allocatedAfter = allocatedBytes();
+            if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+                stats.allocatedBytes.addAndGet(allocatedAfter - allocatedBefore);
+                stats.allocationCalls.incrementAndGet();
+            }
+        }
+    }
+
+    private void invoke(Endpoint endpoint) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (endpoint) {
+            case BALANCE:
+                client.getWalletBalance();
+                break;
+            case CREATE_PAYMENT_REQUEST:
+                client.createPaymentRequest(BigDecimal.ONE, "LOAD-" + sequence.incrementAndGet(), "Load test");
+                break;
+            case CHECK_PAYMENT_STATUS:
+                client.checkPaymentStatus(new UUID(random.nextLong(), random.nextLong()).toString());
+                break;
+            case SEND_MONEY:
+                client.sendMoney(BigDecimal.ONE, walletGatewayId, "LOAD-" + sequence.incrementAndGet(), "Load test");
+                break;
+            case STATEMENT:
+                client.getStatement(LocalDate.now().minusDays(1 + random.nextInt(30)).toString());
+                break;
+            case CHECK_WALLET:
+                client.checkWallet(walletGatewayId);
+                break;
+            case OUTSTANDING_TRANSACTIONS:
+                client.getOutstandingTransactions();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported endpoint: " + endpoint);
+        }
+    }
+
+    /**
+     * Gets the bytes allocated so far by the current thread, or -1 where the JVM cannot tell (e.g. virtual threads).
+     */
+    private long allocatedBytes() {
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        try {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private static long processCpuTime(OperatingSystemMXBean os) {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static final class EndpointStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final Map<String, AtomicLong> errorTypes = new ConcurrentHashMap<>();
+    }
+
+    private final class Stats {
+        final Map<Endpoint, EndpointStats> endpoints = new EnumMap<>(Endpoint.class);
+        final AtomicLong allocatedBytes = new AtomicLong();
+        final AtomicLong allocationCalls = new AtomicLong();
+        long incomplete;
+
+        Stats() {
+            for (Endpoint endpoint : mix.keySet()) {
+                endpoints.put(endpoint, new EndpointStats());
+            }
+        }
+    }
+
+    /**
+     * Runs a load test from the command line and writes the JSON report.
+     * @param args {@code key=value} pairs, see the class description.
+     * @throws Exception if the stub server cannot be started or the report cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "256"));
+        String target = options.getOrDefault("target", "stub");
+        Path reportFile = Paths.get(options.getOrDefault("report", "gpay-load-report.json"));
+
+        StubGPayServer stub = null;
+        try {
+            GPayApiClient client;
+            boolean allowPayments;
+            if ("stub".equals(target)) {
+                stub = new StubGPayServer(STUB_API_KEY, STUB_SECRET_KEY, STUB_PASSWORD, concurrency);
+                stub.setLatencyMillis(Long.parseLong(options.getOrDefault("latency", "20")));
+                stub.start();
+                client = new GPayApiClient(STUB_API_KEY, STUB_SECRET_KEY, STUB_PASSWORD, stub.getBaseUrl(), "en");
+                allowPayments = true;
+            } else {
+                client = new GPayApiClient(System.getenv("GPAY_API_KEY"), System.getenv("GPAY_SECRET_KEY"),
+                    System.getenv("GPAY_PASSWORD"), target, "en");
+                allowPayments = Boolean.parseBoolean(options.get("allowPayments"));
+            }
+            client.setDispatcher(new RequestDispatcher(concurrency));
+
+            LoadGenerator load = new LoadGenerator(client);
+            load.setMode(Mode.valueOf(options.getOrDefault("mode", "open").toUpperCase()));
+            load.setRate(Double.parseDouble(options.getOrDefault("rate", "1000")));
+            load.setConcurrency(concurrency);
+            load.setDurationSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+            load.setWarmupSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+            if (options.containsKey("mix")) {
+                load.setMix(options.get("mix"));
+            }
+            if (options.containsKey("wallet")) {
+                load.setWalletGatewayId(options.get("wallet"));
+            }
+            load.setAllowPayments(allowPayments);
+
+            LoadReport report = load.run();
+            report.writeTo(reportFile);
+            System.out.printf("%s %s, %d calls in %.1f s: %.0f calls/s, %d errors, %d incomplete%n", report.getMode(),
+                report.getThreadMode(), report.getCalls(), report.getDurationSeconds(), report.getAchievedRate(),
+                report.getErrors(), report.getIncomplete());
+            for (Map.Entry<String, LoadReport.EndpointReport> entry : report.getEndpoints().entrySet()) {
+                LoadReport.LatencySummary latency = entry.getValue().getLatency();
+                System.out.printf("  %-26s %8d calls  p50 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms%n", entry.getKey(),
+                    entry.getValue().getCalls(), latency.getP50(), latency.getP99(), latency.getP999(), latency.getMax());
+            }
+            LoadReport.ProcessReport process = report.getProcess();
+            System.out.printf("  cpu %.0f%%, %.0f bytes/call, %d GCs (%d ms)%n", process.getCpuUtilization() * 100,
+                process.getAllocatedBytesPerCall(), process.getGcCount(), process.getGcTimeMillis());
+            System.out.println("report: " + reportFile.toAbsolutePath());
+        } finally {
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    // Getters and setters
+    /**
+     * Gets the load model.
+     * @return the mode
+     */
+    public Mode getMode() { return mode; }
+    /**
+     * Sets the load model (default: OPEN).
+     * @param mode the mode
+     */
+    public void setMode(Mode mode) { this.mode = mode; }
+    /**
+     * Gets the target arrival rate.
+     * @return calls per second
+     */
+    public double getRate() { return rate; }
+    /**
+     * Sets the target arrival rate (default: 1000). In closed runs, 0 runs the callers unpaced.
+     * @param rate calls per second
+     */
+    public void setRate(double rate) { this.rate = rate; }
+    /**
+     * Gets the number of concurrent callers.
+     * @return the concurrency
+     */
+    public int getConcurrency() { return concurrency; }
+    /**
+     * Sets the number of concurrent callers (default: 256).
+     * @param concurrency the concurrency
+     */
+    public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+    /**
+     * Gets the length of the measured phase.
+     * @return seconds
+     */
+    public long getDurationSeconds() { return durationSeconds; }
+    /**
+     * Sets the length of the measured phase (default: 30).
+     * @param durationSeconds seconds
+     */
+    public void setDurationSeconds(long durationSeconds) { this.durationSeconds = durationSeconds; }
+    /**
+     * Gets the length of the discarded warm-up phase.
+     * @return seconds
+     */
+    public long getWarmupSeconds() { return warmupSeconds; }
+    /**
+     * Sets the length of the discarded warm-up phase (default: 5).
+     * @param warmupSeconds seconds, 0 to skip warm-up
+     */
+    public void setWarmupSeconds(long warmupSeconds) { this.warmupSeconds = warmupSeconds; }
+    /**
+     * Gets how long calls still running at the end of a phase are waited for.
+     * @return seconds
+     */
+    public long getDrainSeconds() { return drainSeconds; }
+    /**
+     * Sets how long calls still running at the end of a phase are waited for (default: 30).
+     * @param drainSeconds seconds
+     */
+    public void setDrainSeconds(long drainSeconds) { this.drainSeconds = drainSeconds; }
+    /**
+     * Gets the endpoint mix.
+     * @return the weights by endpoint
+     */
+    public Map<Endpoint, Integer> getMix() { return mix; }
+    /**
+     * Sets the endpoint mix (default: {@code balance:4,check-wallet:3,check-payment-status:2,statement:1}).
+     * @param mix the weights by endpoint
+     */
+    public void setMix(Map<Endpoint, Integer> mix) { this.mix = new EnumMap<>(mix); }
+    /**
+     * Sets the endpoint mix from its text form.
+     * @param mix e.g. {@code balance:4,check-wallet:1}
+     * @see #parseMix(String)
+     */
+    public void setMix(String mix) { this.mix = parseMix(mix); }
+    /**
+     * Gets the wallet gateway ID used by check-wallet and send-money.
+     * @return the wallet gateway ID
+     */
+    public String getWalletGatewayId() { return walletGatewayId; }
+    /**
+     * Sets the wallet gateway ID used by check-wallet and send-money (default: a random ID).
+     * @param walletGatewayId the wallet gateway ID
+     */
+    public void setWalletGatewayId(String walletGatewayId) { this.walletGatewayId = walletGatewayId; }
+    /**
+     * Gets whether payment endpoints may be called.
+     * @return true if allowed
+     */
+    public boolean isAllowPayments() { return allowPayments; }
+    /**
+     * Sets whether payment endpoints may be called (default: false).
+     * @param allowPayments true to allow create-payment-request and send-money
+     */
+    public void setAllowPayments(boolean allowPayments) { this.allowPayments = allowPayments; }
+}
@@ -0,0 +1,362 @@
+package net.libyaguide.gpay.sdk.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The results of a {@link LoadGenerator} run, serializable to JSON.
+ * <p>
+ * <b>Contents:</b>
+ * <ul>
+ *   <li>The run configuration, Java version and thread mode.</li>
+ *   <li>Per endpoint: call and error counts, and latency percentiles. {@code latency} is measured from the
+ *       intended start of each call, so queueing behind slow calls is counted (coordinated-omission corrected);
+ *       {@code serviceTime} is measured from the actual start.</li>
+ *   <li>Process statistics for the measured phase: CPU time and utilization, bytes allocated by the calling
+ *       threads, and collections and pause time per garbage collector.</li>
+ * </ul>
+ */
+public class LoadReport {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+
+    /** When the measured phase started, as an ISO-8601 instant. */
+    String startedAt;
+    /** The Java version running the load. */
+    String javaVersion;
+    /** Whether calls ran on virtual or platform threads. */
+    String threadMode;
+    /** The load model, OPEN or CLOSED. */
+    String mode;
+    /** The target arrival rate in calls per second, or 0 for as fast as possible. */
+    double targetRate;
+    /** The number of concurrent callers. */
+    int concurrency;
+    /** The length of the measured phase in seconds, including waiting for calls still running at its end. */
+    double durationSeconds;
+    /** The number of calls completed in the measured phase. */
+    long calls;
+    /** The number of calls that failed. */
+    long errors;
+    /** The number of calls still running when the run was stopped. */
+    long incomplete;
+    /** The completed calls per second. */
+    double achievedRate;
+    /** The results per endpoint. */
+    Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+    /** CPU, allocation and GC statistics. */
+    ProcessReport process = new ProcessReport();
+
+    /**
+     * Serializes the report to pretty-printed JSON.
+     * @return the JSON text
+     */
+    public String toJson() { return GSON.toJson(this); }
+
+    /**
+     * Writes the report as JSON.
+     * @param file The file to write, replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTo(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            GSON.toJson(this, out);
+        }
+    }
+
+    // Getters
+    /**
+     * Gets when the measured phase started.
+     * @return an ISO-8601 instant
+     */
+    public String getStartedAt() { return startedAt; }
+    /**
+     * Gets the Java version running the load.
+     * @return the version
+     */
+    public String getJavaVersion() { return javaVersion; }
+    /**
+     * Gets whether calls ran on virtual or platform threads.
+     * @return "virtual" or "platform"
+     */
+    public String getThreadMode() { return threadMode; }
+    /**
+     * Gets the load model.
+     * @return OPEN or CLOSED
+     */
+    public String getMode() { return mode; }
+    /**
+     * Gets the target arrival rate.
+     * @return calls per second, or 0 for as fast as possible
+     */
+    public double getTargetRate() { return targetRate; }
+    /**
+     * Gets the number of concurrent callers.
+     * @return the concurrency
+     */
+    public int getConcurrency() { return concurrency; }
+    /**
+     * Gets the length of the measured phase.
+     * @return the duration in seconds
+     */
+    public double getDurationSeconds() { return durationSeconds; }
+    /**
+     * Gets the number of calls completed in the measured phase.
+     * @return the number of calls
+     */
+    public long getCalls() { return calls; }
+    /**
+     * Gets the number of calls that failed.
+     * @return the number of errors
+     */
+    public long getErrors() { return errors; }
+    /**
+     * Gets the number of calls still running when the run was stopped.
+     * @return the number of incomplete calls
+     */
+    public long getIncomplete() { return incomplete; }
+    /**
+     * Gets the completed calls per second.
+     * @return the achieved rate
+     */
+    public double getAchievedRate() { return achievedRate; }
+    /**
+     * Gets the results per endpoint.
+     * @return the results keyed by endpoint name, e.g. {@code check-wallet}
+     */
+    public Map<String, EndpointReport> getEndpoints() { return endpoints; }
+    /**
+     * Gets the CPU, allocation and GC statistics.
+     * @return the process statistics
+     */
+    public ProcessReport getProcess() { return process; }
+
+    /**
+     * The results of one endpoint.
+     */
+    public static class EndpointReport {
+        /** The number of completed calls. */
+        long calls;
+        /** The number of failed calls. */
+        long errors;
+        /** The failures by exception type. */
+        Map<String, Long> errorTypes = new TreeMap<>();
+        /** Latency from the intended start of each call. */
+        LatencySummary latency;
+        /** Latency from the actual start of each call. */
+        LatencySummary serviceTime;
+
+        // Getters
+        /**
+         * Gets the number of completed calls.
+         * @return the number of calls
+         */
+        public long getCalls() { return calls; }
+        /**
+         * Gets the number of failed calls.
+         * @return the number of errors
+         */
+        public long getErrors() { return errors; }
+        /**
+         * Gets the failures by exception type.
+         * @return the counts keyed by exception class name
+         */
+        public Map<String, Long> getErrorTypes() { return errorTypes; }
+        /**
+         * Gets the latency measured from the intended start of each call.
+         * @return the corrected latency
+         */
+        public LatencySummary getLatency() { return latency; }
+        /**
+         * Gets the latency measured from the actual start of each call.
+         * @return the service time
+         */
+        public LatencySummary getServiceTime() { return serviceTime; }
+    }
+
+    /**
+     * Percentiles of a latency histogram, in milliseconds.
+     */
+    public static class LatencySummary {
+        double p50;
+        double p90;
+        double p99;
+        double p999;
+        double max;
+        double mean;
+
+        static LatencySummary of(LatencyHistogram histogram) {
+            LatencySummary summary = new LatencySummary();
+            summary.p50 = millis(histogram.getValueAtQuantile(0.50));
+            summary.p90 = millis(histogram.getValueAtQuantile(0.90));
+            summary.p99 = millis(histogram.getValueAtQuantile(0.99));
+            summary.p999 = millis(histogram.getValueAtQuantile(0.999));
+            summary.max = millis(histogram.getMaxMicros());
+            summary.mean = millis(Math.round(histogram.getMeanMicros()));
+            return summary;
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+
+        // Getters
+        /**
+         * Gets the median.
+         * @return milliseconds
+         */
+        public double getP50() { return p50; }
+        /**
+         * Gets the 90th percentile.
+         * @return milliseconds
+         */
+        public double getP90() { return p90; }
+        /**
+         * Gets the 99th percentile.
+         * @return milliseconds
+         */
+        public double getP99() { return p99; }
+        /**
+         * Gets the 99.9th percentile.
+         * @return milliseconds
+         */
+        public double getP999() { return p999; }
+        /**
+         * Gets the maximum.
+         * @return milliseconds
+         */
+        public double getMax() { return max; }
+        /**
+         * Gets the mean.
+         * @return milliseconds
+         */
+        public double getMean() { return mean; }
+    }
+
+    /**
+     * CPU, allocation and GC statistics of the measured phase.
+     */
+    public static class ProcessReport {
+        /** The number of processors available to the JVM. */
+        int processors;
+        /** The CPU time used by the process in milliseconds, or -1 if not supported. */
+        double cpuTimeMillis = -1;
+        /** The share of the available processors used by the process, from 0 to 1, or -1 if not supported. */
+        double cpuUtilization = -1;
+        /** The CPU time per completed call in microseconds, or -1 if not supported. */
+        double cpuMicrosPerCall = -1;
+        /** The bytes allocated by the calling threads, or -1 if not measurable. */
+        long allocatedBytes = -1;
+        /** The bytes allocated per measured call, or -1 if not measurable. */
+        double allocatedBytesPerCall = -1;
+        /** The number of calls whose allocation could be measured. */
+        long allocationMeasuredCalls;
+        /** The total number of collections. */
+        long gcCount;
+        /** The total collection time in milliseconds. */
+        long gcTimeMillis;
+        /** The collections per collector. */
+        List<CollectorReport> collectors = new ArrayList<>();
+        /** The used heap at the end of the run in bytes. */
+        long heapUsedBytes;
+
+        // Getters
+        /**
+         * Gets the number of processors available to the JVM.
+         * @return the processors
+         */
+        public int getProcessors() { return processors; }
+        /**
+         * Gets the CPU time used by the process.
+         * @return milliseconds, or -1 if not supported
+         */
+        public double getCpuTimeMillis() { return cpuTimeMillis; }
+        /**
+         * Gets the share of the available processors used by the process.
+         * @return from 0 to 1, or -1 if not supported
+         */
+        public double getCpuUtilization() { return cpuUtilization; }
+        /**
+         * Gets the CPU time per completed call.
+         * @return microseconds, or -1 if not supported
+         */
+        public double getCpuMicrosPerCall() { return cpuMicrosPerCall; }
+        /**
+         * Gets the bytes allocated by the calling threads.
+         * @return bytes, or -1 if not measurable
+         */
+        public long getAllocatedBytes() { return allocatedBytes; }
+        /**
+         * Gets the bytes allocated per measured call.
+         * @return bytes, or -1 if not measurable
+         */
+        public double getAllocatedBytesPerCall() { return allocatedBytesPerCall; }
+        /**
+         * Gets the number of calls whose allocation could be measured.
+         * @return the number of calls
+         */
+        public long getAllocationMeasuredCalls() { return allocationMeasuredCalls; }
+        /**
+         * Gets the total number of collections.
+         * @return the number of collections
+         */
+        public long getGcCount() { return gcCount; }
+        /**
+         * Gets the total collection time.
+         * @return milliseconds
+         */
+        public long getGcTimeMillis() { return gcTimeMillis; }
+        /**
+         * Gets the collections per collector.
+         * @return the collectors
+         */
+        public List<CollectorReport> getCollectors() { return collectors; }
+        /**
+         * Gets the used heap at the end of the run.
+         * @return bytes
+         */
+        public long getHeapUsedBytes() { return heapUsedBytes; }
+    }
+
+    /**
+     * The collections of one garbage collector.
+     */
+    public static class CollectorReport {
+        String name;
+        long count;
+        long timeMillis;
+
+        CollectorReport(String name, long count, long timeMillis) {
+            this.name = name;
+            this.count = count;
+            this.timeMillis = timeMillis;
+        }
+
+        // Getters
+        /**
+         * Gets the collector name.
+         * @return the name, e.g. {@code G1 Young Generation}
+         */
+        public String getName() { return name; }
+        /**
+         * Gets the number of collections.
+         * @return the count
+         */
+        public long getCount() { return count; }
+        /**
+         * Gets the collection time.
+         * @return milliseconds
+         */
+        public long getTimeMillis() { return timeMillis; }
+    }
+}
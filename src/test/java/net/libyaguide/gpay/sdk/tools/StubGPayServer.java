@@ -0,0 +1,360 @@
+package net.libyaguide.gpay.sdk.tools;
+
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.crypto.HashTokenGenerator;
+import net.libyaguide.gpay.sdk.crypto.ResponseSigner;
+import net.libyaguide.gpay.sdk.crypto.VerificationHashGenerator;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StubGPayServer is a local stand-in for the GPay API, used by benchmarks and integration tests.
+ * <p>
+ * It listens on the loopback interface and answers every endpoint of {@link net.libyaguide.gpay.sdk.client.GPayApiClient}
+ * with synthetic data. Requests are checked like the real API does (Bearer API key and request signature) and
+ * responses are signed with the same secret key and password, so response verification passes.
+ * <p>
+ * <b>Behaviour:</b>
+ * <ul>
+ *   <li>Every answer is delayed by {@code latencyMillis} to simulate network and server time.</li>
+ *   <li>Statements hold {@code statementSize} synthetic transactions per day, derived from the date.</li>
+ *   <li>Outstanding transactions hold {@code outstandingSize} synthetic transactions.</li>
+ *   <li>HEAD requests are answered with an empty 200, for connection warm-up.</li>
+ * </ul>
+ * The data is not stateful: balances do not move and payment requests are never paid.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   try (StubGPayServer stub = new StubGPayServer(apiKey, secretKey, password)) {
+ *       stub.start();
+ *       GPayApiClient client = new GPayApiClient(apiKey, secretKey, password, stub.getBaseUrl(), "en");
+ *       Balance balance = client.getWalletBalance();
+ *   }
+ * </pre>
+ */
+public class StubGPayServer implements Closeable {
+    private static final Type PARAMS_TYPE = new TypeToken<Map<String, String>>() { }.getType();
+
+    private final String apiKey;
+    private final String secretKey;
+    private final String password;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Gson gson = new Gson();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile long latencyMillis;
+    private volatile int statementSize = 20;
+    private volatile int outstandingSize;
+
+    /**
+     * Constructs a stub server handling up to 256 requests at a time.
+     * @param apiKey The API key clients must present.
+     * @param secretKey The secret key used to check requests and sign responses.
+     * @param password The password used to check requests and sign responses.
+     * @throws IOException if the server socket cannot be opened.
+     */
+    public StubGPayServer(String apiKey, String secretKey, String password) throws IOException {
+        this(apiKey, secretKey, password, 256);
+    }
+
+    /**
+     * Constructs a stub server.
+     * @param apiKey The API key clients must present.
+     * @param secretKey The secret key used to check requests and sign responses.
+     * @param password The password used to check requests and sign responses.
+     * @param threads The maximum number of requests handled at a time.
+     * @throws IOException if the server socket cannot be opened.
+     */
+    public StubGPayServer(String apiKey, String secretKey, String password, int threads) throws IOException {
+        // Headers and body are written separately, so with Nagle's algorithm every answer on a kept-alive
+        // connection waits for the client's delayed ACK (about 40 ms). Read once, before the first server starts.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.apiKey = apiKey;
+        this.secretKey = secretKey;
+        this.password = password;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), threads);
+        this.executor = GPayExecutors.newBlockingExecutor("gpay-stub-server", threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets the base URL to pass to the client.
+     * @return the base URL, e.g. {@code http://127.0.0.1:40123}
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server and its threads.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            Map<String, String> params = gson.fromJson(readBody(exchange.getRequestBody()), PARAMS_TYPE);
+            if (params == null) {
+                params = new HashMap<>();
+            }
+            if (!("Bearer " + apiKey).equals(exchange.getRequestHeaders().getFirst("Authorization"))
+                    || !requestSignatureValid(exchange, params)) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            long latency = latencyMillis;
+            if (latency > 0) {
+                TimeUnit.MILLISECONDS.sleep(latency);
+            }
+            String endpoint = ResponseSigner.endpointOf(exchange.getRequestURI().getPath());
+            Map<String, Object> data = new LinkedHashMap<>();
+            if (!respond(endpoint, params, statementSize, outstandingSize, data)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (String key : ResponseSigner.signedFields(endpoint)) {
+                Object value = data.get(key);
+                fields.put(key, value == null ? "" : value.toString());
+            }
+            String salt = HashTokenGenerator.generateSalt();
+            String hash = VerificationHashGenerator.generateVerificationHash(
+                HashTokenGenerator.generateHashToken(salt, password), fields, secretKey);
+            byte[] body = gson.toJson(Collections.singletonMap("data", data)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("X-Signature-Salt", salt);
+            exchange.getResponseHeaders().add("X-Signature-Hash", hash);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } catch (Exception e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean requestSignatureValid(HttpExchange exchange, Map<String, String> params) throws Exception {
+        String salt = exchange.getRequestHeaders().getFirst("X-Signature-Salt");
+        String hash = exchange.getRequestHeaders().getFirst("X-Signature-Hash");
+        if (salt == null || hash == null) {
+            return false;
+        }
+        String expected = VerificationHashGenerator.generateVerificationHash(
+            HashTokenGenerator.generateHashToken(salt, password), params, secretKey);
+        return expected.equals(hash);
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Fills the response data of an endpoint.
+     * @return false for an unknown endpoint
+     */
+    static boolean respond(String endpoint, Map<String, String> params, int statementSize, int outstandingSize,
+                           Map<String, Object> data) {
+        String now = String.valueOf(System.currentTimeMillis());
+        switch (endpoint) {
+            case "/info/balance":
+                data.put("balance", "1000000.00");
+                data.put("response_timestamp", now);
+                return true;
+            case "/payment/create-payment-request":
+                data.put("requester_username", "stub");
+                data.put("request_id", UUID.randomUUID().toString());
+                data.put("request_time", now);
+                data.put("amount", params.get("amount"));
+                data.put("reference_no", emptyToNull(params.get("reference_no")));
+                data.put("response_timestamp", now);
+                return true;
+            case "/payment/check-payment-status":
+                data.put("request_id", params.get("request_id"));
+                data.put("transaction_id", null);
+                data.put("amount", "0");
+                data.put("payment_timestamp", null);
+                data.put("reference_no", null);
+                data.put("description", null);
+                data.put("is_paid", false);
+                data.put("response_timestamp", now);
+                return true;
+            case "/payment/send-money":
+                data.put("amount", params.get("amount"));
+                data.put("sender_fee", "0");
+                data.put("transaction_id", UUID.randomUUID().toString());
+                data.put("old_balance", "1000000.00");
+                data.put("new_balance", "1000000.00");
+                data.put("timestamp", now);
+                data.put("reference_no", emptyToNull(params.get("reference_no")));
+                data.put("response_timestamp", now);
+                return true;
+            case "/info/statement":
+                statement(params.get("date"), statementSize, data);
+                data.put("response_timestamp", now);
+                return true;
+            case "/info/check-wallet":
+                data.put("exists", true);
+                data.put("wallet_gateway_id", params.get("wallet_gateway_id"));
+                data.put("wallet_name", "Stub wallet");
+                data.put("user_account_name", "stub");
+                data.put("can_receive_money", true);
+                data.put("response_timestamp", now);
+                return true;
+            case "/info/outstanding-transactions":
+                data.put("outstanding_credit", "0");
+                data.put("outstanding_debit", "0");
+                data.put("response_timestamp", now);
+                data.put("outstanding_transactions", transactions("outstanding", outstandingSize, System.currentTimeMillis()));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void statement(String date, int size, Map<String, Object> data) {
+        String day = date == null ? "" : date;
+        long dayStart = System.currentTimeMillis();
+        try {
+            dayStart = LocalDate.parse(day).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        } catch (RuntimeException ignored) {
+            // Not a date; use the current time
+        }
+        List<Map<String, Object>> txs = transactions(day, size, dayStart);
+        BigDecimal in = BigDecimal.ZERO;
+        BigDecimal out = BigDecimal.ZERO;
+        for (Map<String, Object> tx : txs) {
+            BigDecimal amount = new BigDecimal((String) tx.get("amount"));
+            if (amount.signum() < 0) {
+                out = out.add(amount.negate());
+            } else {
+                in = in.add(amount);
+            }
+        }
+        String balance = txs.isEmpty() ? "10000.00" : (String) txs.get(txs.size() - 1).get("balance");
+        data.put("available_balance", balance);
+        data.put("outstanding_credit", "0");
+        data.put("outstanding_debit", "0");
+        data.put("day_balance", balance);
+        data.put("day_total_in", in.toPlainString());
+        data.put("day_total_out", out.toPlainString());
+        data.put("day_statement", txs);
+    }
+
+    /**
+     * Generates transactions derived from a seed, one second apart from the given start.
+     */
+    private static List<Map<String, Object>> transactions(String seed, int size, long start) {
+        Random random = new Random(seed.hashCode());
+        BigDecimal balance = BigDecimal.valueOf(1000000, 2);
+        List<Map<String, Object>> txs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(100000) + 1, 2);
+            if (random.nextBoolean()) {
+                amount = amount.negate();
+            }
+            balance = balance.add(amount);
+            String timestamp = String.valueOf(start + i * 1000L);
+            Map<String, Object> tx = new LinkedHashMap<>();
+            tx.put("transaction_id", UUID.nameUUIDFromBytes((seed + "/" + i).getBytes(StandardCharsets.UTF_8)).toString());
+            tx.put("datetime", seed + " 00:00:00");
+            tx.put("timestamp", timestamp);
+            tx.put("description", "Stub transaction " + i);
+            tx.put("amount", amount.toPlainString());
+            tx.put("balance", balance.toPlainString());
+            tx.put("reference_no", "REF_" + seed.replace("-", "") + "_" + i);
+            tx.put("op_type_id", 1 + random.nextInt(6));
+            tx.put("status", i % 10 == 9 ? 0 : 1);
+            tx.put("created_at", timestamp);
+            txs.add(tx);
+        }
+        return txs;
+    }
+
+    /**
+     * Gets the number of requests received.
+     * @return the number of requests
+     */
+    public long getRequestCount() { return requests.get(); }
+    /**
+     * Gets the delay added to every answer.
+     * @return the latency in milliseconds
+     */
+    public long getLatencyMillis() { return latencyMillis; }
+    /**
+     * Sets the delay added to every answer (default: 0).
+     * @param latencyMillis the latency in milliseconds
+     */
+    public void setLatencyMillis(long latencyMillis) { this.latencyMillis = latencyMillis; }
+    /**
+     * Gets the number of transactions in each day statement.
+     * @return the statement size
+     */
+    public int getStatementSize() { return statementSize; }
+    /**
+     * Sets the number of transactions in each day statement (default: 20).
+     * @param statementSize the statement size
+     */
+    public void setStatementSize(int statementSize) { this.statementSize = statementSize; }
+    /**
+     * Gets the number of outstanding transactions returned.
+     * @return the number of outstanding transactions
+     */
+    public int getOutstandingSize() { return outstandingSize; }
+    /**
+     * Sets the number of outstanding transactions returned (default: 0).
+     * @param outstandingSize the number of outstanding transactions
+     */
+    public void setOutstandingSize(int outstandingSize) { this.outstandingSize = outstandingSize; }
+}
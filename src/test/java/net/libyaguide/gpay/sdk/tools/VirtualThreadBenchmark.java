@@ -0,0 +1,121 @@
+package net.libyaguide.gpay.sdk.tools;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.client.RequestDispatcher;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VirtualThreadBenchmark measures the throughput of many concurrent blocking calls against a local
+ * {@link StubGPayServer}.
+ * <p>
+ * All calls are started at once on an executor from {@link GPayExecutors}, so the same benchmark measures
+ * platform threads on Java 8-20 and virtual threads on Java 21 and later. The client gets a dispatcher that
+ * admits {@code maxInFlight} calls, so the benchmark also covers the cost of lane admission.
+ * <p>
+ * <b>Arguments:</b> {@code [calls=10000] [latencyMillis=50] [maxInFlight=calls]}
+ * <p>
+ * <b>Output:</b> the thread mode, elapsed time, calls per second, latency percentiles, failures and the
+ * peak number of platform threads.
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   java -cp gpay-api-client.jar:gpay-api-client-tests.jar:... net.libyaguide.gpay.sdk.tools.VirtualThreadBenchmark 10000 50
+ *   java -Dgpay.virtualThreads=false -cp ... net.libyaguide.gpay.sdk.tools.VirtualThreadBenchmark 10000 50
+ * </pre>
+ */
+public final class VirtualThreadBenchmark {
+    private static final String API_KEY = "bench-api-key";
+    private static final String SECRET_KEY = "bench-secret-key";
+    private static final String PASSWORD = "bench-password";
+
+    private VirtualThreadBenchmark() { }
+
+    /**
+     * Runs the benchmark and prints the results.
+     * @param args {@code [calls] [latencyMillis] [maxInFlight]}
+     * @throws Exception if the stub server cannot be started.
+     */
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : calls;
+
+        try (StubGPayServer stub = new StubGPayServer(API_KEY, SECRET_KEY, PASSWORD, maxInFlight)) {
+            stub.setLatencyMillis(latencyMillis);
+            stub.start();
+            GPayApiClient client = new GPayApiClient(API_KEY, SECRET_KEY, PASSWORD, stub.getBaseUrl(), "en");
+            client.setDispatcher(new RequestDispatcher(maxInFlight));
+
+            // Warm up class loading, JIT and a few connections
+            run(client, Math.min(calls, 200));
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            long[] latencies = new long[calls];
+            long started = System.nanoTime();
+            int failures = run(client, calls, latencies);
+            long elapsed = System.nanoTime() - started;
+
+            Arrays.sort(latencies);
+            System.out.println("mode:            " + (GPayExecutors.isVirtual() ? "virtual threads" : "platform threads")
+                + " (Java " + System.getProperty("java.version") + ")");
+            System.out.println("calls:           " + calls + " (server latency " + latencyMillis + " ms, max in flight " + maxInFlight + ")");
+            System.out.println("elapsed:         " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+            System.out.println("throughput:      " + (long) (calls / (elapsed / 1e9)) + " calls/s");
+            System.out.println("latency p50/p99: " + percentileMillis(latencies, 0.50) + " / " + percentileMillis(latencies, 0.99) + " ms");
+            System.out.println("failures:        " + failures);
+            System.out.println("peak threads:    " + threads.getPeakThreadCount() + " platform");
+        }
+    }
+
+    private static int run(GPayApiClient client, int calls) throws InterruptedException {
+        return run(client, calls, new long[calls]);
+    }
+
+    private static int run(GPayApiClient client, int calls, long[] latencies) throws InterruptedException {
+        ExecutorService executor = GPayExecutors.newBlockingExecutor("gpay-benchmark", calls);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(calls);
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            for (int i = 0; i < calls; i++) {
+                int slot = i;
+                executor.execute(() -> {
+                    try {
+                        go.await();
+                        long start = System.nanoTime();
+                        client.getWalletBalance();
+                        latencies[slot] = System.nanoTime() - start;
+                    } catch (Exception e) {
+                        if (failures.incrementAndGet() == 1) {
+                            System.err.println("first failure: " + e);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            go.countDown();
+            done.await();
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures.get();
+    }
+
+    private static long percentileMillis(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+}
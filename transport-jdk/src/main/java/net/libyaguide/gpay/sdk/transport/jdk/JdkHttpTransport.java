@@ -0,0 +1,169 @@
+package net.libyaguide.gpay.sdk.transport.jdk;
+
+import net.libyaguide.gpay.sdk.client.CancellationToken;
+import net.libyaguide.gpay.sdk.transport.GPayTransport;
+import net.libyaguide.gpay.sdk.transport.TransportRequest;
+import net.libyaguide.gpay.sdk.transport.TransportResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * GPayTransport on the JDK {@link HttpClient} (Java 11+), without OkHttp, Okio or the Kotlin standard library.
+ * <p>
+ * <b>Behaviour:</b>
+ * <ul>
+ *   <li>HTTP/2 is negotiated over TLS (ALPN), so all calls to the API share one multiplexed connection;
+ *       plain-text URLs and servers without HTTP/2 fall back to HTTP/1.1.</li>
+ *   <li>{@link #executeAsync(TransportRequest)} uses {@link HttpClient#sendAsync} and holds no thread while waiting.</li>
+ *   <li>The request timeout bounds the whole exchange, including reading the response body; without one,
+ *       30 seconds are used. An exchange still running when it expires is cancelled.</li>
+ * </ul>
+ *
+ * <b>Usage Example:</b>
+ * <pre>
+ *   GPayApiClient client = new GPayApiClient(apiKey, secretKey, password,
+ *       GPayApiClient.BaseUrl.STAGING.getUrl(), "en", new JdkHttpTransport());
+ * </pre>
+ */
+public class JdkHttpTransport implements GPayTransport {
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+
+    /**
+     * Constructs a transport preferring HTTP/2, with a 30 second connect timeout.
+     */
+    public JdkHttpTransport() {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(DEFAULT_TIMEOUT)
+                .build());
+    }
+
+    /**
+     * Constructs a transport on the given JDK HTTP client, e.g. one with a proxy or custom SSL context.
+     * @param httpClient The JDK HTTP client.
+     */
+    public JdkHttpTransport(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Gets the underlying JDK HTTP client.
+     * @return the JDK HTTP client
+     */
+    public HttpClient getHttpClient() { return httpClient; }
+
+    private static long timeoutNanos(TransportRequest request) {
+        return request.getTimeoutNanos() == Long.MAX_VALUE ? DEFAULT_TIMEOUT.toNanos() : Math.max(1, request.getTimeoutNanos());
+    }
+
+    private static HttpRequest toHttpRequest(TransportRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()))
+                .timeout(Duration.ofNanos(timeoutNanos(request)));
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        if (request.getBody() == null) {
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.header("Content-Type", "application/json; charset=utf-8");
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.ofString(request.getBody()));
+        }
+        return builder.build();
+    }
+
+    private static TransportResponse toResponse(HttpResponse<String> response) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            headers.put(header.getKey().toLowerCase(), String.join(",", header.getValue()));
+        }
+        // HTTP/2 has no reason phrase
+        return new TransportResponse(response.statusCode(), "", headers, response.body());
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        CompletableFuture<TransportResponse> future = executeAsync(request);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted calling " + request.getUrl());
+        } catch (ExecutionException e) {
+            throw toIOException(e.getCause(), request);
+        } catch (CancellationException e) {
+            throw toIOException(e, request);
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(toHttpRequest(request), HttpResponse.BodyHandlers.ofString());
+        CancellationToken token = request.getCancellationToken();
+        AutoCloseable registration = token == null ? null : token.onCancel(() -> exchange.cancel(true));
+        CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+        // HttpRequest.timeout only covers the wait for the headers; this deadline also covers the body
+        exchange.copy().orTimeout(timeoutNanos(request), TimeUnit.NANOSECONDS).whenComplete((response, e) -> {
+            unregister(registration);
+            if (e == null) {
+                future.complete(toResponse(response));
+            } else {
+                exchange.cancel(true);
+                future.completeExceptionally(toIOException(e, request));
+            }
+        });
+        future.whenComplete((r, e) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    private static IOException toIOException(Throwable e, TransportRequest request) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        CancellationToken token = request.getCancellationToken();
+        if (cause instanceof CancellationException || (token != null && token.isCancelled())) {
+            InterruptedIOException cancelled = new InterruptedIOException("Call to " + request.getUrl() + " was cancelled");
+            cancelled.initCause(cause);
+            return cancelled;
+        }
+        if (cause instanceof HttpTimeoutException || cause instanceof TimeoutException) {
+            InterruptedIOException timeout = new InterruptedIOException("Timed out calling " + request.getUrl());
+            timeout.initCause(cause);
+            return timeout;
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("Call to " + request.getUrl() + " failed", cause);
+    }
+
+    private static void unregister(AutoCloseable registration) {
+        if (registration != null) {
+            try {
+                registration.close();
+            } catch (Exception ignored) {
+                // Unregistering a callback does not fail
+            }
+        }
+    }
+}
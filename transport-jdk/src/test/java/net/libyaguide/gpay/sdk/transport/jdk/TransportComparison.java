@@ -0,0 +1,103 @@
+package net.libyaguide.gpay.sdk.transport.jdk;
+
+import net.libyaguide.gpay.sdk.client.GPayApiClient;
+import net.libyaguide.gpay.sdk.client.GPayExecutors;
+import net.libyaguide.gpay.sdk.tools.StubGPayServer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TransportComparison measures one transport against a local {@link StubGPayServer}. Run it once per
+ * transport, each in a fresh JVM, so cold start and class loading are not shared.
+ * <p>
+ * <b>Measurements:</b>
+ * <ul>
+ *   <li>Cold start: time from creating the client to the first verified response, and classes loaded.</li>
+ *   <li>Heap footprint: heap retained after a full GC, relative to before the client was created.</li>
+ *   <li>Throughput: verified calls per second with {@code concurrency} blocking callers.</li>
+ * </ul>
+ * <b>Arguments:</b> {@code okhttp|jdk [calls=20000] [concurrency=64]}. The okhttp mode needs OkHttp on the
+ * class path, which this module does not depend on.
+ */
+public final class TransportComparison {
+    private static final String API_KEY = "bench-api-key";
+    private static final String SECRET_KEY = "bench-secret-key";
+    private static final String PASSWORD = "bench-password";
+
+    private TransportComparison() { }
+
+    /**
+     * Runs the comparison for one transport and prints one line of results.
+     * @param args {@code okhttp|jdk [calls] [concurrency]}
+     * @throws Exception if the stub server cannot be started or the first call fails.
+     */
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "jdk";
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        try (StubGPayServer stub = new StubGPayServer(API_KEY, SECRET_KEY, PASSWORD, concurrency)) {
+            stub.start();
+            long heapBefore = usedHeapAfterGc();
+            int classesBefore = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+
+            long started = System.nanoTime();
+            GPayApiClient client = "okhttp".equals(mode)
+                ? new GPayApiClient(API_KEY, SECRET_KEY, PASSWORD, stub.getBaseUrl(), "en")
+                : new GPayApiClient(API_KEY, SECRET_KEY, PASSWORD, stub.getBaseUrl(), "en", new JdkHttpTransport());
+            client.getWalletBalance();
+            long coldStart = System.nanoTime() - started;
+            int classes = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount() - classesBefore;
+
+            // Warm up, then measure
+            run(client, Math.min(calls, 2000), concurrency);
+            started = System.nanoTime();
+            int failures = run(client, calls, concurrency);
+            long elapsed = System.nanoTime() - started;
+
+            long heapRetained = usedHeapAfterGc() - heapBefore;
+            client.getTransport().close();
+            System.out.println("transport=" + mode
+                + " coldStartMillis=" + TimeUnit.NANOSECONDS.toMillis(coldStart)
+                + " classesLoaded=" + classes
+                + " heapRetainedKiB=" + heapRetained / 1024
+                + " callsPerSecond=" + (long) (calls / (elapsed / 1e9))
+                + " failures=" + failures);
+        }
+    }
+
+    private static int run(GPayApiClient client, int calls, int concurrency) throws InterruptedException {
+        ExecutorService executor = GPayExecutors.newBlockingExecutor("gpay-comparison", concurrency);
+        CountDownLatch done = new CountDownLatch(calls);
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            for (int i = 0; i < calls; i++) {
+                executor.execute(() -> {
+                    try {
+                        client.getWalletBalance();
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures.get();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}